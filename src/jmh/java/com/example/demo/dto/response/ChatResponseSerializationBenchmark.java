@@ -0,0 +1,66 @@
+package com.example.demo.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.demo.models.Message;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Cost of writing a {@link ChatResponse} to JSON for chats of different history sizes.
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChatResponseSerializationBenchmark {
+	@Param({ "10", "1000", "100000" })
+	private int messages;
+
+	private ObjectMapper objectMapper;
+	private ChatResponse response;
+
+	@Setup
+	public void setUp() {
+		objectMapper = new ObjectMapper().findAndRegisterModules();
+
+		UUID chatId = UUID.randomUUID();
+		List<ChatMemberResponse> users = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			users.add(new ChatMemberResponse(UUID.randomUUID(), "user" + i));
+		}
+		LocalDateTime time = LocalDateTime.now();
+		List<Message> history = new ArrayList<>(messages);
+		for (int i = 0; i < messages; i++) {
+			Message message = new Message();
+			message.setId(new ObjectId().toHexString());
+			message.setContext("Message number " + i + " of the benchmark chat");
+			message.setTime(time.plusSeconds(i));
+			message.setUserId(users.get(i % users.size()).id());
+			message.setChatId(chatId);
+			history.add(message);
+		}
+		response = new ChatResponse(chatId, "benchmark", users, history);
+	}
+
+	@Benchmark
+	public byte[] serialize() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(response);
+	}
+}
@@ -0,0 +1,70 @@
+package com.example.demo.security;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.Authentication;
+
+import com.example.demo.models.Token;
+import com.example.demo.service.TokenCookieService;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+
+import jakarta.servlet.http.Cookie;
+
+/**
+ * Per-request cost of authenticating the {@code __Host-auth-token} cookie.
+ *
+ * <p>{@code decrypt} is the cost before tokens were cached: a full JWE parse and decryption.
+ * {@code convertCached} is the cost of {@link TokenCookieAuthenticationConverter#convert} for a cookie
+ * that has been seen before.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TokenCookieAuthenticationConverterBenchmark {
+	private TokenCookieService tokenCookieService;
+	private TokenCookieAuthenticationConverter converter;
+	private MockHttpServletRequest request;
+	private String cookieValue;
+
+	@Setup
+	public void setUp() throws JOSEException {
+		OctetSequenceKey key = new OctetSequenceKeyGenerator(256).generate();
+		tokenCookieService = new TokenCookieService(new DirectEncrypter(key), new DirectDecrypter(key));
+		converter = new TokenCookieAuthenticationConverter(tokenCookieService);
+
+		Instant now = Instant.now();
+		cookieValue = tokenCookieService.serializer(new Token(UUID.randomUUID(), UUID.randomUUID().toString(),
+				List.of("ROLE_ADMIN"), now, now.plus(Duration.ofDays(1))));
+		request = new MockHttpServletRequest();
+		request.setCookies(new Cookie("__Host-auth-token", cookieValue));
+	}
+
+	@Benchmark
+	public Token decrypt() throws JOSEException {
+		return tokenCookieService.deserialize(cookieValue);
+	}
+
+	@Benchmark
+	public Authentication convertCached() {
+		return converter.convert(request);
+	}
+}
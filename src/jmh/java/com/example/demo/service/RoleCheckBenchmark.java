@@ -0,0 +1,118 @@
+package com.example.demo.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import com.example.demo.dto.request.MessageRequest;
+import com.example.demo.models.Chat;
+import com.example.demo.models.Message;
+import com.example.demo.models.User;
+import com.example.demo.models.UserRoleChat;
+import com.example.demo.models.role.Role;
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.repository.MessageRepository;
+
+/**
+ * Cost of the stream-based role checks over {@link Chat#getUserRole()}.
+ *
+ * <p>{@code chatAdminCheck} runs {@link ChatService#checkExportAccess} and {@code messageModeratorCheck} runs
+ * {@link MessageService#delete}. Repositories are stub-only mocks that return a preloaded chat, so the
+ * measured time is the role lookup plus a constant mock overhead. The services are built by Mockito from the
+ * mocks declared here; collaborators the measured paths do not use are left null. The authenticated user is the last
+ * entry of the role list, which is the worst case for the linear scan.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RoleCheckBenchmark {
+	@Param({ "10", "1000" })
+	private int members;
+
+	@Mock(stubOnly = true)
+	private ChatRepository chatRepository;
+	@Mock(stubOnly = true)
+	private MessageRepository messageRepository;
+	@Mock(stubOnly = true)
+	private ApplicationEventPublisher eventPublisher;
+	@Mock(stubOnly = true)
+	private ChatActivityService chatActivityService;
+	@InjectMocks
+	private ChatService chatService;
+	@InjectMocks
+	private MessageService messageService;
+	private AutoCloseable mocks;
+	private Authentication authentication;
+	private MessageRequest messageRequest;
+	private String chatId;
+
+	@Setup
+	public void setUp() {
+		mocks = MockitoAnnotations.openMocks(this);
+
+		User user = new User();
+		user.setId(UUID.randomUUID());
+		authentication = new UsernamePasswordAuthenticationToken(user, null, List.of());
+
+		Chat chat = new Chat();
+		chat.setId(UUID.randomUUID());
+		for (int i = 0; i < members; i++) {
+			UserRoleChat userRole = new UserRoleChat();
+			userRole.setId(UUID.randomUUID());
+			userRole.setUserId(i == members - 1 ? user.getId() : UUID.randomUUID());
+			userRole.setRole(i == members - 1 ? Role.ROLE_ADMIN : Role.ROLE_USER);
+			userRole.setChat(chat);
+			chat.getUserRole().add(userRole);
+		}
+		chatId = chat.getId().toString();
+
+		Message message = new Message();
+		message.setId("message");
+		message.setUserId(user.getId());
+		message.setChatId(chat.getId());
+		messageRequest = new MessageRequest();
+		messageRequest.setChatId(chat.getId());
+		messageRequest.setMessage(message);
+
+		when(chatRepository.findWithUserRoleById(any())).thenReturn(Optional.of(chat));
+		when(messageRepository.findById(any())).thenReturn(Optional.of(message));
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		mocks.close();
+	}
+
+	@Benchmark
+	public UUID chatAdminCheck() {
+		return chatService.checkExportAccess(chatId, authentication);
+	}
+
+	@Benchmark
+	public void messageModeratorCheck() {
+		messageService.delete(messageRequest, authentication);
+	}
+}
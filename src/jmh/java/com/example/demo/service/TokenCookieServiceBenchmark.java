@@ -0,0 +1,72 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+
+import com.example.demo.models.Token;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+
+/**
+ * Per-call cost of issuing and reading the {@code __Host-auth-token} cookie.
+ *
+ * <p>{@code serializer} and {@code deserialize} measure {@link TokenCookieService}, {@code loadUserDetails}
+ * measures turning an already decrypted {@link Token} into the principal of the request.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TokenCookieServiceBenchmark {
+	private TokenCookieService tokenCookieService;
+	private CustomUserDetailsService userDetailsService;
+	private Token token;
+	private String serialized;
+	private PreAuthenticatedAuthenticationToken authenticationToken;
+
+	@Setup
+	public void setUp() throws JOSEException {
+		OctetSequenceKey key = new OctetSequenceKeyGenerator(256).generate();
+		tokenCookieService = new TokenCookieService(new DirectEncrypter(key), new DirectDecrypter(key));
+		userDetailsService = new CustomUserDetailsService(null);
+
+		Instant now = Instant.now();
+		token = new Token(UUID.randomUUID(), UUID.randomUUID().toString(), List.of("ROLE_USER", "ROLE_ADMIN"), now,
+				now.plus(Duration.ofDays(1)));
+		serialized = tokenCookieService.serializer(token);
+		authenticationToken = new PreAuthenticatedAuthenticationToken(token, serialized);
+	}
+
+	@Benchmark
+	public String serializer() {
+		return tokenCookieService.serializer(token);
+	}
+
+	@Benchmark
+	public Token deserialize() throws JOSEException {
+		return tokenCookieService.deserialize(serialized);
+	}
+
+	@Benchmark
+	public UserDetails loadUserDetails() {
+		return userDetailsService.loadUserDetails(authenticationToken);
+	}
+}
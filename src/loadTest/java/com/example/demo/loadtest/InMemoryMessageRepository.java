@@ -0,0 +1,322 @@
+package com.example.demo.loadtest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.repository.query.FluentQuery;
+
+import com.example.demo.models.Message;
+import com.example.demo.repository.MessageRepository;
+
+/**
+ * In-memory {@link MessageRepository} used instead of MongoDB by the load test.
+ *
+ * <p>Every chat keeps its messages in a skip list ordered by {@code (time, _id)}, the same order as the
+ * {@code chat_time} index, so history pages cost a logarithmic seek plus the page size. Text search scans
+ * the searched chat and matches any of the words, ignoring phrases and negation. Query by example
+ * is not supported.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see MessageRepository
+ */
+public class InMemoryMessageRepository implements MessageRepository {
+	private static final Comparator<Key> ORDER = Comparator.comparing(Key::time).thenComparing(Key::id);
+	private static final ObjectId MIN_ID = new ObjectId("000000000000000000000000");
+
+	private final Map<String, Message> messages = new ConcurrentHashMap<>();
+	private final Map<UUID, NavigableMap<Key, Message>> chats = new ConcurrentHashMap<>();
+
+	@Override
+	public <S extends Message> S save(S entity) {
+		if (entity.getId() == null) {
+			entity.setId(new ObjectId().toHexString());
+		}
+		Message previous = messages.put(entity.getId(), entity);
+		if (previous != null) {
+			chat(previous.getChatId()).remove(key(previous));
+		}
+		chat(entity.getChatId()).put(key(entity), entity);
+		return entity;
+	}
+
+	@Override
+	public <S extends Message> List<S> saveAll(Iterable<S> entities) {
+		List<S> saved = new ArrayList<>();
+		entities.forEach(entity -> saved.add(save(entity)));
+		return saved;
+	}
+
+	@Override
+	public <S extends Message> S insert(S entity) {
+		return save(entity);
+	}
+
+	@Override
+	public <S extends Message> List<S> insert(Iterable<S> entities) {
+		return saveAll(entities);
+	}
+
+	@Override
+	public Map<Integer, DataAccessException> insertUnordered(List<Message> batch) {
+		Map<Integer, DataAccessException> failures = new HashMap<>();
+		for (int i = 0; i < batch.size(); i++) {
+			Message message = batch.get(i);
+			if (message.getId() != null && messages.containsKey(message.getId())) {
+				failures.put(i, new DuplicateKeyException("Duplicate message ID " + message.getId()));
+			} else {
+				save(message);
+			}
+		}
+		return failures;
+	}
+
+	@Override
+	public Optional<Message> findById(String id) {
+		return Optional.ofNullable(messages.get(id));
+	}
+
+	@Override
+	public boolean existsById(String id) {
+		return messages.containsKey(id);
+	}
+
+	@Override
+	public List<Message> findAll() {
+		return new ArrayList<>(messages.values());
+	}
+
+	@Override
+	public List<Message> findAll(Sort sort) {
+		throw new UnsupportedOperationException("Sorting is not supported");
+	}
+
+	@Override
+	public Page<Message> findAll(Pageable pageable) {
+		List<Message> all = findAll();
+		int from = (int) Math.min(pageable.getOffset(), all.size());
+		int to = Math.min(from + pageable.getPageSize(), all.size());
+		return new PageImpl<>(all.subList(from, to), pageable, all.size());
+	}
+
+	@Override
+	public List<Message> findAllById(Iterable<String> ids) {
+		return StreamSupport.stream(ids.spliterator(), false).map(messages::get).filter(m -> m != null).toList();
+	}
+
+	@Override
+	public long count() {
+		return messages.size();
+	}
+
+	@Override
+	public void deleteById(String id) {
+		Message message = messages.remove(id);
+		if (message != null) {
+			chat(message.getChatId()).remove(key(message));
+		}
+	}
+
+	@Override
+	public void delete(Message entity) {
+		deleteById(entity.getId());
+	}
+
+	@Override
+	public void deleteAllById(Iterable<? extends String> ids) {
+		ids.forEach(this::deleteById);
+	}
+
+	@Override
+	public void deleteAll(Iterable<? extends Message> entities) {
+		entities.forEach(this::delete);
+	}
+
+	@Override
+	public void deleteAll() {
+		messages.clear();
+		chats.clear();
+	}
+
+	@Override
+	public void deleteAllByChatId(UUID chatId) {
+		NavigableMap<Key, Message> chat = chats.remove(chatId);
+		if (chat != null) {
+			chat.values().forEach(message -> messages.remove(message.getId()));
+		}
+	}
+
+	@Override
+	public long countByChatId(UUID chatId) {
+		return chat(chatId).size();
+	}
+
+	@Override
+	public long countByChatIdAndUserId(UUID chatId, UUID userId) {
+		return chat(chatId).values().stream().filter(message -> userId.equals(message.getUserId())).count();
+	}
+
+	@Override
+	public List<Message> findByChatIdAndTimeBetweenOrderByTimeAsc(UUID chatId, LocalDateTime from, LocalDateTime to,
+			Pageable pageable) {
+		return chat(chatId).values().stream()
+				.filter(message -> message.getTime().isAfter(from) && message.getTime().isBefore(to))
+				.skip(pageable.getOffset()).limit(pageable.getPageSize()).toList();
+	}
+
+	@Override
+	public List<Message> findByChatIdAndUserIdOrderByTimeDesc(UUID chatId, UUID userId, Pageable pageable) {
+		return chat(chatId).descendingMap().values().stream()
+				.filter(message -> userId.equals(message.getUserId()))
+				.limit(pageable.getPageSize()).toList();
+	}
+
+	@Override
+	public List<Message> findByChatIdOrderByTimeDescIdDesc(UUID chatId, Pageable pageable) {
+		return chat(chatId).descendingMap().values().stream().limit(pageable.getPageSize()).toList();
+	}
+
+	@Override
+	public List<Message> findLatest(UUID chatId, LocalDateTime since, Pageable pageable) {
+		return chat(chatId).tailMap(new Key(since, MIN_ID), true).descendingMap().values().stream()
+				.limit(pageable.getPageSize()).toList();
+	}
+
+	@Override
+	public List<Message> findPageBefore(UUID chatId, LocalDateTime since, LocalDateTime time, ObjectId id,
+			Pageable pageable) {
+		if (time.isBefore(since)) {
+			return List.of();
+		}
+		return chat(chatId).subMap(new Key(since, MIN_ID), true, new Key(time, id), false).descendingMap().values()
+				.stream().limit(pageable.getPageSize()).toList();
+	}
+
+	@Override
+	public List<Message> findPageAfter(UUID chatId, LocalDateTime since, LocalDateTime time, ObjectId id,
+			Pageable pageable) {
+		return chat(chatId).tailMap(new Key(time, id), false).values().stream()
+				.filter(message -> !message.getTime().isBefore(since))
+				.limit(pageable.getPageSize()).toList();
+	}
+
+	@Override
+	public Stream<Message> streamHistory(UUID chatId, LocalDateTime since) {
+		return new ArrayList<>(chat(chatId).tailMap(new Key(since, MIN_ID), true).values()).stream();
+	}
+
+	@Override
+	public Stream<Message> streamArchivable(UUID chatId, LocalDateTime from, LocalDateTime before) {
+		if (!from.isBefore(before)) {
+			return Stream.empty();
+		}
+		return new ArrayList<>(chat(chatId).subMap(new Key(from, MIN_ID), true, new Key(before, MIN_ID), false)
+				.values()).stream();
+	}
+
+	@Override
+	public long deleteArchived(UUID chatId, LocalDateTime time, ObjectId id) {
+		NavigableMap<Key, Message> archived = chat(chatId).headMap(new Key(time, id), true);
+		List<Message> deleted = new ArrayList<>(archived.values());
+		deleted.forEach(this::delete);
+		return deleted.size();
+	}
+
+	@Override
+	public List<Message> search(UUID chatId, LocalDateTime since, ObjectId before, TextCriteria criteria, int limit) {
+		String search = criteria.getCriteriaObject().get("$text", Document.class).getString("$search");
+		List<String> words = Arrays.stream(search.toLowerCase(Locale.ROOT).split("\\W+"))
+				.filter(word -> !word.isEmpty()).toList();
+		return chat(chatId).tailMap(new Key(since, MIN_ID), true).values().stream()
+				.filter(message -> before == null || new ObjectId(message.getId()).compareTo(before) < 0)
+				.filter(message -> message.getContext() != null && Arrays
+						.stream(message.getContext().toLowerCase(Locale.ROOT).split("\\W+")).anyMatch(words::contains))
+				.sorted(Comparator.comparing(Message::getId).reversed())
+				.limit(limit).toList();
+	}
+
+	@Override
+	public List<Message> findIdsByChatId(UUID chatId, Pageable pageable) {
+		return chat(chatId).values().stream().limit(pageable.getPageSize()).map(message -> {
+			Message id = new Message();
+			id.setId(message.getId());
+			return id;
+		}).toList();
+	}
+
+	@Override
+	public <S extends Message> Optional<S> findOne(Example<S> example) {
+		throw new UnsupportedOperationException("Query by example is not supported");
+	}
+
+	@Override
+	public <S extends Message> List<S> findAll(Example<S> example) {
+		throw new UnsupportedOperationException("Query by example is not supported");
+	}
+
+	@Override
+	public <S extends Message> List<S> findAll(Example<S> example, Sort sort) {
+		throw new UnsupportedOperationException("Query by example is not supported");
+	}
+
+	@Override
+	public <S extends Message> Page<S> findAll(Example<S> example, Pageable pageable) {
+		throw new UnsupportedOperationException("Query by example is not supported");
+	}
+
+	@Override
+	public <S extends Message> long count(Example<S> example) {
+		throw new UnsupportedOperationException("Query by example is not supported");
+	}
+
+	@Override
+	public <S extends Message> boolean exists(Example<S> example) {
+		throw new UnsupportedOperationException("Query by example is not supported");
+	}
+
+	@Override
+	public <S extends Message, R> R findBy(Example<S> example,
+			Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+		throw new UnsupportedOperationException("Query by example is not supported");
+	}
+
+	private NavigableMap<Key, Message> chat(UUID chatId) {
+		return chats.computeIfAbsent(chatId, id -> new ConcurrentSkipListMap<>(ORDER));
+	}
+
+	private static Key key(Message message) {
+		return new Key(message.getTime(), new ObjectId(message.getId()));
+	}
+	/**
+	 * Position of a message in the {@code (time, _id)} order of its chat.
+	 *
+	 * @param time the time of the message
+	 * @param id   the identifier of the message
+	 */
+	private record Key(LocalDateTime time, ObjectId id) {
+	}
+}
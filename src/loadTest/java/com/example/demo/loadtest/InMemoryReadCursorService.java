@@ -0,0 +1,41 @@
+package com.example.demo.loadtest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.example.demo.models.ReadCursor;
+import com.example.demo.service.ReadCursorService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-memory {@link ReadCursorService} used instead of MongoDB by the load test. Coalescing and
+ * flushing are inherited; only the store is replaced.
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see ReadCursorService
+ */
+public class InMemoryReadCursorService extends ReadCursorService {
+	private final Map<UUID, Map<UUID, String>> cursors = new ConcurrentHashMap<>();
+
+	public InMemoryReadCursorService(MeterRegistry meterRegistry) {
+		super(null, meterRegistry);
+	}
+
+	@Override
+	protected void write(List<ReadCursor> batch) {
+		for (ReadCursor cursor : batch) {
+			cursors.computeIfAbsent(cursor.getChatId(), id -> new ConcurrentHashMap<>()).merge(cursor.getUserId(),
+					cursor.getMessageId(), (first, second) -> first.compareTo(second) >= 0 ? first : second);
+		}
+	}
+
+	@Override
+	protected Map<UUID, String> read(UUID chatId) {
+		return new HashMap<>(cursors.getOrDefault(chatId, Map.of()));
+	}
+}
@@ -0,0 +1,54 @@
+package com.example.demo.loadtest;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.demo.service.ChatMembershipIndex;
+import com.example.demo.service.UnreadCounterService;
+
+/**
+ * In-memory {@link UnreadCounterService} used instead of MongoDB by the load test.
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see UnreadCounterService
+ */
+public class InMemoryUnreadCounterService extends UnreadCounterService {
+	private final ChatMembershipIndex membershipIndex;
+	private final Map<UUID, Map<UUID, AtomicLong>> counters = new ConcurrentHashMap<>();
+
+	public InMemoryUnreadCounterService(ChatMembershipIndex membershipIndex) {
+		super(null, membershipIndex);
+		this.membershipIndex = membershipIndex;
+	}
+
+	@Override
+	public void increment(UUID chatId, UUID senderId, long messages) {
+		for (UUID memberId : membershipIndex.members(chatId)) {
+			if (!memberId.equals(senderId)) {
+				counters.computeIfAbsent(memberId, id -> new ConcurrentHashMap<>())
+						.computeIfAbsent(chatId, id -> new AtomicLong()).addAndGet(messages);
+			}
+		}
+	}
+
+	@Override
+	public void markRead(UUID chatId, UUID userId) {
+		counters.getOrDefault(userId, Map.of()).remove(chatId);
+	}
+
+	@Override
+	public Map<UUID, Long> findAll(UUID userId) {
+		Map<UUID, Long> counts = new ConcurrentHashMap<>();
+		counters.getOrDefault(userId, Map.of()).forEach((chatId, count) -> counts.put(chatId, count.get()));
+		return counts;
+	}
+
+	@Override
+	public void remove(UUID chatId, Collection<UUID> userIds) {
+		userIds.forEach(userId -> markRead(chatId, userId));
+	}
+}
@@ -0,0 +1,73 @@
+package com.example.demo.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects the latencies and failures of one endpoint.
+ *
+ * <p>Every sample is kept, so percentiles are exact; a run of a few hundred thousand requests
+ * needs a few megabytes.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ */
+public class LatencyRecorder {
+	private final String name;
+	private long[] samples = new long[1024];
+	private int count;
+	private int failures;
+	private long firstStart = Long.MAX_VALUE;
+	private long lastEnd = Long.MIN_VALUE;
+
+	public LatencyRecorder(String name) {
+		this.name = name;
+	}
+	/**
+	 * Records one request.
+	 *
+	 * @param start   the {@link System#nanoTime()} when the request was sent
+	 * @param end     the {@link System#nanoTime()} when the response was read
+	 * @param success true if the response had the expected status
+	 */
+	public synchronized void record(long start, long end, boolean success) {
+		if (count == samples.length) {
+			samples = Arrays.copyOf(samples, count * 2);
+		}
+		samples[count++] = end - start;
+		if (!success) {
+			failures++;
+		}
+		firstStart = Math.min(firstStart, start);
+		lastEnd = Math.max(lastEnd, end);
+	}
+	/**
+	 * Formats the summary of the endpoint as one line of the report.
+	 *
+	 * @return the summary line
+	 */
+	public synchronized String summary() {
+		long[] sorted = Arrays.copyOf(samples, count);
+		Arrays.sort(sorted);
+		double seconds = count == 0 ? 0 : (lastEnd - firstStart) / 1e9;
+		return String.format("%-24s %8d %8d %10.1f %9.2f %9.2f %9.2f %9.2f", name, count, failures,
+				seconds == 0 ? 0 : count / seconds, millis(sorted, 0.50), millis(sorted, 0.99), millis(sorted, 0.999),
+				count == 0 ? 0 : sorted[count - 1] / 1e6);
+	}
+	/**
+	 * Returns the header matching {@link #summary()}.
+	 *
+	 * @return the header line
+	 */
+	public static String header() {
+		return String.format("%-24s %8s %8s %10s %9s %9s %9s %9s", "endpoint", "requests", "errors", "req/s",
+				"p50 ms", "p99 ms", "p999 ms", "max ms");
+	}
+
+	private static double millis(long[] sorted, double quantile) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(quantile * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+	}
+}
@@ -0,0 +1,56 @@
+package com.example.demo.loadtest;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import com.example.demo.repository.MessageRepository;
+import com.example.demo.service.ChatMembershipIndex;
+import com.example.demo.service.ReadCursorService;
+import com.example.demo.service.UnreadCounterService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Beans that replace external services while the {@code loadtest} profile is active.
+ *
+ * <p>Postgres is replaced by the embedded H2 database configured in {@code application-loadtest.properties};
+ * MongoDB is replaced by {@link InMemoryMessageRepository} and {@link InMemoryUnreadCounterService}
+ * and {@link InMemoryReadCursorService}, which override the scanned beans of the same name.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ */
+@Configuration
+@Profile("loadtest")
+public class LoadTestConfiguration {
+	/**
+	 * Bean definition for the in-memory message store.
+	 *
+	 * @return the in-memory MessageRepository
+	 */
+	@Bean
+	MessageRepository messageRepository() {
+		return new InMemoryMessageRepository();
+	}
+	/**
+	 * Bean definition for the in-memory unread counters.
+	 *
+	 * @param membershipIndex the chat membership index
+	 * @return the in-memory UnreadCounterService
+	 */
+	@Bean
+	UnreadCounterService unreadCounterService(ChatMembershipIndex membershipIndex) {
+		return new InMemoryUnreadCounterService(membershipIndex);
+	}
+	/**
+	 * Bean definition for the in-memory read cursors.
+	 *
+	 * @param meterRegistry the meter registry
+	 * @return the in-memory ReadCursorService
+	 */
+	@Bean
+	ReadCursorService readCursorService(MeterRegistry meterRegistry) {
+		return new InMemoryReadCursorService(meterRegistry);
+	}
+}
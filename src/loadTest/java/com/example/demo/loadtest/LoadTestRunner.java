@@ -0,0 +1,255 @@
+package com.example.demo.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.demo.Demo1Application;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+
+/**
+ * Boots {@link Demo1Application} with the {@code loadtest} profile and drives it over HTTP from many
+ * concurrent virtual users.
+ *
+ * <p>Every virtual user registers, logs in, creates a chat, adds the next user to it and then sends
+ * messages while reading the history of its chat. The phases run one after another and every virtual
+ * user runs on its own thread. Writes authenticate with HTTP Basic because the services expect a
+ * {@code User} principal; history reads use the {@code __Host-auth-token} cookie issued at login.</p>
+ *
+ * <p>The run is configured with the system properties {@code loadtest.users}, {@code loadtest.messages},
+ * {@code loadtest.reads} and {@code loadtest.virtualThreads}, which runs the application on virtual threads.
+ * The virtual users themselves always run on platform threads, so both modes receive the same load. The
+ * report lists throughput and p50/p99/p999 latency per endpoint; it is printed and, if a path is given as the
+ * first argument, written to that file. Reports are not kept in the repository: the stand-in stores run in
+ * the same JVM, so the numbers only compare the two modes on the machine that produced them.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ */
+public class LoadTestRunner {
+	private static final String PASSWORD = "load-test-password";
+	private static final String COOKIE = "__Host-auth-token";
+
+	private final URI baseUri;
+	private final int users;
+	private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+	private final AtomicInteger failedUsers = new AtomicInteger();
+
+	private final String[] userIds;
+	private final String[] basic;
+	private final String[] cookies;
+	private final String[] chatIds;
+
+	public LoadTestRunner(URI baseUri, int users) {
+		this.baseUri = baseUri;
+		this.users = users;
+		this.userIds = new String[users];
+		this.basic = new String[users];
+		this.cookies = new String[users];
+		this.chatIds = new String[users];
+	}
+
+	public static void main(String[] args) throws JOSEException, IOException, InterruptedException {
+		int users = Integer.getInteger("loadtest.users", 50);
+		int messages = Integer.getInteger("loadtest.messages", 100);
+		int reads = Integer.getInteger("loadtest.reads", 20);
+		boolean virtualThreads = Boolean.getBoolean("loadtest.virtualThreads");
+
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(Demo1Application.class,
+				LoadTestConfiguration.class)
+				.profiles("loadtest")
+				.properties(Map.of("COOKIE_TOKEN_KEY", new OctetSequenceKeyGenerator(256).generate().toJSONString(),
+						"spring.threads.virtual.enabled", virtualThreads))
+				.run(args);
+		try {
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			String report = (virtualThreads ? "Virtual" : "Platform") + " threads: "
+					+ new LoadTestRunner(URI.create("http://localhost:" + port), users).run(messages, reads);
+
+			System.out.println(report);
+			if (args.length > 0) {
+				Path path = Path.of(args[0]);
+				Files.createDirectories(path.toAbsolutePath().getParent());
+				Files.writeString(path, report);
+			}
+		} finally {
+			context.close();
+		}
+	}
+	/**
+	 * Runs all phases of the scenario.
+	 *
+	 * @param messages the number of messages every virtual user sends
+	 * @param reads    the number of history reads every virtual user makes while sending
+	 * @return the report
+	 * @throws InterruptedException if the run is interrupted
+	 */
+	public String run(int messages, int reads) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(users);
+		long start = System.nanoTime();
+		try {
+			phase(executor, this::register);
+			phase(executor, this::login);
+			phase(executor, this::createChat);
+			phase(executor, this::addUser);
+			phase(executor, user -> {
+				int readEvery = reads == 0 ? Integer.MAX_VALUE : Math.max(1, messages / reads);
+				for (int i = 1; i <= messages; i++) {
+					sendMessage(user, i);
+					if (i % readEvery == 0) {
+						readHistory(user);
+					}
+				}
+			});
+		} finally {
+			executor.shutdownNow();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%d virtual users, %d messages and %d history reads each, %.1f s, %d aborted "
+				+ "virtual user phases%n", users, messages, reads, seconds, failedUsers.get()));
+		report.append(LatencyRecorder.header()).append(System.lineSeparator());
+		recorders.values().forEach(recorder -> report.append(recorder.summary()).append(System.lineSeparator()));
+		return report.toString();
+	}
+
+	private void phase(ExecutorService executor, IntConsumer action) throws InterruptedException {
+		List<Callable<Void>> tasks = new ArrayList<>(users);
+		for (int i = 0; i < users; i++) {
+			int user = i;
+			tasks.add(() -> {
+				action.accept(user);
+				return null;
+			});
+		}
+		for (Future<Void> future : executor.invokeAll(tasks)) {
+			try {
+				future.get();
+			} catch (ExecutionException exception) {
+				failedUsers.incrementAndGet();
+			}
+		}
+	}
+
+	private void register(int user) {
+		String email = "load-test-" + user + "-" + System.nanoTime() + "@example.com";
+		HttpResponse<String> response = send("POST /api/user/registration", json("/api/user/registration")
+				.POST(body(Map.of("username", "load-test-" + user, "email", email, "password", PASSWORD))));
+		userIds[user] = id(response);
+		basic[user] = "Basic " + Base64.getEncoder()
+				.encodeToString((email + ":" + PASSWORD).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void login(int user) {
+		HttpResponse<String> response = send("GET /api/user/{id}",
+				json("/api/user/" + userIds[user]).header("Authorization", basic[user]).GET());
+		cookies[user] = response.headers().allValues("Set-Cookie").stream()
+				.filter(cookie -> cookie.startsWith(COOKIE + "="))
+				.map(cookie -> cookie.substring(0, cookie.indexOf(';') < 0 ? cookie.length() : cookie.indexOf(';')))
+				.findFirst().orElse(null);
+	}
+
+	private void createChat(int user) {
+		HttpResponse<String> response = send("POST /api/chat", json("/api/chat")
+				.header("Authorization", basic[user])
+				.POST(body(Map.of("chat", Map.of("name", "load-test-" + user)))));
+		chatIds[user] = id(response);
+	}
+
+	private void addUser(int user) {
+		if (users > 1) {
+			send("PUT /api/chat", json("/api/chat")
+					.header("Authorization", basic[user])
+					.PUT(body(Map.of("userId", userIds[(user + 1) % users], "chat", Map.of("id", chatIds[user])))));
+		}
+	}
+
+	private void sendMessage(int user, int number) {
+		send("POST /api/message", json("/api/message")
+				.header("Authorization", basic[user])
+				.POST(body(Map.of("chatId", chatIds[user],
+						"message", Map.of("context", "Message " + number + " from user " + user)))));
+	}
+
+	private void readHistory(int user) {
+		HttpRequest.Builder request = json("/api/chat/" + chatIds[user] + "/messages?limit=50").GET();
+		if (cookies[user] != null) {
+			request.header("Cookie", cookies[user]);
+		} else {
+			request.header("Authorization", basic[user]);
+		}
+		send("GET /api/chat/{id}/messages", request);
+	}
+
+	private HttpResponse<String> send(String endpoint, HttpRequest.Builder request) {
+		LatencyRecorder recorder;
+		synchronized (recorders) {
+			recorder = recorders.computeIfAbsent(endpoint, LatencyRecorder::new);
+		}
+		long start = System.nanoTime();
+		try {
+			HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+			recorder.record(start, System.nanoTime(), response.statusCode() == 200);
+			return response;
+		} catch (IOException exception) {
+			recorder.record(start, System.nanoTime(), false);
+			throw new IllegalStateException(endpoint + " failed", exception);
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(endpoint + " was interrupted", exception);
+		}
+	}
+
+	private HttpRequest.Builder json(String path) {
+		return HttpRequest.newBuilder(baseUri.resolve(path))
+				.timeout(Duration.ofSeconds(30))
+				.header("Content-Type", "application/json")
+				.header("Accept", "application/json");
+	}
+
+	private HttpRequest.BodyPublisher body(Object value) {
+		try {
+			return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(value));
+		} catch (IOException exception) {
+			throw new IllegalStateException(exception);
+		}
+	}
+
+	private String id(HttpResponse<String> response) {
+		if (response.statusCode() != 200) {
+			throw new IllegalStateException("Unexpected status " + response.statusCode() + ": " + response.body());
+		}
+		try {
+			return objectMapper.readTree(response.body()).get("id").asText();
+		} catch (IOException exception) {
+			throw new IllegalStateException(exception);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.example.demo.config;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.models.Message;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Startup check for the indexes of the {@link Message} collection.
+ *
+ * <p>The indexes are declared on {@link Message} and created by Spring Data when
+ * {@code spring.data.mongodb.auto-index-creation} is enabled. This check only compares the key
+ * patterns of the existing indexes with the required ones and logs a warning for every missing index,
+ * because history reads and chat deletes degrade to collection scans without them, and messages are
+ * never expired without the TTL index. Message search fails without the text index
+ * {@value Message#TEXT_INDEX}, whose first key must be {@code chatId}. A collection can have only one text
+ * index, so an older text index on {@code context} alone must be dropped before it can be created.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see Message
+ */
+@Slf4j
+@Component
+@Profile("!loadtest")
+@RequiredArgsConstructor
+public class MessageIndexVerifier {
+	/**
+	 * The required key patterns by index name.
+	 */
+	static final Map<String, List<String>> REQUIRED_INDEXES = Map.of(
+			Message.CHAT_TIME_INDEX, List.of("chatId", "time", "_id"),
+			Message.CHAT_USER_TIME_INDEX, List.of("chatId", "userId", "time"),
+			Message.EXPIRE_INDEX, List.of("expireAt"));
+
+	private final MongoTemplate mongoTemplate;
+	/**
+	 * Verifies the indexes once the application has started.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void verify() {
+		List<IndexInfo> indexes;
+		try {
+			indexes = mongoTemplate.indexOps(Message.class).getIndexInfo();
+		} catch (DataAccessException exception) {
+			log.warn("Could not read indexes of the message collection: {}", exception.getMessage());
+			return;
+		}
+
+		REQUIRED_INDEXES.forEach((name, keys) -> {
+			boolean present = indexes.stream()
+					.anyMatch(index -> index.getIndexFields().stream().map(IndexField::getKey).toList().equals(keys));
+			if (!present) {
+				log.warn("Required index {} {} is missing on the message collection", name, keys);
+			}
+		});
+		boolean text = indexes.stream().map(IndexInfo::getIndexFields)
+				.anyMatch(fields -> !fields.isEmpty() && fields.get(0).getKey().equals("chatId")
+						&& fields.stream().anyMatch(field -> field.isText() && field.getKey().equals("context")));
+		if (!text) {
+			log.warn("Required text index {} [chatId, context] is missing on the message collection",
+					Message.TEXT_INDEX);
+		}
+	}
+}
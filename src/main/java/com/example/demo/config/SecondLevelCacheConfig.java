@@ -0,0 +1,98 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.example.demo.models.Chat;
+import com.example.demo.models.User;
+import com.example.demo.models.UserRoleChat;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+
+/**
+ * Configuration class for the Hibernate second-level and query cache.
+ *
+ * <p>The regions live on the heap in a Caffeine JCache manager that is handed to Hibernate. Every region is
+ * created here with the size and expiry given by {@code chat.cache.region.<region>.max-size} and
+ * {@code chat.cache.region.<region>.expire-after-write}; Hibernate is told to fail on any other region, so
+ * nothing is cached without explicit limits. The update timestamps region has no expiry, because Hibernate
+ * would serve stale query results if a timestamp were dropped; it holds one entry per table.</p>
+ *
+ * <p>Entries are stored by reference, as Hibernate caches immutable disassembled state. Like the other
+ * in-memory caches the regions are per node, so the cache is only correct as long as a single node writes
+ * to the database.</p>
+ *
+ * <p>Hit, miss and put counts per region are exported by Hibernate's statistics as
+ * {@code hibernate.second.level.cache.*} and {@code hibernate.query.cache.*}; evictions by size or expiry are
+ * exported per region as {@code cache.evictions}.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+	/**
+	 * The regions of the second-level and query cache.
+	 */
+	private static final List<String> REGIONS = List.of(Chat.CACHE_REGION, Chat.USER_ROLE_CACHE_REGION,
+			UserRoleChat.CACHE_REGION, User.CACHE_REGION, User.ROLES_CACHE_REGION,
+			RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+			RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME);
+
+	private static final String PROPERTY_PREFIX = "chat.cache.region.";
+	/**
+	 * Creates the cache manager holding the regions.
+	 *
+	 * @param environment the environment to read the region limits from
+	 * @param registry    the registry to export the region statistics to
+	 * @return the cache manager; closed with the application context
+	 * @throws IllegalStateException if a region has no maximum size
+	 */
+	@Bean
+	public CacheManager hibernateCacheManager(Environment environment, MeterRegistry registry) {
+		CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+		CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+
+		for (String region : REGIONS) {
+			CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+			configuration.setStoreByValue(false);
+			configuration.setStatisticsEnabled(true);
+			configuration.setMaximumSize(OptionalLong.of(
+					environment.getRequiredProperty(PROPERTY_PREFIX + region + ".max-size", Long.class)));
+			Duration expiry = environment.getProperty(PROPERTY_PREFIX + region + ".expire-after-write", Duration.class);
+			if (expiry != null) {
+				configuration.setExpireAfterWrite(OptionalLong.of(expiry.toNanos()));
+			}
+
+			Cache<Object, Object> cache = cacheManager.createCache(region, configuration);
+			JCacheMetrics.monitor(registry, cache, "cacheManager", "hibernate");
+		}
+		return cacheManager;
+	}
+	/**
+	 * Hands the cache manager to Hibernate.
+	 *
+	 * @param hibernateCacheManager the cache manager holding the regions
+	 * @return the customizer of the Hibernate properties
+	 */
+	@Bean
+	public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+		return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+	}
+}
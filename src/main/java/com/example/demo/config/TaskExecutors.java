@@ -0,0 +1,63 @@
+package com.example.demo.config;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Factory for the executors the application creates for itself.
+ *
+ * <p>When {@code spring.threads.virtual.enabled} is set, every task runs on its own virtual thread;
+ * otherwise a fixed pool of platform threads with a bounded queue is used. In both modes the thread
+ * names start with the given prefix.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ */
+public final class TaskExecutors {
+	/**
+	 * The property that switches the application to virtual threads.
+	 */
+	public static final String VIRTUAL_THREADS_PROPERTY = "${spring.threads.virtual.enabled:false}";
+
+	private TaskExecutors() {
+	}
+	/**
+	 * Creates an executor.
+	 *
+	 * @param threadNamePrefix the prefix of the thread names
+	 * @param poolSize         the number of platform threads
+	 * @param queueCapacity    the number of queued tasks of the platform pool
+	 * @param virtualThreads   true to run every task on a new virtual thread instead
+	 * @return the initialized executor
+	 */
+	public static AsyncTaskExecutor create(String threadNamePrefix, int poolSize, int queueCapacity,
+			boolean virtualThreads) {
+		if (virtualThreads) {
+			SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+			executor.setVirtualThreads(true);
+			executor.setTaskTerminationTimeout(5_000);
+			return executor;
+		}
+
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(poolSize);
+		executor.setMaxPoolSize(poolSize);
+		executor.setQueueCapacity(queueCapacity);
+		executor.setThreadNamePrefix(threadNamePrefix);
+		executor.initialize();
+		return executor;
+	}
+	/**
+	 * Stops an executor created by {@link #create}.
+	 *
+	 * @param executor the executor
+	 */
+	public static void shutdown(AsyncTaskExecutor executor) {
+		if (executor instanceof ThreadPoolTaskExecutor pool) {
+			pool.shutdown();
+		} else if (executor instanceof SimpleAsyncTaskExecutor simple) {
+			simple.close();
+		}
+	}
+}
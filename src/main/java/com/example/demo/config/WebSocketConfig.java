@@ -0,0 +1,31 @@
+package com.example.demo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+import com.example.demo.websocket.ChatWebSocketHandler;
+import com.example.demo.websocket.ChatWebSocketHandshakeInterceptor;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Configuration class for the chat WebSocket endpoint.
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see ChatWebSocketHandler
+ */
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketConfigurer {
+	private final ChatWebSocketHandler chatWebSocketHandler;
+	private final ChatWebSocketHandshakeInterceptor chatWebSocketHandshakeInterceptor;
+
+	@Override
+	public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+		registry.addHandler(chatWebSocketHandler, "/ws/chat").addInterceptors(chatWebSocketHandshakeInterceptor);
+	}
+}
@@ -3,7 +3,10 @@ package com.example.demo.controller;
 import com.example.demo.models.User;
 import com.example.demo.models.role.Role;
 import org.springframework.dao.DataAccessException;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -12,17 +15,34 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.example.demo.dto.request.ChatRequest;
 import com.example.demo.dto.request.ChatRoleRequest;
 import com.example.demo.dto.request.ChatUserRequest;
+import com.example.demo.dto.request.ReadCursorRequest;
 import com.example.demo.dto.response.ChatResponse;
 import com.example.demo.dto.response.ExceptionResponse;
+import com.example.demo.dto.response.InboxPageResponse;
+import com.example.demo.dto.response.MessagePageResponse;
 import com.example.demo.dto.response.UUIDResponse;
 import com.example.demo.models.Chat;
+import com.example.demo.models.Message;
+import com.example.demo.security.AuthenticatedUserId;
+import com.example.demo.service.ChatEventStreamService;
+import com.example.demo.service.ChatReadCursorService;
 import com.example.demo.service.ChatService;
+import com.example.demo.service.ChatUnreadService;
+import com.example.demo.service.EntityVersions;
+import com.example.demo.service.MessageSearchService;
+
+import java.util.Map;
+import java.util.UUID;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -51,6 +71,180 @@ public class ChatController {
      * @see ChatService
      */
     private final ChatService chatService;
+    /**
+     * A private {@link ChatUnreadService} field that is initialized by {@code @RequiredArgsConstructor}
+     *
+     * @see ChatUnreadService
+     */
+    private final ChatUnreadService chatUnreadService;
+    /**
+     * A private {@link ChatReadCursorService} field that is initialized by {@code @RequiredArgsConstructor}
+     *
+     * @see ChatReadCursorService
+     */
+    private final ChatReadCursorService chatReadCursorService;
+    /**
+     * A private {@link MessageSearchService} field that is initialized by {@code @RequiredArgsConstructor}
+     *
+     * @see MessageSearchService
+     */
+    private final MessageSearchService messageSearchService;
+    /**
+     * A private {@link ChatEventStreamService} field that is initialized by {@code @RequiredArgsConstructor}
+     *
+     * @see ChatEventStreamService
+     */
+    private final ChatEventStreamService chatEventStreamService;
+    /**
+     * A private {@link EntityVersions} field that is initialized by {@code @RequiredArgsConstructor}
+     *
+     * @see EntityVersions
+     */
+    private final EntityVersions entityVersions;
+
+    /**
+     * Controller method for GET requests to "/api/chat" which returns the {@link Chat}s of the authenticated
+     * {@link User}, most recently active first, each with its name, member count and a preview of its newest
+     * {@link Message}. The list is read from the denormalized chat activity summaries.
+     *
+     * @param cursor The cursor returned with the previous page, taken from the "cursor" request parameter.
+     * @param limit  The maximum number of {@link Chat}s, taken from the "limit" request parameter.
+     * @param auth   An {@link Authentication} object containing {@link User} authentication information.
+     * @return A {@link ResponseEntity} with an {@link InboxPageResponse} and status {@link HttpStatus#OK}.
+     * If the cursor is not valid, {@link ResponseEntity} with {@link ExceptionResponse} with status
+     * {@link HttpStatus#BAD_REQUEST}. In other cases, {@link ResponseEntity} with {@link ExceptionResponse}
+     * in the response body, with status {@link HttpStatus#FORBIDDEN}.
+     * @throws IllegalArgumentException if the cursor is not valid.
+     * @throws DataAccessException if reading the chats failed.
+     * @throws NullPointerException if the {@link User} is not authenticated.
+     * @see InboxPageResponse
+     * @see ExceptionResponse
+     */
+    @GetMapping
+    public ResponseEntity<?> getChats(@RequestParam(name = "cursor", required = false) String cursor,
+                                      @RequestParam(name = "limit", required = false) Integer limit,
+                                      Authentication auth) {
+        InboxPageResponse page;
+        try {
+            page = chatService.findInbox(cursor, limit, auth);
+        } catch (IllegalArgumentException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.BAD_REQUEST);
+        } catch (DataAccessException | NullPointerException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.FORBIDDEN);
+        }
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Controller method for GET requests to "/api/chat/unread" which returns the number of unread
+     * {@link Message}s of every {@link Chat} of the authenticated {@link User} with a single lookup.
+     *
+     * @param auth An {@link Authentication} object containing {@link User} authentication information.
+     * @return A {@link ResponseEntity} with a map from {@link Chat} ID to unread count and status {@link HttpStatus#OK};
+     * chats without unread messages are absent. In case of an error {@link ResponseEntity} with
+     * {@link ExceptionResponse} in the response body with status {@link HttpStatus#FORBIDDEN}.
+     * @throws DataAccessException if reading the counters failed.
+     * @throws NullPointerException if the {@link User} is not authenticated.
+     * @see ExceptionResponse
+     */
+    @GetMapping("/unread")
+    public ResponseEntity<?> getUnreadCounts(Authentication auth) {
+        Map<UUID, Long> counts;
+        try {
+            counts = chatUnreadService.findUnreadCounts(auth);
+        } catch (DataAccessException | NullPointerException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.FORBIDDEN);
+        }
+        return ResponseEntity.ok(counts);
+    }
+
+    /**
+     * Controller method for PUT requests to "/api/chat/{id}/read" which marks all {@link Message}s
+     * of the {@link Chat} as read for the authenticated {@link User}.
+     *
+     * @param id   The ID taken from the URL "/api/chat/{id}/read", where {id} is a variable.
+     * @param auth An {@link Authentication} object containing {@link User} authentication information.
+     * @return A {@link ResponseEntity} with status {@link HttpStatus#OK}.
+     * In other cases, {@link ResponseEntity} with {@link ExceptionResponse} in the response body,
+     * with status {@link HttpStatus#FORBIDDEN}.
+     * @throws IllegalStateException if the {@link User} is not a member of the {@link Chat}.
+     * @throws DataAccessException if resetting the counter failed.
+     * @throws NullPointerException if the {@link User} is not authenticated.
+     * @see ExceptionResponse
+     */
+    @PutMapping("/{id}/read")
+    public ResponseEntity<?> markRead(@PathVariable("id") String id, Authentication auth) {
+        try {
+            chatUnreadService.markRead(id, auth);
+        } catch (IllegalStateException | IllegalArgumentException | DataAccessException |
+                 NullPointerException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.FORBIDDEN);
+        }
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    /**
+     * Controller method for PUT requests to "/api/chat/{id}/read-cursor" which moves the read cursor
+     * of the authenticated {@link User} in the {@link Chat} to the given {@link Message}.
+     *
+     * @param id      The ID taken from the URL "/api/chat/{id}/read-cursor", where {id} is a variable.
+     * @param request A {@link ReadCursorRequest} object containing the ID of the newest seen {@link Message}.
+     * @param auth    An {@link Authentication} object containing {@link User} authentication information.
+     * @return A {@link ResponseEntity} with status {@link HttpStatus#OK}. If the message ID is not valid or the
+     * {@link Message} is not in the {@link Chat}, {@link ResponseEntity} with {@link ExceptionResponse} with status
+     * {@link HttpStatus#BAD_REQUEST}.
+     * In other cases, {@link ResponseEntity} with {@link ExceptionResponse} in the response body,
+     * with status {@link HttpStatus#FORBIDDEN}.
+     * @throws IllegalArgumentException if the message ID is not valid or the {@link Message} is not in the {@link Chat}.
+     * @throws IllegalStateException if the {@link User} is not a member of the {@link Chat}.
+     * @throws NullPointerException if the {@link User} is not authenticated.
+     * @see ExceptionResponse
+     */
+    @PutMapping("/{id}/read-cursor")
+    public ResponseEntity<?> updateReadCursor(@PathVariable("id") String id, @RequestBody ReadCursorRequest request,
+                                              Authentication auth) {
+        try {
+            chatReadCursorService.updateReadCursor(id, request, auth);
+        } catch (IllegalArgumentException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.BAD_REQUEST);
+        } catch (DataAccessException | IllegalStateException | NullPointerException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.FORBIDDEN);
+        }
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    /**
+     * Controller method for GET requests to "/api/chat/{id}/read-cursors" which returns the ID of the
+     * newest {@link Message} seen by every member of the {@link Chat}.
+     *
+     * @param id   The ID taken from the URL "/api/chat/{id}/read-cursors", where {id} is a variable.
+     * @param auth An {@link Authentication} object containing {@link User} authentication information.
+     * @return A {@link ResponseEntity} with a map from {@link User} ID to {@link Message} ID and status
+     * {@link HttpStatus#OK}. In other cases, {@link ResponseEntity} with {@link ExceptionResponse}
+     * in the response body, with status {@link HttpStatus#FORBIDDEN}.
+     * @throws IllegalStateException if the {@link User} is not a member of the {@link Chat}.
+     * @throws DataAccessException if reading the cursors failed.
+     * @throws NullPointerException if the {@link User} is not authenticated.
+     * @see ExceptionResponse
+     */
+    @GetMapping("/{id}/read-cursors")
+    public ResponseEntity<?> getReadCursors(@PathVariable("id") String id, Authentication auth) {
+        Map<UUID, String> cursors;
+        try {
+            cursors = chatReadCursorService.findReadCursors(id, auth);
+        } catch (IllegalStateException | IllegalArgumentException | DataAccessException |
+                 NullPointerException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.FORBIDDEN);
+        }
+        return ResponseEntity.ok(cursors);
+    }
 
     /**
      * Controller method for GET requests to "/api/chat/{id}" which takes an id from url
@@ -58,15 +252,24 @@ public class ChatController {
      * a {@link ChatResponse} class object in the response body.
      *
      * @param id The ID taken from the URL "/api/chat/{id}", where {id} is a variable.
+     * @param ifNoneMatch The "If-None-Match" request header, may be null.
      * @return A {@link ResponseEntity} containing the retrieved {@link Chat} response object with status {@link HttpStatus#OK},
-     * if the {@link Chat} with the specified ID is found. Otherwise, an {@link ExceptionResponse}
-     * with a {@link HttpStatus#NOT_FOUND} status.
+     * if the {@link Chat} with the specified ID is found. If the ETag in "If-None-Match" is current,
+     * an empty {@link ResponseEntity} with status {@link HttpStatus#NOT_MODIFIED}, without reading the {@link Chat}.
+     * Otherwise, an {@link ExceptionResponse} with a {@link HttpStatus#NOT_FOUND} status.
      * @throws IllegalStateException if the {@link Chat} is not found by id.
      * @see ChatResponse
      * @see ExceptionResponse
      */
     @GetMapping("/{id}")
-    public ResponseEntity<?> getChat(@PathVariable("id") String id) {
+    public ResponseEntity<?> getChat(@PathVariable("id") String id,
+                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                     String ifNoneMatch) {
+        String etag = entityVersions.etag(EntityVersions.Kind.CHAT, id);
+        if (ConditionalResponses.matches(ifNoneMatch, etag)) {
+            return ConditionalResponses.notModified(etag);
+        }
+
         ChatResponse chat;
         try {
             chat = chatService.findById(id);
@@ -74,7 +277,188 @@ public class ChatController {
             log.error(exception.getMessage(), exception);
             return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.NOT_FOUND);
         }
-        return ResponseEntity.ok(chat);
+        return ConditionalResponses.ok(chat, etag);
+    }
+
+    /**
+     * Controller method for GET requests to "/api/chat/{id}/messages" which returns one page of the
+     * {@link Chat} history. Pages are addressed by keyset cursors: {@code before} returns messages older
+     * than the given message, {@code after} returns messages newer than it, and without a cursor
+     * the newest page is returned.
+     *
+     * @param id     The ID taken from the URL "/api/chat/{id}/messages", where {id} is a variable.
+     * @param before The ID of the message to read older messages from.
+     * @param after  The ID of the message to read newer messages from.
+     * @param limit  The maximum number of messages in the page.
+     * @return A {@link ResponseEntity} containing the {@link MessagePageResponse} with status {@link HttpStatus#OK}.
+     * If the {@link Chat} or the cursor message is not found, an {@link ExceptionResponse}
+     * with a {@link HttpStatus#NOT_FOUND} status. If the cursors are invalid, an {@link ExceptionResponse}
+     * with a {@link HttpStatus#BAD_REQUEST} status.
+     * @throws IllegalStateException if the {@link Chat} or the cursor message is not found.
+     * @throws IllegalArgumentException if the cursors are invalid.
+     * @see MessagePageResponse
+     * @see ExceptionResponse
+     */
+    @GetMapping("/{id}/messages")
+    public ResponseEntity<?> getMessages(@PathVariable("id") String id,
+                                         @RequestParam(name = "before", required = false) String before,
+                                         @RequestParam(name = "after", required = false) String after,
+                                         @RequestParam(name = "limit", required = false) Integer limit) {
+        MessagePageResponse page;
+        try {
+            page = chatService.findMessages(id, before, after, limit);
+        } catch (IllegalStateException | DataAccessException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Controller method for GET requests to "/api/chat/{id}/search" which returns the {@link Message}s
+     * of the {@link Chat} matching a text search, newest first. Archived {@link Message}s are not searchable.
+     *
+     * @param id     The ID taken from the URL "/api/chat/{id}/search", where {id} is a variable.
+     * @param query  The words to search for, taken from the "q" request parameter.
+     * @param before The ID of the last {@link Message} of the previous page, taken from the "before" request parameter.
+     * @param limit  The maximum number of {@link Message}s, taken from the "limit" request parameter.
+     * @param auth   An {@link Authentication} object containing {@link User} authentication information.
+     * @return A {@link ResponseEntity} with a {@link MessagePageResponse} and status {@link HttpStatus#OK}.
+     * If the query or the cursor is not valid, {@link ResponseEntity} with {@link ExceptionResponse}
+     * with status {@link HttpStatus#BAD_REQUEST}. In other cases, {@link ResponseEntity} with
+     * {@link ExceptionResponse} in the response body, with status {@link HttpStatus#FORBIDDEN}.
+     * @throws IllegalArgumentException if the query is empty or the cursor is not valid.
+     * @throws IllegalStateException if the {@link User} is not a member of the {@link Chat}.
+     * @throws DataAccessException if the search failed.
+     * @throws NullPointerException if the {@link User} is not authenticated.
+     * @see MessagePageResponse
+     * @see ExceptionResponse
+     */
+    @GetMapping("/{id}/search")
+    public ResponseEntity<?> search(@PathVariable("id") String id,
+                                    @RequestParam(name = "q", required = false) String query,
+                                    @RequestParam(name = "before", required = false) String before,
+                                    @RequestParam(name = "limit", required = false) Integer limit,
+                                    Authentication auth) {
+        MessagePageResponse page;
+        try {
+            page = messageSearchService.search(id, query, before, limit, auth);
+        } catch (IllegalArgumentException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException | DataAccessException | NullPointerException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.FORBIDDEN);
+        }
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Controller method for GET requests to "/api/chat/search" which returns the {@link Message}s
+     * of the most recently active {@link Chat}s of the authenticated {@link User} matching a text search,
+     * newest first. Archived {@link Message}s are not searchable.
+     *
+     * @param query  The words to search for, taken from the "q" request parameter.
+     * @param before The ID of the last {@link Message} of the previous page, taken from the "before" request parameter.
+     * @param limit  The maximum number of {@link Message}s, taken from the "limit" request parameter.
+     * @param auth   An {@link Authentication} object containing {@link User} authentication information.
+     * @return A {@link ResponseEntity} with a {@link MessagePageResponse} and status {@link HttpStatus#OK}.
+     * If the query or the cursor is not valid, {@link ResponseEntity} with {@link ExceptionResponse}
+     * with status {@link HttpStatus#BAD_REQUEST}. In other cases, {@link ResponseEntity} with
+     * {@link ExceptionResponse} in the response body, with status {@link HttpStatus#FORBIDDEN}.
+     * @throws IllegalArgumentException if the query is empty or the cursor is not valid.
+     * @throws DataAccessException if the search failed.
+     * @throws NullPointerException if the {@link User} is not authenticated.
+     * @see MessagePageResponse
+     * @see ExceptionResponse
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchAll(@RequestParam(name = "q", required = false) String query,
+                                       @RequestParam(name = "before", required = false) String before,
+                                       @RequestParam(name = "limit", required = false) Integer limit,
+                                       Authentication auth) {
+        MessagePageResponse page;
+        try {
+            page = messageSearchService.searchAll(query, before, limit, auth);
+        } catch (IllegalArgumentException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.BAD_REQUEST);
+        } catch (DataAccessException | NullPointerException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.FORBIDDEN);
+        }
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Controller method for GET requests to "/api/chat/{id}/events" which opens a Server-Sent Events stream
+     * of new, edited and deleted messages of the {@link Chat}. Membership is checked once when the stream
+     * is opened. A client reconnecting with the {@code Last-Event-ID} header receives the events it missed.
+     *
+     * @param id          The ID taken from the URL "/api/chat/{id}/events", where {id} is a variable.
+     * @param lastEventId The ID of the last event the client received.
+     * @param auth        An {@link Authentication} object containing {@link User} authentication information.
+     * @return A {@link ResponseEntity} with an {@link SseEmitter} and status {@link HttpStatus#OK}.
+     * If the {@link User} is not a member of the {@link Chat}, an empty {@link ResponseEntity}
+     * with status {@link HttpStatus#FORBIDDEN}.
+     * @throws IllegalStateException if the {@link User} is not a member of the {@link Chat}.
+     * @throws NullPointerException if the {@link User} is not authenticated.
+     * @see ChatEventStreamService
+     */
+    @GetMapping(path = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> getEvents(@PathVariable("id") String id,
+                                                @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId,
+                                                Authentication auth) {
+        UUID chatId;
+        try {
+            chatId = chatService.checkMember(id, auth);
+        } catch (DataAccessException | IllegalStateException | IllegalArgumentException |
+                 NullPointerException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        return ResponseEntity.ok(chatEventStreamService.subscribe(chatId, AuthenticatedUserId.of(auth),
+                lastEventId));
+    }
+
+    /**
+     * Controller method for GET requests to "/api/chat/{id}/export" which streams the full {@link Chat}
+     * history as newline-delimited JSON, optionally gzip-compressed. Only admins of the chat may export it.
+     *
+     * @param id   The ID taken from the URL "/api/chat/{id}/export", where {id} is a variable.
+     * @param gzip Whether the export is gzip-compressed.
+     * @param auth An {@link Authentication} object containing {@link User} authentication information.
+     * @return A {@link ResponseEntity} with a {@link StreamingResponseBody} and status {@link HttpStatus#OK}.
+     * In other cases, {@link ResponseEntity} with {@link ExceptionResponse} in the response body,
+     * with status {@link HttpStatus#FORBIDDEN}.
+     * @throws IllegalStateException if the {@link Chat} does not exist or the {@link User} is not an admin.
+     * @throws NullPointerException if the {@link User} is not authenticated.
+     * @see StreamingResponseBody
+     * @see ExceptionResponse
+     */
+    @GetMapping("/{id}/export")
+    public ResponseEntity<?> exportChat(@PathVariable("id") String id,
+                                        @RequestParam(name = "gzip", defaultValue = "false") boolean gzip,
+                                        Authentication auth) {
+        UUID chatId;
+        try {
+            chatId = chatService.checkExportAccess(id, auth);
+        } catch (DataAccessException | IllegalStateException | IllegalArgumentException |
+                 NullPointerException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.FORBIDDEN);
+        }
+
+        StreamingResponseBody body = out -> chatService.exportMessages(chatId, out, gzip);
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip")
+                        : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("chat-" + chatId + (gzip ? ".ndjson.gz" : ".ndjson")).build().toString())
+                .body(body);
     }
 
     /**
@@ -86,8 +470,10 @@ public class ChatController {
      * @param auth    An {@link Authentication} object containing {@link User} authentication information.
      * @return A {@link ResponseEntity} object containing {@link UUIDResponse}
      * which contains the id of the created chat with status {@link HttpStatus#OK}.
-     * In other cases, {@link ResponseEntity} with {@link ExceptionResponse} in the response body,
-     * with status {@link HttpStatus#CONFLICT}.
+     * If the retention is negative, {@link ResponseEntity} with {@link ExceptionResponse} with status
+     * {@link HttpStatus#BAD_REQUEST}. In other cases, {@link ResponseEntity} with {@link ExceptionResponse}
+     * in the response body, with status {@link HttpStatus#CONFLICT}.
+     * @throws IllegalArgumentException if the retention is negative.
      * @throws DataAccessException if saving the {@link Chat} to the database failed.
      * @throws IllegalStateException if the {@link User} does not exist in the database.
      * @throws NullPointerException if the {@link User} is not authenticated.
@@ -102,6 +488,9 @@ public class ChatController {
         try {
             chat = chatService.save(request, auth);
             chatService.setAdminUser(chat, auth);
+        } catch (IllegalArgumentException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.BAD_REQUEST);
         } catch (DataAccessException | IllegalStateException | NullPointerException exception) {
             log.error(exception.getMessage(), exception);
             return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.CONFLICT);
@@ -110,11 +499,12 @@ public class ChatController {
     }
 
     /**
-     * Controller method that deletes {@link Chat}.
+     * Controller method that deletes {@link Chat}. The {@link Chat} is rejected by all reads and writes at once;
+     * its {@link Message}s are purged in the background.
      *
      * @param request {@link ChatRequest}.
      * @param auth    An {@link Authentication} object containing {@link User} authentication information.
-     * @return A {@link ResponseEntity} with status {@link HttpStatus#OK}.
+     * @return A {@link ResponseEntity} with status {@link HttpStatus#ACCEPTED}.
      * In other cases, {@link ResponseEntity} with {@link ExceptionResponse} in the response body,
      * with status {@link HttpStatus#FORBIDDEN}.
      * @throws DataAccessException if deleting the {@link Chat} of the database failed.
@@ -132,17 +522,19 @@ public class ChatController {
             return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.FORBIDDEN);
         }
 
-        return new ResponseEntity<>(HttpStatus.OK);
+        return new ResponseEntity<>(HttpStatus.ACCEPTED);
     }
 
     /**
-     * Controller method for {@link Chat} update.
+     * Controller method for {@link Chat} update, including its message retention.
      *
      * @param request {@link ChatRequest}.
      * @param auth    An {@link Authentication} object containing {@link User} authentication information.
      * @return A {@link ResponseEntity} with status {@link HttpStatus#OK}.
-     * In other cases, {@link ResponseEntity} with {@link ExceptionResponse} in the response body,
-     * with status {@link HttpStatus#FORBIDDEN}.
+     * If the retention is negative, {@link ResponseEntity} with {@link ExceptionResponse} with status
+     * {@link HttpStatus#BAD_REQUEST}. In other cases, {@link ResponseEntity} with {@link ExceptionResponse}
+     * in the response body, with status {@link HttpStatus#FORBIDDEN}.
+     * @throws IllegalArgumentException if the retention is negative.
      * @throws DataAccessException if saving the {@link Chat} to the database failed.
      * @throws IllegalStateException if the {@link User} does not exist in the database.
      * @throws NullPointerException if the {@link User} is not authenticated.
@@ -153,6 +545,9 @@ public class ChatController {
     public ResponseEntity<?> updateChat(@RequestBody ChatRequest request, Authentication auth) {
         try {
             chatService.update(request, auth);
+        } catch (IllegalArgumentException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.BAD_REQUEST);
         } catch (DataAccessException | IllegalStateException | NullPointerException exception) {
             log.error(exception.getMessage(), exception);
             return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.FORBIDDEN);
@@ -0,0 +1,70 @@
+package com.example.demo.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.example.demo.service.EntityVersions;
+
+/**
+ * Builds the responses of read endpoints that support conditional requests.
+ *
+ * <p>The ETag comes from {@link EntityVersions} and is compared with {@code If-None-Match} before the entity
+ * is read, so a client that already has the current version gets a 304 without any database access.
+ * Responses may be cached privately but must be revalidated. The tags are weak, so Tomcat's default still
+ * gzips these responses, and a tag stays valid across encodings.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see EntityVersions
+ */
+final class ConditionalResponses {
+	private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+	private ConditionalResponses() {
+	}
+	/**
+	 * Tells whether an {@code If-None-Match} header matches an ETag, using the weak comparison required
+	 * for GET requests.
+	 *
+	 * @param ifNoneMatch the value of the header, may be null
+	 * @param etag        the current ETag, may be null
+	 * @return true if the client has the current version
+	 */
+	static boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null || etag == null) {
+			return false;
+		}
+		String opaque = opaque(etag);
+		for (String tag : ifNoneMatch.split(",")) {
+			if (opaque(tag.trim()).equals(opaque)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	/**
+	 * Returns a 304 response for the current version.
+	 *
+	 * @param etag the current ETag
+	 * @return the response without a body
+	 */
+	static ResponseEntity<?> notModified(String etag) {
+		return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CACHE_CONTROL).build();
+	}
+	/**
+	 * Returns a 200 response tagged with the version that was current before the body was read.
+	 *
+	 * @param body the body
+	 * @param etag the ETag taken before reading the body, may be null
+	 * @return the response
+	 */
+	static ResponseEntity<?> ok(Object body, String etag) {
+		ResponseEntity.BodyBuilder builder = ResponseEntity.ok().cacheControl(CACHE_CONTROL);
+		return (etag == null ? builder : builder.eTag(etag)).body(body);
+	}
+
+	private static String opaque(String tag) {
+		return tag.startsWith("W/") ? tag.substring(2) : tag;
+	}
+}
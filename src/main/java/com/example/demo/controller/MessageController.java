@@ -3,6 +3,7 @@ package com.example.demo.controller;
 import com.example.demo.models.Chat;
 import com.example.demo.models.User;
 import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -12,15 +13,21 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.demo.dto.request.MessageRequest;
 import com.example.demo.dto.response.ExceptionResponse;
+import com.example.demo.dto.response.MessageBatchItemResponse;
 import com.example.demo.dto.response.StringIdResponse;
 import com.example.demo.models.Message;
+import com.example.demo.service.EntityVersions;
+import com.example.demo.service.MessageBackpressureException;
 import com.example.demo.service.MessageService;
 
+import java.util.List;
+
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -42,12 +49,22 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 @Slf4j
 public class MessageController {
+    /**
+     * The number of seconds a client should wait before resending a message rejected by backpressure.
+     */
+    private static final String RETRY_AFTER_SECONDS = "1";
     /**
      * A private {@link MessageService} field that is initialized by {@code @RequiredArgsConstructor}
      *
      * @see MessageService
      */
     private final MessageService messageService;
+    /**
+     * A private {@link EntityVersions} field that is initialized by {@code @RequiredArgsConstructor}
+     *
+     * @see EntityVersions
+     */
+    private final EntityVersions entityVersions;
 
     /**
      * Controller method that creates a {@link Message} in {@link Chat}
@@ -56,8 +73,11 @@ public class MessageController {
      * @param authentication An {@link Authentication} object containing {@link User} authentication information.
      * @return {@link ResponseEntity} with {@link StringIdResponse} in the response body
      * with status {@link HttpStatus#OK}.
-     * In case of an error {@link ResponseEntity} with {@link ExceptionResponse} in the response body
+     * If the message pipeline is overloaded, {@link ResponseEntity} with {@link ExceptionResponse} with status
+     * {@link HttpStatus#SERVICE_UNAVAILABLE} and a {@code Retry-After} header; the message was not saved.
+     * In other cases of an error {@link ResponseEntity} with {@link ExceptionResponse} in the response body
      * with status {@link HttpStatus#FORBIDDEN}.
+     * @throws MessageBackpressureException if the message queue is full or the write timed out.
      * @throws IllegalStateException if the {@link Chat} does not exist in the database.
      * @throws IllegalArgumentException if the {@link User} does not exist in the {@link Chat}.
      * @throws DataAccessException if saving the {@link Chat}, {@link User}, {@link Message} to the database failed.
@@ -72,6 +92,11 @@ public class MessageController {
         Message message;
         try {
             message = messageService.save(request, authentication);
+        } catch (MessageBackpressureException exception) {
+            log.warn(exception.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .body(new ExceptionResponse(exception.getMessage()));
         } catch (IllegalStateException | DataAccessException |
                  IllegalArgumentException | NullPointerException exception) {
             log.error(exception.getMessage(), exception);
@@ -81,20 +106,61 @@ public class MessageController {
         return new ResponseEntity<>(new StringIdResponse(message.getId()), HttpStatus.OK);
     }
 
+    /**
+     * Controller method that creates many {@link Message} objects, possibly in several {@link Chat}s, at once.
+     *
+     * @param requests list of {@link MessageRequest}.
+     * @param authentication An {@link Authentication} object containing {@link User} authentication information.
+     * @return {@link ResponseEntity} with a list of {@link MessageBatchItemResponse} in request order
+     * with status {@link HttpStatus#OK}; every item contains either the ID of the saved {@link Message} or an error.
+     * If the batch is too large {@link ResponseEntity} with {@link ExceptionResponse} in the response body
+     * with status {@link HttpStatus#BAD_REQUEST}, in other cases with status {@link HttpStatus#FORBIDDEN}.
+     * @throws IllegalArgumentException if the batch is larger than the configured maximum.
+     * @throws DataAccessException if saving the {@link Message} objects to the database failed.
+     * @throws NullPointerException if the {@link User} is not authenticated.
+     * @see MessageRequest
+     * @see MessageBatchItemResponse
+     * @see ExceptionResponse
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> createMessages(@RequestBody List<MessageRequest> requests, Authentication authentication) {
+        List<MessageBatchItemResponse> results;
+        try {
+            results = messageService.saveAll(requests, authentication);
+        } catch (IllegalArgumentException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.BAD_REQUEST);
+        } catch (DataAccessException | NullPointerException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.FORBIDDEN);
+        }
+
+        return ResponseEntity.ok(results);
+    }
+
     /**
      * Controller method to receive a {@link Message} object.
      *
      * @param id The ID taken from the URL "/api/message/{id}", where {id} is a variable.
+     * @param ifNoneMatch The "If-None-Match" request header, may be null.
      * @return A {@link ResponseEntity} containing the retrieved {@link Message} response object with status {@link HttpStatus#OK},
-     * if the {@link Message} with the specified ID is found. Otherwise, an {@link ExceptionResponse}
-     * with a {@link HttpStatus#NOT_FOUND} status.
+     * if the {@link Message} with the specified ID is found. If the ETag in "If-None-Match" is current,
+     * an empty {@link ResponseEntity} with status {@link HttpStatus#NOT_MODIFIED}, without reading the {@link Message}.
+     * Otherwise, an {@link ExceptionResponse} with a {@link HttpStatus#NOT_FOUND} status.
      * @throws DataAccessException if saving the {@link Message} to the database failed.
      * @throws IllegalStateException if the {@link Message} does not exist in the database.
      * @see Message
      * @see ExceptionResponse
      */
     @GetMapping("/{id}")
-    public ResponseEntity<?> getMessage(@PathVariable("id") String id) {
+    public ResponseEntity<?> getMessage(@PathVariable("id") String id,
+                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                        String ifNoneMatch) {
+        String etag = entityVersions.etag(EntityVersions.Kind.MESSAGE, id);
+        if (ConditionalResponses.matches(ifNoneMatch, etag)) {
+            return ConditionalResponses.notModified(etag);
+        }
+
         Message message;
         try {
             message = messageService.findById(id);
@@ -103,7 +169,7 @@ public class MessageController {
             return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.NOT_FOUND);
         }
 
-        return ResponseEntity.ok(message);
+        return ConditionalResponses.ok(message, etag);
     }
 
     /**
@@ -0,0 +1,121 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.response.ExceptionResponse;
+import com.example.demo.dto.response.PresenceResponse;
+import com.example.demo.models.Chat;
+import com.example.demo.models.User;
+import com.example.demo.service.PresenceService;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This is {@link RestController}.
+ * It processes requests for the online status and typing indicators of {@link User}s.
+ * The {@code @RequestMapping("/api/presence")} all controller methods will process requests along the path "/api/presence".
+ * Presence is kept in memory only, see {@link PresenceService}.
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ */
+@RestController
+@RequestMapping("/api/presence")
+@RequiredArgsConstructor
+@Slf4j
+public class PresenceController {
+    /**
+     * A private {@link PresenceService} field that is initialized by {@code @RequiredArgsConstructor}
+     *
+     * @see PresenceService
+     */
+    private final PresenceService presenceService;
+
+    /**
+     * Controller method for PUT requests to "/api/presence/heartbeat" which marks the authenticated
+     * {@link User} as online. Clients send it periodically, more often than the online TTL.
+     *
+     * @param auth An {@link Authentication} object containing {@link User} authentication information.
+     * @return A {@link ResponseEntity} with status {@link HttpStatus#OK}. If too many users are online,
+     * {@link ResponseEntity} with {@link ExceptionResponse} with status {@link HttpStatus#SERVICE_UNAVAILABLE}.
+     * If the {@link User} is not authenticated, status {@link HttpStatus#FORBIDDEN}.
+     * @throws IllegalStateException if too many users are online.
+     * @throws NullPointerException if the {@link User} is not authenticated.
+     * @see ExceptionResponse
+     */
+    @PutMapping("/heartbeat")
+    public ResponseEntity<?> heartbeat(Authentication auth) {
+        try {
+            presenceService.heartbeat(auth);
+        } catch (IllegalStateException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (NullPointerException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.FORBIDDEN);
+        }
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    /**
+     * Controller method for PUT requests to "/api/presence/chat/{id}/typing" which marks the authenticated
+     * {@link User} as typing in the {@link Chat}.
+     *
+     * @param id   The ID taken from the URL "/api/presence/chat/{id}/typing", where {id} is a variable.
+     * @param auth An {@link Authentication} object containing {@link User} authentication information.
+     * @return A {@link ResponseEntity} with status {@link HttpStatus#OK}.
+     * In other cases, {@link ResponseEntity} with {@link ExceptionResponse} in the response body,
+     * with status {@link HttpStatus#FORBIDDEN}.
+     * @throws IllegalStateException if the {@link User} is not a member of the {@link Chat}.
+     * @throws DataAccessException if loading the members of the {@link Chat} failed.
+     * @throws NullPointerException if the {@link User} is not authenticated.
+     * @see ExceptionResponse
+     */
+    @PutMapping("/chat/{id}/typing")
+    public ResponseEntity<?> typing(@PathVariable("id") String id, Authentication auth) {
+        try {
+            presenceService.typing(id, auth);
+        } catch (IllegalStateException | IllegalArgumentException | DataAccessException |
+                 NullPointerException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.FORBIDDEN);
+        }
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    /**
+     * Controller method for GET requests to "/api/presence/chat/{id}" which returns the members
+     * of the {@link Chat} that are currently online or typing.
+     *
+     * @param id   The ID taken from the URL "/api/presence/chat/{id}", where {id} is a variable.
+     * @param auth An {@link Authentication} object containing {@link User} authentication information.
+     * @return A {@link ResponseEntity} with a {@link PresenceResponse} and status {@link HttpStatus#OK}.
+     * In other cases, {@link ResponseEntity} with {@link ExceptionResponse} in the response body,
+     * with status {@link HttpStatus#FORBIDDEN}.
+     * @throws IllegalStateException if the {@link User} is not a member of the {@link Chat}.
+     * @throws DataAccessException if loading the members of the {@link Chat} failed.
+     * @throws NullPointerException if the {@link User} is not authenticated.
+     * @see PresenceResponse
+     * @see ExceptionResponse
+     */
+    @GetMapping("/chat/{id}")
+    public ResponseEntity<?> getPresence(@PathVariable("id") String id, Authentication auth) {
+        PresenceResponse presence;
+        try {
+            presence = presenceService.findPresence(id, auth);
+        } catch (IllegalStateException | IllegalArgumentException | DataAccessException |
+                 NullPointerException exception) {
+            log.error(exception.getMessage(), exception);
+            return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.FORBIDDEN);
+        }
+        return ResponseEntity.ok(presence);
+    }
+}
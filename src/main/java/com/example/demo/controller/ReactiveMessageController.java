@@ -0,0 +1,150 @@
+package com.example.demo.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.dto.request.MessageRequest;
+import com.example.demo.dto.response.ExceptionResponse;
+import com.example.demo.dto.response.MessagePageResponse;
+import com.example.demo.dto.response.StringIdResponse;
+import com.example.demo.models.Chat;
+import com.example.demo.models.Message;
+import com.example.demo.service.ReactiveMessageService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * This is {@link RestController}.
+ * It is the non-blocking variant of {@link MessageController} and of the {@link Chat} history read of
+ * {@link ChatController}, served under "/api/reactive".
+ * The methods return {@link Mono}, so the servlet thread is released while MongoDB is queried.
+ * Requests are authenticated by the same security filter chain as the blocking endpoints, including
+ * the {@code __Host-auth-token} cookie.
+ * The controller is only registered when {@code chat.reactive.enabled} is set.
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ */
+@RestController
+@RequestMapping("/api/reactive")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "chat.reactive.enabled", havingValue = "true")
+@Slf4j
+public class ReactiveMessageController {
+    /**
+     * A private {@link ReactiveMessageService} field that is initialized by {@code @RequiredArgsConstructor}
+     *
+     * @see ReactiveMessageService
+     */
+    private final ReactiveMessageService messageService;
+
+    /**
+     * Controller method that creates a {@link Message} in {@link Chat}.
+     *
+     * @param request {@link MessageRequest}.
+     * @param authentication An {@link Authentication} object containing the authentication information.
+     * @return {@link Mono} of {@link ResponseEntity} with {@link StringIdResponse} and status {@link HttpStatus#OK}.
+     * In case of an error {@link ResponseEntity} with {@link ExceptionResponse} and status {@link HttpStatus#FORBIDDEN}.
+     * @see MessageController#createMessage
+     */
+    @PostMapping("/message")
+    public Mono<ResponseEntity<?>> createMessage(@RequestBody MessageRequest request, Authentication authentication) {
+        return messageService.save(request, authentication)
+                .<ResponseEntity<?>>map(message -> ResponseEntity.ok(new StringIdResponse(message.getId())))
+                .onErrorResume(ReactiveMessageController::isExpected, exception -> error(exception, HttpStatus.FORBIDDEN));
+    }
+
+    /**
+     * Controller method to receive a {@link Message} object.
+     *
+     * @param id The ID taken from the URL "/api/reactive/message/{id}", where {id} is a variable.
+     * @return {@link Mono} of {@link ResponseEntity} with the {@link Message} and status {@link HttpStatus#OK}.
+     * Otherwise, an {@link ExceptionResponse} with a {@link HttpStatus#NOT_FOUND} status.
+     * @see MessageController#getMessage
+     */
+    @GetMapping("/message/{id}")
+    public Mono<ResponseEntity<?>> getMessage(@PathVariable("id") String id) {
+        return messageService.findById(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(ReactiveMessageController::isExpected, exception -> error(exception, HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Controller method to delete a {@link Message} from a {@link Chat}.
+     *
+     * @param request {@link MessageRequest}.
+     * @param authentication An {@link Authentication} object containing the authentication information.
+     * @return {@link Mono} of {@link ResponseEntity} with {@link HttpStatus#OK}.
+     * In other cases, {@link ResponseEntity} with {@link ExceptionResponse} and status {@link HttpStatus#FORBIDDEN}.
+     * @see MessageController#deleteMessage
+     */
+    @DeleteMapping("/message")
+    public Mono<ResponseEntity<?>> deleteMessage(@RequestBody MessageRequest request, Authentication authentication) {
+        return messageService.delete(request, authentication)
+                .then(Mono.<ResponseEntity<?>>fromSupplier(() -> new ResponseEntity<>(HttpStatus.OK)))
+                .onErrorResume(ReactiveMessageController::isExpected, exception -> error(exception, HttpStatus.FORBIDDEN));
+    }
+
+    /**
+     * Controller method for updating {@link Message}.
+     *
+     * @param request {@link MessageRequest}.
+     * @param authentication An {@link Authentication} object containing the authentication information.
+     * @return {@link Mono} of {@link ResponseEntity} with {@link HttpStatus#OK}.
+     * In other cases, {@link ResponseEntity} with {@link ExceptionResponse} and status {@link HttpStatus#FORBIDDEN}.
+     * @see MessageController#updateMessage
+     */
+    @PutMapping("/message")
+    public Mono<ResponseEntity<?>> updateMessage(@RequestBody MessageRequest request, Authentication authentication) {
+        return messageService.update(request, authentication)
+                .then(Mono.<ResponseEntity<?>>fromSupplier(() -> new ResponseEntity<>(HttpStatus.OK)))
+                .onErrorResume(ReactiveMessageController::isExpected, exception -> error(exception, HttpStatus.FORBIDDEN));
+    }
+
+    /**
+     * Controller method that returns one page of the {@link Chat} history.
+     *
+     * @param id     The ID taken from the URL "/api/reactive/chat/{id}/messages", where {id} is a variable.
+     * @param before The ID of the message to read older messages from.
+     * @param after  The ID of the message to read newer messages from.
+     * @param limit  The maximum number of messages in the page.
+     * @return {@link Mono} of {@link ResponseEntity} with the {@link MessagePageResponse} and status {@link HttpStatus#OK}.
+     * If the {@link Chat} or the cursor message is not found, an {@link ExceptionResponse} with a
+     * {@link HttpStatus#NOT_FOUND} status. If the cursors are invalid, with a {@link HttpStatus#BAD_REQUEST} status.
+     * @see ChatController#getMessages
+     */
+    @GetMapping("/chat/{id}/messages")
+    public Mono<ResponseEntity<?>> getMessages(@PathVariable("id") String id,
+                                               @RequestParam(name = "before", required = false) String before,
+                                               @RequestParam(name = "after", required = false) String after,
+                                               @RequestParam(name = "limit", required = false) Integer limit) {
+        return messageService.findMessages(id, before, after, limit)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class, exception -> error(exception, HttpStatus.BAD_REQUEST))
+                .onErrorResume(ReactiveMessageController::isExpected, exception -> error(exception, HttpStatus.NOT_FOUND));
+    }
+
+    private static boolean isExpected(Throwable exception) {
+        return exception instanceof IllegalStateException || exception instanceof IllegalArgumentException
+                || exception instanceof NullPointerException || exception instanceof DataAccessException;
+    }
+
+    private static Mono<ResponseEntity<?>> error(Throwable exception, HttpStatus status) {
+        log.error(exception.getMessage(), exception);
+        return Mono.just(new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), status));
+    }
+}
@@ -3,6 +3,7 @@ package com.example.demo.controller;
 import com.example.demo.models.Chat;
 import com.example.demo.service.ChatService;
 import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -12,6 +13,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -20,6 +22,7 @@ import com.example.demo.dto.response.UUIDResponse;
 import com.example.demo.dto.response.UserResponse;
 import com.example.demo.models.User;
 import com.example.demo.models.role.Role;
+import com.example.demo.service.EntityVersions;
 import com.example.demo.service.UserService;
 
 import lombok.RequiredArgsConstructor;
@@ -49,6 +52,12 @@ public class UserController {
 	 * @see UserService
 	 */
 	private final UserService userService;
+	/**
+	 * A private {@link EntityVersions} field that is initialized by {@code @RequiredArgsConstructor}
+	 *
+	 * @see EntityVersions
+	 */
+	private final EntityVersions entityVersions;
 
 	/**
 	 * Controller method that creates a {@link User}.
@@ -81,16 +90,24 @@ public class UserController {
 	 * Controller method that sends the {@link User}.
 	 *
 	 * @param id The ID taken from the URL "/api/user/{id}", where {id} is a variable.
+	 * @param ifNoneMatch The "If-None-Match" request header, may be null.
 	 * @return A {@link ResponseEntity} containing the retrieved {@link UserResponse} object with status {@link HttpStatus#OK},
-	 * if the {@link User} with the specified ID is found. Otherwise, an {@link ExceptionResponse}
-	 * with a {@link HttpStatus#NOT_FOUND} status.
+	 * if the {@link User} with the specified ID is found. If the ETag in "If-None-Match" is current,
+	 * an empty {@link ResponseEntity} with status {@link HttpStatus#NOT_MODIFIED}, without reading the {@link User}.
+	 * Otherwise, an {@link ExceptionResponse} with a {@link HttpStatus#NOT_FOUND} status.
 	 * @throws IllegalStateException if the {@link User} does not exist in database.
 	 * @see User
 	 * @see ExceptionResponse
 	 * @see UserResponse
 	 */
 	@GetMapping("/{id}")
-	public ResponseEntity<?> getUser(@PathVariable("id") String id) {
+	public ResponseEntity<?> getUser(@PathVariable("id") String id,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		String etag = entityVersions.etag(EntityVersions.Kind.USER, id);
+		if (ConditionalResponses.matches(ifNoneMatch, etag)) {
+			return ConditionalResponses.notModified(etag);
+		}
+
 		User user;
 		try {
 			user = userService.findById(id);
@@ -99,8 +116,7 @@ public class UserController {
 			return new ResponseEntity<>(new ExceptionResponse(exception.getMessage()), HttpStatus.NOT_FOUND);
 		}
 
-		return new ResponseEntity<>(new UserResponse(user.getUsername(), user.getEmail(), user.getRoles()),
-				HttpStatus.OK);
+		return ConditionalResponses.ok(new UserResponse(user.getUsername(), user.getEmail(), user.getRoles()), etag);
 	}
 
 	/**
@@ -0,0 +1,26 @@
+package com.example.demo.dto.request;
+
+import com.example.demo.models.Chat;
+import com.example.demo.models.Message;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Represents a request object for moving the read cursor of the authenticated user in a {@link Chat}.
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see Message
+ * @see Chat
+ */
+@Getter
+@Setter
+public class ReadCursorRequest {
+	/**
+	 * Private field containing the ID of the newest {@link Message} the user has seen.
+	 *
+	 * @see Message
+	 */
+	private String messageId;
+}
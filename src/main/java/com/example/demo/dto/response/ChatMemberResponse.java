@@ -0,0 +1,19 @@
+package com.example.demo.dto.response;
+
+import java.util.UUID;
+
+import com.example.demo.models.Chat;
+import com.example.demo.models.User;
+
+/**
+ * Represents a member of a {@link Chat} in API responses, read as a projection instead of a full {@link User}.
+ *
+ * @param id       the ID of the user
+ * @param username the username of the user
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see User
+ * @see Chat
+ */
+public record ChatMemberResponse(UUID id, String username) {
+}
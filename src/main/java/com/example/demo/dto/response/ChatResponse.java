@@ -6,7 +6,6 @@ import java.util.UUID;
 
 import com.example.demo.models.Chat;
 import com.example.demo.models.Message;
-import com.example.demo.models.User;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -32,16 +31,15 @@ public class ChatResponse {
 	 */
 	private String name;
 	/**
-	 * Private {@link List} field contains list of {@link User} in {@link Chat}.
+	 * Private {@link List} field contains list of {@link ChatMemberResponse} in {@link Chat}.
 	 *
-	 * @see User
+	 * @see ChatMemberResponse
 	 * @see Chat
 	 */
-	private List<User> users = new ArrayList<>();
+	private List<ChatMemberResponse> users = new ArrayList<>();
 	/**
 	 * Private {@link List} field contains list of {@link Message} in {@link Chat}.
 	 *
-	 * @see User
 	 * @see Message
 	 */
 	private List<Message> messages = new ArrayList<>();
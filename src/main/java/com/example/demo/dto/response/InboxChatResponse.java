@@ -0,0 +1,54 @@
+package com.example.demo.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import com.example.demo.models.Chat;
+import com.example.demo.models.Message;
+import com.example.demo.models.User;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Represents a {@link Chat} in the chat list of a {@link User}, with a preview of its newest {@link Message}.
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see Chat
+ * @see Message
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+public class InboxChatResponse {
+	/**
+	 * Private field contains the ID of the {@link Chat}.
+	 */
+	private UUID id;
+	/**
+	 * Private field contains the name of the {@link Chat}.
+	 */
+	private String name;
+	/**
+	 * Private field contains the number of members of the {@link Chat}.
+	 */
+	private Integer memberCount;
+	/**
+	 * Private field contains the time of the newest {@link Message}, or null if no activity was recorded.
+	 */
+	private LocalDateTime lastActivity;
+	/**
+	 * Private field contains the ID of the newest {@link Message}.
+	 */
+	private String lastMessageId;
+	/**
+	 * Private field contains the beginning of the content of the newest {@link Message}.
+	 */
+	private String lastMessagePreview;
+	/**
+	 * Private field contains the ID of the {@link User} who sent the newest {@link Message}.
+	 */
+	private UUID lastMessageUserId;
+}
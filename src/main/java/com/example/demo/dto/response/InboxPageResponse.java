@@ -0,0 +1,28 @@
+package com.example.demo.dto.response;
+
+import java.util.List;
+
+import com.example.demo.models.Chat;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Represents a page of the chat list of a user, most recently active {@link Chat} first.
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see InboxChatResponse
+ */
+@Data
+@AllArgsConstructor
+public class InboxPageResponse {
+	/**
+	 * The chats of the page.
+	 */
+	private List<InboxChatResponse> chats;
+	/**
+	 * The cursor of the next page, or null if this is the last page.
+	 */
+	private String next;
+}
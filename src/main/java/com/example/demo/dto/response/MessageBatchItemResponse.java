@@ -0,0 +1,29 @@
+package com.example.demo.dto.response;
+
+import com.example.demo.models.Message;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Represents the result of one {@link Message} of a batch request.
+ * Exactly one of the fields is set.
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see Message
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+public class MessageBatchItemResponse {
+	/**
+	 * Private field contains the ID of the saved {@link Message}, or null if it was rejected.
+	 */
+	private String id;
+	/**
+	 * Private field contains the reason the {@link Message} was rejected, or null if it was saved.
+	 */
+	private String error;
+}
@@ -0,0 +1,58 @@
+package com.example.demo.dto.response;
+
+import java.util.UUID;
+
+import com.example.demo.models.Chat;
+import com.example.demo.models.Message;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Represents a change of a {@link Message} in a {@link Chat} that is pushed to subscribed clients.
+ *
+ * <p>Instances are published as Spring application events by the message service once the change
+ * has been written to the database.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see Message
+ * @see Chat
+ */
+@Data
+@AllArgsConstructor
+public class MessageEvent {
+	/**
+	 * The kind of change of a {@link Message}.
+	 */
+	public enum Type {
+		/**
+		 * A new message was sent.
+		 */
+		CREATED,
+		/**
+		 * An existing message was edited.
+		 */
+		UPDATED,
+		/**
+		 * A message was deleted.
+		 */
+		DELETED
+	}
+	/**
+	 * Private {@link Type} field contains the kind of change.
+	 */
+	private Type type;
+	/**
+	 * Private {@link UUID} field contains the ID of the {@link Chat}.
+	 *
+	 * @see Chat
+	 */
+	private UUID chatId;
+	/**
+	 * Private {@link Message} field contains the message after the change.
+	 *
+	 * @see Message
+	 */
+	private Message message;
+}
@@ -0,0 +1,40 @@
+package com.example.demo.dto.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.demo.models.Chat;
+import com.example.demo.models.Message;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Represents one page of {@link Message} history of a {@link Chat}.
+ *
+ * <p>Messages are always ordered from oldest to newest. The {@code before} and {@code after}
+ * fields contain the cursors to request the previous (older) and the next (newer) page.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see Message
+ * @see Chat
+ */
+@Data
+@AllArgsConstructor
+public class MessagePageResponse {
+	/**
+	 * Private {@link List} field contains the {@link Message} of the page.
+	 *
+	 * @see Message
+	 */
+	private List<Message> messages = new ArrayList<>();
+	/**
+	 * Private field contains the cursor for older messages, or null if the page is empty.
+	 */
+	private String before;
+	/**
+	 * Private field contains the cursor for newer messages, or null if the page is empty.
+	 */
+	private String after;
+}
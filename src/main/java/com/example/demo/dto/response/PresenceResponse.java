@@ -0,0 +1,33 @@
+package com.example.demo.dto.response;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.example.demo.models.Chat;
+import com.example.demo.models.User;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Represents the members of a {@link Chat} that are currently online or typing.
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see Chat
+ * @see User
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+public class PresenceResponse {
+	/**
+	 * Private field contains the IDs of the online members of the {@link Chat}.
+	 */
+	private List<UUID> online;
+	/**
+	 * Private field contains the IDs of the members typing in the {@link Chat}.
+	 */
+	private List<UUID> typing;
+}
@@ -1,8 +1,16 @@
 package com.example.demo.models;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SQLRestriction;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -19,6 +27,8 @@ import jakarta.persistence.Table;
 import java.util.ArrayList;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 /**
  * Represents a chat entity in the application.
@@ -26,13 +36,35 @@ import lombok.Data;
  * <p>This class defines the structure of a chat entity, including its unique identifier, name,
  * list of user roles associated with the chat, and the list of users participating in the chat.</p>
  *
+ * <p>Both collections are loaded lazily. Repository methods that need the roles fetch them
+ * explicitly with an entity graph.</p>
+ *
+ * <p>A deleted chat is first marked with {@link #deletedAt} and purged later in the background.
+ * The {@link SQLRestriction} hides such tombstones from every entity load and query, so reads and
+ * writes reject them at once; only the native purge queries still see them.</p>
+ *
+ * <p>Chats and their user roles are kept in the second-level cache. Native queries writing the
+ * {@code chat} table must declare it as their query space, so Hibernate evicts the cached chats.</p>
+ *
  * @author Andrey Sharipov
  * @version 1.0
  */
 @Data
 @Entity
 @Table
+@SQLRestriction("deleted_at is null")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Chat.CACHE_REGION)
 public class Chat {
+	/**
+	 * The second-level cache region of chats.
+	 */
+	public static final String CACHE_REGION = "chat";
+	/**
+	 * The second-level cache region of the {@link #userRole} collections.
+	 */
+	public static final String USER_ROLE_CACHE_REGION = "chat-user-role";
+
 	/**
 	 * The unique identifier for the chat.
 	 */
@@ -50,7 +82,10 @@ public class Chat {
 	 *
 	 * @see UserRoleChat
 	 */
-	@OneToMany(mappedBy = "chat", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+	@OneToMany(mappedBy = "chat", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Chat.USER_ROLE_CACHE_REGION)
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
 	private List<UserRoleChat> userRole = new ArrayList<>();
 	/**
 	 * The list of {@link User} participating in the chat.
@@ -58,7 +93,19 @@ public class Chat {
 	 * @see User
 	 */
 	@ManyToMany
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
 	@JoinTable(name = "chat_user", joinColumns = @JoinColumn(name = "chat_id"), inverseJoinColumns = @JoinColumn(name = "user_id"))
 	private List<User> users = new ArrayList<>();
-
+	/**
+	 * The number of days messages are kept, 0 to keep them forever, or null to use the default.
+	 */
+	@Column
+	private Integer retentionDays;
+	/**
+	 * The time the chat was deleted, or null if it is live.
+	 */
+	@Column
+	@JsonIgnore
+	private LocalDateTime deletedAt;
 }
@@ -0,0 +1,58 @@
+package com.example.demo.models;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * Represents the denormalized activity summary of a {@link Chat}: when it was last active and a preview
+ * of its newest {@link Message}.
+ *
+ * <p>The summary is kept up to date by the message services so the chat list of a {@link User} can be
+ * read from Postgres alone, without loading the {@link Chat} aggregates or querying the messages.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see Chat
+ * @see Message
+ */
+@Data
+@Entity
+@Table(name = "chat_activity")
+public class ChatActivity {
+	/**
+	 * The maximum length of the preview of the newest {@link Message}.
+	 */
+	public static final int PREVIEW_LENGTH = 100;
+	/**
+	 * The unique identifier of the {@link Chat}.
+	 */
+	@Id
+	@Column(name = "chat_id")
+	private UUID chatId;
+	/**
+	 * The time of the newest {@link Message}.
+	 */
+	@Column(nullable = false)
+	private LocalDateTime lastActivity;
+	/**
+	 * The unique identifier of the newest {@link Message}.
+	 */
+	@Column
+	private String lastMessageId;
+	/**
+	 * The beginning of the content of the newest {@link Message}.
+	 */
+	@Column(length = PREVIEW_LENGTH)
+	private String lastMessagePreview;
+	/**
+	 * The unique identifier of the {@link User} who sent the newest {@link Message}.
+	 */
+	@Column
+	private UUID lastMessageUserId;
+}
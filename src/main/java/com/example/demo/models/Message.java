@@ -3,6 +3,9 @@ package com.example.demo.models;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import jakarta.persistence.Id;
@@ -14,12 +17,45 @@ import lombok.Data;
  * <p>This class defines the structure of a message entity, including its unique identifier, content,
  * timestamp, associated user ID, and associated chat ID.</p>
  *
+ * <p>The compound indexes keep history reads, counts and chat deletes bounded to a single chat.
+ * The trailing {@code _id} key of {@value #CHAT_TIME_INDEX} lets keyset pages sorted by time and ID
+ * be served from the index without an in-memory sort.</p>
+ *
+ * <p>{@value #TEXT_INDEX} is the text index used by message search. It is prefixed with {@code chatId}, so a
+ * search reads only the index entries of one chat and must match the chat by equality. It has no default
+ * language, so words are matched without stemming or stop words in any language. Messages moved to the
+ * {@code MessageArchive} are no longer in the collection and therefore not searchable.</p>
+ *
+ * <p>{@value #EXPIRE_INDEX} is a TTL index: MongoDB deletes a message once {@link #expireAt} has passed.
+ * Messages without an expiry are kept forever.</p>
+ *
  * @author Andrey Sharipov
  * @version 1.0
  */
 @Data
-@Document(collection = "message")
+@Document(collection = "message", language = "none")
+@CompoundIndexes({
+		@CompoundIndex(name = Message.CHAT_TIME_INDEX, def = "{ 'chatId': 1, 'time': 1, '_id': 1 }"),
+		@CompoundIndex(name = Message.CHAT_USER_TIME_INDEX, def = "{ 'chatId': 1, 'userId': 1, 'time': 1 }"),
+		@CompoundIndex(name = Message.TEXT_INDEX, def = "{ 'chatId': 1, 'context': 'text' }")
+})
 public class Message {
+	/**
+	 * The name of the index on chat ID and time.
+	 */
+	public static final String CHAT_TIME_INDEX = "chat_time";
+	/**
+	 * The name of the index on chat ID, user ID and time.
+	 */
+	public static final String CHAT_USER_TIME_INDEX = "chat_user_time";
+	/**
+	 * The name of the text index on chat ID and content.
+	 */
+	public static final String TEXT_INDEX = "chat_context_text";
+	/**
+	 * The name of the TTL index on the expiry time.
+	 */
+	public static final String EXPIRE_INDEX = "expire_at_ttl";
 	/**
 	 * The unique identifier for the message.
 	 */
@@ -45,4 +81,11 @@ public class Message {
 	 * @see Chat
 	 */
 	private UUID chatId;
+	/**
+	 * The time after which the message is deleted, or null if it is kept forever.
+	 *
+	 * @see Chat#getRetentionDays()
+	 */
+	@Indexed(name = EXPIRE_INDEX, expireAfter = "0s")
+	private LocalDateTime expireAt;
 }
@@ -0,0 +1,54 @@
+package com.example.demo.models;
+
+import java.util.UUID;
+
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import jakarta.persistence.Id;
+import lombok.Data;
+
+/**
+ * Represents the read receipt of a {@link User} in a {@link Chat}: the newest {@link Message} the user has seen.
+ *
+ * <p>The ID is {@code userId:chatId}. Message IDs are ObjectIds in lowercase hex, whose string order is
+ * the order in which the messages were written, so the cursor only ever moves forward with {@code $max}.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see User
+ * @see Chat
+ * @see Message
+ */
+@Data
+@Document(collection = "read_cursor")
+public class ReadCursor {
+	/**
+	 * The ID of the cursor, {@code userId:chatId}.
+	 */
+	@Id
+	private String id;
+	/**
+	 * The ID of the {@link User}.
+	 */
+	private UUID userId;
+	/**
+	 * The ID of the {@link Chat}.
+	 */
+	@Indexed
+	private UUID chatId;
+	/**
+	 * The ID of the newest {@link Message} the {@link User} has seen.
+	 */
+	private String messageId;
+	/**
+	 * Returns the ID of the cursor of a user in a chat.
+	 *
+	 * @param userId the ID of the user
+	 * @param chatId the ID of the chat
+	 * @return the cursor ID
+	 */
+	public static String id(UUID userId, UUID chatId) {
+		return userId + ":" + chatId;
+	}
+}
@@ -0,0 +1,36 @@
+package com.example.demo.models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import jakarta.persistence.Id;
+import lombok.Data;
+
+/**
+ * Represents the unread {@link Message} counters of one {@link User}.
+ *
+ * <p>There is one document per user, keyed by the user ID. The {@code counts} map holds the number of
+ * unread messages per {@link Chat} ID; chats without unread messages have no entry. Counters are changed
+ * only with atomic {@code $inc} and {@code $unset} updates, so concurrent writers never lose increments,
+ * and all counters of a user are read with a single lookup by ID.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see User
+ * @see Chat
+ */
+@Data
+@Document(collection = "unread")
+public class UnreadCounters {
+	/**
+	 * The ID of the {@link User} the counters belong to.
+	 */
+	@Id
+	private String id;
+	/**
+	 * The number of unread messages by {@link Chat} ID.
+	 */
+	private Map<String, Long> counts = new HashMap<>();
+}
@@ -6,6 +6,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.UUID;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -14,6 +16,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonProperty.Access;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
@@ -30,7 +33,9 @@ import jakarta.persistence.ManyToMany;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.Email;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 /**
  * Represents a user entity in the application.
@@ -38,6 +43,11 @@ import lombok.NoArgsConstructor;
  * <p>This class defines the structure of a user entity, including its unique identifier, username, password,
  * email, active status, roles, and associated chats.</p>
  *
+ * <p>Both collections are loaded lazily. Repository methods that need the roles fetch them
+ * explicitly with an entity graph.</p>
+ *
+ * <p>Users and their roles are kept in the second-level cache; the chats are not.</p>
+ *
  * @author Andrey Sharipov
  * @version 1.0
  * @see UserDetails
@@ -46,7 +56,18 @@ import lombok.NoArgsConstructor;
 @Entity
 @Table(name = "users")
 @NoArgsConstructor(force = true)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
 public class User implements UserDetails {
+	/**
+	 * The second-level cache region of users.
+	 */
+	public static final String CACHE_REGION = "user";
+	/**
+	 * The second-level cache region of the {@link #roles} collections.
+	 */
+	public static final String ROLES_CACHE_REGION = "user-roles";
+
 	/**
 	 * The unique identifier for the user.
 	 */
@@ -81,17 +102,22 @@ public class User implements UserDetails {
 	 *
 	 * @see Role
 	 */
-	@ElementCollection(targetClass = Role.class, fetch = FetchType.EAGER)
+	@ElementCollection(targetClass = Role.class, fetch = FetchType.LAZY)
 	@CollectionTable(name = "user_role", joinColumns = @JoinColumn(name = "user_id"))
 	@Enumerated(EnumType.STRING)
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.ROLES_CACHE_REGION)
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
 	private Collection<Role> roles = new HashSet<>();
 	/**
 	 * The list of {@link Chat} the user is associated with.
 	 *
 	 * @see Chat
 	 */
-	@ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+	@ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
 	@JsonIgnore
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
 	private List<Chat> chats = new ArrayList<>();
 
 	@Override
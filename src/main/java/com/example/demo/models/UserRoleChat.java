@@ -2,18 +2,25 @@ package com.example.demo.models;
 
 import java.util.UUID;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import com.example.demo.models.role.Role;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 /**
  * Represents a user role within a {@link Chat} in the application.
@@ -21,6 +28,9 @@ import lombok.NoArgsConstructor;
  * <p>This class defines the structure of a user role within a chat, including its unique identifier, user ID,
  * associated chat, and role.</p>
  *
+ * <p>User roles are kept in the second-level cache, so a cached {@link Chat#getUserRole()} collection
+ * resolves its elements without a query.</p>
+ *
  * @author Andrey Sharipov
  * @version 1.0
  * @see User
@@ -30,7 +40,14 @@ import lombok.NoArgsConstructor;
 @Entity
 @Data
 @NoArgsConstructor
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = UserRoleChat.CACHE_REGION)
 public class UserRoleChat {
+	/**
+	 * The second-level cache region of user roles.
+	 */
+	public static final String CACHE_REGION = "user-role-chat";
+
 	/**
 	 * The unique identifier for the user role within a {@link Chat}.
 	 *
@@ -53,8 +70,10 @@ public class UserRoleChat {
 	 * @see Chat
 	 */
 	@JoinColumn(name = "chatId")
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JsonIgnore
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
 	private Chat chat;
 	/**
 	 * The role assigned to the {@link User} within the {@link Chat}.
@@ -0,0 +1,93 @@
+package com.example.demo.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.dto.response.InboxChatResponse;
+import com.example.demo.models.ChatActivity;
+
+/**
+ * Repository interface for the {@link ChatActivity} summaries.
+ *
+ * <p>The inbox queries list the chats of a user, most recently active first, ordered by
+ * {@code (lastActivity, chat id)} descending. Chats without a summary sort as active at {@code epoch}.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see ChatActivity
+ * @see ChatActivityRepositoryCustom
+ */
+public interface ChatActivityRepository extends JpaRepository<ChatActivity, UUID>, ChatActivityRepositoryCustom {
+	/**
+	 * Moves the summary of a chat to a newer message. Older messages do not overwrite a newer summary.
+	 *
+	 * @param chatId    the unique identifier of the chat
+	 * @param time      the time of the message
+	 * @param messageId the unique identifier of the message
+	 * @param preview   the preview of the message
+	 * @param userId    the unique identifier of the sender
+	 * @return the number of updated summaries; 0 if the chat has no summary or a newer one
+	 */
+	@Transactional
+	@Modifying
+	@Query("update ChatActivity a set a.lastActivity = :time, a.lastMessageId = :messageId, "
+			+ "a.lastMessagePreview = :preview, a.lastMessageUserId = :userId "
+			+ "where a.chatId = :chatId and a.lastActivity <= :time")
+	int advance(@Param("chatId") UUID chatId, @Param("time") LocalDateTime time,
+			@Param("messageId") String messageId, @Param("preview") String preview, @Param("userId") UUID userId);
+	/**
+	 * Replaces the preview of a chat if the given message is still its newest.
+	 *
+	 * @param chatId    the unique identifier of the chat
+	 * @param messageId the unique identifier of the edited message
+	 * @param preview   the new preview
+	 * @return the number of updated summaries
+	 */
+	@Transactional
+	@Modifying
+	@Query("update ChatActivity a set a.lastMessagePreview = :preview "
+			+ "where a.chatId = :chatId and a.lastMessageId = :messageId")
+	int updatePreview(@Param("chatId") UUID chatId, @Param("messageId") String messageId,
+			@Param("preview") String preview);
+	/**
+	 * Retrieves the first page of the chats of a user.
+	 *
+	 * @param userId   the unique identifier of the user
+	 * @param epoch    the activity time of chats without a summary
+	 * @param pageable the page size; only the first page is meaningful
+	 * @return the chats, most recently active first
+	 */
+	@Query("select new com.example.demo.dto.response.InboxChatResponse(c.id, c.name, size(c.users), "
+			+ "a.lastActivity, a.lastMessageId, a.lastMessagePreview, a.lastMessageUserId) "
+			+ "from Chat c join c.users u left join ChatActivity a on a.chatId = c.id "
+			+ "where u.id = :userId "
+			+ "order by coalesce(a.lastActivity, :epoch) desc, c.id desc")
+	List<InboxChatResponse> findInbox(@Param("userId") UUID userId, @Param("epoch") LocalDateTime epoch,
+			Pageable pageable);
+	/**
+	 * Retrieves the chats of a user that follow the given keyset position.
+	 *
+	 * @param userId   the unique identifier of the user
+	 * @param epoch    the activity time of chats without a summary
+	 * @param time     the activity time of the cursor chat
+	 * @param chatId   the unique identifier of the cursor chat, used to break ties on time
+	 * @param pageable the page size; only the first page is meaningful
+	 * @return the chats less recently active than the cursor, most recently active first
+	 */
+	@Query("select new com.example.demo.dto.response.InboxChatResponse(c.id, c.name, size(c.users), "
+			+ "a.lastActivity, a.lastMessageId, a.lastMessagePreview, a.lastMessageUserId) "
+			+ "from Chat c join c.users u left join ChatActivity a on a.chatId = c.id "
+			+ "where u.id = :userId and (coalesce(a.lastActivity, :epoch) < :time "
+			+ "or (coalesce(a.lastActivity, :epoch) = :time and c.id < :chatId)) "
+			+ "order by coalesce(a.lastActivity, :epoch) desc, c.id desc")
+	List<InboxChatResponse> findInboxAfter(@Param("userId") UUID userId, @Param("epoch") LocalDateTime epoch,
+			@Param("time") LocalDateTime time, @Param("chatId") UUID chatId, Pageable pageable);
+}
@@ -0,0 +1,23 @@
+package com.example.demo.repository;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.example.demo.models.ChatActivity;
+
+/**
+ * Custom repository interface for {@link ChatActivity} writes that Spring Data does not derive.
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see ChatActivityRepository
+ */
+public interface ChatActivityRepositoryCustom {
+	/**
+	 * Inserts the summary of a chat that has none. Unlike {@code save}, an existing summary is never read or
+	 * overwritten.
+	 *
+	 * @param activity the new summary
+	 * @throws DataIntegrityViolationException if the chat already has a summary
+	 */
+	void insert(ChatActivity activity);
+}
@@ -0,0 +1,27 @@
+package com.example.demo.repository;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.models.ChatActivity;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Implementation of {@link ChatActivityRepositoryCustom} on top of the {@link EntityManager}.
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see ChatActivityRepositoryCustom
+ */
+public class ChatActivityRepositoryCustomImpl implements ChatActivityRepositoryCustom {
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	@Transactional
+	public void insert(ChatActivity activity) {
+		entityManager.persist(activity);
+		entityManager.flush();
+	}
+}
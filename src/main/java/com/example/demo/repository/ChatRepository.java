@@ -1,10 +1,23 @@
 package com.example.demo.repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHint;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.demo.dto.response.ChatMemberResponse;
 import com.example.demo.models.Chat;
+import com.example.demo.repository.projection.ChatSummary;
 
 /**
  * Repository interface for performing CRUD operations on Chat entities.
@@ -12,10 +25,125 @@ import com.example.demo.models.Chat;
  * <p>This interface extends Spring Data's {@link JpaRepository} interface,
  * specifying the entity type as {@link Chat} and the identifier type as {@link UUID}.</p>
  *
+ * <p>Associations of {@link Chat} are lazy. {@link #findById(UUID)} is served from the second-level cache.
+ * Write paths check the user roles, so they load the chat with {@link #findWithUserRoleById(UUID)}, which
+ * fetches the roles in the same query and does not depend on an open session. Adding and removing members
+ * loads the chat with {@link #findWithUsersById(UUID)} instead and reads and writes the roles through
+ * {@link UserRoleChatRepository}, so the two collections are never fetched together. Read paths use
+ * projections; the frequent ones are kept in the query cache. The session is closed when the service
+ * returns, as {@code spring.jpa.open-in-view} is off, so any other lazy load fails instead of running
+ * as an extra query while the response is written.</p>
+ *
+ * <p>Native writes must name the tables they change as query spaces. Otherwise Hibernate cannot tell which
+ * cached entities they affect and clears the whole second-level cache.</p>
+ *
  * @author Andrey Sharipov
  * @version 1.0
  * @see JpaRepository
  * @see Chat
  */
 public interface ChatRepository extends JpaRepository<Chat, UUID>{
+	/**
+	 * Retrieves a chat together with its user roles from the database, bypassing the second-level cache.
+	 * Used by every write path, which checks the roles of the authenticated user.
+	 *
+	 * @param id the unique identifier of the chat
+	 * @return the chat with its user roles, or an empty optional if not found
+	 */
+	@EntityGraph(attributePaths = "userRole")
+	Optional<Chat> findWithUserRoleById(UUID id);
+	/**
+	 * Retrieves a chat together with its members from the database, bypassing the second-level cache.
+	 * Used when adding and removing members.
+	 *
+	 * @param id the unique identifier of the chat
+	 * @return the chat with its members, or an empty optional if not found
+	 */
+	@EntityGraph(attributePaths = "users")
+	Optional<Chat> findWithUsersById(UUID id);
+	/**
+	 * Retrieves the ID and name of a chat without its associations.
+	 *
+	 * @param id the unique identifier of the chat
+	 * @return the summary of the chat, or an empty optional if not found
+	 */
+	@QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+	Optional<ChatSummary> findSummaryById(UUID id);
+	/**
+	 * Retrieves the members of a chat as projections.
+	 *
+	 * @param chatId the unique identifier of the chat
+	 * @return the members of the chat
+	 */
+	@Query("select new com.example.demo.dto.response.ChatMemberResponse(u.id, u.username) "
+			+ "from Chat c join c.users u where c.id = :chatId")
+	@QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+	List<ChatMemberResponse> findMembersById(@Param("chatId") UUID chatId);
+	/**
+	 * Retrieves the IDs of all chats a user is a member of.
+	 *
+	 * @param userId the unique identifier of the user
+	 * @return the IDs of the chats the user is a member of
+	 */
+	@Query("select c.id from Chat c join c.users u where u.id = :userId")
+	@QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+	List<UUID> findIdsByUserId(@Param("userId") UUID userId);
+	/**
+	 * Retrieves the IDs of all members of a chat.
+	 *
+	 * @param chatId the unique identifier of the chat
+	 * @return the IDs of the users that are members of the chat
+	 */
+	@Query("select u.id from Chat c join c.users u where c.id = :chatId")
+	List<UUID> findUserIdsById(@Param("chatId") UUID chatId);
+	/**
+	 * Marks a chat as deleted. From then on it is hidden from all entity queries.
+	 *
+	 * @param chatId the unique identifier of the chat
+	 * @param time   the time of the deletion
+	 * @return the number of marked chats; 0 if the chat does not exist or is already deleted
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = "update chat set deleted_at = :time where id = :chatId and deleted_at is null", nativeQuery = true)
+	@QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = "chat"))
+	int markDeleted(@Param("chatId") UUID chatId, @Param("time") LocalDateTime time);
+	/**
+	 * Retrieves the IDs of all chats marked as deleted and not yet purged.
+	 *
+	 * @return the IDs of the deleted chats
+	 */
+	@Query(value = "select id from chat where deleted_at is not null", nativeQuery = true)
+	List<UUID> findDeletedIds();
+	/**
+	 * Retrieves a page of the IDs of chats that are not deleted, in ID order.
+	 *
+	 * @param after the ID to read chats after; the nil UUID reads from the start
+	 * @param limit the maximum number of IDs
+	 * @return the IDs of the chats following {@code after}
+	 */
+	@Query(value = "select id from chat where id > :after and deleted_at is null order by id limit :limit",
+			nativeQuery = true)
+	List<UUID> findIdsAfter(@Param("after") UUID after, @Param("limit") int limit);
+	/**
+	 * Removes the member rows of a deleted chat.
+	 *
+	 * @param chatId the unique identifier of the chat
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = "delete from chat_user where chat_id = :chatId "
+			+ "and exists (select 1 from chat where id = :chatId and deleted_at is not null)", nativeQuery = true)
+	@QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = "chat_user"))
+	void purgeDeletedMembers(@Param("chatId") UUID chatId);
+	/**
+	 * Removes a deleted chat. Its messages, roles and member rows must be purged first.
+	 *
+	 * @param chatId the unique identifier of the chat
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = "delete from chat where id = :chatId and deleted_at is not null", nativeQuery = true)
+	@QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = "chat"))
+	void purgeDeleted(@Param("chatId") UUID chatId);
 }
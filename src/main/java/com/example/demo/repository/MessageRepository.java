@@ -1,27 +1,162 @@
 package com.example.demo.repository;
 
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import com.example.demo.models.Message;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for performing CRUD operations on Message entities.
  *
  * <p>This interface extends Spring Data's {@link MongoRepository} interface,
- * specifying the entity type as {@link Message} and the identifier type as {@link String}.</p>
+ * specifying the entity type as {@link Message} and the identifier type as {@link String}.
+ * Writes that cannot be derived are declared in {@link MessageRepositoryCustom}.</p>
  *
  * @author Andrey Sharipov
  * @version 1.0
  * @see MongoRepository
+ * @see MessageRepositoryCustom
  * @see Message
  */
-public interface MessageRepository extends MongoRepository<Message, String> {
+public interface MessageRepository extends MongoRepository<Message, String>, MessageRepositoryCustom {
 	/**
 	 * Deletes all messages associated with a specific chat.
 	 *
 	 * @param chatId the unique identifier of the chat
 	 */
 	void deleteAllByChatId(UUID chatId);
+	/**
+	 * Counts the messages of a chat.
+	 *
+	 * @param chatId the unique identifier of the chat
+	 * @return the number of messages in the chat
+	 */
+	long countByChatId(UUID chatId);
+	/**
+	 * Counts the messages a user sent to a chat.
+	 *
+	 * @param chatId the unique identifier of the chat
+	 * @param userId the unique identifier of the user
+	 * @return the number of messages the user sent to the chat
+	 */
+	long countByChatIdAndUserId(UUID chatId, UUID userId);
+	/**
+	 * Retrieves the messages of a chat sent within a time range, oldest first.
+	 *
+	 * @param chatId   the unique identifier of the chat
+	 * @param from     the start of the range, exclusive
+	 * @param to       the end of the range, exclusive
+	 * @param pageable the page of the range to read
+	 * @return the messages of the range in ascending order
+	 */
+	List<Message> findByChatIdAndTimeBetweenOrderByTimeAsc(UUID chatId, LocalDateTime from, LocalDateTime to,
+			Pageable pageable);
+	/**
+	 * Retrieves the newest messages a user sent to a chat, newest first.
+	 *
+	 * @param chatId   the unique identifier of the chat
+	 * @param userId   the unique identifier of the user
+	 * @param pageable the page size; only the first page is meaningful
+	 * @return the newest messages of the user in descending order
+	 */
+	List<Message> findByChatIdAndUserIdOrderByTimeDesc(UUID chatId, UUID userId, Pageable pageable);
+	/**
+	 * Retrieves the newest messages of a chat, newest first.
+	 *
+	 * @param chatId   the unique identifier of the chat
+	 * @param pageable the page size; only the first page is meaningful
+	 * @return the newest messages of the chat in descending order
+	 */
+	List<Message> findByChatIdOrderByTimeDescIdDesc(UUID chatId, Pageable pageable);
+	/**
+	 * Retrieves the newest messages of a chat sent since the given time, newest first.
+	 *
+	 * @param chatId   the unique identifier of the chat
+	 * @param since    the retention cutoff; older messages are not returned
+	 * @param pageable the page size; only the first page is meaningful
+	 * @return the newest messages of the chat in descending order
+	 */
+	@Query(value = "{ 'chatId': ?0, 'time': { '$gte': ?1 } }", sort = "{ 'time': -1, '_id': -1 }")
+	List<Message> findLatest(UUID chatId, LocalDateTime since, Pageable pageable);
+	/**
+	 * Retrieves the messages of a chat that precede the given keyset position, newest first.
+	 *
+	 * @param chatId   the unique identifier of the chat
+	 * @param since    the retention cutoff; older messages are not returned
+	 * @param time     the time of the cursor message
+	 * @param id       the identifier of the cursor message, used to break ties on time
+	 * @param pageable the page size; only the first page is meaningful
+	 * @return the messages older than the cursor in descending order
+	 */
+	@Query(value = "{ 'chatId': ?0, 'time': { '$gte': ?1 }, "
+			+ "'$or': [ { 'time': { '$lt': ?2 } }, { 'time': ?2, '_id': { '$lt': ?3 } } ] }",
+			sort = "{ 'time': -1, '_id': -1 }")
+	List<Message> findPageBefore(UUID chatId, LocalDateTime since, LocalDateTime time, ObjectId id, Pageable pageable);
+	/**
+	 * Retrieves the messages of a chat that follow the given keyset position, oldest first.
+	 *
+	 * @param chatId   the unique identifier of the chat
+	 * @param since    the retention cutoff; older messages are not returned
+	 * @param time     the time of the cursor message
+	 * @param id       the identifier of the cursor message, used to break ties on time
+	 * @param pageable the page size; only the first page is meaningful
+	 * @return the messages newer than the cursor in ascending order
+	 */
+	@Query(value = "{ 'chatId': ?0, 'time': { '$gte': ?1 }, "
+			+ "'$or': [ { 'time': { '$gt': ?2 } }, { 'time': ?2, '_id': { '$gt': ?3 } } ] }",
+			sort = "{ 'time': 1, '_id': 1 }")
+	List<Message> findPageAfter(UUID chatId, LocalDateTime since, LocalDateTime time, ObjectId id, Pageable pageable);
+	/**
+	 * Streams the messages of a chat sent since the given time, oldest first, from a server-side cursor.
+	 *
+	 * <p>The returned {@link Stream} holds an open cursor and must be closed by the caller.</p>
+	 *
+	 * @param chatId the unique identifier of the chat
+	 * @param since  the retention cutoff; older messages are not returned
+	 * @return the stream of the chat messages in ascending order
+	 */
+	@Meta(cursorBatchSize = 500)
+	@Query(value = "{ 'chatId': ?0, 'time': { '$gte': ?1 } }", sort = "{ 'time': 1, '_id': 1 }")
+	Stream<Message> streamHistory(UUID chatId, LocalDateTime since);
+	/**
+	 * Streams the messages of a chat sent within a time range, oldest first, for moving them to the archive.
+	 *
+	 * <p>The returned {@link Stream} holds an open cursor and must be closed by the caller.</p>
+	 *
+	 * @param chatId the unique identifier of the chat
+	 * @param from   the start of the range, inclusive
+	 * @param before the end of the range, exclusive
+	 * @return the stream of the messages in ascending order
+	 */
+	@Meta(cursorBatchSize = 500)
+	@Query(value = "{ 'chatId': ?0, 'time': { '$gte': ?1, '$lt': ?2 } }", sort = "{ 'time': 1, '_id': 1 }")
+	Stream<Message> streamArchivable(UUID chatId, LocalDateTime from, LocalDateTime before);
+	/**
+	 * Deletes the messages of a chat up to and including the given keyset position, once they are archived.
+	 *
+	 * @param chatId the unique identifier of the chat
+	 * @param time   the time of the last archived message
+	 * @param id     the identifier of the last archived message
+	 * @return the number of deleted messages
+	 */
+	@Query(value = "{ 'chatId': ?0, '$or': [ { 'time': { '$lt': ?1 } }, { 'time': ?1, '_id': { '$lte': ?2 } } ] }",
+			delete = true)
+	long deleteArchived(UUID chatId, LocalDateTime time, ObjectId id);
+	/**
+	 * Retrieves the identifiers of a page of messages of a chat, in no particular order.
+	 *
+	 * @param chatId   the unique identifier of the chat
+	 * @param pageable the page size; only the first page is meaningful
+	 * @return the messages with only the identifier set
+	 */
+	@Query(value = "{ 'chatId': ?0 }", fields = "{ '_id': 1 }")
+	List<Message> findIdsByChatId(UUID chatId, Pageable pageable);
 }
@@ -0,0 +1,47 @@
+package com.example.demo.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bson.types.ObjectId;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+
+import com.example.demo.models.Message;
+
+/**
+ * Custom repository interface for message writes that Spring Data does not derive.
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see MessageRepository
+ */
+public interface MessageRepositoryCustom {
+	/**
+	 * Inserts messages with one unordered bulk write, so a document that fails does not stop the others.
+	 * Messages without an ID are given one before the write.
+	 *
+	 * @param messages the messages to insert
+	 * @return the failure of every message that was not inserted, by its position in {@code messages};
+	 *         empty if all were inserted
+	 * @throws DataAccessException if the bulk write failed as a whole
+	 */
+	Map<Integer, DataAccessException> insertUnordered(List<Message> messages);
+	/**
+	 * Retrieves the newest messages of a chat that match a text search, newest first. Only messages sent since
+	 * the cutoff are returned, so the search does not reach past the retention.
+	 *
+	 * <p>Served by the {@value Message#TEXT_INDEX} index with an equality on the chat, so the cost depends on
+	 * the number of matching messages of the chat rather than on the size of the whole history.</p>
+	 *
+	 * @param chatId   the ID of the chat to search
+	 * @param since    the cutoff of the chat
+	 * @param before   the identifier of the cursor message, may be null for the first page
+	 * @param criteria the text search
+	 * @param limit    the maximum number of messages
+	 * @return the matching messages older than the cursor in descending order
+	 */
+	List<Message> search(UUID chatId, LocalDateTime since, ObjectId before, TextCriteria criteria, int limit);
+}
@@ -0,0 +1,77 @@
+package com.example.demo.repository;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bson.types.ObjectId;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+
+import com.example.demo.models.Message;
+import com.mongodb.bulk.BulkWriteError;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Implementation of {@link MessageRepositoryCustom} on top of {@link MongoTemplate}.
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see MessageRepositoryCustom
+ */
+@RequiredArgsConstructor
+public class MessageRepositoryCustomImpl implements MessageRepositoryCustom {
+	private static final int DUPLICATE_KEY = 11000;
+
+	private final MongoTemplate mongoTemplate;
+
+	@Override
+	public Map<Integer, DataAccessException> insertUnordered(List<Message> messages) {
+		for (Message message : messages) {
+			if (message.getId() == null) {
+				message.setId(new ObjectId().toHexString());
+			}
+		}
+
+		BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Message.class);
+		bulk.insert(messages);
+		try {
+			bulk.execute();
+			return Map.of();
+		} catch (BulkOperationException exception) {
+			if (exception.getErrors().isEmpty()) {
+				throw exception;
+			}
+			Map<Integer, DataAccessException> failures = new HashMap<>();
+			for (BulkWriteError error : exception.getErrors()) {
+				failures.put(error.getIndex(), error.getCode() == DUPLICATE_KEY
+						? new DuplicateKeyException(error.getMessage())
+						: new DataIntegrityViolationException(error.getMessage()));
+			}
+			return failures;
+		}
+	}
+
+	@Override
+	public List<Message> search(UUID chatId, LocalDateTime since, ObjectId before, TextCriteria criteria, int limit) {
+		Criteria range = Criteria.where("chatId").is(chatId).and("time").gte(since);
+		if (before != null) {
+			range = range.and("_id").lt(before);
+		}
+		Query query = new Query(criteria).addCriteria(range)
+				.with(Sort.by(Sort.Direction.DESC, "_id"))
+				.limit(limit);
+		return mongoTemplate.find(query, Message.class);
+	}
+}
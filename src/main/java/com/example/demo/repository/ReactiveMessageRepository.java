@@ -0,0 +1,65 @@
+package com.example.demo.repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+import com.example.demo.models.Message;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Reactive repository interface for Message entities.
+ *
+ * <p>It reads and writes the same collection as {@link MessageRepository} through the reactive
+ * MongoDB driver and is used by the reactive message API.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see ReactiveMongoRepository
+ * @see Message
+ */
+public interface ReactiveMessageRepository extends ReactiveMongoRepository<Message, String> {
+	/**
+	 * Retrieves the newest messages of a chat sent since the given time, newest first.
+	 *
+	 * @param chatId   the unique identifier of the chat
+	 * @param since    the retention cutoff; older messages are not returned
+	 * @param pageable the page size; only the first page is meaningful
+	 * @return the newest messages of the chat in descending order
+	 */
+	@Query(value = "{ 'chatId': ?0, 'time': { '$gte': ?1 } }", sort = "{ 'time': -1, '_id': -1 }")
+	Flux<Message> findLatest(UUID chatId, LocalDateTime since, Pageable pageable);
+	/**
+	 * Retrieves the messages of a chat that precede the given keyset position, newest first.
+	 *
+	 * @param chatId   the unique identifier of the chat
+	 * @param since    the retention cutoff; older messages are not returned
+	 * @param time     the time of the cursor message
+	 * @param id       the identifier of the cursor message, used to break ties on time
+	 * @param pageable the page size; only the first page is meaningful
+	 * @return the messages older than the cursor in descending order
+	 */
+	@Query(value = "{ 'chatId': ?0, 'time': { '$gte': ?1 }, "
+			+ "'$or': [ { 'time': { '$lt': ?2 } }, { 'time': ?2, '_id': { '$lt': ?3 } } ] }",
+			sort = "{ 'time': -1, '_id': -1 }")
+	Flux<Message> findPageBefore(UUID chatId, LocalDateTime since, LocalDateTime time, ObjectId id, Pageable pageable);
+	/**
+	 * Retrieves the messages of a chat that follow the given keyset position, oldest first.
+	 *
+	 * @param chatId   the unique identifier of the chat
+	 * @param since    the retention cutoff; older messages are not returned
+	 * @param time     the time of the cursor message
+	 * @param id       the identifier of the cursor message, used to break ties on time
+	 * @param pageable the page size; only the first page is meaningful
+	 * @return the messages newer than the cursor in ascending order
+	 */
+	@Query(value = "{ 'chatId': ?0, 'time': { '$gte': ?1 }, "
+			+ "'$or': [ { 'time': { '$gt': ?2 } }, { 'time': ?2, '_id': { '$gt': ?3 } } ] }",
+			sort = "{ 'time': 1, '_id': 1 }")
+	Flux<Message> findPageAfter(UUID chatId, LocalDateTime since, LocalDateTime time, ObjectId id, Pageable pageable);
+}
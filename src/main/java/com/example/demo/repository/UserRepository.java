@@ -2,6 +2,7 @@ package com.example.demo.repository;
 
 import java.util.UUID;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.example.demo.models.User;
@@ -12,6 +13,10 @@ import com.example.demo.models.User;
  * <p>This interface extends Spring Data's {@link JpaRepository} interface,
  * specifying the entity type as {@link User} and the identifier type as {@link UUID}.</p>
  *
+ * <p>Associations of {@link User} are lazy. The lookup used for authentication fetches the roles in the
+ * same query, because it runs before a session is opened for the request. {@link #findById} is served from
+ * the second-level cache and the roles from the collection cache. The chats are never fetched.</p>
+ *
  * @author Andrey Sharipov
  * @version 1.0
  * @see JpaRepository
@@ -24,6 +29,7 @@ public interface UserRepository extends JpaRepository<User, UUID>{
 	 * @param email the email address of the user
 	 * @return the user with the specified email address, or null if not found
 	 */
+	@EntityGraph(attributePaths = "roles")
 	User findByEmail(String email);
 	/**
 	 * Checks if a user exists with the given email address.
@@ -1,9 +1,17 @@
 package com.example.demo.repository;
 
+import java.util.Optional;
 import java.util.UUID;
 
 import com.example.demo.models.Chat;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHint;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.demo.models.UserRoleChat;
 
@@ -25,4 +33,26 @@ public interface UserRoleChatRepository extends JpaRepository<UserRoleChat, UUID
      * @param chat the chat for which user roles should be deleted
      */
     void deleteAllByChat(Chat chat);
+    /**
+     * Retrieves the role of a user in a chat.
+     *
+     * @param chat   the chat
+     * @param userId the unique identifier of the user
+     * @return the role of the user, or an empty optional if the user has no role in the chat
+     */
+    Optional<UserRoleChat> findByChatAndUserId(Chat chat, UUID userId);
+    /**
+     * Deletes up to {@code limit} user role entries of a chat. Works for deleted chats, which are hidden
+     * from entity queries. Evicts the cached user roles and role collections.
+     *
+     * @param chatId the unique identifier of the chat
+     * @param limit  the maximum number of entries to delete
+     * @return the number of deleted entries
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "delete from user_role_chat where id in "
+            + "(select id from user_role_chat where chat_id = :chatId limit :limit)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = "user_role_chat"))
+    int deleteChunkByChatId(@Param("chatId") UUID chatId, @Param("limit") int limit);
 }
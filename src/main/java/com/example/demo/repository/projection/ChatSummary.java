@@ -0,0 +1,33 @@
+package com.example.demo.repository.projection;
+
+import java.util.UUID;
+
+import com.example.demo.models.Chat;
+
+/**
+ * Projection of the scalar columns of a {@link Chat}, read without loading its associations.
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see Chat
+ */
+public interface ChatSummary {
+	/**
+	 * Returns the ID of the chat.
+	 *
+	 * @return the ID of the chat
+	 */
+	UUID getId();
+	/**
+	 * Returns the name of the chat.
+	 *
+	 * @return the name of the chat
+	 */
+	String getName();
+	/**
+	 * Returns the message retention of the chat in days.
+	 *
+	 * @return the retention in days, 0 to keep messages forever, or null to use the default
+	 */
+	Integer getRetentionDays();
+}
@@ -0,0 +1,48 @@
+package com.example.demo.security;
+
+import java.security.Principal;
+import java.util.UUID;
+
+import org.springframework.security.core.Authentication;
+
+import com.example.demo.models.TokenUser;
+import com.example.demo.models.User;
+
+/**
+ * Resolves the ID of the authenticated {@link User}.
+ *
+ * <p>Requests authenticated with a password carry the {@link User} entity as principal, while requests
+ * authenticated with the {@code __Host-auth-token} cookie carry a {@link TokenUser} whose username is
+ * the subject of the token, that is the user ID.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see User
+ * @see TokenUser
+ */
+public final class AuthenticatedUserId {
+
+	private AuthenticatedUserId() {
+	}
+	/**
+	 * Resolves the ID of the authenticated user.
+	 *
+	 * @param principal the principal of the request
+	 * @return the ID of the user, or null if the principal does not identify a user
+	 */
+	public static UUID of(Principal principal) {
+		if (principal instanceof Authentication authentication) {
+			if (authentication.getPrincipal() instanceof User user) {
+				return user.getId();
+			}
+			if (authentication.getPrincipal() instanceof TokenUser tokenUser) {
+				try {
+					return UUID.fromString(tokenUser.getUsername());
+				} catch (IllegalArgumentException exception) {
+					return null;
+				}
+			}
+		}
+		return null;
+	}
+}
@@ -1,5 +1,8 @@
 package com.example.demo.security;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import org.springframework.security.core.Authentication;
@@ -8,23 +11,75 @@ import org.springframework.security.web.authentication.preauth.PreAuthenticatedA
 
 import com.example.demo.models.Token;
 import com.example.demo.service.TokenCookieService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.nimbusds.jose.JOSEException;
 
 import jakarta.servlet.http.HttpServletRequest;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Converter class for token cookie authentication.
  * Converts token cookie information from the HttpServletRequest into an Authentication object.
  *
+ * <p>Decrypted tokens are cached by cookie value, so the JWE parse and decryption run once per token
+ * instead of once per request. The cache is bounded and every entry expires no later than the
+ * {@link Token#expiresAt()} of its token.</p>
+ *
  * @author Andrey Sharipov
  * @version 1.0
  */
 @Slf4j
-@AllArgsConstructor
 public class TokenCookieAuthenticationConverter implements AuthenticationConverter {
-	private TokenCookieService tokenCookieService;
+	/**
+	 * The default maximum number of cached tokens.
+	 */
+	public static final long DEFAULT_CACHE_SIZE = 10_000;
+
+	private final TokenCookieService tokenCookieService;
+	private final Cache<String, Token> tokens;
+	/**
+	 * Constructs a converter with a token cache of the default size.
+	 *
+	 * @param tokenCookieService the service used to decrypt tokens
+	 */
+	public TokenCookieAuthenticationConverter(TokenCookieService tokenCookieService) {
+		this(tokenCookieService, DEFAULT_CACHE_SIZE);
+	}
+	/**
+	 * Constructs a converter with a token cache of the given size.
+	 *
+	 * @param tokenCookieService the service used to decrypt tokens
+	 * @param cacheSize          the maximum number of cached tokens
+	 */
+	public TokenCookieAuthenticationConverter(TokenCookieService tokenCookieService, long cacheSize) {
+		this(tokenCookieService, cacheSize, Clock.systemUTC());
+	}
+
+	TokenCookieAuthenticationConverter(TokenCookieService tokenCookieService, long cacheSize, Clock clock) {
+		this.tokenCookieService = tokenCookieService;
+		this.tokens = Caffeine.newBuilder()
+				.maximumSize(cacheSize)
+				.ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+				.expireAfter(new Expiry<String, Token>() {
+					@Override
+					public long expireAfterCreate(String key, Token token, long currentTime) {
+						return Math.max(0, Duration.between(clock.instant(), token.expiresAt()).toNanos());
+					}
+
+					@Override
+					public long expireAfterUpdate(String key, Token token, long currentTime, long currentDuration) {
+						return currentDuration;
+					}
+
+					@Override
+					public long expireAfterRead(String key, Token token, long currentTime, long currentDuration) {
+						return currentDuration;
+					}
+				})
+				.build();
+	}
 	/**
 	 * Converts token cookie information from the HttpServletRequest into an Authentication object.
 	 *
@@ -35,18 +90,28 @@ public class TokenCookieAuthenticationConverter implements AuthenticationConvert
 	public Authentication convert(HttpServletRequest request) {
 		if (request.getCookies() != null) {
 			return Stream.of(request.getCookies()).filter(cookie -> cookie.getName().equals("__Host-auth-token"))
-					.findFirst().map(cookie -> {
-						Token token = null;
-						try {
-							token = this.tokenCookieService.deserialize(cookie.getValue());
-						} catch (JOSEException e) {
-							log.error(e.getMessage(), e);
-						}
-						return new PreAuthenticatedAuthenticationToken(token, cookie.getValue());
-					}).orElse(null);
+					.findFirst().map(cookie -> new PreAuthenticatedAuthenticationToken(token(cookie.getValue()),
+							cookie.getValue())).orElse(null);
 		}
 
 		return null;
 	}
+	/**
+	 * Returns the token of a cookie value, decrypting and caching it on the first use.
+	 * Values that cannot be decrypted are not cached.
+	 *
+	 * @param value the cookie value
+	 * @return the token, or null if the value cannot be decrypted
+	 */
+	private Token token(String value) {
+		return tokens.get(value, key -> {
+			try {
+				return this.tokenCookieService.deserialize(key);
+			} catch (JOSEException e) {
+				log.error(e.getMessage(), e);
+				return null;
+			}
+		});
+	}
 
 }
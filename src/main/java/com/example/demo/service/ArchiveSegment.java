@@ -0,0 +1,486 @@
+package com.example.demo.service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+import org.bson.types.ObjectId;
+
+import com.example.demo.models.Message;
+
+/**
+ * An immutable segment file of archived messages, read through a memory mapping.
+ *
+ * <p>A segment holds blocks of up to {@code block-size} messages of a single chat in {@code (time, id)}
+ * order, each compressed with deflate. Its index file holds one sparse index per chat: an entry per block
+ * with its offset, its first and last position and its ID range, so a read decompresses only the blocks
+ * it needs. The index is loaded on heap, the block data stays in the page cache.</p>
+ *
+ * <p>Segments are written once by a {@link Writer} and never changed. The segment file is moved in place
+ * before the index file, so a segment without an index file is an interrupted write. The directory is
+ * synced after both moves, so a committed segment survives a crash once {@link Writer#commit()} returns.</p>
+ *
+ * <p>Compaction writes a new segment that {@link #replaces()} an old one. The index records the replaced
+ * sequence number, so if the old segment is still present after a crash it is recognized and removed.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see MessageArchive
+ */
+final class ArchiveSegment {
+	/**
+	 * The file name suffix of segment files.
+	 */
+	static final String SEGMENT_SUFFIX = ".seg";
+	/**
+	 * The file name suffix of index files.
+	 */
+	static final String INDEX_SUFFIX = ".idx";
+	/**
+	 * The file name suffix of files being written.
+	 */
+	static final String TEMP_SUFFIX = ".tmp";
+	/**
+	 * The sequence number recorded by segments that replace no other segment.
+	 */
+	static final long NO_SEQUENCE = -1;
+	private static final int MAGIC = 0x4D534731;
+	private static final int MAGIC_REPLACING = 0x4D534732;
+
+	private final long sequence;
+	private final MappedByteBuffer data;
+	private final Map<UUID, List<Block>> blocks;
+	private long replaces = NO_SEQUENCE;
+
+	private ArchiveSegment(long sequence, MappedByteBuffer data, Map<UUID, List<Block>> blocks) {
+		this.sequence = sequence;
+		this.data = data;
+		this.blocks = blocks;
+	}
+	/**
+	 * Opens a committed segment and loads its index.
+	 *
+	 * @param directory the archive directory
+	 * @param sequence  the sequence number of the segment
+	 * @return the segment
+	 * @throws IOException if the segment could not be read
+	 */
+	static ArchiveSegment open(Path directory, long sequence) throws IOException {
+		MappedByteBuffer data;
+		try (FileChannel channel = FileChannel.open(file(directory, sequence, SEGMENT_SUFFIX), StandardOpenOption.READ)) {
+			data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		Map<UUID, List<Block>> blocks = new HashMap<>();
+		ArchiveSegment segment = new ArchiveSegment(sequence, data, Collections.unmodifiableMap(blocks));
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				Files.readAllBytes(file(directory, sequence, INDEX_SUFFIX))))) {
+			int magic = in.readInt();
+			if (magic == MAGIC_REPLACING) {
+				segment.replaces = in.readLong();
+			} else if (magic != MAGIC) {
+				throw new IOException("Not an archive index: " + sequence);
+			}
+			int chats = in.readInt();
+			for (int i = 0; i < chats; i++) {
+				UUID chatId = new UUID(in.readLong(), in.readLong());
+				int count = in.readInt();
+				List<Block> chatBlocks = new ArrayList<>(count);
+				for (int j = 0; j < count; j++) {
+					chatBlocks.add(new Block(segment, chatId, in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+							readPosition(in), readPosition(in), readId(in), readId(in)));
+				}
+				blocks.put(chatId, List.copyOf(chatBlocks));
+			}
+		}
+		return segment;
+	}
+	/**
+	 * Returns the path of a file of a segment.
+	 *
+	 * @param directory the archive directory
+	 * @param sequence  the sequence number of the segment
+	 * @param suffix    the file name suffix
+	 * @return the path
+	 */
+	static Path file(Path directory, long sequence, String suffix) {
+		return directory.resolve(String.format("%016d%s", sequence, suffix));
+	}
+	/**
+	 * Removes a segment. The index file is removed first, so an interrupted removal leaves an uncommitted
+	 * segment.
+	 *
+	 * @param directory the archive directory
+	 * @param sequence  the sequence number of the segment
+	 * @throws IOException if a file could not be removed
+	 */
+	static void delete(Path directory, long sequence) throws IOException {
+		Files.deleteIfExists(file(directory, sequence, INDEX_SUFFIX));
+		Files.deleteIfExists(file(directory, sequence, SEGMENT_SUFFIX));
+		sync(directory);
+	}
+	/**
+	 * Flushes the entries of a directory to disk, so files moved into it or removed from it stay so after
+	 * a crash.
+	 *
+	 * @param directory the directory
+	 * @throws IOException if the directory could not be synced
+	 */
+	static void sync(Path directory) throws IOException {
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		}
+	}
+
+	long sequence() {
+		return sequence;
+	}
+
+	long bytes() {
+		return data.capacity();
+	}
+	/**
+	 * Returns the sequence number of the segment this segment was compacted from.
+	 *
+	 * @return the replaced sequence number, or {@link #NO_SEQUENCE}
+	 */
+	long replaces() {
+		return replaces;
+	}
+	/**
+	 * Returns the sparse indexes of the segment by chat, each in {@code (time, id)} order.
+	 *
+	 * @return the blocks of every chat in the segment
+	 */
+	Map<UUID, List<Block>> blocks() {
+		return blocks;
+	}
+	/**
+	 * Decompresses a block of the segment.
+	 *
+	 * @param block the block
+	 * @return the messages of the block in {@code (time, id)} order
+	 * @throws IllegalStateException if the block is corrupt
+	 */
+	List<Message> read(Block block) {
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(data.slice(block.offset(), block.length()));
+			byte[] raw = new byte[block.size()];
+			int read = 0;
+			while (read < raw.length && !inflater.finished()) {
+				int inflated = inflater.inflate(raw, read, raw.length - read);
+				if (inflated == 0 && inflater.needsInput()) {
+					break;
+				}
+				read += inflated;
+			}
+			if (read != raw.length) {
+				throw new IllegalStateException("Truncated archive block in segment " + sequence);
+			}
+
+			List<Message> messages = new ArrayList<>(block.count());
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+			for (int i = 0; i < block.count(); i++) {
+				messages.add(readMessage(in, block.chatId()));
+			}
+			return messages;
+		} catch (DataFormatException | IOException exception) {
+			throw new IllegalStateException("Corrupt archive block in segment " + sequence, exception);
+		} finally {
+			inflater.end();
+		}
+	}
+	/**
+	 * The position of a message in the history of its chat.
+	 *
+	 * @param time the time the message was sent
+	 * @param id   the ID of the message, used to break ties on time
+	 */
+	record Position(LocalDateTime time, ObjectId id) implements Comparable<Position> {
+		static Position of(Message message) {
+			return new Position(message.getTime(), new ObjectId(message.getId()));
+		}
+
+		@Override
+		public int compareTo(Position other) {
+			int compared = time.compareTo(other.time);
+			return compared != 0 ? compared : id.compareTo(other.id);
+		}
+	}
+	/**
+	 * An entry of the sparse index of a chat.
+	 *
+	 * @param segment the segment holding the block
+	 * @param chatId  the ID of the chat of the messages
+	 * @param offset  the offset of the compressed block in the segment file
+	 * @param length  the compressed length
+	 * @param size    the uncompressed length
+	 * @param count   the number of messages
+	 * @param first   the position of the first message
+	 * @param last    the position of the last message
+	 * @param minId   the smallest message ID
+	 * @param maxId   the largest message ID
+	 */
+	record Block(ArchiveSegment segment, UUID chatId, int offset, int length, int size, int count, Position first,
+			Position last, ObjectId minId, ObjectId maxId) {
+		/**
+		 * Tells whether the block may hold the message with the given ID.
+		 *
+		 * @param id the message ID
+		 * @return false if the block certainly does not hold the message
+		 */
+		boolean mayContain(ObjectId id) {
+			return minId.compareTo(id) <= 0 && maxId.compareTo(id) >= 0;
+		}
+
+		List<Message> read() {
+			return segment.read(this);
+		}
+	}
+	/**
+	 * Writes a new segment. Messages must be appended grouped by chat and in {@code (time, id)} order.
+	 *
+	 * <p>Nothing is visible until {@link #commit()}; closing an uncommitted writer removes its files.</p>
+	 */
+	static final class Writer implements Closeable {
+		private final Path directory;
+		private final long sequence;
+		private final long replaces;
+		private final int blockSize;
+		private final Path segmentFile;
+		private final Path indexFile;
+		private final FileChannel channel;
+		private final OutputStream out;
+		private final Map<UUID, Section> sections = new LinkedHashMap<>();
+		private final List<Message> pending = new ArrayList<>();
+		private final ByteArrayOutputStream raw = new ByteArrayOutputStream();
+		private final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		private final Deflater deflater = new Deflater();
+		private UUID pendingChatId;
+		private int offset;
+		private boolean committed;
+
+		Writer(Path directory, long sequence, int blockSize) throws IOException {
+			this(directory, sequence, blockSize, NO_SEQUENCE);
+		}
+
+		Writer(Path directory, long sequence, int blockSize, long replaces) throws IOException {
+			this.directory = directory;
+			this.sequence = sequence;
+			this.replaces = replaces;
+			this.blockSize = blockSize;
+			this.segmentFile = file(directory, sequence, SEGMENT_SUFFIX + TEMP_SUFFIX);
+			this.indexFile = file(directory, sequence, INDEX_SUFFIX + TEMP_SUFFIX);
+			this.channel = FileChannel.open(segmentFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+			this.out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+		}
+		/**
+		 * Appends a message to the segment.
+		 *
+		 * @param message the message; its chat must not have been finished by appending another chat
+		 * @throws IOException if writing failed
+		 */
+		void append(Message message) throws IOException {
+			if (!message.getChatId().equals(pendingChatId) || pending.size() == blockSize) {
+				flush();
+				pendingChatId = message.getChatId();
+			}
+			pending.add(message);
+		}
+		/**
+		 * Returns the number of bytes written so far, not counting the block being filled.
+		 *
+		 * @return the size of the segment file
+		 */
+		long bytes() {
+			return offset;
+		}
+		/**
+		 * Tells whether no message was appended.
+		 *
+		 * @return true if the segment would be empty
+		 */
+		boolean isEmpty() {
+			return offset == 0 && pending.isEmpty();
+		}
+		/**
+		 * Makes the segment durable and visible. The segment and its index are durable when this returns.
+		 *
+		 * @return the committed segment
+		 * @throws IOException if writing failed
+		 */
+		ArchiveSegment commit() throws IOException {
+			flush();
+			out.flush();
+			channel.force(true);
+			channel.close();
+
+			try (DataOutputStream index = new DataOutputStream(new BufferedOutputStream(
+					Files.newOutputStream(indexFile, StandardOpenOption.CREATE_NEW)))) {
+				if (replaces == NO_SEQUENCE) {
+					index.writeInt(MAGIC);
+				} else {
+					index.writeInt(MAGIC_REPLACING);
+					index.writeLong(replaces);
+				}
+				index.writeInt(sections.size());
+				for (Map.Entry<UUID, Section> section : sections.entrySet()) {
+					index.writeLong(section.getKey().getMostSignificantBits());
+					index.writeLong(section.getKey().getLeastSignificantBits());
+					index.writeInt(section.getValue().blocks);
+					section.getValue().entries.writeTo(index);
+				}
+			}
+			try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+				index.force(true);
+			}
+
+			Files.move(segmentFile, file(directory, sequence, SEGMENT_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+			Files.move(indexFile, file(directory, sequence, INDEX_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+			sync(directory);
+			committed = true;
+			return open(directory, sequence);
+		}
+
+		@Override
+		public void close() throws IOException {
+			deflater.end();
+			if (!committed) {
+				channel.close();
+				Files.deleteIfExists(segmentFile);
+				Files.deleteIfExists(indexFile);
+			}
+		}
+
+		private void flush() throws IOException {
+			if (pending.isEmpty()) {
+				return;
+			}
+			raw.reset();
+			DataOutputStream rawOut = new DataOutputStream(raw);
+			ObjectId minId = null;
+			ObjectId maxId = null;
+			for (Message message : pending) {
+				writeMessage(rawOut, message);
+				ObjectId id = new ObjectId(message.getId());
+				minId = minId == null || id.compareTo(minId) < 0 ? id : minId;
+				maxId = maxId == null || id.compareTo(maxId) > 0 ? id : maxId;
+			}
+
+			compressed.reset();
+			deflater.reset();
+			try (DeflaterOutputStream deflaterOut = new DeflaterOutputStream(compressed, deflater)) {
+				raw.writeTo(deflaterOut);
+			}
+			compressed.writeTo(out);
+
+			Section section = sections.computeIfAbsent(pendingChatId, chatId -> new Section());
+			section.blocks++;
+			DataOutputStream entry = new DataOutputStream(section.entries);
+			entry.writeInt(offset);
+			entry.writeInt(compressed.size());
+			entry.writeInt(raw.size());
+			entry.writeInt(pending.size());
+			writePosition(entry, Position.of(pending.get(0)));
+			writePosition(entry, Position.of(pending.get(pending.size() - 1)));
+			entry.write(minId.toByteArray());
+			entry.write(maxId.toByteArray());
+
+			offset = Math.addExact(offset, compressed.size());
+			pending.clear();
+		}
+	}
+
+	private static final class Section {
+		private final ByteArrayOutputStream entries = new ByteArrayOutputStream();
+		private int blocks;
+	}
+
+	private static void writeMessage(DataOutputStream out, Message message) throws IOException {
+		out.write(new ObjectId(message.getId()).toByteArray());
+		writeTime(out, message.getTime());
+		out.writeBoolean(message.getUserId() != null);
+		if (message.getUserId() != null) {
+			out.writeLong(message.getUserId().getMostSignificantBits());
+			out.writeLong(message.getUserId().getLeastSignificantBits());
+		}
+		out.writeBoolean(message.getExpireAt() != null);
+		if (message.getExpireAt() != null) {
+			writeTime(out, message.getExpireAt());
+		}
+		byte[] context = message.getContext() == null ? null : message.getContext().getBytes(StandardCharsets.UTF_8);
+		out.writeInt(context == null ? -1 : context.length);
+		if (context != null) {
+			out.write(context);
+		}
+	}
+
+	private static Message readMessage(DataInputStream in, UUID chatId) throws IOException {
+		Message message = new Message();
+		message.setChatId(chatId);
+		message.setId(readId(in).toHexString());
+		message.setTime(readTime(in));
+		if (in.readBoolean()) {
+			message.setUserId(new UUID(in.readLong(), in.readLong()));
+		}
+		if (in.readBoolean()) {
+			message.setExpireAt(readTime(in));
+		}
+		int length = in.readInt();
+		if (length >= 0) {
+			message.setContext(new String(in.readNBytes(length), StandardCharsets.UTF_8));
+		}
+		return message;
+	}
+
+	private static void writePosition(DataOutputStream out, Position position) throws IOException {
+		writeTime(out, position.time());
+		out.write(position.id().toByteArray());
+	}
+
+	private static Position readPosition(DataInputStream in) throws IOException {
+		return new Position(readTime(in), readId(in));
+	}
+
+	private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+		out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+		out.writeInt(time.getNano());
+	}
+
+	private static LocalDateTime readTime(DataInputStream in) throws IOException {
+		return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+	}
+
+	private static ObjectId readId(DataInputStream in) throws IOException {
+		byte[] id = new byte[12];
+		in.readFully(id);
+		return new ObjectId(id);
+	}
+}
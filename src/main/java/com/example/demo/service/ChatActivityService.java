@@ -0,0 +1,205 @@
+package com.example.demo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.response.InboxChatResponse;
+import com.example.demo.dto.response.InboxPageResponse;
+import com.example.demo.models.ChatActivity;
+import com.example.demo.models.Message;
+import com.example.demo.repository.ChatActivityRepository;
+import com.example.demo.repository.MessageRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class maintaining the {@link ChatActivity} summaries and serving the chat list of a user from them.
+ *
+ * <p>The summary of a chat is moved forward on every new {@link Message} with a conditional update, so
+ * concurrent writers never move it back. The first summary of a chat is inserted without a merge; if another
+ * writer inserted it first, the insert fails and the message is applied with the conditional update. Edits replace the preview if the edited message is still the
+ * newest, and deleting the newest message reloads the preview from the message store. Failures are
+ * logged and not propagated: the summary is derived data and must not fail a message write.</p>
+ *
+ * <p>Pages of the chat list are read with a keyset cursor on {@code (lastActivity, chat id)}.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see ChatActivity
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChatActivityService {
+	/**
+	 * The activity time of chats without a summary.
+	 */
+	static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+	private static final Comparator<Message> ORDER = Comparator.comparing(Message::getTime).thenComparing(Message::getId);
+
+	private final ChatActivityRepository chatActivityRepository;
+	private final MessageRepository messageRepository;
+	/**
+	 * Records a new message as the newest of its chat, unless a newer one is already recorded.
+	 *
+	 * @param message the saved message
+	 */
+	public void record(Message message) {
+		try {
+			String preview = preview(message.getContext());
+			if (advance(message, preview) == 0 && !chatActivityRepository.existsById(message.getChatId())) {
+				try {
+					chatActivityRepository.insert(activity(message, preview));
+				} catch (DataIntegrityViolationException exception) {
+					advance(message, preview);
+				}
+			}
+		} catch (DataAccessException exception) {
+			log.error(exception.getMessage(), exception);
+		}
+	}
+	/**
+	 * Records the newest message of every chat among the given messages.
+	 *
+	 * @param messages the saved messages
+	 */
+	public void recordAll(Collection<Message> messages) {
+		Map<UUID, Message> newest = messages.stream().collect(Collectors.toMap(Message::getChatId, Function.identity(),
+				(first, second) -> ORDER.compare(first, second) >= 0 ? first : second));
+		newest.values().forEach(this::record);
+	}
+	/**
+	 * Replaces the preview of the chat if the edited message is its newest.
+	 *
+	 * @param message the edited message
+	 */
+	public void edited(Message message) {
+		try {
+			chatActivityRepository.updatePreview(message.getChatId(), message.getId(), preview(message.getContext()));
+		} catch (DataAccessException exception) {
+			log.error(exception.getMessage(), exception);
+		}
+	}
+	/**
+	 * Reloads the preview of the chat if the deleted message was its newest. The activity time is kept.
+	 *
+	 * @param message the deleted message
+	 */
+	public void deleted(Message message) {
+		try {
+			chatActivityRepository.findById(message.getChatId())
+					.filter(activity -> message.getId().equals(activity.getLastMessageId()))
+					.ifPresent(activity -> {
+						List<Message> newest = messageRepository.findByChatIdOrderByTimeDescIdDesc(message.getChatId(),
+								PageRequest.of(0, 1));
+						Message last = newest.isEmpty() ? null : newest.get(0);
+						activity.setLastMessageId(last == null ? null : last.getId());
+						activity.setLastMessagePreview(last == null ? null : preview(last.getContext()));
+						activity.setLastMessageUserId(last == null ? null : last.getUserId());
+						chatActivityRepository.save(activity);
+					});
+		} catch (DataAccessException exception) {
+			log.error(exception.getMessage(), exception);
+		}
+	}
+	/**
+	 * Removes the summary of a deleted chat.
+	 *
+	 * @param chatId the ID of the chat
+	 */
+	public void remove(UUID chatId) {
+		try {
+			chatActivityRepository.deleteById(chatId);
+		} catch (DataAccessException exception) {
+			log.error(exception.getMessage(), exception);
+		}
+	}
+	/**
+	 * Returns a page of the chats of a user, most recently active first.
+	 *
+	 * @param userId the ID of the user
+	 * @param cursor the cursor returned with the previous page, may be null
+	 * @param size   the page size
+	 * @return the page and the cursor of the next page
+	 * @throws IllegalArgumentException if the cursor is malformed
+	 * @throws DataAccessException      if there is an error accessing data
+	 */
+	public InboxPageResponse findInbox(UUID userId, String cursor, int size) {
+		PageRequest page = PageRequest.of(0, size);
+		List<InboxChatResponse> chats;
+		if (cursor == null) {
+			chats = chatActivityRepository.findInbox(userId, EPOCH, page);
+		} else {
+			String[] position = decode(cursor);
+			chats = chatActivityRepository.findInboxAfter(userId, EPOCH, LocalDateTime.parse(position[0]),
+					UUID.fromString(position[1]), page);
+		}
+
+		if (chats.size() < size) {
+			return new InboxPageResponse(chats, null);
+		}
+		InboxChatResponse last = chats.get(chats.size() - 1);
+		return new InboxPageResponse(chats, encode(last.getLastActivity() == null ? EPOCH : last.getLastActivity(),
+				last.getId()));
+	}
+
+	private int advance(Message message, String preview) {
+		return chatActivityRepository.advance(message.getChatId(), message.getTime(), message.getId(), preview,
+				message.getUserId());
+	}
+
+	private static ChatActivity activity(Message message, String preview) {
+		ChatActivity activity = new ChatActivity();
+		activity.setChatId(message.getChatId());
+		activity.setLastActivity(message.getTime());
+		activity.setLastMessageId(message.getId());
+		activity.setLastMessagePreview(preview);
+		activity.setLastMessageUserId(message.getUserId());
+		return activity;
+	}
+
+	private static String preview(String context) {
+		if (context == null || context.length() <= ChatActivity.PREVIEW_LENGTH) {
+			return context;
+		}
+		int end = ChatActivity.PREVIEW_LENGTH;
+		if (Character.isHighSurrogate(context.charAt(end - 1))) {
+			end--;
+		}
+		return context.substring(0, end);
+	}
+
+	private static String encode(LocalDateTime time, UUID chatId) {
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString((time + "_" + chatId).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String[] decode(String cursor) {
+		try {
+			String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("_");
+			if (position.length == 2) {
+				LocalDateTime.parse(position[0]);
+				UUID.fromString(position[1]);
+				return position;
+			}
+		} catch (IllegalArgumentException | DateTimeParseException exception) {
+			log.debug("Invalid inbox cursor {}", cursor);
+		}
+		throw new IllegalArgumentException("Invalid cursor");
+	}
+}
@@ -0,0 +1,390 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.demo.config.TaskExecutors;
+import com.example.demo.dto.response.MessageEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class for streaming {@link MessageEvent} of a chat as Server-Sent Events.
+ *
+ * <p>Every event gets a monotonically increasing ID and is serialized once. The last
+ * {@value #BUFFER_SIZE} events of every chat with subscribers are kept, so a client reconnecting with
+ * {@code Last-Event-ID} receives what it missed; if the gap is too old the client receives a
+ * {@code reset} event and should reload the history. Each connection has a bounded buffer of the same size
+ * drained by a worker pool; a connection whose buffer overflows is completed and has to resume.</p>
+ *
+ * <p>Every connection belongs to a user. Each event is only buffered for connections whose user is still a
+ * member of the chat according to the {@link ChatMembershipIndex}; on a {@link ChatMembershipEvent} the
+ * connections of users that are no longer members, or all connections of a deleted chat, are completed.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see MessageEvent
+ * @see SseEmitter
+ * @see ChatMembershipEvent
+ */
+@Slf4j
+@Service
+public class ChatEventStreamService implements DisposableBean {
+	/**
+	 * The number of events kept per chat for resuming and buffered per connection.
+	 */
+	static final int BUFFER_SIZE = 256;
+	/**
+	 * The lifetime of a connection; clients reconnect with {@code Last-Event-ID} afterwards.
+	 */
+	static final Duration EMITTER_TIMEOUT = Duration.ofMinutes(30);
+	/**
+	 * How long the events of a chat are kept after its last subscriber left.
+	 */
+	static final Duration IDLE_RETENTION = Duration.ofMinutes(5);
+
+	private final ObjectMapper objectMapper;
+	private final ChatMembershipIndex membershipIndex;
+	private final AsyncTaskExecutor executor;
+	private final Clock clock;
+	/**
+	 * Event IDs start at the startup time in microseconds, so IDs issued before a restart are older
+	 * than every ID issued after it and are detected as a gap.
+	 */
+	private final AtomicLong sequence;
+	private final Map<UUID, ChatStream> streams = new ConcurrentHashMap<>();
+
+	@Autowired
+	public ChatEventStreamService(ObjectMapper objectMapper, ChatMembershipIndex membershipIndex,
+			@Value(TaskExecutors.VIRTUAL_THREADS_PROPERTY) boolean virtualThreads) {
+		this(objectMapper, membershipIndex, TaskExecutors.create("chat-sse-", 8, Integer.MAX_VALUE, virtualThreads),
+				Clock.systemUTC());
+	}
+
+	ChatEventStreamService(ObjectMapper objectMapper, ChatMembershipIndex membershipIndex,
+			AsyncTaskExecutor executor, Clock clock) {
+		this.objectMapper = objectMapper;
+		this.membershipIndex = membershipIndex;
+		this.executor = executor;
+		this.clock = clock;
+		this.sequence = new AtomicLong(clock.millis() * 1000);
+	}
+
+	@Override
+	public void destroy() {
+		TaskExecutors.shutdown(executor);
+	}
+	/**
+	 * Opens an event stream for a chat. Membership must be checked by the caller.
+	 *
+	 * @param chatId      the ID of the chat
+	 * @param userId      the ID of the member opening the stream
+	 * @param lastEventId the value of the {@code Last-Event-ID} header, may be null
+	 * @return the emitter of the stream
+	 */
+	public SseEmitter subscribe(UUID chatId, UUID userId, String lastEventId) {
+		SseEmitter emitter = createEmitter();
+		Subscriber subscriber = new Subscriber(userId, emitter);
+		long resumeFrom = parse(lastEventId);
+		ChatStream stream;
+		do {
+			stream = streams.computeIfAbsent(chatId, key -> new ChatStream(sequence.get()));
+		} while (!stream.add(subscriber, resumeFrom));
+
+		ChatStream subscribed = stream;
+		emitter.onCompletion(() -> subscribed.remove(subscriber, clock.millis()));
+		emitter.onTimeout(emitter::complete);
+		emitter.onError(error -> subscribed.remove(subscriber, clock.millis()));
+
+		drain(subscriber);
+		return emitter;
+	}
+	/**
+	 * Completes the streams of users that are no longer members of a chat, or of all users if the chat
+	 * was deleted.
+	 *
+	 * @param event the membership change
+	 */
+	@EventListener
+	public void onMembershipEvent(ChatMembershipEvent event) {
+		ChatStream stream = streams.get(event.chatId());
+		if (stream == null) {
+			return;
+		}
+
+		Set<UUID> members;
+		try {
+			members = new HashSet<>(membershipIndex.members(event.chatId()));
+		} catch (IllegalStateException exception) {
+			members = new HashSet<>();
+		} catch (DataAccessException exception) {
+			log.error(exception.getMessage(), exception);
+			return;
+		}
+		for (Subscriber subscriber : stream.subscribers) {
+			if (!members.contains(subscriber.userId)) {
+				close(stream, subscriber);
+			}
+		}
+	}
+	/**
+	 * Delivers a {@link MessageEvent} to the subscribers of its chat. Membership is checked when a stream is
+	 * opened; streams of users who leave are closed by {@link #onMembershipEvent}.
+	 *
+	 * @param event the event to deliver
+	 */
+	@EventListener
+	public void onMessageEvent(MessageEvent event) {
+		ChatStream stream = streams.get(event.getChatId());
+		if (stream == null) {
+			return;
+		}
+
+		String data;
+		try {
+			data = objectMapper.writeValueAsString(event);
+		} catch (JsonProcessingException exception) {
+			log.error(exception.getMessage(), exception);
+			return;
+		}
+
+		for (Subscriber subscriber : stream.publish(new Entry(sequence.incrementAndGet(),
+				event.getType().name().toLowerCase(), data))) {
+			drain(subscriber);
+		}
+	}
+	/**
+	 * Sends a heartbeat comment to every connection and drops the events of idle chats.
+	 */
+	@Scheduled(fixedRate = 15_000)
+	public void heartbeat() {
+		long idleBefore = clock.millis() - IDLE_RETENTION.toMillis();
+		streams.forEach((chatId, stream) -> {
+			if (stream.retireIfIdleSince(idleBefore)) {
+				streams.remove(chatId, stream);
+				return;
+			}
+			for (Subscriber subscriber : stream.subscribers) {
+				if (subscriber.offer(Entry.HEARTBEAT)) {
+					drain(subscriber);
+				} else {
+					subscriber.emitter.complete();
+				}
+			}
+		});
+	}
+	/**
+	 * Creates the emitter of a new stream.
+	 *
+	 * @return the emitter
+	 */
+	SseEmitter createEmitter() {
+		return new SseEmitter(EMITTER_TIMEOUT.toMillis());
+	}
+	/**
+	 * Removes a subscriber from a stream and completes its connection, so it receives no further events.
+	 *
+	 * @param stream     the stream of the chat
+	 * @param subscriber the subscriber
+	 */
+	private void close(ChatStream stream, Subscriber subscriber) {
+		stream.remove(subscriber, clock.millis());
+		subscriber.emitter.complete();
+	}
+	/**
+	 * Schedules a worker to send the buffered entries of a subscriber, unless one is already running.
+	 *
+	 * @param subscriber the subscriber
+	 */
+	private void drain(Subscriber subscriber) {
+		if (subscriber.draining.compareAndSet(false, true)) {
+			try {
+				executor.execute(() -> send(subscriber));
+			} catch (RejectedExecutionException exception) {
+				subscriber.draining.set(false);
+				log.warn("Could not schedule event delivery: {}", exception.getMessage());
+			}
+		}
+	}
+	/**
+	 * Sends the buffered entries of a subscriber.
+	 *
+	 * @param subscriber the subscriber
+	 */
+	private void send(Subscriber subscriber) {
+		try {
+			Entry entry;
+			while ((entry = subscriber.buffer.poll()) != null) {
+				if (entry == Entry.HEARTBEAT) {
+					subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+				} else if (entry == Entry.RESET) {
+					subscriber.emitter.send(SseEmitter.event().name(entry.name()).data(entry.data()));
+				} else {
+					subscriber.emitter.send(SseEmitter.event().id(Long.toString(entry.id())).name(entry.name())
+							.data(entry.data(), MediaType.APPLICATION_JSON));
+				}
+			}
+		} catch (IOException | IllegalStateException exception) {
+			subscriber.emitter.completeWithError(exception);
+			return;
+		} finally {
+			subscriber.draining.set(false);
+		}
+		if (!subscriber.buffer.isEmpty()) {
+			drain(subscriber);
+		}
+	}
+	/**
+	 * Parses the {@code Last-Event-ID} header.
+	 *
+	 * @param lastEventId the header value
+	 * @return the event ID, or -1 if the header is absent or invalid
+	 */
+	private static long parse(String lastEventId) {
+		if (lastEventId == null || lastEventId.isBlank()) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(lastEventId.trim());
+		} catch (NumberFormatException exception) {
+			return -1;
+		}
+	}
+	/**
+	 * A serialized event with its ID and name.
+	 *
+	 * @param id   the event ID
+	 * @param name the event name
+	 * @param data the serialized {@link MessageEvent}
+	 */
+	private record Entry(long id, String name, String data) {
+		static final Entry HEARTBEAT = new Entry(-1, null, null);
+		static final Entry RESET = new Entry(-1, "reset", "{}");
+	}
+	/**
+	 * An open connection with its bounded buffer.
+	 */
+	private static final class Subscriber {
+		private final UUID userId;
+		private final SseEmitter emitter;
+		private final BlockingQueue<Entry> buffer = new ArrayBlockingQueue<>(BUFFER_SIZE);
+		private final AtomicBoolean draining = new AtomicBoolean();
+
+		private Subscriber(UUID userId, SseEmitter emitter) {
+			this.userId = userId;
+			this.emitter = emitter;
+		}
+		/**
+		 * Buffers an entry without blocking.
+		 *
+		 * @param entry the entry
+		 * @return false if the buffer is full
+		 */
+		private boolean offer(Entry entry) {
+			return buffer.offer(entry);
+		}
+	}
+	/**
+	 * The recent events and the subscribers of one chat.
+	 */
+	private static final class ChatStream {
+		private final ArrayDeque<Entry> recent = new ArrayDeque<>(BUFFER_SIZE);
+		private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+		/**
+		 * The highest event ID that is no longer kept; older resume positions are gaps.
+		 */
+		private long evictedUpTo;
+		private long idleSince = Long.MAX_VALUE;
+		private boolean retired;
+
+		private ChatStream(long evictedUpTo) {
+			this.evictedUpTo = evictedUpTo;
+		}
+		/**
+		 * Adds a subscriber and buffers the events it missed since the given event ID.
+		 *
+		 * @param subscriber  the subscriber
+		 * @param lastEventId the last event ID the subscriber received, or -1
+		 * @return false if the stream was retired and a new one has to be used
+		 */
+		private synchronized boolean add(Subscriber subscriber, long lastEventId) {
+			if (retired) {
+				return false;
+			}
+			if (lastEventId >= 0) {
+				if (lastEventId < evictedUpTo) {
+					subscriber.offer(Entry.RESET);
+				} else {
+					recent.stream().filter(entry -> entry.id() > lastEventId).forEach(subscriber::offer);
+				}
+			}
+			subscribers.add(subscriber);
+			idleSince = Long.MAX_VALUE;
+			return true;
+		}
+		/**
+		 * Removes a subscriber.
+		 *
+		 * @param subscriber the subscriber
+		 * @param now        the current time in milliseconds
+		 */
+		private synchronized void remove(Subscriber subscriber, long now) {
+			if (subscribers.remove(subscriber) && subscribers.isEmpty()) {
+				idleSince = now;
+			}
+		}
+		/**
+		 * Keeps an entry for resuming and buffers it for every subscriber.
+		 *
+		 * @param entry the entry
+		 * @return the subscribers that have to be drained
+		 */
+		private synchronized Set<Subscriber> publish(Entry entry) {
+			if (recent.size() == BUFFER_SIZE) {
+				evictedUpTo = recent.removeFirst().id();
+			}
+			recent.addLast(entry);
+			for (Subscriber subscriber : subscribers) {
+				if (!subscriber.offer(entry)) {
+					subscriber.emitter.complete();
+				}
+			}
+			return subscribers;
+		}
+		/**
+		 * Retires the stream if the chat has had no subscribers since before the given time.
+		 *
+		 * @param time the time in milliseconds
+		 * @return true if the stream was retired
+		 */
+		private synchronized boolean retireIfIdleSince(long time) {
+			retired = idleSince < time;
+			return retired;
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package com.example.demo.service;
+
+import java.util.UUID;
+
+import com.example.demo.models.Chat;
+
+/**
+ * Published as a Spring application event when the members of a {@link Chat} may have changed, including
+ * when the chat was created or deleted.
+ *
+ * <p>Listeners that hold per-user subscriptions to a chat re-check them against the
+ * {@link ChatMembershipIndex}, which has already dropped the chat when the event is published.</p>
+ *
+ * @param chatId the ID of the chat
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see ChatMembershipIndex#invalidate(UUID)
+ */
+public record ChatMembershipEvent(UUID chatId) {
+}
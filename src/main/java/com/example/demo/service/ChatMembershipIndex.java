@@ -0,0 +1,243 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.models.Chat;
+import com.example.demo.models.User;
+import com.example.demo.repository.ChatRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class keeping an in-memory index from {@link Chat} to the IDs of its members.
+ *
+ * <p>Member sets are loaded lazily on the first check of a chat and stored as sorted arrays of the two
+ * halves of each {@link UUID}, so a membership check is a binary search over primitive arrays and does
+ * not load the {@link Chat} aggregate. The entry of a chat must be invalidated whenever its members change;
+ * every invalidation is published as a {@link ChatMembershipEvent}, so open event streams can follow.
+ * At most {@value #MAX_CHATS} chats are kept; beyond that arbitrary entries are evicted.</p>
+ *
+ * <p>The hit ratio is exported as the {@code chat.membership.index.hit.ratio} gauge.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see Chat
+ * @see User
+ */
+@Slf4j
+@Service
+public class ChatMembershipIndex {
+	/**
+	 * The maximum number of chats kept in the index.
+	 */
+	static final int MAX_CHATS = 100_000;
+
+	private final ChatRepository chatRepository;
+	private final ApplicationEventPublisher eventPublisher;
+	private final Map<UUID, MemberSet> members = new ConcurrentHashMap<>();
+	/**
+	 * Incremented on every invalidation, so a load racing with an invalidation is not stored.
+	 */
+	private final AtomicLong generation = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public ChatMembershipIndex(ChatRepository chatRepository, ApplicationEventPublisher eventPublisher,
+			MeterRegistry meterRegistry) {
+		this.chatRepository = chatRepository;
+		this.eventPublisher = eventPublisher;
+		FunctionCounter.builder("chat.membership.index.requests", hits, AtomicLong::get).tag("result", "hit")
+				.description("Membership checks answered from the index").register(meterRegistry);
+		FunctionCounter.builder("chat.membership.index.requests", misses, AtomicLong::get).tag("result", "miss")
+				.description("Membership checks that loaded the members of a chat").register(meterRegistry);
+		Gauge.builder("chat.membership.index.hit.ratio", this, ChatMembershipIndex::hitRatio)
+				.description("Share of membership checks answered from the index").register(meterRegistry);
+		Gauge.builder("chat.membership.index.size", members, Map::size)
+				.description("Number of chats in the membership index").register(meterRegistry);
+	}
+	/**
+	 * Checks if a user is a member of a chat.
+	 *
+	 * @param chatId the ID of the chat
+	 * @param userId the ID of the user
+	 * @return true if the user is a member of the chat, false otherwise
+	 * @throws IllegalStateException if the chat does not exist
+	 * @throws DataAccessException   if loading the members failed
+	 */
+	public boolean isMember(UUID chatId, UUID userId) {
+		if (userId == null) {
+			return false;
+		}
+		MemberSet memberSet = members.get(chatId);
+		if (memberSet != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+			memberSet = load(chatId);
+		}
+		return memberSet.contains(userId);
+	}
+	/**
+	 * Returns the members of a chat.
+	 *
+	 * @param chatId the ID of the chat
+	 * @return the IDs of the members
+	 * @throws IllegalStateException if the chat does not exist
+	 * @throws DataAccessException   if loading the members failed
+	 */
+	public List<UUID> members(UUID chatId) {
+		MemberSet memberSet = members.get(chatId);
+		if (memberSet != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+			memberSet = load(chatId);
+		}
+		return memberSet.toList();
+	}
+	/**
+	 * Removes a chat from the index; its members are reloaded on the next check. Must be called after the
+	 * change is written. Publishes a {@link ChatMembershipEvent}.
+	 *
+	 * @param chatId the ID of the chat
+	 */
+	public void invalidate(UUID chatId) {
+		generation.incrementAndGet();
+		members.remove(chatId);
+		eventPublisher.publishEvent(new ChatMembershipEvent(chatId));
+	}
+	/**
+	 * Returns the share of membership checks answered from the index.
+	 *
+	 * @return the hit ratio between 0 and 1
+	 */
+	public double hitRatio() {
+		long hitCount = hits.get();
+		long total = hitCount + misses.get();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+	/**
+	 * Loads the members of a chat and stores them unless the chat was invalidated meanwhile.
+	 *
+	 * @param chatId the ID of the chat
+	 * @return the members of the chat
+	 * @throws IllegalStateException if the chat does not exist
+	 */
+	private MemberSet load(UUID chatId) {
+		long loadedAt = generation.get();
+		Collection<UUID> userIds = chatRepository.findUserIdsById(chatId);
+		if (userIds.isEmpty() && !chatRepository.existsById(chatId)) {
+			throw new IllegalStateException("Chat does not exist");
+		}
+
+		MemberSet memberSet = MemberSet.of(userIds);
+		if (members.size() >= MAX_CHATS) {
+			Iterator<UUID> iterator = members.keySet().iterator();
+			if (iterator.hasNext()) {
+				iterator.next();
+				iterator.remove();
+			}
+		}
+		if (generation.get() == loadedAt) {
+			members.putIfAbsent(chatId, memberSet);
+		}
+		return memberSet;
+	}
+	/**
+	 * An immutable set of user IDs stored as two parallel sorted arrays.
+	 *
+	 * @param mostSignificant  the most significant bits of the IDs
+	 * @param leastSignificant the least significant bits of the IDs
+	 */
+	record MemberSet(long[] mostSignificant, long[] leastSignificant) {
+		/**
+		 * Creates a set from user IDs.
+		 *
+		 * @param userIds the user IDs
+		 * @return the set
+		 */
+		static MemberSet of(Collection<UUID> userIds) {
+			UUID[] sorted = userIds.stream().distinct().sorted(Comparator.comparingLong(UUID::getMostSignificantBits)
+					.thenComparingLong(UUID::getLeastSignificantBits)).toArray(UUID[]::new);
+			long[] most = new long[sorted.length];
+			long[] least = new long[sorted.length];
+			for (int i = 0; i < sorted.length; i++) {
+				most[i] = sorted[i].getMostSignificantBits();
+				least[i] = sorted[i].getLeastSignificantBits();
+			}
+			return new MemberSet(most, least);
+		}
+		/**
+		 * Checks if the set contains a user ID.
+		 *
+		 * @param userId the user ID
+		 * @return true if the set contains the ID
+		 */
+		boolean contains(UUID userId) {
+			long most = userId.getMostSignificantBits();
+			long least = userId.getLeastSignificantBits();
+			int low = 0;
+			int high = mostSignificant.length - 1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				int compare = Long.compare(mostSignificant[middle], most);
+				if (compare == 0) {
+					compare = Long.compare(leastSignificant[middle], least);
+				}
+				if (compare < 0) {
+					low = middle + 1;
+				} else if (compare > 0) {
+					high = middle - 1;
+				} else {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Returns the user IDs of the set.
+		 *
+		 * @return the user IDs
+		 */
+		List<UUID> toList() {
+			List<UUID> userIds = new ArrayList<>(mostSignificant.length);
+			for (int i = 0; i < mostSignificant.length; i++) {
+				userIds.add(new UUID(mostSignificant[i], leastSignificant[i]));
+			}
+			return userIds;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof MemberSet set && Arrays.equals(mostSignificant, set.mostSignificant)
+					&& Arrays.equals(leastSignificant, set.leastSignificant);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Arrays.hashCode(mostSignificant) + Arrays.hashCode(leastSignificant);
+		}
+
+		@Override
+		public String toString() {
+			return "MemberSet[size=" + mostSignificant.length + "]";
+		}
+	}
+}
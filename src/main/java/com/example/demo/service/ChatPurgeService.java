@@ -0,0 +1,187 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.config.TaskExecutors;
+import com.example.demo.models.Chat;
+import com.example.demo.models.Message;
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.repository.MessageRepository;
+import com.example.demo.repository.UserRoleChatRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class purging deleted chats in the background.
+ *
+ * <p>Deleting a {@link Chat} only marks it as a tombstone. This service then drops its archived messages
+ * from the {@link MessageArchive}, removes its {@link Message}s and role rows in chunks of
+ * {@code chat.purge.chunk-size}, pausing {@code chat.purge.pause} after every chunk so the purge does not
+ * starve regular traffic, and finally removes the chat itself. At most
+ * {@code chat.purge.workers} chats are purged at once. Every step is idempotent: tombstones left by a failure
+ * or a restart are picked up again every {@code chat.purge.interval}.</p>
+ *
+ * <p>Progress is exported as the {@code chat.purge.messages}, {@code chat.purge.roles} and
+ * {@code chat.purge.chats} counters and the {@code chat.purge.active} gauge; time spent throttled is
+ * exported as the {@code chat.purge.throttle} timer.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see Chat
+ */
+@Slf4j
+@Service
+public class ChatPurgeService implements DisposableBean {
+	private final ChatRepository chatRepository;
+	private final UserRoleChatRepository userRoleChatRepository;
+	private final MessageRepository messageRepository;
+	private final MessageArchive messageArchive;
+	private final int chunkSize;
+	private final Duration pause;
+	private final Semaphore workers;
+	private final AsyncTaskExecutor executor;
+	private final Set<UUID> active = ConcurrentHashMap.newKeySet();
+	private final Counter messages;
+	private final Counter roles;
+	private final Counter chats;
+	private final Counter failures;
+	private final Timer throttle;
+	private volatile boolean running = true;
+
+	public ChatPurgeService(ChatRepository chatRepository, UserRoleChatRepository userRoleChatRepository,
+			MessageRepository messageRepository, MessageArchive messageArchive, MeterRegistry meterRegistry,
+			@Value("${chat.purge.chunk-size:1000}") int chunkSize,
+			@Value("${chat.purge.pause:100ms}") Duration pause,
+			@Value("${chat.purge.workers:1}") int workers,
+			@Value(TaskExecutors.VIRTUAL_THREADS_PROPERTY) boolean virtualThreads) {
+		this.chatRepository = chatRepository;
+		this.userRoleChatRepository = userRoleChatRepository;
+		this.messageRepository = messageRepository;
+		this.messageArchive = messageArchive;
+		this.chunkSize = chunkSize;
+		this.pause = pause;
+		this.workers = new Semaphore(workers);
+		this.executor = TaskExecutors.create("chat-purge-", workers, Integer.MAX_VALUE, virtualThreads);
+		this.messages = Counter.builder("chat.purge.messages").description("Messages purged from deleted chats")
+				.register(meterRegistry);
+		this.roles = Counter.builder("chat.purge.roles").description("Role rows purged from deleted chats")
+				.register(meterRegistry);
+		this.chats = Counter.builder("chat.purge.chats").description("Deleted chats purged completely")
+				.register(meterRegistry);
+		this.failures = Counter.builder("chat.purge.failures").description("Purges interrupted by an error")
+				.register(meterRegistry);
+		this.throttle = Timer.builder("chat.purge.throttle").description("Pauses between purge chunks")
+				.register(meterRegistry);
+		Gauge.builder("chat.purge.active", active, Set::size).description("Deleted chats being purged")
+				.register(meterRegistry);
+	}
+	/**
+	 * Starts purging a deleted chat unless it is already being purged.
+	 *
+	 * @param chatId the ID of the deleted chat
+	 */
+	public void schedule(UUID chatId) {
+		if (running && active.add(chatId)) {
+			executor.execute(() -> {
+				try {
+					workers.acquire();
+					try {
+						purge(chatId);
+					} finally {
+						workers.release();
+					}
+				} catch (InterruptedException exception) {
+					Thread.currentThread().interrupt();
+				} finally {
+					active.remove(chatId);
+				}
+			});
+		}
+	}
+	/**
+	 * Schedules every deleted chat that was not purged completely, e.g. before a restart.
+	 */
+	@Scheduled(fixedDelayString = "${chat.purge.interval:1m}")
+	public void resume() {
+		List<UUID> deleted;
+		try {
+			deleted = chatRepository.findDeletedIds();
+		} catch (DataAccessException exception) {
+			log.error(exception.getMessage(), exception);
+			return;
+		}
+		deleted.forEach(this::schedule);
+	}
+
+	@Override
+	public void destroy() {
+		running = false;
+		TaskExecutors.shutdown(executor);
+	}
+	/**
+	 * Purges the archived messages of a deleted chat, then its messages, roles and members chunk by chunk,
+	 * then the chat itself.
+	 *
+	 * @param chatId the ID of the deleted chat
+	 * @throws InterruptedException if interrupted while throttled
+	 */
+	void purge(UUID chatId) throws InterruptedException {
+		messageArchive.purge(chatId);
+		try {
+			List<Message> chunk;
+			do {
+				chunk = messageRepository.findIdsByChatId(chatId, PageRequest.of(0, chunkSize));
+				if (!chunk.isEmpty()) {
+					messageRepository.deleteAllById(chunk.stream().map(Message::getId).toList());
+					messages.increment(chunk.size());
+					pause();
+				}
+			} while (running && chunk.size() == chunkSize);
+
+			int deleted;
+			do {
+				deleted = userRoleChatRepository.deleteChunkByChatId(chatId, chunkSize);
+				roles.increment(deleted);
+				if (deleted > 0) {
+					pause();
+				}
+			} while (running && deleted == chunkSize);
+
+			if (running) {
+				chatRepository.purgeDeletedMembers(chatId);
+				chatRepository.purgeDeleted(chatId);
+				chats.increment();
+				log.info("Purged deleted chat {}", chatId);
+			}
+		} catch (DataAccessException exception) {
+			failures.increment();
+			log.error(exception.getMessage(), exception);
+		}
+	}
+
+	private void pause() throws InterruptedException {
+		if (!pause.isZero()) {
+			long start = System.nanoTime();
+			Thread.sleep(pause);
+			throttle.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.example.demo.service;
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.bson.types.ObjectId;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.request.ReadCursorRequest;
+import com.example.demo.models.Chat;
+import com.example.demo.models.Message;
+import com.example.demo.repository.MessageRepository;
+import com.example.demo.security.AuthenticatedUserId;
+
+import io.micrometer.core.annotation.Timed;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class serving the read cursors of the members of a {@link Chat}.
+ *
+ * <p>The cursors are buffered and written by the {@link ReadCursorService}; this class checks that the user
+ * is a member of the chat and that the cursor points to a {@link Message} of it, in MongoDB or in the
+ * {@link MessageArchive}.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see ReadCursorService
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Timed(value = "service.calls", histogram = true)
+public class ChatReadCursorService {
+	private final ChatMembershipIndex membershipIndex;
+	private final MessageRepository messageRepository;
+	private final MessageArchive messageArchive;
+	private final ReadCursorService readCursorService;
+	/**
+	 * Moves the read cursor of the authenticated user in a chat. The cursor never moves backwards
+	 * and is written on the next flush of the {@link ReadCursorService}.
+	 *
+	 * @param id      the ID of the chat
+	 * @param request the ReadCursorRequest object containing the ID of the newest seen message
+	 * @param auth    the Authentication object representing the authenticated user
+	 * @throws IllegalArgumentException if the message ID is not valid or the message is not in the chat
+	 * @throws IllegalStateException    if the chat does not exist or the user is not a member of the chat
+	 * @throws NullPointerException     if the user is not authenticated
+	 * @throws DataAccessException      if there is an error accessing data
+	 */
+	public void updateReadCursor(String id, ReadCursorRequest request, Authentication auth) {
+		UUID userId = AuthenticatedUserId.of(auth);
+		UUID chatId = checkMember(id, userId);
+		if (request.getMessageId() == null || !ObjectId.isValid(request.getMessageId())) {
+			throw new IllegalArgumentException("Invalid message ID");
+		}
+		String messageId = new ObjectId(request.getMessageId()).toHexString();
+		Message message;
+		try {
+			message = messageRepository.findById(messageId)
+					.filter(candidate -> chatId.equals(candidate.getChatId()))
+					.orElseGet(() -> messageArchive.find(chatId, messageId));
+		} catch (DataAccessException exception) {
+			log.error(exception.getMessage(), exception);
+			throw exception;
+		}
+		if (message == null) {
+			throw new IllegalArgumentException("Message does not exist in this chat");
+		}
+		readCursorService.update(chatId, userId, message.getId());
+	}
+	/**
+	 * Returns the read cursors of the members of a chat.
+	 *
+	 * @param id   the ID of the chat
+	 * @param auth the Authentication object representing the authenticated user
+	 * @return the ID of the newest seen message by user ID; members without a cursor are absent
+	 * @throws IllegalStateException if the chat does not exist or the user is not a member of the chat
+	 * @throws NullPointerException  if the user is not authenticated
+	 * @throws DataAccessException   if reading the cursors failed
+	 */
+	public Map<UUID, String> findReadCursors(String id, Authentication auth) {
+		UUID chatId = checkMember(id, AuthenticatedUserId.of(auth));
+		try {
+			return readCursorService.findAll(chatId);
+		} catch (DataAccessException exception) {
+			log.error(exception.getMessage(), exception);
+			throw exception;
+		}
+	}
+
+	private UUID checkMember(String id, UUID userId) {
+		if (userId == null) {
+			throw new NullPointerException("User must be authenticated");
+		}
+		UUID chatId = UUID.fromString(id);
+		if (!membershipIndex.isMember(chatId, userId)) {
+			throw new IllegalStateException("User does not have access to this chat");
+		}
+		return chatId;
+	}
+}
@@ -0,0 +1,177 @@
+package com.example.demo.service;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.models.Chat;
+import com.example.demo.models.Message;
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.repository.projection.ChatSummary;
+
+/**
+ * Service class resolving the message retention of a {@link Chat}.
+ *
+ * <p>A chat keeps its messages for {@link Chat#getRetentionDays()} days, or for
+ * {@code chat.retention.default-days} if it has no own setting; 0, the default, keeps messages forever, so
+ * operators opt in to deleting existing history. Every new
+ * {@link Message} is stamped with {@code expireAt}, which a TTL index uses to delete it. History reads use
+ * {@link #cutoff(UUID)} as a lower bound on {@code time}, so messages past the retention disappear at once,
+ * as a range on the history index rather than a filter. Search and single-message reads apply the same bound. Changing the retention of a chat applies to new
+ * messages; existing messages are hidden by the new cutoff but deleted at their original expiry, or
+ * when the {@link MessageArchive} compacts their segment if they were archived.</p>
+ *
+ * <p>Cutoffs advance in whole hours: a message is hidden from the start of the hour in which it expires, so
+ * the visible history of a chat only changes on the hour, and the TTL index only deletes messages that are
+ * already hidden. At every full hour the {@link EntityVersions} of the chats with a limited retention are
+ * dropped, so a conditional read never answers with history that has expired since.</p>
+ *
+ * <p>The retention of at most {@value #MAX_CHATS} chats is cached and must be invalidated when it changes.
+ * Invalidating or evicting the retention of a chat drops its version as well.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see Chat
+ * @see Message
+ */
+@Service
+public class ChatRetentionService {
+	/**
+	 * The maximum number of chats whose retention is cached.
+	 */
+	static final int MAX_CHATS = 100_000;
+	/**
+	 * The cutoff of chats that keep their messages forever.
+	 */
+	static final LocalDateTime KEEP_FOREVER = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+	private final ChatRepository chatRepository;
+	private final EntityVersions entityVersions;
+	private final int defaultDays;
+	private final Clock clock;
+	private final Map<UUID, Integer> retention = new ConcurrentHashMap<>();
+
+	@Autowired
+	public ChatRetentionService(ChatRepository chatRepository, EntityVersions entityVersions,
+			@Value("${chat.retention.default-days:0}") int defaultDays) {
+		this(chatRepository, entityVersions, defaultDays, Clock.systemDefaultZone());
+	}
+
+	ChatRetentionService(ChatRepository chatRepository, EntityVersions entityVersions, int defaultDays,
+			Clock clock) {
+		this.chatRepository = chatRepository;
+		this.entityVersions = entityVersions;
+		this.defaultDays = defaultDays;
+		this.clock = clock;
+	}
+	/**
+	 * Returns the time a message of a chat sent at the given time expires.
+	 *
+	 * @param chatId the ID of the chat
+	 * @param time   the time the message was sent
+	 * @return the expiry time, or null if the chat keeps its messages forever
+	 * @throws IllegalStateException if the chat does not exist
+	 * @throws DataAccessException   if loading the chat failed
+	 */
+	public LocalDateTime expireAt(UUID chatId, LocalDateTime time) {
+		int days = days(chatId);
+		return days == 0 ? null : time.plusDays(days);
+	}
+	/**
+	 * Returns the time before which messages of a chat are expired.
+	 *
+	 * @param chatId the ID of the chat
+	 * @return the oldest time still visible in the history of the chat
+	 * @throws IllegalStateException if the chat does not exist
+	 * @throws DataAccessException   if loading the chat failed
+	 */
+	public LocalDateTime cutoff(UUID chatId) {
+		return cutoff(LocalDateTime.now(clock), days(chatId));
+	}
+	/**
+	 * Returns the cutoffs of several chats, all taken at the same time. Chats that no longer exist are left out.
+	 *
+	 * @param chatIds the IDs of the chats
+	 * @return the oldest time still visible in the history of each existing chat, by chat ID
+	 * @throws DataAccessException if loading a chat failed
+	 */
+	public Map<UUID, LocalDateTime> cutoffs(Collection<UUID> chatIds) {
+		LocalDateTime now = LocalDateTime.now(clock);
+		Map<UUID, LocalDateTime> cutoffs = new HashMap<>();
+		for (UUID chatId : chatIds) {
+			try {
+				cutoffs.put(chatId, cutoff(now, days(chatId)));
+			} catch (IllegalStateException exception) {
+				// deleted since the chat IDs were read
+			}
+		}
+		return cutoffs;
+	}
+	/**
+	 * Drops the cached retention of a chat.
+	 *
+	 * @param chatId the ID of the chat
+	 */
+	public void invalidate(UUID chatId) {
+		retention.remove(chatId);
+		entityVersions.changed(EntityVersions.Kind.CHAT, chatId);
+	}
+	/**
+	 * Drops the versions of the chats with a limited retention when their cutoffs advance.
+	 */
+	@Scheduled(cron = "0 0 * * * *")
+	public void advance() {
+		retention.forEach((chatId, days) -> {
+			if (days != 0) {
+				entityVersions.changed(EntityVersions.Kind.CHAT, chatId);
+			}
+		});
+	}
+	/**
+	 * Returns the cutoff for a retention, rounded up to the next full hour.
+	 *
+	 * @param now  the current time
+	 * @param days the retention in days, 0 to keep messages forever
+	 * @return the oldest time still visible
+	 */
+	private static LocalDateTime cutoff(LocalDateTime now, int days) {
+		if (days == 0) {
+			return KEEP_FOREVER;
+		}
+		LocalDateTime cutoff = now.minusDays(days);
+		LocalDateTime hour = cutoff.truncatedTo(ChronoUnit.HOURS);
+		return hour.equals(cutoff) ? cutoff : hour.plusHours(1);
+	}
+
+	private int days(UUID chatId) {
+		Integer days = retention.get(chatId);
+		if (days == null) {
+			ChatSummary chat = chatRepository.findSummaryById(chatId)
+					.orElseThrow(() -> new IllegalStateException("Chat does not exist"));
+			days = Optional.ofNullable(chat.getRetentionDays()).orElse(defaultDays);
+			if (retention.size() >= MAX_CHATS) {
+				Iterator<UUID> iterator = retention.keySet().iterator();
+				if (iterator.hasNext()) {
+					UUID evicted = iterator.next();
+					iterator.remove();
+					entityVersions.changed(EntityVersions.Kind.CHAT, evicted);
+				}
+			}
+			retention.put(chatId, days);
+		}
+		return days;
+	}
+}
@@ -1,8 +1,19 @@
 package com.example.demo.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
+import org.bson.types.ObjectId;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 
@@ -10,7 +21,10 @@ import com.example.demo.dto.request.ChatRequest;
 import com.example.demo.dto.request.ChatRoleRequest;
 import com.example.demo.dto.request.ChatUserRequest;
 import com.example.demo.dto.response.ChatResponse;
+import com.example.demo.dto.response.InboxPageResponse;
+import com.example.demo.dto.response.MessagePageResponse;
 import com.example.demo.models.Chat;
+import com.example.demo.models.Message;
 import com.example.demo.models.User;
 import com.example.demo.models.UserRoleChat;
 import com.example.demo.models.role.Role;
@@ -18,6 +32,14 @@ import com.example.demo.repository.ChatRepository;
 import com.example.demo.repository.MessageRepository;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.repository.UserRoleChatRepository;
+import com.example.demo.repository.projection.ChatSummary;
+import com.example.demo.security.AuthenticatedUserId;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import io.micrometer.core.annotation.Timed;
 
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
@@ -31,11 +53,29 @@ import lombok.extern.slf4j.Slf4j;
 @Data
 @Slf4j
 @Service
+@Timed(value = "service.calls", histogram = true)
 public class ChatService {
+    /**
+     * The number of messages returned in a history page when no limit is requested.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    /**
+     * The maximum number of messages returned in a single history page.
+     */
+    public static final int MAX_PAGE_SIZE = 200;
+
     private final ChatRepository chatRepository;
     private final UserRepository userRepository;
     private final MessageRepository messageRepository;
     private final UserRoleChatRepository userRoleChatRepository;
+    private final ObjectMapper objectMapper;
+    private final ChatMembershipIndex membershipIndex;
+    private final UnreadCounterService unreadCounterService;
+    private final ChatActivityService chatActivityService;
+    private final ChatPurgeService chatPurgeService;
+    private final ChatRetentionService chatRetentionService;
+    private final MessageArchive messageArchive;
+    private final EntityVersions entityVersions;
     /**
      * Saves a new chat.
      *
@@ -47,10 +87,15 @@ public class ChatService {
         if (auth.getPrincipal() != null) {
             User user = (User) auth.getPrincipal();
             Chat chat = request.getChat();
+            if (chat.getRetentionDays() != null && chat.getRetentionDays() < 0) {
+                throw new IllegalArgumentException("Retention must not be negative");
+            }
             if (userRepository.existsById(user.getId())) {
                 chat.getUsers().add(user);
                 try {
-                    return chatRepository.save(chat);
+                    Chat saved = chatRepository.save(chat);
+                    membershipIndex.invalidate(saved.getId());
+                    return saved;
                 } catch (DataAccessException exception) {
                     log.error(exception.getMessage(), exception);
                     throw exception;
@@ -69,11 +114,219 @@ public class ChatService {
      * @return      the ChatResponse object containing chat details
      */
     public ChatResponse findById(String id) {
-        Chat chat = chatRepository.findById(UUID.fromString(id))
+        ChatSummary chat = chatRepository.findSummaryById(UUID.fromString(id))
                 .orElseThrow(() -> new IllegalStateException("Chat does not exist"));
 
-        return new ChatResponse(chat.getId(), chat.getName(), chat.getUsers(), messageRepository.findAll().stream()
-                .filter(message -> message.getChatId().equals(chat.getId())).toList());
+        return new ChatResponse(chat.getId(), chat.getName(), chatRepository.findMembersById(chat.getId()),
+                findMessages(chat.getId(), null, null, DEFAULT_PAGE_SIZE).getMessages());
+    }
+    /**
+     * Retrieves a page of chat history using keyset pagination.
+     *
+     * <p>The {@code before} and {@code after} cursors are message IDs. If none is given,
+     * the newest page is returned. Messages in the page are ordered from oldest to newest.
+     * Pages continue from MongoDB into the {@link MessageArchive} and back.</p>
+     *
+     * @param id        the ID of the chat
+     * @param before    the ID of the message to read older messages from, may be null
+     * @param after     the ID of the message to read newer messages from, may be null
+     * @param limit     the maximum number of messages, may be null
+     * @return          the MessagePageResponse object containing the page
+     * @throws IllegalStateException    if the chat or the cursor message does not exist
+     * @throws IllegalArgumentException if both cursors are given or a cursor is malformed
+     */
+    public MessagePageResponse findMessages(String id, String before, String after, Integer limit) {
+        return findMessages(UUID.fromString(id), before, after, limit);
+    }
+    /**
+     * Reads a page of chat history for an existing chat.
+     *
+     * @param chatId    the ID of the chat
+     * @param before    the ID of the message to read older messages from, may be null
+     * @param after     the ID of the message to read newer messages from, may be null
+     * @param limit     the maximum number of messages, may be null
+     * @return          the MessagePageResponse object containing the page
+     */
+    private MessagePageResponse findMessages(UUID chatId, String before, String after, Integer limit) {
+        if (before != null && after != null) {
+            throw new IllegalArgumentException("Only one of before and after may be set");
+        }
+        PageRequest page = PageRequest.of(0, limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE
+                : Math.min(limit, MAX_PAGE_SIZE));
+
+        List<Message> messages;
+        try {
+            LocalDateTime since = chatRetentionService.cutoff(chatId);
+            LocalDateTime hotSince = messageArchive.hotSince(chatId, since);
+            if (after != null) {
+                Message cursor = findCursor(chatId, after);
+                messages = new ArrayList<>();
+                if (messageArchive.isArchived(chatId, cursor)) {
+                    messages.addAll(messageArchive.findAfter(chatId, since, cursor, page.getPageSize()));
+                    cursor = messages.isEmpty() ? cursor : messages.get(messages.size() - 1);
+                }
+                if (messages.size() < page.getPageSize()) {
+                    messages.addAll(hot(chatId, messageRepository.findPageAfter(chatId, hotSince, cursor.getTime(),
+                            new ObjectId(cursor.getId()), PageRequest.of(0, page.getPageSize() - messages.size()))));
+                }
+            } else {
+                Message cursor = before == null ? null : findCursor(chatId, before);
+                Message bound = cursor != null && messageArchive.isArchived(chatId, cursor) ? cursor : null;
+                messages = new ArrayList<>();
+                if (cursor == null) {
+                    messages.addAll(hot(chatId, messageRepository.findLatest(chatId, hotSince, page)));
+                } else if (bound == null) {
+                    messages.addAll(hot(chatId, messageRepository.findPageBefore(chatId, hotSince, cursor.getTime(),
+                            new ObjectId(cursor.getId()), page)));
+                }
+                if (messages.size() < page.getPageSize()) {
+                    messages.addAll(messageArchive.findBefore(chatId, since, bound,
+                            page.getPageSize() - messages.size()));
+                }
+                Collections.reverse(messages);
+            }
+        } catch (DataAccessException exception) {
+            log.error(exception.getMessage(), exception);
+            throw exception;
+        }
+
+        if (messages.isEmpty()) {
+            return new MessagePageResponse(messages, null, null);
+        }
+        return new MessagePageResponse(messages, messages.get(0).getId(), messages.get(messages.size() - 1).getId());
+    }
+    /**
+     * Loads the message a history cursor points to.
+     *
+     * @param chatId    the ID of the chat the cursor must belong to
+     * @param messageId the ID of the cursor message
+     * @return          the cursor message
+     * @throws IllegalArgumentException if the cursor is not a valid message ID
+     * @throws IllegalStateException    if the message does not exist in the chat
+     */
+    private Message findCursor(UUID chatId, String messageId) {
+        if (!ObjectId.isValid(messageId)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return messageRepository.findById(messageId)
+                .filter(message -> chatId.equals(message.getChatId()))
+                .or(() -> Optional.ofNullable(messageArchive.find(chatId, messageId)))
+                .orElseThrow(() -> new IllegalStateException("Message does not exist in this chat"));
+    }
+    /**
+     * Drops the messages of a page read from MongoDB that the archive already serves.
+     *
+     * @param chatId    the ID of the chat
+     * @param messages  the page read from MongoDB
+     * @return          the messages not yet archived
+     */
+    private List<Message> hot(UUID chatId, List<Message> messages) {
+        return messages.stream().filter(message -> !messageArchive.isArchived(chatId, message)).toList();
+    }
+    /**
+     * Checks that the authenticated user is a member of a chat.
+     *
+     * @param id    the ID of the chat
+     * @param auth  the Authentication object representing the authenticated user
+     * @return      the ID of the chat
+     * @throws IllegalStateException if the chat does not exist or the user is not a member of the chat
+     * @throws NullPointerException  if the user is not authenticated
+     */
+    public UUID checkMember(String id, Authentication auth) {
+        UUID userId = AuthenticatedUserId.of(auth);
+        if (userId != null) {
+            UUID chatId = UUID.fromString(id);
+            if (membershipIndex.isMember(chatId, userId)) {
+                return chatId;
+            } else {
+                throw new IllegalStateException("User does not have access to this chat");
+            }
+        } else {
+            throw new NullPointerException("User must be authenticated");
+        }
+    }
+    /**
+     * Returns a page of the chats of the authenticated user, most recently active first.
+     *
+     * @param cursor    the cursor returned with the previous page, may be null
+     * @param limit     the maximum number of chats, may be null
+     * @param auth      the Authentication object representing the authenticated user
+     * @return          the InboxPageResponse object containing the page
+     * @throws IllegalArgumentException if the cursor is malformed
+     * @throws NullPointerException     if the user is not authenticated
+     */
+    public InboxPageResponse findInbox(String cursor, Integer limit, Authentication auth) {
+        UUID userId = AuthenticatedUserId.of(auth);
+        if (userId == null) {
+            throw new NullPointerException("User must be authenticated");
+        }
+        try {
+            return chatActivityService.findInbox(userId, cursor, limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE
+                    : Math.min(limit, MAX_PAGE_SIZE));
+        } catch (DataAccessException exception) {
+            log.error(exception.getMessage(), exception);
+            throw exception;
+        }
+    }
+    /**
+     * Checks that the authenticated user may export the history of a chat.
+     *
+     * @param id    the ID of the chat to export
+     * @param auth  the Authentication object representing the authenticated user
+     * @return      the ID of the chat
+     * @throws IllegalStateException if the chat does not exist or the user is not an admin of the chat
+     * @throws NullPointerException  if the user is not authenticated
+     */
+    public UUID checkExportAccess(String id, Authentication auth) {
+        UUID userId = AuthenticatedUserId.of(auth);
+        if (userId != null) {
+            Chat chat = chatRepository.findWithUserRoleById(UUID.fromString(id))
+                    .orElseThrow(() -> new IllegalStateException("Chat does not exist"));
+            if (chat.getUserRole().stream().filter(userRole -> userRole.getUserId().equals(userId))
+                    .anyMatch(role -> role.getRole().equals(Role.ROLE_ADMIN))) {
+                return chat.getId();
+            } else {
+                throw new IllegalStateException("User must be admin role");
+            }
+        } else {
+            throw new NullPointerException("User must be authenticated");
+        }
+    }
+    /**
+     * Writes the full history of a chat as newline-delimited JSON.
+     *
+     * <p>Archived messages are read block by block, then the rest from a Mongo cursor, and written
+     * one by one, so memory use does not depend on the size of the chat.</p>
+     *
+     * @param chatId    the ID of the chat
+     * @param out       the stream to write to; it is not closed
+     * @param gzip      whether to gzip the output
+     * @throws IOException if writing to the stream failed
+     */
+    public void exportMessages(UUID chatId, OutputStream out, boolean gzip) throws IOException {
+        GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, 8192) : null;
+        ObjectWriter writer = objectMapper.writerFor(Message.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        LocalDateTime since = chatRetentionService.cutoff(chatId);
+        try (Stream<Message> messages = Stream.concat(messageArchive.stream(chatId, since),
+                messageRepository.streamHistory(chatId, messageArchive.hotSince(chatId, since))
+                        .filter(message -> !messageArchive.isArchived(chatId, message)));
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(gzip ? gzipOut : out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            for (Message message : (Iterable<Message>) messages::iterator) {
+                writer.writeValue(generator, message);
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+            if (gzipOut != null) {
+                gzipOut.finish();
+            }
+        } catch (DataAccessException exception) {
+            log.error(exception.getMessage(), exception);
+            throw exception;
+        }
     }
     /**
      * Updates an existing chat.
@@ -84,7 +337,7 @@ public class ChatService {
     public void update(ChatRequest request, Authentication auth) {
         if (auth.getPrincipal() != null) {
             User user = (User) auth.getPrincipal();
-            Chat chat = chatRepository.findById(request.getChat().getId())
+            Chat chat = chatRepository.findWithUserRoleById(request.getChat().getId())
                     .orElseThrow(() -> new IllegalStateException("Chat does not exist"));
 
             copyNotNullDetails(chat, request.getChat());
@@ -92,6 +345,8 @@ public class ChatService {
                     role -> role.getRole().equals(Role.ROLE_ADMIN) || role.getRole().equals(Role.ROLE_MODERATOR))) {
                 try {
                     chatRepository.save(chat);
+                    chatRetentionService.invalidate(chat.getId());
+                    entityVersions.changed(EntityVersions.Kind.CHAT, chat.getId());
                 } catch (DataAccessException exception) {
                     log.error(exception.getMessage(), exception);
                     throw exception;
@@ -104,7 +359,8 @@ public class ChatService {
         }
     }
     /**
-     * Deletes a chat.
+     * Deletes a chat. The chat is marked as deleted, which hides it from all reads and writes at once,
+     * and its messages and roles are purged in the background by the {@link ChatPurgeService}.
      *
      * @param request   the ChatRequest object containing the chat to delete
      * @param auth      the Authentication object representing the authenticated user
@@ -112,14 +368,19 @@ public class ChatService {
     public void delete(ChatRequest request, Authentication auth) {
         if (auth.getPrincipal() != null) {
             User user = (User) auth.getPrincipal();
-            Chat chat = chatRepository.findById(request.getChat().getId())
+            Chat chat = chatRepository.findWithUserRoleById(request.getChat().getId())
                     .orElseThrow(() -> new IllegalStateException("Chat not found"));
             if (chat.getUserRole().stream().filter(userId -> userId.getUserId().equals(user.getId()))
                     .anyMatch(role -> role.getRole().equals(Role.ROLE_ADMIN))) {
                 try {
-                    messageRepository.deleteAllByChatId(chat.getId());
-                    userRoleChatRepository.deleteAllByChat(chat);
-                    chatRepository.delete(chat);
+                    chatRepository.markDeleted(chat.getId(), LocalDateTime.now());
+                    membershipIndex.invalidate(chat.getId());
+                    unreadCounterService.remove(chat.getId(),
+                            chat.getUserRole().stream().map(UserRoleChat::getUserId).toList());
+                    chatActivityService.remove(chat.getId());
+                    chatRetentionService.invalidate(chat.getId());
+                    entityVersions.changed(EntityVersions.Kind.CHAT, chat.getId());
+                    chatPurgeService.schedule(chat.getId());
                 } catch (DataAccessException exception) {
                     log.error(exception.getMessage(), exception);
                     throw exception;
@@ -161,11 +422,18 @@ public class ChatService {
      *
      * @param existingChat  the existing Chat object
      * @param updatedChat   the updated Chat object
+     * @throws IllegalArgumentException if the retention is negative
      */
     public void copyNotNullDetails(Chat existingChat, Chat updatedChat) {
         if (updatedChat.getName() != null && !updatedChat.getName().isEmpty()) {
             existingChat.setName(updatedChat.getName());
         }
+        if (updatedChat.getRetentionDays() != null) {
+            if (updatedChat.getRetentionDays() < 0) {
+                throw new IllegalArgumentException("Retention must not be negative");
+            }
+            existingChat.setRetentionDays(updatedChat.getRetentionDays());
+        }
     }
     /**
      * Sets a role to a user in a chat.
@@ -176,7 +444,7 @@ public class ChatService {
     public void setRoleToUser(ChatRoleRequest request, Authentication auth) {
         if (auth.getPrincipal() != null) {
             User user = (User) auth.getPrincipal();
-            Chat chat = chatRepository.findById(request.getChat().getId())
+            Chat chat = chatRepository.findWithUserRoleById(request.getChat().getId())
                     .orElseThrow(() -> new IllegalStateException("Chat does not exist"));
             if (chat.getUserRole().parallelStream().filter(userId -> userId.getUserId().equals(user.getId()))
                     .anyMatch(role -> role.getRole().equals(Role.ROLE_ADMIN))) {
@@ -190,6 +458,8 @@ public class ChatService {
 
                 try {
                     chatRepository.save(chat);
+                    chatRetentionService.invalidate(chat.getId());
+                    entityVersions.changed(EntityVersions.Kind.CHAT, chat.getId());
                 } catch (DataAccessException exception) {
                     log.error(exception.getMessage(), exception);
                     throw exception;
@@ -208,10 +478,10 @@ public class ChatService {
     public void addUser(ChatUserRequest request, Authentication auth) {
         if (auth.getPrincipal() != null) {
             User user = (User) auth.getPrincipal();
-            Chat chat = chatRepository.findById(request.getChat().getId())
+            Chat chat = chatRepository.findWithUsersById(request.getChat().getId())
                     .orElseThrow(() -> new IllegalStateException("Chat does not exist"));
 
-            if (chat.getUsers().stream().anyMatch(filter -> filter.getId().equals(user.getId()))) {
+            if (membershipIndex.isMember(chat.getId(), user.getId())) {
                 UserRoleChat userRole = new UserRoleChat();
                 userRole.setChat(chat);
                 userRole.setUserId(request.getUserId());
@@ -219,10 +489,12 @@ public class ChatService {
 
                 chat.getUsers().add(userRepository.findById(request.getUserId())
                         .orElseThrow(() -> new IllegalStateException("User does not exist")));
-                chat.getUserRole().add(userRole);
 
                 try {
                     chatRepository.save(chat);
+                    userRoleChatRepository.save(userRole);
+                    membershipIndex.invalidate(chat.getId());
+                    entityVersions.changed(EntityVersions.Kind.CHAT, chat.getId());
                 } catch (DataAccessException exception) {
                     log.error(exception.getMessage(), exception);
                     throw exception;
@@ -243,21 +515,22 @@ public class ChatService {
     public void removeUser(ChatUserRequest request, Authentication auth) {
         if (auth.getPrincipal() != null) {
             User user = (User) auth.getPrincipal();
-            Chat chat = chatRepository.findById(request.getChat().getId())
+            Chat chat = chatRepository.findWithUsersById(request.getChat().getId())
                     .orElseThrow(() -> new IllegalStateException("Chat does not exist"));
-            if (chat.getUserRole().parallelStream().filter(id -> id.getUserId().equals(user.getId()))
-                    .anyMatch(role -> role.getRole().equals(Role.ROLE_ADMIN))) {
+            if (userRoleChatRepository.findByChatAndUserId(chat, user.getId())
+                    .filter(role -> role.getRole().equals(Role.ROLE_ADMIN)).isPresent()) {
                 chat.getUsers().remove(userRepository.findById(request.getUserId())
                         .orElseThrow(() -> new IllegalStateException("User does not exist in this chat")));
 
-                UserRoleChat userRole = chat.getUserRole().stream()
-                        .filter(filter -> filter.getUserId().equals(request.getUserId())).findFirst()
+                UserRoleChat userRole = userRoleChatRepository.findByChatAndUserId(chat, request.getUserId())
                         .orElseThrow(() -> new IllegalStateException("User does not exist in this chat"));
-                chat.getUserRole().remove(userRole);
 
                 try {
                     chatRepository.save(chat);
                     userRoleChatRepository.delete(userRole);
+                    membershipIndex.invalidate(chat.getId());
+                    unreadCounterService.remove(chat.getId(), List.of(request.getUserId()));
+                    entityVersions.changed(EntityVersions.Kind.CHAT, chat.getId());
                 } catch (DataAccessException exception) {
                     log.error(exception.getMessage(), exception);
                     throw exception;
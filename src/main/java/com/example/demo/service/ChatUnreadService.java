@@ -0,0 +1,85 @@
+package com.example.demo.service;
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.models.Chat;
+import com.example.demo.security.AuthenticatedUserId;
+
+import io.micrometer.core.annotation.Timed;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class serving the unread message counters of the authenticated user.
+ *
+ * <p>The counters are kept by the {@link UnreadCounterService}; this class checks that the user may read or
+ * reset them.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see UnreadCounterService
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Timed(value = "service.calls", histogram = true)
+public class ChatUnreadService {
+	private final ChatMembershipIndex membershipIndex;
+	private final UnreadCounterService unreadCounterService;
+	/**
+	 * Marks all messages of a chat as read for the authenticated user.
+	 *
+	 * @param id   the ID of the {@link Chat}
+	 * @param auth the Authentication object representing the authenticated user
+	 * @throws IllegalStateException if the chat does not exist or the user is not a member of the chat
+	 * @throws NullPointerException  if the user is not authenticated
+	 * @throws DataAccessException   if resetting the counter failed
+	 */
+	public void markRead(String id, Authentication auth) {
+		UUID userId = AuthenticatedUserId.of(auth);
+		UUID chatId = checkMember(id, userId);
+		try {
+			unreadCounterService.markRead(chatId, userId);
+		} catch (DataAccessException exception) {
+			log.error(exception.getMessage(), exception);
+			throw exception;
+		}
+	}
+	/**
+	 * Returns the unread message counters of the authenticated user.
+	 *
+	 * @param auth the Authentication object representing the authenticated user
+	 * @return the number of unread messages by chat ID; chats without unread messages are absent
+	 * @throws NullPointerException if the user is not authenticated
+	 * @throws DataAccessException  if reading the counters failed
+	 */
+	public Map<UUID, Long> findUnreadCounts(Authentication auth) {
+		UUID userId = AuthenticatedUserId.of(auth);
+		if (userId == null) {
+			throw new NullPointerException("User must be authenticated");
+		}
+		try {
+			return unreadCounterService.findAll(userId);
+		} catch (DataAccessException exception) {
+			log.error(exception.getMessage(), exception);
+			throw exception;
+		}
+	}
+
+	private UUID checkMember(String id, UUID userId) {
+		if (userId == null) {
+			throw new NullPointerException("User must be authenticated");
+		}
+		UUID chatId = UUID.fromString(id);
+		if (!membershipIndex.isMember(chatId, userId)) {
+			throw new IllegalStateException("User does not have access to this chat");
+		}
+		return chatId;
+	}
+}
@@ -0,0 +1,133 @@
+package com.example.demo.service;
+
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bson.types.ObjectId;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.response.MessageEvent;
+import com.example.demo.models.Chat;
+import com.example.demo.models.Message;
+import com.example.demo.models.User;
+
+/**
+ * Service class keeping an in-memory version of every {@link Chat}, {@link Message} and {@link User}
+ * read through the API, used as weak ETags for conditional requests. The tags are weak because the same
+ * version is served both gzipped and uncompressed, and a strong tag must differ between encodings. Only gzip
+ * is offered: the embedded Tomcat has no brotli encoder, so brotli is left to a reverse proxy.
+ *
+ * <p>An entity gets a fresh version from a global counter when its tag is first asked for, and loses it when
+ * it changes, so the next tag is fresh again. A tag is taken before the entity is read and the version is
+ * dropped after a write, so a tag never matches data older than the data it was sent with. Versions are never
+ * reused, which makes evicting them safe: at most {@value #MAX_ENTRIES} are kept, beyond that arbitrary ones
+ * are evicted and only cost a full response.</p>
+ *
+ * <p>Message changes are taken from {@link MessageEvent}s; chat and user changes must be reported with
+ * {@link #changed}. Like the other in-memory indexes, versions are kept per node. Tags carry a random epoch,
+ * so tags of another node or of an earlier process never match.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ */
+@Service
+public class EntityVersions {
+	/**
+	 * The maximum number of versions kept.
+	 */
+	static final int MAX_ENTRIES = 100_000;
+
+	/**
+	 * The kinds of versioned entities.
+	 */
+	public enum Kind {
+		/**
+		 * A {@link Chat} with its members and its newest messages, identified by a UUID. Its version is also
+		 * dropped when the retention or the archive changes its history.
+		 */
+		CHAT,
+		/**
+		 * A {@link Message}, identified by an ObjectId.
+		 */
+		MESSAGE,
+		/**
+		 * A {@link User}, identified by a UUID.
+		 */
+		USER
+	}
+
+	private final String epoch = Long.toUnsignedString(new SecureRandom().nextLong(), 36);
+	private final AtomicLong counter = new AtomicLong();
+	private final Map<Key, Long> versions = new ConcurrentHashMap<>();
+	/**
+	 * Returns the current ETag of an entity.
+	 *
+	 * @param kind the kind of the entity
+	 * @param id   the ID of the entity as given by the client
+	 * @return the weak ETag, or null if the ID is malformed
+	 */
+	public String etag(Kind kind, String id) {
+		Key key = key(kind, id);
+		if (key == null) {
+			return null;
+		}
+		Long version = versions.get(key);
+		if (version == null) {
+			if (versions.size() >= MAX_ENTRIES) {
+				Iterator<Key> iterator = versions.keySet().iterator();
+				if (iterator.hasNext()) {
+					iterator.next();
+					iterator.remove();
+				}
+			}
+			version = versions.computeIfAbsent(key, ignored -> counter.incrementAndGet());
+		}
+		return "W/\"" + kind.name().toLowerCase() + "-" + epoch + "-" + Long.toString(version, 36) + "\"";
+	}
+	/**
+	 * Reports that an entity changed. Must be called after the change is written.
+	 *
+	 * @param kind the kind of the entity
+	 * @param id   the ID of the entity
+	 */
+	public void changed(Kind kind, Object id) {
+		Key key = key(kind, id.toString());
+		if (key != null) {
+			versions.remove(key);
+		}
+	}
+	/**
+	 * Drops the versions of a message and of its chat.
+	 *
+	 * @param event the change of the message
+	 */
+	@EventListener
+	public void onMessageEvent(MessageEvent event) {
+		changed(Kind.CHAT, event.getChatId());
+		if (event.getMessage() != null && event.getMessage().getId() != null) {
+			changed(Kind.MESSAGE, event.getMessage().getId());
+		}
+	}
+
+	private static Key key(Kind kind, String id) {
+		if (id == null) {
+			return null;
+		}
+		if (kind == Kind.MESSAGE) {
+			return ObjectId.isValid(id) ? new Key(kind, new ObjectId(id).toHexString()) : null;
+		}
+		try {
+			return new Key(kind, UUID.fromString(id).toString());
+		} catch (IllegalArgumentException exception) {
+			return null;
+		}
+	}
+
+	private record Key(Kind kind, String id) {
+	}
+}
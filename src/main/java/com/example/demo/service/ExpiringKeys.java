@@ -0,0 +1,143 @@
+package com.example.demo.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A set of keys that expire a fixed number of ticks after they were last touched.
+ *
+ * <p>Keys live in one of {@value #STRIPES} striped maps from key to expiry tick. Expiry uses a hashed timer
+ * wheel: every key is also held in exactly one of {@code ttl + 1} slots, the slot of its expiry tick, and
+ * {@link #advance(long)} only visits the slots of the ticks that passed. Touching a key moves it to its new
+ * slot, so there are no per-key tasks and the cost of a tick is proportional to the keys expiring in it.
+ * Lookups compare the expiry tick with the current tick and do not depend on {@link #advance(long)}
+ * having run.</p>
+ *
+ * <p>A key costs two map nodes, a boxed expiry tick and the key itself; at most {@code capacity} keys are
+ * kept and touching a new key beyond that fails.</p>
+ *
+ * @param <K> the type of the keys
+ * @author Andrey Sharipov
+ * @version 1.0
+ */
+class ExpiringKeys<K> {
+	/**
+	 * The number of stripes; a power of two.
+	 */
+	static final int STRIPES = 16;
+
+	private final Map<K, Long>[] stripes;
+	private final Set<K>[] wheel;
+	private final long ttl;
+	private final int capacity;
+	private final AtomicInteger size = new AtomicInteger();
+	private long advancedTo;
+
+	@SuppressWarnings("unchecked")
+	ExpiringKeys(long ttl, int capacity, long now) {
+		if (ttl < 1) {
+			throw new IllegalArgumentException("TTL must be at least one tick");
+		}
+		this.ttl = ttl;
+		this.capacity = capacity;
+		this.advancedTo = now;
+		this.stripes = new Map[STRIPES];
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new ConcurrentHashMap<>();
+		}
+		this.wheel = new Set[Math.toIntExact(ttl + 1)];
+		for (int i = 0; i < wheel.length; i++) {
+			wheel[i] = ConcurrentHashMap.newKeySet();
+		}
+	}
+	/**
+	 * Adds a key or extends its lifetime to {@code ttl} ticks from now.
+	 *
+	 * @param key the key
+	 * @param now the current tick
+	 * @return true if the key was added or refreshed, false if it is new and the set is full
+	 */
+	boolean touch(K key, long now) {
+		long expiresAt = now + ttl;
+		boolean[] accepted = {true};
+		stripe(key).compute(key, (k, previous) -> {
+			if (previous == null) {
+				if (size.incrementAndGet() > capacity) {
+					size.decrementAndGet();
+					accepted[0] = false;
+					return null;
+				}
+			} else if (previous == expiresAt) {
+				return previous;
+			} else {
+				slot(previous).remove(k);
+			}
+			slot(expiresAt).add(k);
+			return expiresAt;
+		});
+		return accepted[0];
+	}
+	/**
+	 * Checks if a key is present and not expired.
+	 *
+	 * @param key the key
+	 * @param now the current tick
+	 * @return true if the key is live
+	 */
+	boolean contains(K key, long now) {
+		Long expiresAt = stripe(key).get(key);
+		return expiresAt != null && expiresAt > now;
+	}
+	/**
+	 * Removes a key before it expires.
+	 *
+	 * @param key the key
+	 */
+	void remove(K key) {
+		stripe(key).computeIfPresent(key, (k, expiresAt) -> {
+			slot(expiresAt).remove(k);
+			size.decrementAndGet();
+			return null;
+		});
+	}
+	/**
+	 * Removes the keys that expired in the ticks since the last call. Must not be called concurrently.
+	 *
+	 * @param now the current tick
+	 */
+	void advance(long now) {
+		long from = Math.max(advancedTo + 1, now - ttl);
+		for (long tick = from; tick <= now; tick++) {
+			for (K key : slot(tick)) {
+				stripe(key).computeIfPresent(key, (k, expiresAt) -> {
+					if (expiresAt > now) {
+						return expiresAt;
+					}
+					slot(expiresAt).remove(k);
+					size.decrementAndGet();
+					return null;
+				});
+			}
+		}
+		advancedTo = Math.max(advancedTo, now);
+	}
+	/**
+	 * Returns the number of keys, including expired keys not yet removed by {@link #advance(long)}.
+	 *
+	 * @return the number of keys
+	 */
+	int size() {
+		return size.get();
+	}
+
+	private Map<K, Long> stripe(K key) {
+		int hash = key.hashCode();
+		return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+	}
+
+	private Set<K> slot(long tick) {
+		return wheel[(int) Math.floorMod(tick, (long) wheel.length)];
+	}
+}
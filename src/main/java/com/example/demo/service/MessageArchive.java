@@ -0,0 +1,604 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.example.demo.config.TaskExecutors;
+import com.example.demo.models.Message;
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.repository.MessageRepository;
+import com.example.demo.service.ArchiveSegment.Block;
+import com.example.demo.service.ArchiveSegment.Position;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class keeping old {@link Message}s in a cold tier of compressed segment files on local disk.
+ *
+ * <p>When {@code chat.archive.enabled} is set, every {@code chat.archive.interval} messages older than
+ * {@code chat.archive.after} are appended to a new {@link ArchiveSegment} in {@code chat.archive.directory},
+ * chat by chat, and deleted from MongoDB once the segment is durable. A segment is closed at
+ * {@code chat.archive.segment-size}. Segments are never changed, and archived messages are read-only.</p>
+ *
+ * <p>The archived part of a chat always precedes its hot part: the archive only takes messages after the
+ * last archived position of the chat, its watermark. History reads use {@link #hotSince} to bound the hot
+ * query and {@link #isArchived} to drop hot copies not deleted yet, and continue in the archive with
+ * {@link #findBefore}, {@link #findAfter} and {@link #stream}. Every step is idempotent, so a run interrupted
+ * by a failure or a restart is completed by the next one.</p>
+ *
+ * <p>After archiving, a run compacts the segments: a segment holding a chat that was purged with
+ * {@link #purge} or no longer exists, or whose messages are mostly expired by the retention of their chats,
+ * is rewritten without those messages into a new segment that replaces it. Purged chats disappear from
+ * reads at once and from disk with the next run. Committing and rewriting a segment drop the
+ * {@link EntityVersions} of its chats.</p>
+ *
+ * <p>The archive is local to the node; all nodes serving history must share the directory. Progress is
+ * exported as the {@code chat.archive.messages} and {@code chat.archive.failures} counters, reads as
+ * {@code chat.archive.blocks.read}, rewritten segments as {@code chat.archive.compactions}, and the size as the {@code chat.archive.segments} and
+ * {@code chat.archive.bytes} gauges.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see ArchiveSegment
+ */
+@Slf4j
+@Service
+public class MessageArchive implements DisposableBean {
+	/**
+	 * The start of the history of chats that have no archive yet.
+	 */
+	static final LocalDateTime ORIGIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+	/**
+	 * The share of expired messages from which a segment is rewritten.
+	 */
+	static final double COMPACTION_THRESHOLD = 0.5;
+	private static final int CHAT_PAGE_SIZE = 500;
+	private static final Comparator<Block> BLOCK_ORDER = Comparator.comparing(Block::first);
+	private static final UUID FIRST_CHAT = new UUID(0, 0);
+
+	private final MessageRepository messageRepository;
+	private final ChatRepository chatRepository;
+	private final ChatRetentionService chatRetentionService;
+	private final EntityVersions entityVersions;
+	private final Path directory;
+	private final boolean enabled;
+	private final Duration after;
+	private final int blockSize;
+	private final long segmentSize;
+	private final Clock clock;
+	private final AsyncTaskExecutor executor;
+	private final AtomicBoolean archiving = new AtomicBoolean();
+	private final List<ArchiveSegment> segments = new CopyOnWriteArrayList<>();
+	private final Map<UUID, List<Block>> chats = new ConcurrentHashMap<>();
+	private final Set<UUID> purged = ConcurrentHashMap.newKeySet();
+	private final Counter messages;
+	private final Counter failures;
+	private final Counter blocksRead;
+	private final Counter compactions;
+	private long nextSequence;
+	private volatile boolean running = true;
+
+	@Autowired
+	public MessageArchive(MessageRepository messageRepository, ChatRepository chatRepository,
+			ChatRetentionService chatRetentionService, EntityVersions entityVersions, MeterRegistry meterRegistry,
+			@Value("${chat.archive.directory:archive}") String directory,
+			@Value("${chat.archive.enabled:false}") boolean enabled,
+			@Value("${chat.archive.after:30d}") Duration after,
+			@Value("${chat.archive.block-size:256}") int blockSize,
+			@Value("${chat.archive.segment-size:256MB}") DataSize segmentSize,
+			@Value(TaskExecutors.VIRTUAL_THREADS_PROPERTY) boolean virtualThreads) {
+		this(messageRepository, chatRepository, chatRetentionService, entityVersions, meterRegistry,
+				Path.of(directory), enabled, after, blockSize, segmentSize, virtualThreads, Clock.systemDefaultZone());
+	}
+
+	MessageArchive(MessageRepository messageRepository, ChatRepository chatRepository,
+			ChatRetentionService chatRetentionService, EntityVersions entityVersions, MeterRegistry meterRegistry,
+			Path directory, boolean enabled, Duration after, int blockSize, DataSize segmentSize,
+			boolean virtualThreads, Clock clock) {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("Block size must be positive");
+		}
+		if (segmentSize.toBytes() < 1 || segmentSize.toBytes() >= Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Segment size must be between 1 byte and 2GB");
+		}
+		this.messageRepository = messageRepository;
+		this.chatRepository = chatRepository;
+		this.chatRetentionService = chatRetentionService;
+		this.entityVersions = entityVersions;
+		this.directory = directory;
+		this.enabled = enabled;
+		this.after = after;
+		this.blockSize = blockSize;
+		this.segmentSize = segmentSize.toBytes();
+		this.clock = clock;
+		this.executor = TaskExecutors.create("chat-archive-", 1, 1, virtualThreads);
+		this.messages = Counter.builder("chat.archive.messages").description("Messages moved to the archive")
+				.register(meterRegistry);
+		this.failures = Counter.builder("chat.archive.failures").description("Archive runs interrupted by an error")
+				.register(meterRegistry);
+		this.blocksRead = Counter.builder("chat.archive.blocks.read").description("Archive blocks decompressed")
+				.register(meterRegistry);
+		this.compactions = Counter.builder("chat.archive.compactions")
+				.description("Archive segments rewritten without expired or purged messages").register(meterRegistry);
+		Gauge.builder("chat.archive.segments", segments, List::size).description("Archive segment files")
+				.register(meterRegistry);
+		Gauge.builder("chat.archive.bytes", segments, list -> list.stream().mapToLong(ArchiveSegment::bytes).sum())
+				.description("Size of the archive segment files").register(meterRegistry);
+		load();
+	}
+	/**
+	 * Starts an archive run unless archiving is disabled or a run is in progress.
+	 */
+	@Scheduled(fixedDelayString = "${chat.archive.interval:1h}", initialDelayString = "${chat.archive.interval:1h}")
+	public void archive() {
+		if (enabled && running && archiving.compareAndSet(false, true)) {
+			executor.execute(() -> {
+				try {
+					run();
+				} finally {
+					archiving.set(false);
+				}
+			});
+		}
+	}
+	/**
+	 * Drops the archived messages of a purged chat. They are hidden at once and removed from disk by the
+	 * next archive run.
+	 *
+	 * @param chatId the ID of the purged chat
+	 */
+	public void purge(UUID chatId) {
+		purged.add(chatId);
+		chats.remove(chatId);
+	}
+	/**
+	 * Loads an archived message of a chat.
+	 *
+	 * @param chatId the ID of the chat
+	 * @param id     the ID of the message
+	 * @return the message, or null if it is not archived
+	 */
+	public Message find(UUID chatId, String id) {
+		List<Block> blocks = chats.get(chatId);
+		if (blocks == null || !ObjectId.isValid(id)) {
+			return null;
+		}
+		ObjectId objectId = new ObjectId(id);
+		for (Block block : blocks) {
+			if (block.mayContain(objectId)) {
+				for (Message message : read(block)) {
+					if (objectId.toHexString().equals(message.getId())) {
+						return message;
+					}
+				}
+			}
+		}
+		return null;
+	}
+	/**
+	 * Tells whether a message of a chat is at or before the archive watermark of the chat, so it is served
+	 * by the archive even if MongoDB still holds a copy.
+	 *
+	 * @param chatId  the ID of the chat
+	 * @param message the message
+	 * @return true if the archive serves the message
+	 */
+	public boolean isArchived(UUID chatId, Message message) {
+		Position watermark = watermark(chatId);
+		return watermark != null && Position.of(message).compareTo(watermark) <= 0;
+	}
+	/**
+	 * Returns the lower time bound of the hot history of a chat.
+	 *
+	 * @param chatId the ID of the chat
+	 * @param since  the retention cutoff of the chat
+	 * @return the later of the cutoff and the time of the archive watermark
+	 */
+	public LocalDateTime hotSince(UUID chatId, LocalDateTime since) {
+		Position watermark = watermark(chatId);
+		return watermark == null || watermark.time().isBefore(since) ? since : watermark.time();
+	}
+	/**
+	 * Retrieves archived messages of a chat that precede a message, newest first.
+	 *
+	 * @param chatId the ID of the chat
+	 * @param since  the retention cutoff; older messages are not returned
+	 * @param cursor the message to read older messages from, or null to read from the newest archived one
+	 * @param limit  the maximum number of messages
+	 * @return the messages in descending order
+	 */
+	public List<Message> findBefore(UUID chatId, LocalDateTime since, Message cursor, int limit) {
+		List<Block> blocks = chats.getOrDefault(chatId, List.of());
+		Position bound = cursor == null ? null : Position.of(cursor);
+		List<Message> result = new ArrayList<>();
+
+		int low = 0;
+		int high = blocks.size();
+		while (bound != null && low < high) {
+			int middle = (low + high) >>> 1;
+			if (blocks.get(middle).first().compareTo(bound) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		for (int i = (bound == null ? blocks.size() : low) - 1; i >= 0 && result.size() < limit; i--) {
+			Block block = blocks.get(i);
+			if (block.last().time().isBefore(since)) {
+				break;
+			}
+			List<Message> messages = read(block);
+			for (int j = messages.size() - 1; j >= 0 && result.size() < limit; j--) {
+				Message message = messages.get(j);
+				if (message.getTime().isBefore(since)) {
+					break;
+				}
+				if (bound == null || Position.of(message).compareTo(bound) < 0) {
+					result.add(message);
+				}
+			}
+		}
+		return result;
+	}
+	/**
+	 * Retrieves archived messages of a chat that follow a message, oldest first.
+	 *
+	 * @param chatId the ID of the chat
+	 * @param since  the retention cutoff; older messages are not returned
+	 * @param cursor the message to read newer messages from
+	 * @param limit  the maximum number of messages
+	 * @return the messages in ascending order
+	 */
+	public List<Message> findAfter(UUID chatId, LocalDateTime since, Message cursor, int limit) {
+		List<Block> blocks = chats.getOrDefault(chatId, List.of());
+		Position bound = Position.of(cursor);
+		List<Message> result = new ArrayList<>();
+
+		for (int i = firstBlockAfter(blocks, bound, since); i < blocks.size() && result.size() < limit; i++) {
+			for (Message message : read(blocks.get(i))) {
+				if (result.size() == limit) {
+					break;
+				}
+				if (!message.getTime().isBefore(since) && Position.of(message).compareTo(bound) > 0) {
+					result.add(message);
+				}
+			}
+		}
+		return result;
+	}
+	/**
+	 * Streams the archived messages of a chat, oldest first, one block at a time.
+	 *
+	 * @param chatId the ID of the chat
+	 * @param since  the retention cutoff; older messages are not returned
+	 * @return the stream of the messages in ascending order
+	 */
+	public Stream<Message> stream(UUID chatId, LocalDateTime since) {
+		List<Block> blocks = chats.getOrDefault(chatId, List.of());
+		return blocks.subList(firstBlockAfter(blocks, null, since), blocks.size()).stream()
+				.flatMap(block -> read(block).stream())
+				.filter(message -> !message.getTime().isBefore(since));
+	}
+
+	@Override
+	public void destroy() {
+		running = false;
+		TaskExecutors.shutdown(executor);
+	}
+	/**
+	 * Moves the messages older than {@code chat.archive.after} of every chat to new segments, then compacts
+	 * the segments.
+	 */
+	void run() {
+		LocalDateTime now = LocalDateTime.now(clock);
+		LocalDateTime before = now.minus(after);
+		Map<UUID, Position> written = new LinkedHashMap<>();
+		ArchiveSegment.Writer writer = null;
+		try {
+			UUID last = FIRST_CHAT;
+			List<UUID> page;
+			do {
+				page = chatRepository.findIdsAfter(last, CHAT_PAGE_SIZE);
+				for (UUID chatId : page) {
+					if (!running) {
+						return;
+					}
+					Position watermark = watermark(chatId);
+					if (watermark != null) {
+						messageRepository.deleteArchived(chatId, watermark.time(), watermark.id());
+					}
+					try (Stream<Message> stream = messageRepository.streamArchivable(chatId,
+							watermark == null ? ORIGIN : watermark.time(), before)) {
+						for (Message message : (Iterable<Message>) stream::iterator) {
+							Position position = Position.of(message);
+							if ((watermark != null && position.compareTo(watermark) <= 0)
+									|| (message.getExpireAt() != null && !message.getExpireAt().isAfter(now))) {
+								continue;
+							}
+							if (writer == null) {
+								writer = new ArchiveSegment.Writer(directory, nextSequence++, blockSize);
+							}
+							writer.append(message);
+							written.put(chatId, position);
+							if (writer.bytes() >= segmentSize) {
+								commit(writer, written);
+								writer = null;
+							}
+						}
+					}
+				}
+				if (!page.isEmpty()) {
+					last = page.get(page.size() - 1);
+				}
+			} while (page.size() == CHAT_PAGE_SIZE);
+
+			if (writer != null) {
+				commit(writer, written);
+				writer = null;
+			}
+			compact(now);
+		} catch (IOException | UncheckedIOException | DataAccessException exception) {
+			failures.increment();
+			log.error(exception.getMessage(), exception);
+		} finally {
+			if (writer != null) {
+				try {
+					writer.close();
+				} catch (IOException exception) {
+					log.error(exception.getMessage(), exception);
+				}
+			}
+		}
+	}
+
+	private void commit(ArchiveSegment.Writer writer, Map<UUID, Position> written) throws IOException {
+		ArchiveSegment segment;
+		try (writer) {
+			segment = writer.commit();
+		}
+		publish(segment);
+		segment.blocks().values().forEach(blocks -> blocks.forEach(block -> messages.increment(block.count())));
+		for (Map.Entry<UUID, Position> entry : written.entrySet()) {
+			messageRepository.deleteArchived(entry.getKey(), entry.getValue().time(), entry.getValue().id());
+			entityVersions.changed(EntityVersions.Kind.CHAT, entry.getKey());
+		}
+		written.clear();
+		log.info("Archived segment {} of {} bytes", segment.sequence(), segment.bytes());
+	}
+
+	/**
+	 * Rewrites every segment that holds a purged chat or mostly expired messages.
+	 *
+	 * @param now the current time
+	 * @throws IOException if a segment could not be rewritten
+	 */
+	private void compact(LocalDateTime now) throws IOException {
+		for (ArchiveSegment segment : List.copyOf(segments)) {
+			if (!running) {
+				return;
+			}
+			Map<UUID, LocalDateTime> cutoffs = new HashMap<>();
+			boolean dropped = false;
+			long total = 0;
+			long expired = 0;
+			for (Map.Entry<UUID, List<Block>> entry : segment.blocks().entrySet()) {
+				LocalDateTime cutoff = cutoff(entry.getKey());
+				cutoffs.put(entry.getKey(), cutoff);
+				dropped |= cutoff == null;
+				for (Block block : entry.getValue()) {
+					total += block.count();
+					if (cutoff == null || block.last().time().isBefore(cutoff)) {
+						expired += block.count();
+					}
+				}
+			}
+			if (dropped || (expired > 0 && expired >= total * COMPACTION_THRESHOLD)) {
+				rewrite(segment, cutoffs, now);
+			}
+		}
+
+		Set<UUID> archived = new HashSet<>();
+		segments.forEach(segment -> archived.addAll(segment.blocks().keySet()));
+		purged.removeIf(chatId -> !archived.contains(chatId));
+	}
+	/**
+	 * Replaces a segment by a copy without the messages before the cutoff of their chat or past their expiry.
+	 *
+	 * @param segment the segment
+	 * @param cutoffs the retention cutoff of every chat in the segment, null for chats to drop
+	 * @param now     the current time
+	 * @throws IOException if the segment could not be rewritten
+	 */
+	private void rewrite(ArchiveSegment segment, Map<UUID, LocalDateTime> cutoffs, LocalDateTime now)
+			throws IOException {
+		ArchiveSegment replacement = null;
+		try (ArchiveSegment.Writer writer = new ArchiveSegment.Writer(directory, nextSequence++, blockSize,
+				segment.sequence())) {
+			for (Map.Entry<UUID, List<Block>> entry : segment.blocks().entrySet()) {
+				LocalDateTime cutoff = cutoffs.get(entry.getKey());
+				if (cutoff == null) {
+					continue;
+				}
+				for (Block block : entry.getValue()) {
+					if (block.last().time().isBefore(cutoff)) {
+						continue;
+					}
+					for (Message message : read(block)) {
+						if (!message.getTime().isBefore(cutoff)
+								&& (message.getExpireAt() == null || message.getExpireAt().isAfter(now))) {
+							writer.append(message);
+						}
+					}
+				}
+			}
+			if (!writer.isEmpty()) {
+				replacement = writer.commit();
+			}
+		}
+
+		replace(segment, replacement);
+		segment.blocks().keySet().forEach(chatId -> entityVersions.changed(EntityVersions.Kind.CHAT, chatId));
+		ArchiveSegment.delete(directory, segment.sequence());
+		compactions.increment();
+		log.info("Compacted archive segment {} into {}", segment.sequence(),
+				replacement == null ? "nothing" : replacement.sequence());
+	}
+	/**
+	 * Returns the retention cutoff of an archived chat.
+	 *
+	 * @param chatId the ID of the chat
+	 * @return the cutoff, or null if the chat was purged or no longer exists
+	 */
+	private LocalDateTime cutoff(UUID chatId) {
+		if (purged.contains(chatId)) {
+			return null;
+		}
+		try {
+			return chatRetentionService.cutoff(chatId);
+		} catch (IllegalStateException exception) {
+			return null;
+		}
+	}
+
+	private void publish(ArchiveSegment segment) {
+		segments.add(segment);
+		segment.blocks().forEach((chatId, blocks) -> {
+			if (!purged.contains(chatId)) {
+				chats.merge(chatId, blocks, (archived, added) -> Stream.concat(archived.stream(), added.stream())
+						.sorted(BLOCK_ORDER).toList());
+				if (purged.contains(chatId)) {
+					chats.remove(chatId);
+				}
+			}
+		});
+	}
+	/**
+	 * Swaps a segment for its compacted replacement in the segment list and the chat indexes.
+	 *
+	 * @param segment     the replaced segment
+	 * @param replacement the new segment, or null if nothing was kept
+	 */
+	private void replace(ArchiveSegment segment, ArchiveSegment replacement) {
+		if (replacement == null) {
+			segments.remove(segment);
+		} else {
+			segments.set(segments.indexOf(segment), replacement);
+		}
+		for (UUID chatId : segment.blocks().keySet()) {
+			chats.computeIfPresent(chatId, (key, blocks) -> {
+				List<Block> kept = new ArrayList<>(blocks);
+				kept.removeIf(block -> block.segment() == segment);
+				if (replacement != null) {
+					kept.addAll(replacement.blocks().getOrDefault(chatId, List.of()));
+				}
+				kept.sort(BLOCK_ORDER);
+				return kept.isEmpty() ? null : List.copyOf(kept);
+			});
+		}
+	}
+
+	private void load() {
+		try {
+			if (enabled) {
+				Files.createDirectories(directory);
+			} else if (!Files.isDirectory(directory)) {
+				return;
+			}
+
+			List<Long> committed = new ArrayList<>();
+			try (Stream<Path> files = Files.list(directory)) {
+				for (Path file : (Iterable<Path>) files::iterator) {
+					String name = file.getFileName().toString();
+					if (name.endsWith(ArchiveSegment.TEMP_SUFFIX)) {
+						Files.delete(file);
+					} else if (name.endsWith(ArchiveSegment.SEGMENT_SUFFIX)) {
+						long sequence = Long.parseLong(name.substring(0,
+								name.length() - ArchiveSegment.SEGMENT_SUFFIX.length()));
+						if (Files.exists(ArchiveSegment.file(directory, sequence, ArchiveSegment.INDEX_SUFFIX))) {
+							committed.add(sequence);
+						} else {
+							log.warn("Removing uncommitted archive segment {}", sequence);
+							Files.delete(file);
+						}
+					}
+				}
+			}
+			committed.sort(null);
+			List<ArchiveSegment> opened = new ArrayList<>();
+			Set<Long> replaced = new HashSet<>();
+			for (long sequence : committed) {
+				ArchiveSegment segment = ArchiveSegment.open(directory, sequence);
+				opened.add(segment);
+				replaced.add(segment.replaces());
+				nextSequence = sequence + 1;
+			}
+			for (ArchiveSegment segment : opened) {
+				if (replaced.contains(segment.sequence())) {
+					log.warn("Removing compacted archive segment {}", segment.sequence());
+					ArchiveSegment.delete(directory, segment.sequence());
+				} else {
+					publish(segment);
+				}
+			}
+			log.info("Loaded {} archive segments from {}", segments.size(), directory);
+		} catch (IOException exception) {
+			throw new IllegalStateException("Could not load the message archive from " + directory, exception);
+		}
+	}
+
+	private Position watermark(UUID chatId) {
+		List<Block> blocks = chats.get(chatId);
+		return blocks == null ? null : blocks.get(blocks.size() - 1).last();
+	}
+
+	private List<Message> read(Block block) {
+		blocksRead.increment();
+		return block.read();
+	}
+
+	private static int firstBlockAfter(List<Block> blocks, Position bound, LocalDateTime since) {
+		int low = 0;
+		int high = blocks.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			Position last = blocks.get(middle).last();
+			if (last.time().isBefore(since) || (bound != null && last.compareTo(bound) <= 0)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
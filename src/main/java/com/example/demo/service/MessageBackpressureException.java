@@ -0,0 +1,22 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when a message is not accepted because the write pipeline is overloaded.
+ *
+ * <p>The message was not written, so the client may send it again after a short delay. It is not a
+ * permission or validation error and must be reported as a temporary server condition.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see MessageBatchWriter
+ */
+public class MessageBackpressureException extends RuntimeException {
+	/**
+	 * Constructs the exception with the given detail message.
+	 *
+	 * @param message the detail message
+	 */
+	public MessageBackpressureException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,219 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.config.TaskExecutors;
+import com.example.demo.models.Message;
+import com.example.demo.repository.MessageRepository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class that groups message inserts into bulk writes.
+ *
+ * <p>When {@code chat.message.batch.enabled} is set, callers put messages into a bounded queue and wait
+ * until the batch containing their message has been acknowledged by MongoDB. A single flusher thread
+ * collects up to {@code chat.message.batch.max-size} messages or waits at most
+ * {@code chat.message.batch.window} after the first one, and writes them with one unordered bulk insert.
+ * A message that fails, for example on a duplicate ID, fails only its own caller. When the queue is full
+ * callers are rejected instead of piling up.</p>
+ *
+ * <p>{@code chat.message.batch.timeout} bounds the time a message waits in the queue. A message that
+ * times out is taken out of the queue and never written, so the caller may retry. Once its batch is being
+ * written the caller waits for the outcome, so a reported failure always means the message was not
+ * written.</p>
+ *
+ * <p>Batch size, queue depth and flush latency are exported as {@code message.batch.size},
+ * {@code message.batch.queue.depth} and {@code message.batch.flush}.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see Message
+ */
+@Slf4j
+@Service
+public class MessageBatchWriter implements DisposableBean {
+	private final MessageRepository messageRepository;
+	private final boolean enabled;
+	private final int maxSize;
+	private final Duration window;
+	private final Duration timeout;
+	private final BlockingQueue<Pending> queue;
+	private final DistributionSummary batchSize;
+	private final Timer flushTimer;
+	private final Thread flusher;
+	private volatile boolean running = true;
+
+	public MessageBatchWriter(MessageRepository messageRepository, MeterRegistry meterRegistry,
+			@Value("${chat.message.batch.enabled:false}") boolean enabled,
+			@Value("${chat.message.batch.max-size:256}") int maxSize,
+			@Value("${chat.message.batch.window:5ms}") Duration window,
+			@Value("${chat.message.batch.queue-capacity:10000}") int queueCapacity,
+			@Value("${chat.message.batch.timeout:5s}") Duration timeout,
+			@Value(TaskExecutors.VIRTUAL_THREADS_PROPERTY) boolean virtualThreads) {
+		this.messageRepository = messageRepository;
+		this.enabled = enabled;
+		this.maxSize = maxSize;
+		this.window = window;
+		this.timeout = timeout;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.batchSize = DistributionSummary.builder("message.batch.size")
+				.description("Number of messages written per bulk insert").publishPercentileHistogram()
+				.register(meterRegistry);
+		this.flushTimer = Timer.builder("message.batch.flush")
+				.description("Time to write one batch of messages").publishPercentileHistogram()
+				.register(meterRegistry);
+		Gauge.builder("message.batch.queue.depth", queue, BlockingQueue::size)
+				.description("Messages waiting to be written").register(meterRegistry);
+
+		this.flusher = (virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon())
+				.name("message-batch-writer").unstarted(this::run);
+		if (enabled) {
+			this.flusher.start();
+		}
+	}
+	/**
+	 * Checks if inserts are grouped into batches.
+	 *
+	 * @return true if batching is enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+	/**
+	 * Queues a message and waits until the batch containing it has been written.
+	 *
+	 * @param message the message to insert
+	 * @return the inserted message with its ID
+	 * @throws MessageBackpressureException if the queue is full or the message was not taken from it in time;
+	 *                                      the message is not written in both cases
+	 * @throws IllegalStateException        if the caller was interrupted while waiting
+	 * @throws DataAccessException          if the message could not be written
+	 */
+	public Message insert(Message message) {
+		Pending pending = new Pending(message, new CompletableFuture<>());
+		if (!running || !queue.offer(pending)) {
+			throw new MessageBackpressureException("Message queue is full");
+		}
+
+		try {
+			try {
+				return pending.future().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+			} catch (TimeoutException exception) {
+				if (queue.remove(pending)) {
+					throw new MessageBackpressureException("Message was not written in time");
+				}
+				return pending.future().get();
+			}
+		} catch (ExecutionException exception) {
+			if (exception.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw new IllegalStateException(exception.getCause());
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for message write");
+		}
+	}
+
+	@Override
+	public void destroy() throws InterruptedException {
+		running = false;
+		flusher.interrupt();
+		flusher.join(timeout.toMillis());
+	}
+	/**
+	 * Collects and writes batches until the writer is stopped, then writes what is left in the queue.
+	 */
+	private void run() {
+		List<Pending> batch = new ArrayList<>(maxSize);
+		while (running) {
+			try {
+				Pending first = queue.poll(1, TimeUnit.SECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				long deadline = System.nanoTime() + window.toNanos();
+				while (batch.size() < maxSize) {
+					if (queue.drainTo(batch, maxSize - batch.size()) > 0) {
+						continue;
+					}
+					long remaining = deadline - System.nanoTime();
+					Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+			} catch (InterruptedException exception) {
+				running = false;
+			}
+			flush(batch);
+		}
+
+		while (queue.drainTo(batch, maxSize) > 0) {
+			flush(batch);
+		}
+	}
+	/**
+	 * Writes a batch with one unordered bulk insert and completes every waiting caller with the outcome of
+	 * its own message.
+	 *
+	 * @param batch the batch, cleared afterwards
+	 */
+	private void flush(List<Pending> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		List<Message> messages = batch.stream().map(Pending::message).toList();
+		batchSize.record(batch.size());
+		Timer.Sample sample = Timer.start();
+		Map<Integer, DataAccessException> failures;
+		try {
+			failures = messageRepository.insertUnordered(messages);
+		} catch (RuntimeException exception) {
+			log.error(exception.getMessage(), exception);
+			failures = null;
+			batch.forEach(pending -> pending.future().completeExceptionally(exception));
+		}
+		sample.stop(flushTimer);
+
+		for (int i = 0; failures != null && i < batch.size(); i++) {
+			DataAccessException failure = failures.get(i);
+			if (failure == null) {
+				batch.get(i).future().complete(messages.get(i));
+			} else {
+				log.error(failure.getMessage(), failure);
+				batch.get(i).future().completeExceptionally(failure);
+			}
+		}
+		batch.clear();
+	}
+	/**
+	 * A queued message and the future completed once it has been written.
+	 *
+	 * @param message the message
+	 * @param future  the future of the inserted message
+	 */
+	private record Pending(Message message, CompletableFuture<Message> future) {
+	}
+}
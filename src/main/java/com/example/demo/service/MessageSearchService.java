@@ -0,0 +1,143 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bson.types.ObjectId;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.response.InboxChatResponse;
+import com.example.demo.dto.response.MessagePageResponse;
+import com.example.demo.models.Message;
+import com.example.demo.repository.MessageRepository;
+import com.example.demo.security.AuthenticatedUserId;
+
+import io.micrometer.core.annotation.Timed;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class for the text search over {@link Message}s.
+ *
+ * <p>Results are returned newest first and paged with the ID of the last message as cursor. Messages older
+ * than the retention of their chat are not found, as in the history, and neither are messages moved to the
+ * {@link MessageArchive}.</p>
+ *
+ * <p>The text index is prefixed with the chat, so every chat is searched with its own query. A search over
+ * all chats of a user covers only their {@value #MAX_SEARCH_CHATS} most recently active chats and merges the
+ * results by ID.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see MessageRepository#search
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Timed(value = "service.calls", histogram = true)
+public class MessageSearchService {
+	/**
+	 * The maximum number of chats a search over all chats of a user covers.
+	 */
+	static final int MAX_SEARCH_CHATS = 50;
+
+	private final ChatActivityService chatActivityService;
+	private final MessageRepository messageRepository;
+	private final ChatMembershipIndex membershipIndex;
+	private final ChatRetentionService chatRetentionService;
+	/**
+	 * Searches the messages of a chat, newest first.
+	 *
+	 * @param id     the ID of the chat
+	 * @param query  the words to search for; quoted phrases and negated words are supported
+	 * @param before the ID of the message to continue older results from, may be null
+	 * @param limit  the maximum number of messages, may be null
+	 * @param auth   the Authentication object representing the authenticated user
+	 * @return the MessagePageResponse with the matching messages newest first; {@code before} is the cursor
+	 *         of the next page
+	 * @throws IllegalArgumentException if the query is empty or the cursor is malformed
+	 * @throws IllegalStateException    if the chat does not exist or the user is not a member of the chat
+	 * @throws NullPointerException     if the user is not authenticated
+	 * @throws DataAccessException      if the search failed
+	 */
+	public MessagePageResponse search(String id, String query, String before, Integer limit, Authentication auth) {
+		UUID chatId = checkMember(id, AuthenticatedUserId.of(auth));
+		return search(List.of(chatId), query, before, limit);
+	}
+	/**
+	 * Searches the messages of the most recently active chats of the authenticated user, newest first.
+	 *
+	 * @param query  the words to search for; quoted phrases and negated words are supported
+	 * @param before the ID of the message to continue older results from, may be null
+	 * @param limit  the maximum number of messages, may be null
+	 * @param auth   the Authentication object representing the authenticated user
+	 * @return the MessagePageResponse with the matching messages newest first; {@code before} is the cursor
+	 *         of the next page
+	 * @throws IllegalArgumentException if the query is empty or the cursor is malformed
+	 * @throws NullPointerException     if the user is not authenticated
+	 * @throws DataAccessException      if the search failed
+	 */
+	public MessagePageResponse searchAll(String query, String before, Integer limit, Authentication auth) {
+		UUID userId = AuthenticatedUserId.of(auth);
+		if (userId == null) {
+			throw new NullPointerException("User must be authenticated");
+		}
+		return search(chatActivityService.findInbox(userId, null, MAX_SEARCH_CHATS).getChats().stream()
+				.map(InboxChatResponse::getId).toList(), query, before, limit);
+	}
+
+	private MessagePageResponse search(List<UUID> chatIds, String query, String before, Integer limit) {
+		if (query == null || query.isBlank()) {
+			throw new IllegalArgumentException("Search query must not be empty");
+		}
+		if (before != null && !ObjectId.isValid(before)) {
+			throw new IllegalArgumentException("Invalid cursor");
+		}
+		if (chatIds.isEmpty()) {
+			return new MessagePageResponse(new ArrayList<>(), null, null);
+		}
+		int size = limit == null || limit <= 0 ? ChatService.DEFAULT_PAGE_SIZE
+				: Math.min(limit, ChatService.MAX_PAGE_SIZE);
+		TextCriteria criteria = TextCriteria.forDefaultLanguage().matching(query);
+
+		ObjectId cursor = before == null ? null : new ObjectId(before);
+
+		List<Message> messages = new ArrayList<>();
+		try {
+			for (Map.Entry<UUID, LocalDateTime> since : chatRetentionService.cutoffs(chatIds).entrySet()) {
+				messages.addAll(messageRepository.search(since.getKey(), since.getValue(), cursor, criteria, size));
+			}
+		} catch (DataAccessException exception) {
+			log.error(exception.getMessage(), exception);
+			throw exception;
+		}
+		messages.sort(Comparator.comparing((Message message) -> new ObjectId(message.getId())).reversed());
+		if (messages.size() > size) {
+			messages = new ArrayList<>(messages.subList(0, size));
+		}
+
+		if (messages.isEmpty()) {
+			return new MessagePageResponse(messages, null, null);
+		}
+		return new MessagePageResponse(messages, messages.get(messages.size() - 1).getId(), null);
+	}
+
+	private UUID checkMember(String id, UUID userId) {
+		if (userId == null) {
+			throw new NullPointerException("User must be authenticated");
+		}
+		UUID chatId = UUID.fromString(id);
+		if (!membershipIndex.isMember(chatId, userId)) {
+			throw new IllegalStateException("User does not have access to this chat");
+		}
+		return chatId;
+	}
+}
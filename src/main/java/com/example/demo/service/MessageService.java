@@ -1,13 +1,22 @@
 package com.example.demo.service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 
 import com.example.demo.dto.request.MessageRequest;
+import com.example.demo.dto.response.MessageBatchItemResponse;
+import com.example.demo.dto.response.MessageEvent;
 import com.example.demo.models.Chat;
 import com.example.demo.models.Message;
 import com.example.demo.models.User;
@@ -15,12 +24,16 @@ import com.example.demo.models.role.Role;
 import com.example.demo.repository.ChatRepository;
 import com.example.demo.repository.MessageRepository;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.security.AuthenticatedUserId;
+
+import io.micrometer.core.annotation.Timed;
 
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Service class for managing messages.
+ * Every change written to the database is published as a {@link MessageEvent}.
  *
  * @author Andrey Sharipov
  * @version 1.0
@@ -28,34 +41,48 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 @Data
 @Slf4j
+@Timed(value = "service.calls", histogram = true)
 public class MessageService {
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
     private final ChatRepository chatRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChatMembershipIndex membershipIndex;
+    private final MessageBatchWriter batchWriter;
+    private final UnreadCounterService unreadCounterService;
+    private final ChatActivityService chatActivityService;
+    private final ChatRetentionService chatRetentionService;
+    @Value("${chat.message.batch.max-request-size:500}")
+    private int maxBatchSize;
     /**
      * Saves a new message.
      *
      * @param request         the request containing the message information
      * @param authentication  the authentication object
      * @return the saved message
-     * @throws IllegalArgumentException if the user is not a member of the chat
+     * @throws IllegalStateException        if the chat does not exist
+     * @throws IllegalArgumentException     if the user is not a member of the chat
+     * @throws MessageBackpressureException if the message queue is full or the write timed out
      * @throws NullPointerException     if the user is not authenticated
      */
     public Message save(MessageRequest request, Authentication authentication) {
         if (authentication.getPrincipal() != null) {
             User user = (User) authentication.getPrincipal();
-            Chat chat = chatRepository.findById(request.getChatId())
-                    .orElseThrow(() -> new IllegalStateException("Chat does not exist"));
             Message message = request.getMessage();
-            if (chat.getUsers().contains(user)) {
+            if (membershipIndex.isMember(request.getChatId(), user.getId())) {
+                message.setId(null);
                 message.setUserId(user.getId());
-                message.setChatId(chat.getId());
+                message.setChatId(request.getChatId());
                 message.setTime(LocalDateTime.now());
+                message.setExpireAt(chatRetentionService.expireAt(message.getChatId(), message.getTime()));
 
                 try {
-                    userRepository.save(user);
-                    chatRepository.save(chat);
-                    return messageRepository.save(message);
+                    Message saved = batchWriter.isEnabled() ? batchWriter.insert(message)
+                            : messageRepository.save(message);
+                    eventPublisher.publishEvent(new MessageEvent(MessageEvent.Type.CREATED, saved.getChatId(), saved));
+                    unreadCounterService.increment(saved.getChatId(), user.getId(), 1);
+                    chatActivityService.record(saved);
+                    return saved;
                 } catch (DataAccessException exception) {
                     log.error(exception.getMessage(), exception);
                     throw exception;
@@ -69,16 +96,111 @@ public class MessageService {
         }
     }
     /**
-     * Retrieves a message by its ID.
+     * Saves many messages, possibly for several chats, with one unordered bulk insert.
+     * Membership is checked once per distinct chat; rejected messages and messages that fail to insert
+     * do not fail the batch, and only inserted messages are published and counted.
+     *
+     * @param requests        the requests containing the messages
+     * @param authentication  the authentication object
+     * @return the result of every request, in request order
+     * @throws IllegalArgumentException if the batch is larger than the configured maximum
+     * @throws NullPointerException     if the user is not authenticated
+     * @throws DataAccessException      if the bulk write failed as a whole
+     */
+    public List<MessageBatchItemResponse> saveAll(List<MessageRequest> requests, Authentication authentication) {
+        UUID userId = AuthenticatedUserId.of(authentication);
+        if (userId == null) {
+            throw new NullPointerException("User must be authenticated");
+        }
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch must not contain more than " + maxBatchSize + " messages");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Map<UUID, Optional<String>> chatErrors = new HashMap<>();
+        List<MessageBatchItemResponse> results = new ArrayList<>(requests.size());
+        List<Message> messages = new ArrayList<>(requests.size());
+        List<Integer> positions = new ArrayList<>(requests.size());
+
+        for (MessageRequest request : requests) {
+            Optional<String> error;
+            if (request == null || request.getChatId() == null || request.getMessage() == null) {
+                error = Optional.of("Chat and message are required");
+            } else {
+                error = chatErrors.computeIfAbsent(request.getChatId(), chatId -> checkMember(chatId, userId));
+            }
+
+            if (error.isEmpty()) {
+                Message message = request.getMessage();
+                message.setId(null);
+                message.setUserId(userId);
+                message.setChatId(request.getChatId());
+                message.setTime(now);
+                message.setExpireAt(chatRetentionService.expireAt(message.getChatId(), now));
+                messages.add(message);
+                positions.add(results.size());
+                results.add(null);
+            } else {
+                results.add(new MessageBatchItemResponse(null, error.get()));
+            }
+        }
+
+        if (!messages.isEmpty()) {
+            try {
+                Map<Integer, DataAccessException> failures = messageRepository.insertUnordered(messages);
+                List<Message> saved = new ArrayList<>(messages.size());
+                Map<UUID, Long> perChat = new HashMap<>();
+                for (int i = 0; i < messages.size(); i++) {
+                    DataAccessException failure = failures.get(i);
+                    if (failure != null) {
+                        log.error(failure.getMessage(), failure);
+                        results.set(positions.get(i), new MessageBatchItemResponse(null, "Message was not saved"));
+                        continue;
+                    }
+                    Message message = messages.get(i);
+                    saved.add(message);
+                    results.set(positions.get(i), new MessageBatchItemResponse(message.getId(), null));
+                    eventPublisher.publishEvent(new MessageEvent(MessageEvent.Type.CREATED, message.getChatId(),
+                            message));
+                    perChat.merge(message.getChatId(), 1L, Long::sum);
+                }
+                perChat.forEach((chatId, count) -> unreadCounterService.increment(chatId, userId, count));
+                chatActivityService.recordAll(saved);
+            } catch (DataAccessException exception) {
+                log.error(exception.getMessage(), exception);
+                throw exception;
+            }
+        }
+
+        return results;
+    }
+    /**
+     * Checks if the user may post into the chat.
+     *
+     * @param chatId the ID of the chat
+     * @param userId the ID of the user
+     * @return empty if the user is a member, otherwise the reason why not
+     */
+    private Optional<String> checkMember(UUID chatId, UUID userId) {
+        try {
+            return membershipIndex.isMember(chatId, userId) ? Optional.empty()
+                    : Optional.of("User is not a member of the chat");
+        } catch (IllegalStateException exception) {
+            return Optional.of(exception.getMessage());
+        }
+    }
+    /**
+     * Retrieves a message by its ID. A message older than the retention of its chat is not found, even if the
+     * TTL index has not deleted it yet.
      *
      * @param id the ID of the message
      * @return the retrieved message
-     * @throws IllegalStateException if the message does not exist
+     * @throws IllegalStateException if the message or its chat does not exist
      * @throws DataAccessException  if there is an error accessing data
      */
     public Message findById(String id) {
         try {
             return messageRepository.findById(id)
+                    .filter(message -> !message.getTime().isBefore(chatRetentionService.cutoff(message.getChatId())))
                     .orElseThrow(() -> new IllegalStateException("Message does not exist"));
         } catch (DataAccessException exception) {
             log.error(exception.getMessage(), exception);
@@ -96,7 +218,7 @@ public class MessageService {
     public void update(MessageRequest request, Authentication authentication) {
         if (authentication.getPrincipal() != null) {
             User user = (User) authentication.getPrincipal();
-            Chat chat = chatRepository.findById(request.getChatId())
+            Chat chat = chatRepository.findWithUserRoleById(request.getChatId())
                     .orElseThrow(() -> new IllegalStateException("Chat does not exist"));
             Message message = messageRepository.findById(request.getMessage().getId())
                     .orElseThrow(() -> new IllegalStateException("Message does not exist"));
@@ -104,6 +226,8 @@ public class MessageService {
                 copyNotNullDetails(message, request.getMessage());
                 try {
                     messageRepository.save(message);
+                    eventPublisher.publishEvent(new MessageEvent(MessageEvent.Type.UPDATED, message.getChatId(), message));
+                    chatActivityService.edited(message);
                 } catch (DataAccessException exception) {
                     log.error(exception.getMessage(), exception);
                     throw exception;
@@ -126,7 +250,7 @@ public class MessageService {
     public void delete(MessageRequest request, Authentication authentication) {
         if (authentication.getPrincipal() != null) {
             User user = (User) authentication.getPrincipal();
-            Chat chat = chatRepository.findById(request.getChatId())
+            Chat chat = chatRepository.findWithUserRoleById(request.getChatId())
                     .orElseThrow(() -> new IllegalStateException("Chat does not exist"));
             Message message = messageRepository.findById(request.getMessage().getId())
                     .orElseThrow(() -> new IllegalStateException("Message does not exist"));
@@ -138,6 +262,9 @@ public class MessageService {
                 if (message.getChatId().equals(chat.getId())) {
                     try {
                         messageRepository.delete(message);
+                        eventPublisher.publishEvent(new MessageEvent(MessageEvent.Type.DELETED, message.getChatId(),
+                                message));
+                        chatActivityService.deleted(message);
 
                     } catch (DataAccessException exception) {
                         log.error(exception.getMessage(), exception);
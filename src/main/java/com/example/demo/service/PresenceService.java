@@ -0,0 +1,156 @@
+package com.example.demo.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.response.PresenceResponse;
+import com.example.demo.models.Chat;
+import com.example.demo.models.User;
+import com.example.demo.security.AuthenticatedUserId;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Service class for online status and typing indicators.
+ *
+ * <p>The state is kept only in memory and never touches a database: a {@link User} is online for
+ * {@code chat.presence.online-ttl} after its last heartbeat, and typing in a {@link Chat} for
+ * {@code chat.presence.typing-ttl} after its last typing notification. Both are {@link ExpiringKeys},
+ * advanced once per {@code chat.presence.tick}. Chat membership is resolved with the
+ * {@link ChatMembershipIndex}.</p>
+ *
+ * <p>An online user costs about 150 bytes and a user typing in a chat about 200 bytes, including the map
+ * nodes, the key and the timer wheel entry. The number of entries is capped by
+ * {@code chat.presence.max-online-users} and {@code chat.presence.max-typing}; with the defaults the state
+ * stays below 40 MB. The sizes are exported as {@code chat.presence.online} and {@code chat.presence.typing}.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see ExpiringKeys
+ */
+@Service
+public class PresenceService {
+	private final ChatMembershipIndex membershipIndex;
+	private final Clock clock;
+	private final long tickMillis;
+	private final ExpiringKeys<UUID> online;
+	private final ExpiringKeys<Typing> typing;
+
+	@Autowired
+	public PresenceService(ChatMembershipIndex membershipIndex, MeterRegistry meterRegistry,
+			@Value("${chat.presence.online-ttl:30s}") Duration onlineTtl,
+			@Value("${chat.presence.typing-ttl:5s}") Duration typingTtl,
+			@Value("${chat.presence.tick:1s}") Duration tick,
+			@Value("${chat.presence.max-online-users:100000}") int maxOnline,
+			@Value("${chat.presence.max-typing:100000}") int maxTyping) {
+		this(membershipIndex, meterRegistry, onlineTtl, typingTtl, tick, maxOnline, maxTyping, Clock.systemUTC());
+	}
+
+	PresenceService(ChatMembershipIndex membershipIndex, MeterRegistry meterRegistry, Duration onlineTtl,
+			Duration typingTtl, Duration tick, int maxOnline, int maxTyping, Clock clock) {
+		this.membershipIndex = membershipIndex;
+		this.clock = clock;
+		this.tickMillis = tick.toMillis();
+		long now = now();
+		this.online = new ExpiringKeys<>(ticks(onlineTtl), maxOnline, now);
+		this.typing = new ExpiringKeys<>(ticks(typingTtl), maxTyping, now);
+		Gauge.builder("chat.presence.online", online, ExpiringKeys::size)
+				.description("Users with a recent heartbeat").register(meterRegistry);
+		Gauge.builder("chat.presence.typing", typing, ExpiringKeys::size)
+				.description("Users typing in a chat").register(meterRegistry);
+	}
+	/**
+	 * Marks the authenticated user as online.
+	 *
+	 * @param auth the Authentication object representing the authenticated user
+	 * @throws IllegalStateException if too many users are online
+	 * @throws NullPointerException  if the user is not authenticated
+	 */
+	public void heartbeat(Authentication auth) {
+		UUID userId = AuthenticatedUserId.of(auth);
+		if (userId == null) {
+			throw new NullPointerException("User must be authenticated");
+		}
+		if (!online.touch(userId, now())) {
+			throw new IllegalStateException("Too many users online");
+		}
+	}
+	/**
+	 * Marks the authenticated user as online and typing in a chat.
+	 *
+	 * @param id   the ID of the chat
+	 * @param auth the Authentication object representing the authenticated user
+	 * @throws IllegalStateException if the user is not a member of the chat or too many users are typing
+	 * @throws NullPointerException  if the user is not authenticated
+	 * @throws DataAccessException   if loading the members of the chat failed
+	 */
+	public void typing(String id, Authentication auth) {
+		UUID userId = AuthenticatedUserId.of(auth);
+		UUID chatId = checkMember(id, userId);
+		heartbeat(auth);
+		if (!typing.touch(new Typing(chatId, userId), now())) {
+			throw new IllegalStateException("Too many users typing");
+		}
+	}
+	/**
+	 * Returns the members of a chat that are online and typing.
+	 *
+	 * @param id   the ID of the chat
+	 * @param auth the Authentication object representing the authenticated user
+	 * @return the online and typing members of the chat
+	 * @throws IllegalStateException if the user is not a member of the chat
+	 * @throws NullPointerException  if the user is not authenticated
+	 * @throws DataAccessException   if loading the members of the chat failed
+	 */
+	public PresenceResponse findPresence(String id, Authentication auth) {
+		UUID chatId = checkMember(id, AuthenticatedUserId.of(auth));
+		long now = now();
+		List<UUID> members = membershipIndex.members(chatId);
+		return new PresenceResponse(
+				members.stream().filter(memberId -> online.contains(memberId, now)).toList(),
+				members.stream().filter(memberId -> typing.contains(new Typing(chatId, memberId), now)).toList());
+	}
+	/**
+	 * Removes expired entries. Lookups ignore expired entries even if this has not run yet.
+	 */
+	@Scheduled(fixedRateString = "${chat.presence.tick:1s}")
+	public synchronized void expire() {
+		long now = now();
+		online.advance(now);
+		typing.advance(now);
+	}
+
+	private UUID checkMember(String id, UUID userId) {
+		if (userId == null) {
+			throw new NullPointerException("User must be authenticated");
+		}
+		UUID chatId = UUID.fromString(id);
+		if (!membershipIndex.isMember(chatId, userId)) {
+			throw new IllegalStateException("User does not have access to this chat");
+		}
+		return chatId;
+	}
+
+	private long now() {
+		return clock.millis() / tickMillis;
+	}
+
+	private long ticks(Duration ttl) {
+		return Math.max(1, ttl.toMillis() / tickMillis);
+	}
+	/**
+	 * The key of a user typing in a chat.
+	 */
+	private record Typing(UUID chatId, UUID userId) {
+	}
+}
@@ -0,0 +1,301 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+
+import org.bson.types.ObjectId;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.request.MessageRequest;
+import com.example.demo.dto.response.MessageEvent;
+import com.example.demo.dto.response.MessagePageResponse;
+import com.example.demo.models.Chat;
+import com.example.demo.models.Message;
+import com.example.demo.models.role.Role;
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.repository.ReactiveMessageRepository;
+import com.example.demo.security.AuthenticatedUserId;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking counterpart of {@link MessageService} and the history read of {@link ChatService}.
+ *
+ * <p>Messages are read and written through {@link ReactiveMessageRepository}. The remaining blocking
+ * calls, membership checks that miss the {@link ChatMembershipIndex} and chat lookups in Postgres,
+ * run on the bounded elastic scheduler. Both password and cookie authentication are accepted.
+ * The service is only created when {@code chat.reactive.enabled} is set.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "chat.reactive.enabled", havingValue = "true")
+public class ReactiveMessageService {
+	private final ReactiveMessageRepository messageRepository;
+	private final ChatRepository chatRepository;
+	private final ChatMembershipIndex membershipIndex;
+	private final ApplicationEventPublisher eventPublisher;
+	private final UnreadCounterService unreadCounterService;
+	private final ChatActivityService chatActivityService;
+	private final ChatRetentionService chatRetentionService;
+	private final MessageArchive messageArchive;
+	/**
+	 * Saves a new message.
+	 *
+	 * @param request        the request containing the message information
+	 * @param authentication the authentication object
+	 * @return the saved message; fails with {@link IllegalStateException} if the chat does not exist,
+	 *         {@link IllegalArgumentException} if the user is not a member of the chat and
+	 *         {@link NullPointerException} if the user is not authenticated
+	 */
+	public Mono<Message> save(MessageRequest request, Authentication authentication) {
+		return userId(authentication)
+				.flatMap(userId -> blocking(() -> {
+					if (!membershipIndex.isMember(request.getChatId(), userId)) {
+						throw new IllegalArgumentException("User is not a member of the chat");
+					}
+					Message message = request.getMessage();
+					message.setUserId(userId);
+					message.setChatId(request.getChatId());
+					message.setTime(LocalDateTime.now());
+					message.setExpireAt(chatRetentionService.expireAt(message.getChatId(), message.getTime()));
+					return message;
+				}))
+				.flatMap(messageRepository::insert)
+				.doOnNext(saved -> eventPublisher.publishEvent(
+						new MessageEvent(MessageEvent.Type.CREATED, saved.getChatId(), saved)))
+				.flatMap(saved -> blocking(() -> {
+					unreadCounterService.increment(saved.getChatId(), saved.getUserId(), 1);
+					chatActivityService.record(saved);
+					return saved;
+				}));
+	}
+	/**
+	 * Retrieves a message by its ID. A message older than the retention of its chat is not found, even if the
+	 * TTL index has not deleted it yet.
+	 *
+	 * @param id the ID of the message
+	 * @return the message; fails with {@link IllegalStateException} if the message does not exist
+	 */
+	public Mono<Message> findById(String id) {
+		return messageRepository.findById(id)
+				.filterWhen(message -> blocking(() -> chatRetentionService.cutoff(message.getChatId()))
+						.map(cutoff -> !message.getTime().isBefore(cutoff)))
+				.switchIfEmpty(Mono.error(() -> new IllegalStateException("Message does not exist")));
+	}
+	/**
+	 * Retrieves a message by its ID for a write, regardless of the retention of its chat.
+	 *
+	 * @param id the ID of the message
+	 * @return the message; fails with {@link IllegalStateException} if the message does not exist
+	 */
+	private Mono<Message> find(String id) {
+		return messageRepository.findById(id)
+				.switchIfEmpty(Mono.error(() -> new IllegalStateException("Message does not exist")));
+	}
+	/**
+	 * Updates an existing message of the authenticated user.
+	 *
+	 * @param request        the request containing the updated message
+	 * @param authentication the authentication object
+	 * @return completes when the message is saved; fails with {@link IllegalArgumentException} if the user
+	 *         is not the author of the message
+	 */
+	public Mono<Void> update(MessageRequest request, Authentication authentication) {
+		return userId(authentication)
+				.flatMap(userId -> find(request.getMessage().getId())
+						.flatMap(message -> {
+							if (!message.getUserId().equals(userId) || !message.getChatId().equals(request.getChatId())) {
+								return Mono.error(new IllegalArgumentException("User is not a author of the message"));
+							}
+							String context = request.getMessage().getContext();
+							if (context != null && !context.isEmpty()) {
+								message.setContext(context);
+							}
+							return messageRepository.save(message);
+						}))
+				.doOnNext(message -> eventPublisher.publishEvent(
+						new MessageEvent(MessageEvent.Type.UPDATED, message.getChatId(), message)))
+				.flatMap(message -> blocking(() -> {
+					chatActivityService.edited(message);
+					return message;
+				}))
+				.then();
+	}
+	/**
+	 * Deletes a message. The user must be its author and an admin or moderator of the chat.
+	 *
+	 * @param request        the request containing the message to delete
+	 * @param authentication the authentication object
+	 * @return completes when the message is deleted; fails with {@link IllegalArgumentException} if the user
+	 *         is not allowed to delete the message
+	 */
+	public Mono<Void> delete(MessageRequest request, Authentication authentication) {
+		return userId(authentication)
+				.flatMap(userId -> Mono.zip(chat(request.getChatId()), find(request.getMessage().getId()))
+						.flatMap(tuple -> {
+							Chat chat = tuple.getT1();
+							Message message = tuple.getT2();
+							boolean allowed = chat.getUserRole().stream()
+									.filter(role -> role.getUserId().equals(userId))
+									.anyMatch(role -> role.getRole().equals(Role.ROLE_ADMIN)
+											|| role.getRole().equals(Role.ROLE_MODERATOR))
+									&& message.getUserId().equals(userId);
+							if (!allowed) {
+								return Mono.error(new IllegalArgumentException("User is not a author of the message"));
+							}
+							if (!message.getChatId().equals(chat.getId())) {
+								return Mono.empty();
+							}
+							return messageRepository.delete(message).thenReturn(message);
+						}))
+				.doOnNext(message -> eventPublisher.publishEvent(
+						new MessageEvent(MessageEvent.Type.DELETED, message.getChatId(), message)))
+				.flatMap(message -> blocking(() -> {
+					chatActivityService.deleted(message);
+					return message;
+				}))
+				.then();
+	}
+	/**
+	 * Retrieves a page of chat history using keyset pagination across MongoDB and the {@link MessageArchive},
+	 * like {@link ChatService#findMessages}.
+	 *
+	 * @param id     the ID of the chat
+	 * @param before the ID of the message to read older messages from, may be null
+	 * @param after  the ID of the message to read newer messages from, may be null
+	 * @param limit  the maximum number of messages, may be null
+	 * @return the page; fails with {@link IllegalStateException} if the chat or the cursor message does not
+	 *         exist and {@link IllegalArgumentException} if the cursors are invalid
+	 */
+	public Mono<MessagePageResponse> findMessages(String id, String before, String after, Integer limit) {
+		if (before != null && after != null) {
+			return Mono.error(new IllegalArgumentException("Only one of before and after may be set"));
+		}
+		UUID chatId;
+		try {
+			chatId = UUID.fromString(id);
+		} catch (IllegalArgumentException exception) {
+			return Mono.error(exception);
+		}
+		PageRequest page = PageRequest.of(0, limit == null || limit <= 0 ? ChatService.DEFAULT_PAGE_SIZE
+				: Math.min(limit, ChatService.MAX_PAGE_SIZE));
+
+		int size = page.getPageSize();
+
+		return blocking(() -> chatRetentionService.cutoff(chatId))
+				.flatMap(since -> {
+					LocalDateTime hotSince = messageArchive.hotSince(chatId, since);
+					if (after != null) {
+						return cursor(chatId, after).flatMap(cursor -> {
+							if (!messageArchive.isArchived(chatId, cursor)) {
+								return hot(chatId, messageRepository.findPageAfter(chatId, hotSince, cursor.getTime(),
+										new ObjectId(cursor.getId()), page));
+							}
+							return blocking(() -> messageArchive.findAfter(chatId, since, cursor, size))
+									.flatMap(archived -> {
+										if (archived.size() == size) {
+											return Mono.just(archived);
+										}
+										Message last = archived.isEmpty() ? cursor : archived.get(archived.size() - 1);
+										return hot(chatId, messageRepository.findPageAfter(chatId, hotSince,
+												last.getTime(), new ObjectId(last.getId()),
+												PageRequest.of(0, size - archived.size())))
+												.map(newer -> concat(archived, newer));
+									});
+						});
+					}
+					Mono<Optional<Message>> cursor = before == null ? Mono.just(Optional.empty())
+							: cursor(chatId, before).map(Optional::of);
+					return cursor.flatMap(optional -> {
+						Message bound = optional.filter(message -> messageArchive.isArchived(chatId, message))
+								.orElse(null);
+						Mono<List<Message>> newestFirst = bound != null ? Mono.just(List.of())
+								: hot(chatId, optional.map(message -> messageRepository.findPageBefore(chatId, hotSince,
+										message.getTime(), new ObjectId(message.getId()), page))
+										.orElseGet(() -> messageRepository.findLatest(chatId, hotSince, page)));
+						return newestFirst.flatMap(newer -> newer.size() == size ? Mono.just(newer)
+								: blocking(() -> messageArchive.findBefore(chatId, since, bound, size - newer.size()))
+										.map(older -> concat(newer, older)))
+								.map(list -> list.reversed());
+					});
+				})
+				.map(list -> list.isEmpty() ? new MessagePageResponse(list, null, null)
+						: new MessagePageResponse(list, list.get(0).getId(), list.get(list.size() - 1).getId()));
+	}
+	/**
+	 * Loads the message a history cursor points to.
+	 *
+	 * @param chatId    the ID of the chat the cursor must belong to
+	 * @param messageId the ID of the cursor message
+	 * @return the cursor message
+	 */
+	private Mono<Message> cursor(UUID chatId, String messageId) {
+		if (!ObjectId.isValid(messageId)) {
+			return Mono.error(new IllegalArgumentException("Invalid cursor"));
+		}
+		return messageRepository.findById(messageId)
+				.filter(message -> chatId.equals(message.getChatId()))
+				.switchIfEmpty(blocking(() -> messageArchive.find(chatId, messageId)))
+				.switchIfEmpty(Mono.error(() -> new IllegalStateException("Message does not exist in this chat")));
+	}
+	/**
+	 * Collects a page read from MongoDB, dropping the messages the archive already serves.
+	 *
+	 * @param chatId   the ID of the chat
+	 * @param messages the page read from MongoDB
+	 * @return the messages not yet archived
+	 */
+	private Mono<List<Message>> hot(UUID chatId, Flux<Message> messages) {
+		return messages.filter(message -> !messageArchive.isArchived(chatId, message)).collectList();
+	}
+
+	private static List<Message> concat(List<Message> first, List<Message> second) {
+		return Stream.concat(first.stream(), second.stream()).toList();
+	}
+	/**
+	 * Loads a chat with its roles from Postgres without blocking the caller. The roles are fetched eagerly,
+	 * because they are checked on another thread after the session is closed.
+	 *
+	 * @param chatId the ID of the chat
+	 * @return the chat
+	 */
+	private Mono<Chat> chat(UUID chatId) {
+		return blocking(() -> chatRepository.findWithUserRoleById(chatId)
+				.orElseThrow(() -> new IllegalStateException("Chat does not exist")));
+	}
+	/**
+	 * Resolves the ID of the authenticated user.
+	 *
+	 * @param authentication the authentication object
+	 * @return the user ID
+	 */
+	private static Mono<UUID> userId(Authentication authentication) {
+		UUID userId = AuthenticatedUserId.of(authentication);
+		return userId == null ? Mono.error(new NullPointerException("User must be authenticated"))
+				: Mono.just(userId);
+	}
+	/**
+	 * Runs a blocking call on the bounded elastic scheduler.
+	 *
+	 * @param call the blocking call
+	 * @param <T>  the result type
+	 * @return the result
+	 */
+	private static <T> Mono<T> blocking(Callable<T> call) {
+		return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+	}
+}
@@ -0,0 +1,157 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.models.ReadCursor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class for read receipts.
+ *
+ * <p>Cursor updates are not written immediately. For every (chat, user) pair only the highest pending
+ * message ID is kept in memory, and all pending cursors are written with one unordered bulk of
+ * {@code $max} upserts every {@code chat.read-cursor.flush-interval}. A client that moves its cursor
+ * many times between two flushes therefore costs at most one write. Reads merge the pending cursors
+ * with the stored ones, so they never go backwards.</p>
+ *
+ * <p>The pending cursors of a chat are only changed inside {@code compute} on the pending map, so a flush
+ * that drains and removes the cursors of a chat never loses an update that races with it.</p>
+ *
+ * <p>The number of accepted updates and of written cursors are exported as
+ * {@code chat.read.cursor.updates} and {@code chat.read.cursor.writes}.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see ReadCursor
+ */
+@Slf4j
+@Service
+public class ReadCursorService implements DisposableBean {
+	private final MongoTemplate mongoTemplate;
+	private final Map<UUID, Map<UUID, String>> pending = new ConcurrentHashMap<>();
+	private final Counter updates;
+	private final Counter writes;
+
+	public ReadCursorService(MongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+		this.mongoTemplate = mongoTemplate;
+		this.updates = Counter.builder("chat.read.cursor.updates").description("Accepted read cursor updates")
+				.register(meterRegistry);
+		this.writes = Counter.builder("chat.read.cursor.writes").description("Read cursors written to the database")
+				.register(meterRegistry);
+	}
+	/**
+	 * Moves the cursor of a user forward. The change is written on the next flush.
+	 *
+	 * @param chatId    the ID of the chat
+	 * @param userId    the ID of the user
+	 * @param messageId the ID of the newest message the user has seen, as lowercase hex
+	 */
+	public void update(UUID chatId, UUID userId, String messageId) {
+		updates.increment();
+		pending.compute(chatId, (key, chatPending) -> {
+			Map<UUID, String> cursors = chatPending == null ? new ConcurrentHashMap<>() : chatPending;
+			cursors.merge(userId, messageId, ReadCursorService::max);
+			return cursors;
+		});
+	}
+	/**
+	 * Returns the cursors of all members of a chat that have one.
+	 *
+	 * @param chatId the ID of the chat
+	 * @return the ID of the newest seen message by user ID
+	 * @throws DataAccessException if there is an error accessing data
+	 */
+	public Map<UUID, String> findAll(UUID chatId) {
+		Map<UUID, String> cursors = new HashMap<>(read(chatId));
+		Map<UUID, String> chatPending = pending.get(chatId);
+		if (chatPending != null) {
+			chatPending.forEach((userId, messageId) -> cursors.merge(userId, messageId, ReadCursorService::max));
+		}
+		return cursors;
+	}
+	/**
+	 * Writes all pending cursors. Cursors updated after their chat was drained stay pending.
+	 */
+	@Scheduled(fixedDelayString = "${chat.read-cursor.flush-interval:1s}")
+	public void flush() {
+		List<ReadCursor> batch = new ArrayList<>();
+		for (UUID chatId : pending.keySet()) {
+			pending.computeIfPresent(chatId, (key, chatPending) -> {
+				chatPending.forEach((userId, messageId) -> {
+					ReadCursor cursor = new ReadCursor();
+					cursor.setId(ReadCursor.id(userId, chatId));
+					cursor.setUserId(userId);
+					cursor.setChatId(chatId);
+					cursor.setMessageId(messageId);
+					batch.add(cursor);
+				});
+				return null;
+			});
+		}
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		try {
+			write(batch);
+			writes.increment(batch.size());
+		} catch (DataAccessException exception) {
+			log.error(exception.getMessage(), exception);
+			batch.forEach(cursor -> update(cursor.getChatId(), cursor.getUserId(), cursor.getMessageId()));
+		}
+	}
+
+	@Override
+	public void destroy() {
+		flush();
+	}
+	/**
+	 * Writes cursors, keeping the stored value where it is already further ahead.
+	 *
+	 * @param cursors the cursors to write
+	 */
+	protected void write(List<ReadCursor> cursors) {
+		BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ReadCursor.class);
+		for (ReadCursor cursor : cursors) {
+			bulk.upsert(Query.query(Criteria.where("_id").is(cursor.getId())), new Update()
+					.setOnInsert("userId", cursor.getUserId())
+					.setOnInsert("chatId", cursor.getChatId())
+					.max("messageId", cursor.getMessageId()));
+		}
+		bulk.execute();
+	}
+	/**
+	 * Reads the stored cursors of a chat.
+	 *
+	 * @param chatId the ID of the chat
+	 * @return the ID of the newest seen message by user ID
+	 */
+	protected Map<UUID, String> read(UUID chatId) {
+		Map<UUID, String> cursors = new HashMap<>();
+		mongoTemplate.find(Query.query(Criteria.where("chatId").is(chatId)), ReadCursor.class)
+				.forEach(cursor -> cursors.put(cursor.getUserId(), cursor.getMessageId()));
+		return cursors;
+	}
+
+	private static String max(String first, String second) {
+		return first.compareTo(second) >= 0 ? first : second;
+	}
+}
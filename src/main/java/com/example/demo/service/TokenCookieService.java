@@ -13,6 +13,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Service;
 
 import com.example.demo.models.Token;
+import com.example.demo.models.User;
 import com.nimbusds.jose.EncryptionMethod;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWEAlgorithm;
@@ -47,6 +48,7 @@ public class TokenCookieService {
 	private EncryptionMethod encryptionMethod = EncryptionMethod.A128CBC_HS256;
 	/**
 	 * Generates a new token based on the authentication information.
+	 * If the principal is a {@link User}, the subject of the token is the user ID.
 	 *
 	 * @param authentication the authentication object
 	 * @return the generated token
@@ -54,7 +56,8 @@ public class TokenCookieService {
 	public Token token(Authentication authentication) {
 		var now = Instant.now();
 		return new Token(UUID.randomUUID(), 
-				authentication.getName(), 
+				authentication.getPrincipal() instanceof User user && user.getId() != null ? user.getId().toString()
+						: authentication.getName(),
 				authentication.getAuthorities().stream()
 				.map(GrantedAuthority::getAuthority).toList(),
 				now, now.plus(tokenDuration));
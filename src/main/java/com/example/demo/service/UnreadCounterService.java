@@ -0,0 +1,111 @@
+package com.example.demo.service;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.models.UnreadCounters;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class for the per-user, per-chat unread message counters.
+ *
+ * <p>Counters are stored in {@link UnreadCounters} documents. A new message increments the counter of
+ * every other member of the chat with one unordered bulk of upserts; marking a chat as read removes its
+ * counter. Counters are a derived view: failures are logged and do not fail the message write.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see UnreadCounters
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UnreadCounterService {
+	private static final String COUNTS = "counts.";
+
+	private final MongoTemplate mongoTemplate;
+	private final ChatMembershipIndex membershipIndex;
+	/**
+	 * Counts new messages as unread for every member of the chat except the sender.
+	 *
+	 * @param chatId   the ID of the chat
+	 * @param senderId the ID of the user who sent the messages
+	 * @param messages the number of new messages
+	 */
+	public void increment(UUID chatId, UUID senderId, long messages) {
+		try {
+			Update update = new Update().inc(COUNTS + chatId, messages);
+			BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UnreadCounters.class);
+			int updates = 0;
+			for (UUID memberId : membershipIndex.members(chatId)) {
+				if (!memberId.equals(senderId)) {
+					bulk.upsert(byId(memberId), update);
+					updates++;
+				}
+			}
+			if (updates > 0) {
+				bulk.execute();
+			}
+		} catch (DataAccessException | IllegalStateException exception) {
+			log.error(exception.getMessage(), exception);
+		}
+	}
+	/**
+	 * Marks all messages of a chat as read for a user.
+	 *
+	 * @param chatId the ID of the chat
+	 * @param userId the ID of the user
+	 * @throws DataAccessException if there is an error accessing data
+	 */
+	public void markRead(UUID chatId, UUID userId) {
+		mongoTemplate.updateFirst(byId(userId), new Update().unset(COUNTS + chatId), UnreadCounters.class);
+	}
+	/**
+	 * Returns all unread counters of a user.
+	 *
+	 * @param userId the ID of the user
+	 * @return the number of unread messages by chat ID; chats without unread messages are absent
+	 * @throws DataAccessException if there is an error accessing data
+	 */
+	public Map<UUID, Long> findAll(UUID userId) {
+		UnreadCounters counters = mongoTemplate.findById(userId.toString(), UnreadCounters.class);
+		Map<UUID, Long> counts = new LinkedHashMap<>();
+		if (counters != null) {
+			counters.getCounts().forEach((chatId, count) -> counts.put(UUID.fromString(chatId), count));
+		}
+		return counts;
+	}
+	/**
+	 * Removes the counters of a chat for the given users, after they left the chat or it was deleted.
+	 *
+	 * @param chatId  the ID of the chat
+	 * @param userIds the IDs of the users
+	 */
+	public void remove(UUID chatId, Collection<UUID> userIds) {
+		if (userIds.isEmpty()) {
+			return;
+		}
+		try {
+			mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(userIds.stream().map(UUID::toString).toList())),
+					new Update().unset(COUNTS + chatId), UnreadCounters.class);
+		} catch (DataAccessException exception) {
+			log.error(exception.getMessage(), exception);
+		}
+	}
+
+	private static Query byId(UUID userId) {
+		return Query.query(Criteria.where("_id").is(userId.toString()));
+	}
+}
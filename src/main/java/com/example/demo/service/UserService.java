@@ -9,8 +9,11 @@ import org.springframework.stereotype.Service;
 
 import com.example.demo.models.User;
 import com.example.demo.models.role.Role;
+import com.example.demo.repository.ChatRepository;
 import com.example.demo.repository.UserRepository;
 
+import io.micrometer.core.annotation.Timed;
+
 import lombok.Data;
 import lombok.extern.slf4j.*;
 
@@ -25,9 +28,12 @@ import lombok.extern.slf4j.*;
 @Service
 @Slf4j
 @Data
+@Timed(value = "service.calls", histogram = true)
 public class UserService {
     private final UserRepository repository;
     private final PasswordEncoder passwordEncoder;
+    private final ChatRepository chatRepository;
+    private final EntityVersions entityVersions;
     /**
      * Saves a new user to the database.
      *
@@ -82,6 +88,7 @@ public class UserService {
 
             try {
                 repository.save(user);
+                changed(user);
             } catch (DataAccessException exception) {
                 log.error(exception.getMessage(), exception);
                 throw exception;
@@ -99,11 +106,22 @@ public class UserService {
     public void delete(User user) {
         try {
             repository.delete(user);
+            changed(user);
         } catch (DataAccessException exception) {
             log.error(exception.getMessage(), exception);
             throw exception;
         }
     }
+    /**
+     * Drops the versions of a user and of the chats listing the user as a member.
+     *
+     * @param user the changed user
+     */
+    private void changed(User user) {
+        entityVersions.changed(EntityVersions.Kind.USER, user.getId());
+        chatRepository.findIdsByUserId(user.getId())
+                .forEach(chatId -> entityVersions.changed(EntityVersions.Kind.CHAT, chatId));
+    }
     /**
      * Copies non-null details from the updated user to the existing user.
      *
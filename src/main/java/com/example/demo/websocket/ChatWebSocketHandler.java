@@ -0,0 +1,282 @@
+package com.example.demo.websocket;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import com.example.demo.config.TaskExecutors;
+import com.example.demo.dto.response.MessageEvent;
+import com.example.demo.service.ChatMembershipEvent;
+import com.example.demo.service.ChatMembershipIndex;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * WebSocket handler that pushes {@link MessageEvent} to the members of a chat.
+ *
+ * <p>Each event is serialized once and the same frame is sent to every subscribed session.
+ * Sessions are wrapped in a {@link ConcurrentWebSocketSessionDecorator} and every send runs on
+ * a separate executor task, so the publishing thread never writes. While a send to a session is in
+ * progress, further frames for it are only buffered, so a slow session holds at most one thread of the pool
+ * and is closed once its buffer is exceeded. Writes are blocking, so the platform pool is sized by
+ * {@code chat.websocket.send-threads}, and a session whose send has taken longer than
+ * {@value #SEND_TIME_LIMIT} ms is closed by the next event for it, which releases its thread. A delivery the
+ * executor rejects is counted as {@code chat.websocket.deliveries.rejected} and closes the session, so the
+ * client reconnects instead of silently missing the event.</p>
+ *
+ * <p>A session starts with the chats its user was a member of at the handshake. Subscriptions follow
+ * {@link ChatMembershipEvent}s: members added to a chat are subscribed, removed members and the members of
+ * a deleted chat are unsubscribed. Every delivery is also checked against the {@link ChatMembershipIndex},
+ * so an event never reaches a session whose user is no longer a member, even if it races with a
+ * membership change.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see ChatWebSocketHandshakeInterceptor
+ * @see MessageEvent
+ * @see ChatMembershipEvent
+ */
+@Slf4j
+@Component
+public class ChatWebSocketHandler extends TextWebSocketHandler implements DisposableBean {
+	/**
+	 * The time in milliseconds a single send may take before the session is closed.
+	 */
+	static final int SEND_TIME_LIMIT = 10_000;
+	/**
+	 * The number of bytes buffered per session before the session is closed.
+	 */
+	static final int BUFFER_SIZE_LIMIT = 512 * 1024;
+
+	/**
+	 * The number of deliveries queued on the platform pool before further deliveries are rejected.
+	 */
+	static final int QUEUE_CAPACITY = 10_000;
+
+	private final ObjectMapper objectMapper;
+	private final ChatMembershipIndex membershipIndex;
+	private final AsyncTaskExecutor executor;
+	private final Counter rejected;
+	private final Map<UUID, Set<WebSocketSession>> subscribers = new ConcurrentHashMap<>();
+	private final Map<UUID, Set<WebSocketSession>> userSessions = new ConcurrentHashMap<>();
+	private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+	public ChatWebSocketHandler(ObjectMapper objectMapper, ChatMembershipIndex membershipIndex,
+			MeterRegistry meterRegistry, @Value("${chat.websocket.send-threads:64}") int sendThreads,
+			@Value(TaskExecutors.VIRTUAL_THREADS_PROPERTY) boolean virtualThreads) {
+		this.objectMapper = objectMapper;
+		this.membershipIndex = membershipIndex;
+		this.executor = TaskExecutors.create("chat-event-", sendThreads, QUEUE_CAPACITY, virtualThreads);
+		this.rejected = Counter.builder("chat.websocket.deliveries.rejected")
+				.description("WebSocket event deliveries rejected by the send executor").register(meterRegistry);
+	}
+
+	@Override
+	public void destroy() {
+		TaskExecutors.shutdown(executor);
+	}
+
+	@Override
+	public void afterConnectionEstablished(WebSocketSession session) {
+		WebSocketSession decorated = new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT,
+				BUFFER_SIZE_LIMIT);
+		sessions.put(session.getId(), decorated);
+		UUID userId = userId(session);
+		if (userId != null) {
+			userSessions.computeIfAbsent(userId, key -> ConcurrentHashMap.newKeySet()).add(decorated);
+		}
+		chatIds(session).forEach(chatId -> subscribers
+				.computeIfAbsent(chatId, key -> ConcurrentHashMap.newKeySet()).add(decorated));
+	}
+
+	@Override
+	public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+		WebSocketSession decorated = sessions.remove(session.getId());
+		if (decorated != null) {
+			UUID userId = userId(session);
+			if (userId != null) {
+				remove(userSessions, userId, decorated);
+			}
+			chatIds(session).forEach(chatId -> remove(subscribers, chatId, decorated));
+		}
+	}
+	/**
+	 * Subscribes the sessions of users added to a chat and unsubscribes the sessions of users that are no
+	 * longer members, or of all users if the chat was deleted.
+	 *
+	 * @param event the membership change
+	 */
+	@EventListener
+	public void onMembershipEvent(ChatMembershipEvent event) {
+		UUID chatId = event.chatId();
+		Set<UUID> members;
+		try {
+			members = new HashSet<>(membershipIndex.members(chatId));
+		} catch (IllegalStateException exception) {
+			members = new HashSet<>();
+		} catch (DataAccessException exception) {
+			log.error(exception.getMessage(), exception);
+			return;
+		}
+
+		for (WebSocketSession session : subscribers.getOrDefault(chatId, Set.of())) {
+			if (!members.contains(userId(session))) {
+				unsubscribe(session, chatId);
+			}
+		}
+		for (UUID userId : members) {
+			for (WebSocketSession session : userSessions.getOrDefault(userId, Set.of())) {
+				subscribe(session, chatId);
+			}
+		}
+	}
+	/**
+	 * Sends a {@link MessageEvent} to all sessions subscribed to its chat.
+	 *
+	 * @param event the event to send
+	 */
+	@EventListener
+	public void onMessageEvent(MessageEvent event) {
+		Set<WebSocketSession> chatSessions = subscribers.get(event.getChatId());
+		if (chatSessions == null || chatSessions.isEmpty()) {
+			return;
+		}
+
+		TextMessage frame;
+		try {
+			frame = new TextMessage(objectMapper.writeValueAsString(event));
+		} catch (JsonProcessingException exception) {
+			log.error(exception.getMessage(), exception);
+			return;
+		}
+
+		for (WebSocketSession session : chatSessions) {
+			boolean member;
+			try {
+				member = membershipIndex.isMember(event.getChatId(), userId(session));
+			} catch (IllegalStateException exception) {
+				member = false;
+			} catch (DataAccessException exception) {
+				log.error(exception.getMessage(), exception);
+				return;
+			}
+			if (!member) {
+				unsubscribe(session, event.getChatId());
+				continue;
+			}
+			if (session instanceof ConcurrentWebSocketSessionDecorator decorator
+					&& decorator.getTimeSinceSendStarted() > SEND_TIME_LIMIT) {
+				log.warn("Closing session {}: send exceeded {} ms", session.getId(), SEND_TIME_LIMIT);
+				close(session);
+				continue;
+			}
+			try {
+				executor.execute(() -> send(session, frame));
+			} catch (RejectedExecutionException exception) {
+				rejected.increment();
+				log.warn("Closing session {}: event delivery rejected: {}", session.getId(), exception.getMessage());
+				close(session);
+			}
+		}
+	}
+	/**
+	 * Sends a frame to a session and closes the session if the send fails.
+	 *
+	 * @param session the decorated session
+	 * @param frame   the frame to send
+	 */
+	private void send(WebSocketSession session, TextMessage frame) {
+		if (!session.isOpen()) {
+			return;
+		}
+		try {
+			session.sendMessage(frame);
+		} catch (IOException | IllegalStateException exception) {
+			log.warn("Closing session {}: {}", session.getId(), exception.getMessage());
+			close(session);
+		}
+	}
+	/**
+	 * Closes a session that can no longer be sent to reliably.
+	 *
+	 * @param session the decorated session
+	 */
+	private static void close(WebSocketSession session) {
+		try {
+			session.close(CloseStatus.SESSION_NOT_RELIABLE);
+		} catch (IOException ignored) {
+		}
+	}
+	/**
+	 * Subscribes an open session to a chat.
+	 *
+	 * @param session the decorated session
+	 * @param chatId  the ID of the chat
+	 */
+	private void subscribe(WebSocketSession session, UUID chatId) {
+		if (chatIds(session).add(chatId)) {
+			subscribers.computeIfAbsent(chatId, key -> ConcurrentHashMap.newKeySet()).add(session);
+			if (!sessions.containsKey(session.getId())) {
+				unsubscribe(session, chatId);
+			}
+		}
+	}
+	/**
+	 * Unsubscribes a session from a chat.
+	 *
+	 * @param session the decorated session
+	 * @param chatId  the ID of the chat
+	 */
+	private void unsubscribe(WebSocketSession session, UUID chatId) {
+		chatIds(session).remove(chatId);
+		remove(subscribers, chatId, session);
+	}
+
+	private static void remove(Map<UUID, Set<WebSocketSession>> index, UUID key, WebSocketSession session) {
+		index.computeIfPresent(key, (ignored, indexed) -> {
+			indexed.remove(session);
+			return indexed.isEmpty() ? null : indexed;
+		});
+	}
+	/**
+	 * Returns the ID of the user stored in the session by the handshake.
+	 *
+	 * @param session the session
+	 * @return the user ID, or null if absent
+	 */
+	private static UUID userId(WebSocketSession session) {
+		Object userId = session.getAttributes().get(ChatWebSocketHandshakeInterceptor.USER_ID_ATTRIBUTE);
+		return userId instanceof UUID id ? id : null;
+	}
+	/**
+	 * Returns the mutable set of chat IDs the session is subscribed to, stored in the session by the handshake.
+	 *
+	 * @param session the session
+	 * @return the chat IDs of the session
+	 */
+	@SuppressWarnings("unchecked")
+	private static Set<UUID> chatIds(WebSocketSession session) {
+		return (Set<UUID>) session.getAttributes().computeIfAbsent(
+				ChatWebSocketHandshakeInterceptor.CHAT_IDS_ATTRIBUTE, key -> ConcurrentHashMap.newKeySet());
+	}
+}
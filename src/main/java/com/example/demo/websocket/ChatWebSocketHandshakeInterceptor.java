@@ -0,0 +1,75 @@
+package com.example.demo.websocket;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.security.AuthenticatedUserId;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Handshake interceptor for the chat WebSocket endpoint.
+ *
+ * <p>The handshake request passes through the security filter chain, so it is authenticated by the
+ * {@code __Host-auth-token} cookie. This interceptor resolves the ID of the authenticated user and the
+ * chats the user is a member of, and stores them in the session attributes. The chat IDs are a concurrent
+ * set, which {@link ChatWebSocketHandler} updates as memberships change.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ * @see ChatWebSocketHandler
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChatWebSocketHandshakeInterceptor implements HandshakeInterceptor {
+	/**
+	 * The session attribute containing the {@link UUID} of the user.
+	 */
+	public static final String USER_ID_ATTRIBUTE = "userId";
+	/**
+	 * The session attribute containing the concurrent {@link Set} of chat IDs the session is subscribed to.
+	 */
+	public static final String CHAT_IDS_ATTRIBUTE = "chatIds";
+
+	private final ChatRepository chatRepository;
+
+	@Override
+	public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler,
+			Map<String, Object> attributes) {
+		UUID userId = AuthenticatedUserId.of(request.getPrincipal());
+		if (userId == null) {
+			response.setStatusCode(HttpStatus.FORBIDDEN);
+			return false;
+		}
+
+		try {
+			attributes.put(USER_ID_ATTRIBUTE, userId);
+			Set<UUID> chatIds = ConcurrentHashMap.newKeySet();
+			chatIds.addAll(chatRepository.findIdsByUserId(userId));
+			attributes.put(CHAT_IDS_ATTRIBUTE, chatIds);
+		} catch (DataAccessException exception) {
+			log.error(exception.getMessage(), exception);
+			response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler,
+			Exception exception) {
+	}
+}
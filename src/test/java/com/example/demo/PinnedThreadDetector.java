@@ -0,0 +1,53 @@
+package com.example.demo;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * JUnit extension that fails a test if a virtual thread parked while pinned to its carrier thread.
+ *
+ * <p>Pinning is reported by the {@code jdk.VirtualThreadPinned} JFR event, recorded here without
+ * a duration threshold.</p>
+ *
+ * @author Andrey Sharipov
+ * @version 1.0
+ */
+public class PinnedThreadDetector implements BeforeEachCallback, AfterEachCallback {
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        List<RecordedEvent> events = new CopyOnWriteArrayList<>();
+        RecordingStream stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(Duration.ZERO).withStackTrace();
+        stream.onEvent(EVENT, events::add);
+        stream.startAsync();
+        store(context).put(RecordingStream.class, stream);
+        store(context).put(List.class, events);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void afterEach(ExtensionContext context) {
+        RecordingStream stream = store(context).remove(RecordingStream.class, RecordingStream.class);
+        List<RecordedEvent> events = store(context).remove(List.class, List.class);
+        stream.stop();
+        stream.close();
+
+        if (!events.isEmpty()) {
+            throw new AssertionError("Virtual thread pinned " + events.size() + " time(s):\n" + events.get(0));
+        }
+    }
+
+    private static ExtensionContext.Store store(ExtensionContext context) {
+        return context.getStore(ExtensionContext.Namespace.create(PinnedThreadDetector.class,
+                context.getRequiredTestMethod()));
+    }
+}
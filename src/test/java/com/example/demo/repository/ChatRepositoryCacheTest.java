@@ -0,0 +1,151 @@
+package com.example.demo.repository;
+
+import com.example.demo.config.SecondLevelCacheConfig;
+import com.example.demo.models.Chat;
+import com.example.demo.models.User;
+import com.example.demo.models.UserRoleChat;
+import com.example.demo.models.role.Role;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({SecondLevelCacheConfig.class, ChatRepositoryCacheTest.MetricsConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChatRepositoryCacheTest {
+    @Autowired
+    private ChatRepository chatRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserRoleChatRepository userRoleChatRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void testMarkDeleted_evictsCachedChat() {
+        Chat chat = new Chat();
+        chat.setName("chat");
+        UUID chatId = chatRepository.save(chat).getId();
+
+        assertTrue(chatRepository.findById(chatId).isPresent());
+        assertTrue(entityManagerFactory.getCache().contains(Chat.class, chatId));
+
+        assertEquals(1, chatRepository.markDeleted(chatId, LocalDateTime.now()));
+
+        assertFalse(entityManagerFactory.getCache().contains(Chat.class, chatId));
+        assertTrue(chatRepository.findById(chatId).isEmpty());
+        assertTrue(chatRepository.findWithUserRoleById(chatId).isEmpty());
+        assertTrue(chatRepository.findSummaryById(chatId).isEmpty());
+    }
+
+    @Test
+    void testAddUser_invalidatesCachedChatIds() {
+        UUID userId = userRepository.save(user()).getId();
+        Chat chat = new Chat();
+        chat.setName("chat");
+        UUID chatId = chatRepository.save(chat).getId();
+
+        assertEquals(List.of(), chatRepository.findIdsByUserId(userId));
+        long hits = statistics.getQueryCacheHitCount();
+        assertEquals(List.of(), chatRepository.findIdsByUserId(userId));
+        assertEquals(hits + 1, statistics.getQueryCacheHitCount());
+
+        transaction.executeWithoutResult(status -> {
+            Chat loaded = chatRepository.findWithUsersById(chatId).orElseThrow();
+            loaded.getUsers().add(userRepository.findById(userId).orElseThrow());
+            chatRepository.save(loaded);
+        });
+
+        assertEquals(List.of(chatId), chatRepository.findIdsByUserId(userId));
+    }
+
+    @Test
+    void testRoleWrites_evictCachedUserRoles() {
+        UUID firstId = UUID.randomUUID();
+        UUID secondId = UUID.randomUUID();
+        UUID chatId = transaction.execute(status -> {
+            Chat chat = new Chat();
+            chat.setName("chat");
+            chat.getUserRole().add(role(chat, firstId, Role.ROLE_USER));
+            return chatRepository.save(chat).getId();
+        });
+        assertEquals(List.of(Role.ROLE_USER), roles(chatId));
+        assertTrue(entityManagerFactory.getCache().contains(Chat.class, chatId));
+
+        transaction.executeWithoutResult(status -> {
+            UserRoleChat first = chatRepository.findById(chatId).orElseThrow().getUserRole().get(0);
+            first.setRole(Role.ROLE_ADMIN);
+            userRoleChatRepository.save(first);
+        });
+        assertEquals(List.of(Role.ROLE_ADMIN), roles(chatId));
+
+        UUID secondRoleId = transaction.execute(status -> userRoleChatRepository
+                .save(role(chatRepository.findById(chatId).orElseThrow(), secondId, Role.ROLE_USER)).getId());
+        assertEquals(List.of(Role.ROLE_USER, Role.ROLE_ADMIN), roles(chatId));
+
+        transaction.executeWithoutResult(status -> userRoleChatRepository
+                .delete(userRoleChatRepository.findById(secondRoleId).orElseThrow()));
+        assertEquals(List.of(Role.ROLE_ADMIN), roles(chatId));
+    }
+
+    private List<Role> roles(UUID chatId) {
+        return transaction.execute(status -> chatRepository.findById(chatId).orElseThrow().getUserRole().stream()
+                .map(UserRoleChat::getRole).sorted().toList());
+    }
+
+    private static UserRoleChat role(Chat chat, UUID userId, Role role) {
+        UserRoleChat userRole = new UserRoleChat();
+        userRole.setChat(chat);
+        userRole.setUserId(userId);
+        userRole.setRole(role);
+        return userRole;
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setUsername("user");
+        user.setEmail(UUID.randomUUID() + "@example.com");
+        user.setPassword("password");
+        user.setActive(true);
+        return user;
+    }
+
+    @TestConfiguration
+    static class MetricsConfiguration {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.demo.security;
+
+import com.example.demo.models.Token;
+import com.example.demo.service.TokenCookieService;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.Authentication;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenCookieAuthenticationConverterTest {
+    private static final String COOKIE = "__Host-auth-token";
+
+    @Mock
+    private TokenCookieService tokenCookieService;
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void testConvert_cachesTokenUntilItExpires() throws Exception {
+        TokenCookieAuthenticationConverter converter = new TokenCookieAuthenticationConverter(tokenCookieService,
+                10, clock);
+        Token token = new Token(UUID.randomUUID(), "user", List.of(), clock.instant(),
+                clock.instant().plus(Duration.ofMinutes(5)));
+
+        when(tokenCookieService.deserialize("value")).thenReturn(token);
+
+        assertEquals(token, converter.convert(request("value")).getPrincipal());
+        clock.advance(Duration.ofMinutes(5).minusSeconds(1));
+        assertEquals(token, converter.convert(request("value")).getPrincipal());
+        verify(tokenCookieService, times(1)).deserialize("value");
+
+        clock.advance(Duration.ofSeconds(1));
+        assertEquals(token, converter.convert(request("value")).getPrincipal());
+        verify(tokenCookieService, times(2)).deserialize("value");
+    }
+
+    @Test
+    void testConvert_doesNotCacheUndecryptableValues() throws Exception {
+        TokenCookieAuthenticationConverter converter = new TokenCookieAuthenticationConverter(tokenCookieService,
+                10, clock);
+
+        when(tokenCookieService.deserialize("invalid")).thenReturn(null);
+
+        Authentication first = converter.convert(request("invalid"));
+        Authentication second = converter.convert(request("invalid"));
+
+        assertNull(first.getPrincipal());
+        assertNull(second.getPrincipal());
+        verify(tokenCookieService, times(2)).deserialize("invalid");
+    }
+
+    @Test
+    void testConvert_withoutCookie() {
+        TokenCookieAuthenticationConverter converter = new TokenCookieAuthenticationConverter(tokenCookieService,
+                10, clock);
+
+        assertNull(converter.convert(new MockHttpServletRequest()));
+        verifyNoInteractions(tokenCookieService);
+    }
+
+    private static MockHttpServletRequest request(String value) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie(COOKIE, value));
+        return request;
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.response.InboxChatResponse;
+import com.example.demo.dto.response.InboxPageResponse;
+import com.example.demo.models.ChatActivity;
+import com.example.demo.models.Message;
+import com.example.demo.repository.ChatActivityRepository;
+import com.example.demo.repository.MessageRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChatActivityServiceTest {
+    @InjectMocks
+    private ChatActivityService chatActivityService;
+    @Mock
+    private ChatActivityRepository chatActivityRepository;
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Test
+    void testRecord_createsMissingSummary() {
+        Message message = new Message();
+        message.setId(new ObjectId().toHexString());
+        message.setChatId(UUID.randomUUID());
+        message.setUserId(UUID.randomUUID());
+        message.setTime(LocalDateTime.now());
+        message.setContext("x".repeat(ChatActivity.PREVIEW_LENGTH + 20));
+
+        when(chatActivityRepository.advance(eq(message.getChatId()), eq(message.getTime()), eq(message.getId()),
+                any(), eq(message.getUserId()))).thenReturn(0);
+        when(chatActivityRepository.existsById(message.getChatId())).thenReturn(false);
+
+        chatActivityService.record(message);
+
+        ArgumentCaptor<ChatActivity> activity = ArgumentCaptor.forClass(ChatActivity.class);
+        verify(chatActivityRepository, times(1)).insert(activity.capture());
+        verify(chatActivityRepository, never()).save(any());
+        assertEquals(message.getId(), activity.getValue().getLastMessageId());
+        assertEquals(ChatActivity.PREVIEW_LENGTH, activity.getValue().getLastMessagePreview().length());
+    }
+
+    @Test
+    void testRecord_advancesSummaryInsertedConcurrently() {
+        Message message = new Message();
+        message.setId(new ObjectId().toHexString());
+        message.setChatId(UUID.randomUUID());
+        message.setUserId(UUID.randomUUID());
+        message.setTime(LocalDateTime.now());
+        message.setContext("hello");
+
+        when(chatActivityRepository.advance(message.getChatId(), message.getTime(), message.getId(), "hello",
+                message.getUserId())).thenReturn(0, 0);
+        when(chatActivityRepository.existsById(message.getChatId())).thenReturn(false);
+        doThrow(new DataIntegrityViolationException("duplicate key")).when(chatActivityRepository).insert(any());
+
+        chatActivityService.record(message);
+
+        verify(chatActivityRepository, times(2)).advance(message.getChatId(), message.getTime(), message.getId(),
+                "hello", message.getUserId());
+        verify(chatActivityRepository, never()).save(any());
+    }
+
+    @Test
+    void testFindInbox_keysetCursor() {
+        UUID userId = UUID.randomUUID();
+        InboxChatResponse first = new InboxChatResponse(UUID.randomUUID(), "first", 2, LocalDateTime.now(),
+                null, null, null);
+        InboxChatResponse second = new InboxChatResponse(UUID.randomUUID(), "second", 3, null, null, null, null);
+
+        when(chatActivityRepository.findInbox(eq(userId), eq(ChatActivityService.EPOCH), any(Pageable.class)))
+                .thenReturn(List.of(first, second));
+        when(chatActivityRepository.findInboxAfter(eq(userId), eq(ChatActivityService.EPOCH),
+                eq(ChatActivityService.EPOCH), eq(second.getId()), any(Pageable.class))).thenReturn(List.of());
+
+        InboxPageResponse page = chatActivityService.findInbox(userId, null, 2);
+        assertEquals(List.of(first, second), page.getChats());
+        assertNotNull(page.getNext());
+
+        InboxPageResponse next = chatActivityService.findInbox(userId, page.getNext(), 2);
+        assertEquals(List.of(), next.getChats());
+        assertNull(next.getNext());
+        assertThrows(IllegalArgumentException.class, () -> chatActivityService.findInbox(userId, "not-a-cursor", 2));
+    }
+}
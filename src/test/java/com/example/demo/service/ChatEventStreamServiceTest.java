@@ -0,0 +1,269 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.response.MessageEvent;
+import com.example.demo.models.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChatEventStreamServiceTest {
+    private static final Pattern EVENT_ID = Pattern.compile("^id:(\\d+)$", Pattern.MULTILINE);
+
+    @Mock
+    private ChatMembershipIndex membershipIndex;
+
+    private final UUID chatId = UUID.randomUUID();
+    private final UUID userId = UUID.randomUUID();
+    private final List<Runnable> tasks = new ArrayList<>();
+    private MutableClock clock;
+    private ChatEventStreamService chatEventStreamService;
+
+    @BeforeEach
+    void setUp() {
+        this.clock = new MutableClock();
+        this.chatEventStreamService = new ChatEventStreamService(new ObjectMapper().registerModule(new JavaTimeModule()),
+                membershipIndex, new TaskExecutorAdapter(tasks::add), clock) {
+            @Override
+            SseEmitter createEmitter() {
+                return new RecordingEmitter();
+            }
+        };
+    }
+
+    @Test
+    void testOnMessageEvent() {
+        RecordingEmitter emitter = subscribe(null);
+        chatEventStreamService.onMessageEvent(event("first"));
+        runTasks();
+
+        assertEquals(1, emitter.events.size());
+        assertTrue(emitter.events.get(0).contains("event:created"));
+        assertTrue(emitter.events.get(0).contains("first"));
+        assertFalse(emitter.completed);
+    }
+
+    @Test
+    void testOnMessageEvent_ignoresChatWithoutSubscribers() {
+        chatEventStreamService.onMessageEvent(event("first"));
+
+        verifyNoInteractions(membershipIndex);
+        assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    void testOnMessageEvent_doesNotCheckMembership() {
+        RecordingEmitter emitter = subscribe(null);
+        chatEventStreamService.onMessageEvent(event("first"));
+        chatEventStreamService.onMessageEvent(event("second"));
+        runTasks();
+
+        assertEquals(2, emitter.events.size());
+        verifyNoInteractions(membershipIndex);
+    }
+
+    @Test
+    void testOnMembershipEvent_completesRemovedMember() {
+        UUID otherId = UUID.randomUUID();
+        when(membershipIndex.members(chatId)).thenReturn(List.of(otherId));
+
+        RecordingEmitter removed = subscribe(null);
+        RecordingEmitter member = (RecordingEmitter) chatEventStreamService.subscribe(chatId, otherId, null);
+        chatEventStreamService.onMembershipEvent(new ChatMembershipEvent(chatId));
+
+        assertTrue(removed.completed);
+        assertFalse(member.completed);
+    }
+
+    @Test
+    void testOnMembershipEvent_completesDeletedChat() {
+        when(membershipIndex.members(chatId)).thenThrow(new IllegalStateException("Chat does not exist"));
+
+        RecordingEmitter emitter = subscribe(null);
+        chatEventStreamService.onMembershipEvent(new ChatMembershipEvent(chatId));
+
+        assertTrue(emitter.completed);
+    }
+
+    @Test
+    void testSubscribe_resumesAfterLastEventId() {
+        RecordingEmitter first = subscribe(null);
+        chatEventStreamService.onMessageEvent(event("first"));
+        chatEventStreamService.onMessageEvent(event("second"));
+        runTasks();
+        RecordingEmitter resumed = subscribe(id(first.events.get(0)));
+        runTasks();
+
+        assertEquals(1, resumed.events.size());
+        assertEquals(id(first.events.get(1)), id(resumed.events.get(0)));
+    }
+
+    @Test
+    void testSubscribe_resetsWhenGapIsTooOld() {
+        RecordingEmitter first = subscribe(null);
+        runTasks();
+        for (int i = 0; i < ChatEventStreamService.BUFFER_SIZE + 2; i++) {
+            chatEventStreamService.onMessageEvent(event("message " + i));
+            runTasks();
+        }
+        RecordingEmitter resumed = subscribe(id(first.events.get(0)));
+        RecordingEmitter restarted = subscribe("1");
+        runTasks();
+
+        assertEquals(List.of("event:reset\ndata:{}\n\n"), resumed.events);
+        assertEquals(List.of("event:reset\ndata:{}\n\n"), restarted.events);
+    }
+
+    @Test
+    void testSubscribe_ignoresInvalidLastEventId() {
+        RecordingEmitter emitter = subscribe("invalid");
+        runTasks();
+
+        assertTrue(emitter.events.isEmpty());
+        assertFalse(emitter.completed);
+    }
+
+    @Test
+    void testOnMessageEvent_completesOverflowingSubscriber() {
+        RecordingEmitter emitter = subscribe(null);
+        for (int i = 0; i <= ChatEventStreamService.BUFFER_SIZE; i++) {
+            chatEventStreamService.onMessageEvent(event("message " + i));
+        }
+
+        assertTrue(emitter.completed);
+    }
+
+    @Test
+    void testHeartbeat() {
+        RecordingEmitter emitter = subscribe(null);
+        runTasks();
+        chatEventStreamService.heartbeat();
+        runTasks();
+
+        assertEquals(List.of(":heartbeat\n\n"), emitter.events);
+    }
+
+    @Test
+    void testHeartbeat_retiresIdleChat() {
+        RecordingEmitter first = subscribe(null);
+        chatEventStreamService.onMessageEvent(event("first"));
+        chatEventStreamService.onMessageEvent(event("second"));
+        runTasks();
+        first.complete();
+
+        clock.advance(Duration.ofMinutes(1));
+        chatEventStreamService.heartbeat();
+        RecordingEmitter kept = subscribe(id(first.events.get(0)));
+        runTasks();
+        assertEquals(1, kept.events.size());
+        kept.complete();
+
+        clock.advance(ChatEventStreamService.IDLE_RETENTION.plusSeconds(1));
+        chatEventStreamService.heartbeat();
+        RecordingEmitter retired = subscribe(id(first.events.get(0)));
+        runTasks();
+        assertEquals(List.of("event:reset\ndata:{}\n\n"), retired.events);
+    }
+
+    private RecordingEmitter subscribe(String lastEventId) {
+        return (RecordingEmitter) chatEventStreamService.subscribe(chatId, userId, lastEventId);
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private MessageEvent event(String context) {
+        Message message = new Message();
+        message.setChatId(chatId);
+        message.setContext(context);
+        return new MessageEvent(MessageEvent.Type.CREATED, chatId, message);
+    }
+
+    private static String id(String event) {
+        Matcher matcher = EVENT_ID.matcher(event);
+        assertTrue(matcher.find(), event);
+        return matcher.group(1);
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new ArrayList<>();
+        private boolean completed;
+        private Runnable completionCallback;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            if (completed) {
+                throw new IllegalStateException("Emitter has already completed");
+            }
+            StringBuilder event = new StringBuilder();
+            builder.build().forEach(data -> event.append(data.getData()));
+            events.add(event.toString());
+        }
+
+        @Override
+        public synchronized void complete() {
+            if (!completed) {
+                completed = true;
+                if (completionCallback != null) {
+                    completionCallback.run();
+                }
+            }
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable exception) {
+            complete();
+        }
+
+        @Override
+        public synchronized void onCompletion(Runnable callback) {
+            this.completionCallback = callback;
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.ChatRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChatMembershipIndexTest {
+    @Mock
+    private ChatRepository chatRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ChatMembershipIndex membershipIndex;
+
+    @BeforeEach
+    void setUp() {
+        this.membershipIndex = new ChatMembershipIndex(chatRepository, eventPublisher, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testIsMember() {
+        UUID chatId = UUID.randomUUID();
+        UUID member = UUID.randomUUID();
+        UUID otherMember = new UUID(-1L, 1L);
+
+        when(chatRepository.findUserIdsById(chatId)).thenReturn(List.of(member, otherMember));
+
+        assertTrue(membershipIndex.isMember(chatId, member));
+        assertTrue(membershipIndex.isMember(chatId, otherMember));
+        assertFalse(membershipIndex.isMember(chatId, UUID.randomUUID()));
+
+        verify(chatRepository, times(1)).findUserIdsById(chatId);
+        assertEquals(2.0 / 3, membershipIndex.hitRatio(), 1e-9);
+    }
+
+    @Test
+    void testInvalidate() {
+        UUID chatId = UUID.randomUUID();
+        UUID member = UUID.randomUUID();
+
+        when(chatRepository.findUserIdsById(chatId)).thenReturn(List.of(member), List.of());
+        when(chatRepository.existsById(chatId)).thenReturn(true);
+
+        assertTrue(membershipIndex.isMember(chatId, member));
+
+        membershipIndex.invalidate(chatId);
+
+        assertFalse(membershipIndex.isMember(chatId, member));
+        verify(chatRepository, times(2)).findUserIdsById(chatId);
+        verify(eventPublisher, times(1)).publishEvent(new ChatMembershipEvent(chatId));
+    }
+
+    @Test
+    void testIsMember_throwIllegalStateException() {
+        UUID chatId = UUID.randomUUID();
+
+        assertThrows(IllegalStateException.class, () -> membershipIndex.isMember(chatId, UUID.randomUUID()));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.demo.service;
+
+import com.example.demo.models.Message;
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.repository.MessageRepository;
+import com.example.demo.repository.UserRoleChatRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChatPurgeServiceTest {
+    @Mock
+    private ChatRepository chatRepository;
+    @Mock
+    private UserRoleChatRepository userRoleChatRepository;
+    @Mock
+    private MessageRepository messageRepository;
+    @Mock
+    private MessageArchive messageArchive;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ChatPurgeService chatPurgeService;
+
+    @BeforeEach
+    void setUp() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.chatPurgeService = new ChatPurgeService(chatRepository, userRoleChatRepository, messageRepository,
+                messageArchive, meterRegistry, 2, Duration.ZERO, 1, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        chatPurgeService.destroy();
+    }
+
+    @Test
+    void testPurge_inChunks() throws InterruptedException {
+        UUID chatId = UUID.randomUUID();
+
+        when(messageRepository.findIdsByChatId(eq(chatId), any(Pageable.class)))
+                .thenReturn(List.of(message("1"), message("2")), List.of(message("3")));
+        when(userRoleChatRepository.deleteChunkByChatId(chatId, 2)).thenReturn(2, 0);
+
+        chatPurgeService.purge(chatId);
+
+        InOrder order = inOrder(messageArchive, messageRepository, userRoleChatRepository, chatRepository);
+        order.verify(messageArchive).purge(chatId);
+        order.verify(messageRepository).deleteAllById(List.of("1", "2"));
+        order.verify(messageRepository).deleteAllById(List.of("3"));
+        order.verify(userRoleChatRepository, times(2)).deleteChunkByChatId(chatId, 2);
+        order.verify(chatRepository).purgeDeletedMembers(chatId);
+        order.verify(chatRepository).purgeDeleted(chatId);
+        assertEquals(3, meterRegistry.counter("chat.purge.messages").count());
+        assertEquals(2, meterRegistry.counter("chat.purge.roles").count());
+        assertEquals(1, meterRegistry.counter("chat.purge.chats").count());
+    }
+
+    @Test
+    void testPurge_keepsTombstoneOnFailure() throws InterruptedException {
+        UUID chatId = UUID.randomUUID();
+
+        when(messageRepository.findIdsByChatId(eq(chatId), any(Pageable.class)))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        chatPurgeService.purge(chatId);
+
+        verify(chatRepository, never()).purgeDeleted(any());
+        assertEquals(1, meterRegistry.counter("chat.purge.failures").count());
+    }
+
+    private static Message message(String id) {
+        Message message = new Message();
+        message.setId(id);
+        return message;
+    }
+}
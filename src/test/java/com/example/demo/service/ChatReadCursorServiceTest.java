@@ -0,0 +1,85 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.request.ReadCursorRequest;
+import com.example.demo.models.Message;
+import com.example.demo.models.User;
+import com.example.demo.repository.MessageRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChatReadCursorServiceTest {
+    @InjectMocks
+    private ChatReadCursorService chatReadCursorService;
+    @Mock
+    private ChatMembershipIndex membershipIndex;
+    @Mock
+    private MessageRepository messageRepository;
+    @Mock
+    private MessageArchive messageArchive;
+    @Mock
+    private ReadCursorService readCursorService;
+
+    @Test
+    void testUpdateReadCursor() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        UUID chatId = UUID.randomUUID();
+        Authentication auth = new UsernamePasswordAuthenticationToken(user, null);
+        ObjectId messageId = new ObjectId();
+        ReadCursorRequest cursorRequest = new ReadCursorRequest();
+        cursorRequest.setMessageId(messageId.toHexString().toUpperCase());
+        Message message = new Message();
+        message.setId(messageId.toHexString());
+        message.setChatId(chatId);
+
+        when(membershipIndex.isMember(chatId, user.getId())).thenReturn(true);
+        when(messageRepository.findById(messageId.toHexString())).thenReturn(Optional.of(message));
+
+        chatReadCursorService.updateReadCursor(chatId.toString(), cursorRequest, auth);
+
+        verify(readCursorService, times(1)).update(chatId, user.getId(), messageId.toHexString());
+
+        cursorRequest.setMessageId("not-an-id");
+        assertThrows(IllegalArgumentException.class,
+                () -> chatReadCursorService.updateReadCursor(chatId.toString(), cursorRequest, auth));
+        verifyNoMoreInteractions(readCursorService);
+    }
+
+    @Test
+    void testUpdateReadCursor_rejectsMessageOfOtherChat() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        UUID chatId = UUID.randomUUID();
+        Authentication auth = new UsernamePasswordAuthenticationToken(user, null);
+        String messageId = "ffffffffffffffffffffffff";
+        ReadCursorRequest cursorRequest = new ReadCursorRequest();
+        cursorRequest.setMessageId(messageId);
+        Message message = new Message();
+        message.setId(messageId);
+        message.setChatId(UUID.randomUUID());
+
+        when(membershipIndex.isMember(chatId, user.getId())).thenReturn(true);
+        when(messageRepository.findById(messageId)).thenReturn(Optional.of(message), Optional.empty());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> chatReadCursorService.updateReadCursor(chatId.toString(), cursorRequest, auth));
+        assertThrows(IllegalArgumentException.class,
+                () -> chatReadCursorService.updateReadCursor(chatId.toString(), cursorRequest, auth));
+
+        verify(messageArchive, times(2)).find(chatId, messageId);
+        verifyNoInteractions(readCursorService);
+    }
+}
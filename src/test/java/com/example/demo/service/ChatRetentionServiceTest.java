@@ -0,0 +1,141 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.repository.projection.ChatSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChatRetentionServiceTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Mock
+    private ChatRepository chatRepository;
+    @Mock
+    private EntityVersions entityVersions;
+
+    private ChatRetentionService chatRetentionService;
+
+    @BeforeEach
+    void setUp() {
+        this.chatRetentionService = new ChatRetentionService(chatRepository, entityVersions, 90,
+                Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC));
+    }
+
+    @Test
+    void testCutoff() {
+        UUID defaultChat = UUID.randomUUID();
+        UUID shortChat = UUID.randomUUID();
+        UUID foreverChat = UUID.randomUUID();
+
+        when(chatRepository.findSummaryById(defaultChat)).thenReturn(Optional.of(summary(defaultChat, null)));
+        when(chatRepository.findSummaryById(shortChat)).thenReturn(Optional.of(summary(shortChat, 7)));
+        when(chatRepository.findSummaryById(foreverChat)).thenReturn(Optional.of(summary(foreverChat, 0)));
+
+        assertEquals(NOW.minusDays(90), chatRetentionService.cutoff(defaultChat));
+        assertEquals(NOW.minusDays(7), chatRetentionService.cutoff(shortChat));
+        assertEquals(ChatRetentionService.KEEP_FOREVER, chatRetentionService.cutoff(foreverChat));
+        assertEquals(NOW.plusDays(7), chatRetentionService.expireAt(shortChat, NOW));
+        assertNull(chatRetentionService.expireAt(foreverChat, NOW));
+    }
+
+    @Test
+    void testCutoff_cachedUntilInvalidated() {
+        UUID chatId = UUID.randomUUID();
+
+        when(chatRepository.findSummaryById(chatId))
+                .thenReturn(Optional.of(summary(chatId, 7)), Optional.of(summary(chatId, 30)));
+
+        assertEquals(NOW.minusDays(7), chatRetentionService.cutoff(chatId));
+        assertEquals(NOW.minusDays(7), chatRetentionService.cutoff(chatId));
+
+        chatRetentionService.invalidate(chatId);
+
+        assertEquals(NOW.minusDays(30), chatRetentionService.cutoff(chatId));
+        verify(chatRepository, times(2)).findSummaryById(chatId);
+        verify(entityVersions, times(1)).changed(EntityVersions.Kind.CHAT, chatId);
+    }
+
+    @Test
+    void testCutoff_roundsUpToFullHour() {
+        UUID chatId = UUID.randomUUID();
+        ChatRetentionService service = new ChatRetentionService(chatRepository, entityVersions, 90,
+                Clock.fixed(Instant.parse("2024-01-01T00:20:00Z"), ZoneOffset.UTC));
+
+        when(chatRepository.findSummaryById(chatId)).thenReturn(Optional.of(summary(chatId, 7)));
+
+        assertEquals(NOW.plusHours(1).minusDays(7), service.cutoff(chatId));
+    }
+
+    @Test
+    void testAdvance_dropsVersionsOfLimitedChats() {
+        UUID shortChat = UUID.randomUUID();
+        UUID foreverChat = UUID.randomUUID();
+
+        when(chatRepository.findSummaryById(shortChat)).thenReturn(Optional.of(summary(shortChat, 7)));
+        when(chatRepository.findSummaryById(foreverChat)).thenReturn(Optional.of(summary(foreverChat, 0)));
+        chatRetentionService.cutoffs(List.of(shortChat, foreverChat));
+
+        chatRetentionService.advance();
+
+        verify(entityVersions, times(1)).changed(EntityVersions.Kind.CHAT, shortChat);
+        verify(entityVersions, never()).changed(EntityVersions.Kind.CHAT, foreverChat);
+    }
+
+    @Test
+    void testCutoffs_skipsDeletedChats() {
+        UUID shortChat = UUID.randomUUID();
+        UUID foreverChat = UUID.randomUUID();
+        UUID deletedChat = UUID.randomUUID();
+
+        when(chatRepository.findSummaryById(shortChat)).thenReturn(Optional.of(summary(shortChat, 7)));
+        when(chatRepository.findSummaryById(foreverChat)).thenReturn(Optional.of(summary(foreverChat, 0)));
+        when(chatRepository.findSummaryById(deletedChat)).thenReturn(Optional.empty());
+
+        assertEquals(Map.of(shortChat, NOW.minusDays(7), foreverChat, ChatRetentionService.KEEP_FOREVER),
+                chatRetentionService.cutoffs(List.of(shortChat, foreverChat, deletedChat)));
+    }
+
+    @Test
+    void testCutoff_throwIllegalStateException() {
+        UUID chatId = UUID.randomUUID();
+
+        when(chatRepository.findSummaryById(chatId)).thenReturn(Optional.empty());
+
+        assertThrows(IllegalStateException.class, () -> chatRetentionService.cutoff(chatId));
+    }
+
+    private static ChatSummary summary(UUID id, Integer retentionDays) {
+        return new ChatSummary() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return "test";
+            }
+
+            @Override
+            public Integer getRetentionDays() {
+                return retentionDays;
+            }
+        };
+    }
+}
@@ -3,9 +3,12 @@ package com.example.demo.service;
 import com.example.demo.dto.request.ChatRequest;
 import com.example.demo.dto.request.ChatRoleRequest;
 import com.example.demo.dto.request.ChatUserRequest;
+import com.example.demo.dto.response.ChatMemberResponse;
 import com.example.demo.dto.response.ChatResponse;
+import com.example.demo.dto.response.MessagePageResponse;
 import com.example.demo.models.Chat;
 import com.example.demo.models.Message;
+import com.example.demo.models.TokenUser;
 import com.example.demo.models.User;
 import com.example.demo.models.UserRoleChat;
 import com.example.demo.models.role.Role;
@@ -13,18 +16,32 @@ import com.example.demo.repository.ChatRepository;
 import com.example.demo.repository.MessageRepository;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.repository.UserRoleChatRepository;
+import com.example.demo.repository.projection.ChatSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -44,6 +61,22 @@ class ChatServiceTest {
     private UserRoleChatRepository userRoleChatRepository;
     @Mock
     private Authentication authentication;
+    @Mock
+    private ChatMembershipIndex membershipIndex;
+    @Mock
+    private UnreadCounterService unreadCounterService;
+    @Mock
+    private ChatActivityService chatActivityService;
+    @Mock
+    private ChatPurgeService chatPurgeService;
+    @Mock
+    private ChatRetentionService chatRetentionService;
+    @Mock
+    private MessageArchive messageArchive;
+    @Mock
+    private EntityVersions entityVersions;
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
 
     private ChatRequest request;
 
@@ -58,6 +91,7 @@ class ChatServiceTest {
         user.setId(UUID.randomUUID());
 
         Chat chat = new Chat();
+        chat.setId(UUID.randomUUID());
         chat.setName("test");
 
         request.setChat(chat);
@@ -70,6 +104,7 @@ class ChatServiceTest {
 
         assertEquals(chat, savedChat);
         verify(chatRepository, times(1)).save(chat);
+        verify(membershipIndex, times(1)).invalidate(chat.getId());
     }
 
     @Test
@@ -93,10 +128,26 @@ class ChatServiceTest {
     void testFindById() {
         User user = new User();
         user.setId(UUID.randomUUID());
-
-        Chat chat = new Chat();
-        chat.setId(UUID.randomUUID());
-        chat.getUsers().add(user);
+        user.setUsername("test");
+
+        UUID chatId = UUID.randomUUID();
+        ChatSummary chat = new ChatSummary() {
+            @Override
+            public UUID getId() {
+                return chatId;
+            }
+
+            @Override
+            public String getName() {
+                return "test";
+            }
+
+            @Override
+            public Integer getRetentionDays() {
+                return null;
+            }
+        };
+        List<ChatMemberResponse> members = List.of(new ChatMemberResponse(user.getId(), user.getUsername()));
 
         List<Message> messageList = new ArrayList<>();
         Message message = new Message();
@@ -105,15 +156,18 @@ class ChatServiceTest {
         message.setContext("test");
         messageList.add(message);
 
-        when(chatRepository.findById(any(UUID.class))).thenReturn(Optional.of(chat));
-        when(messageRepository.findAll()).thenReturn(messageList);
+        when(chatRepository.findSummaryById(any(UUID.class))).thenReturn(Optional.of(chat));
+        when(chatRepository.findMembersById(chatId)).thenReturn(members);
+        when(messageRepository.findLatest(eq(chatId), any(), any(Pageable.class))).thenReturn(messageList);
 
         ChatResponse response = chatService.findById(chat.getId().toString());
 
         assertEquals(chat.getId(), response.getId());
         assertEquals(chat.getName(), response.getName());
-        assertEquals(chat.getUsers(), response.getUsers());
+        assertEquals(members, response.getUsers());
         assertEquals(messageList, response.getMessages());
+        verify(chatRepository, never()).findById(any());
+        verify(messageRepository, never()).findAll();
     }
 
     @Test
@@ -123,6 +177,164 @@ class ChatServiceTest {
         assertThrows(IllegalStateException.class, () -> chatService.findById(id.toString()));
     }
 
+    @Test
+    void testFindMessagesBefore() {
+        UUID chatId = UUID.randomUUID();
+
+        Message cursor = new Message();
+        cursor.setId(new ObjectId().toHexString());
+        cursor.setChatId(chatId);
+        cursor.setTime(LocalDateTime.now());
+
+        Message newer = new Message();
+        newer.setId(new ObjectId().toHexString());
+        newer.setChatId(chatId);
+        Message older = new Message();
+        older.setId(new ObjectId().toHexString());
+        older.setChatId(chatId);
+
+        LocalDateTime since = cursor.getTime().minusDays(90);
+
+        when(chatRetentionService.cutoff(chatId)).thenReturn(since);
+        when(messageArchive.hotSince(chatId, since)).thenReturn(since);
+        when(messageRepository.findById(cursor.getId())).thenReturn(Optional.of(cursor));
+        when(messageRepository.findPageBefore(eq(chatId), eq(since), eq(cursor.getTime()), any(ObjectId.class),
+                any(Pageable.class))).thenReturn(List.of(newer, older));
+
+        MessagePageResponse page = chatService.findMessages(chatId.toString(), cursor.getId(), null, 2);
+
+        assertEquals(List.of(older, newer), page.getMessages());
+        assertEquals(older.getId(), page.getBefore());
+        assertEquals(newer.getId(), page.getAfter());
+    }
+
+    @Test
+    void testFindMessages_spansArchive() {
+        UUID chatId = UUID.randomUUID();
+        LocalDateTime since = LocalDateTime.now().minusDays(90);
+        LocalDateTime hotSince = LocalDateTime.now().minusDays(30);
+
+        Message hot = new Message();
+        hot.setId(new ObjectId().toHexString());
+        hot.setChatId(chatId);
+        Message archived = new Message();
+        archived.setId(new ObjectId().toHexString());
+        archived.setChatId(chatId);
+
+        when(chatRetentionService.cutoff(chatId)).thenReturn(since);
+        when(messageArchive.hotSince(chatId, since)).thenReturn(hotSince);
+        when(messageRepository.findLatest(eq(chatId), eq(hotSince), any(Pageable.class))).thenReturn(List.of(hot));
+        when(messageArchive.findBefore(chatId, since, null, 1)).thenReturn(List.of(archived));
+
+        MessagePageResponse page = chatService.findMessages(chatId.toString(), null, null, 2);
+
+        assertEquals(List.of(archived, hot), page.getMessages());
+        assertEquals(archived.getId(), page.getBefore());
+    }
+
+    @Test
+    void testFindMessages_throwIllegalStateException() {
+        UUID chatId = UUID.randomUUID();
+
+        when(chatRetentionService.cutoff(chatId))
+                .thenThrow(new IllegalStateException("Chat does not exist"))
+                .thenReturn(LocalDateTime.now().minusDays(90));
+
+        assertThrows(IllegalStateException.class, () -> chatService.findMessages(chatId.toString(), null, null, null));
+
+        String cursor = new ObjectId().toHexString();
+
+        assertThrows(IllegalStateException.class, () -> chatService.findMessages(chatId.toString(), cursor, null, null));
+    }
+
+    @Test
+    void testFindMessages_throwIllegalArgumentException() {
+        UUID chatId = UUID.randomUUID();
+
+        assertThrows(IllegalArgumentException.class, () -> chatService.findMessages(chatId.toString(),
+                new ObjectId().toHexString(), new ObjectId().toHexString(), null));
+        assertThrows(IllegalArgumentException.class, () -> chatService.findMessages(chatId.toString(),
+                "not-a-cursor", null, null));
+    }
+
+    @Test
+    void testCheckMember() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        UUID chatId = UUID.randomUUID();
+        Authentication auth = new UsernamePasswordAuthenticationToken(user, null);
+
+        when(membershipIndex.isMember(any(UUID.class), eq(user.getId())))
+                .thenAnswer(invocation -> chatId.equals(invocation.getArgument(0)));
+
+        assertEquals(chatId, chatService.checkMember(chatId.toString(), auth));
+        assertThrows(IllegalStateException.class, () -> chatService.checkMember(UUID.randomUUID().toString(), auth));
+        assertThrows(NullPointerException.class, () -> chatService.checkMember(chatId.toString(), authentication));
+    }
+
+    @Test
+    void testExportMessages() throws Exception {
+        UUID chatId = UUID.randomUUID();
+
+        Message first = new Message();
+        first.setChatId(chatId);
+        first.setContext("first");
+        Message second = new Message();
+        second.setChatId(chatId);
+        second.setContext("second");
+
+        LocalDateTime since = LocalDateTime.now().minusDays(90);
+
+        when(chatRetentionService.cutoff(chatId)).thenReturn(since);
+        when(messageArchive.hotSince(chatId, since)).thenReturn(since);
+        when(messageRepository.streamHistory(chatId, since)).thenReturn(Stream.of(first, second));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        chatService.exportMessages(chatId, out, true);
+
+        String[] lines = new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8).split("\n");
+
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{") && lines[1].startsWith("{"));
+        assertEquals("first", objectMapper.readValue(lines[0], Message.class).getContext());
+        assertEquals("second", objectMapper.readValue(lines[1], Message.class).getContext());
+    }
+
+    @Test
+    void testCheckExportAccess_cookieAuthenticated() {
+        UUID userId = UUID.randomUUID();
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                new TokenUser(userId.toString(), "nopassword", List.of(), null), null);
+
+        Chat chat = new Chat();
+        chat.setId(UUID.randomUUID());
+        UserRoleChat userRoleChat = new UserRoleChat();
+        userRoleChat.setUserId(userId);
+        userRoleChat.setRole(Role.ROLE_ADMIN);
+        userRoleChat.setChat(chat);
+        chat.getUserRole().add(userRoleChat);
+
+        when(chatRepository.findWithUserRoleById(chat.getId())).thenReturn(Optional.of(chat));
+
+        assertEquals(chat.getId(), chatService.checkExportAccess(chat.getId().toString(), auth));
+    }
+
+    @Test
+    void testCheckExportAccess_throwIllegalStateException() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+
+        Chat chat = new Chat();
+        chat.setId(UUID.randomUUID());
+
+        when(authentication.getPrincipal()).thenReturn(user);
+        when(chatRepository.findWithUserRoleById(any(UUID.class))).thenReturn(Optional.of(chat));
+
+        assertThrows(IllegalStateException.class, () ->
+                chatService.checkExportAccess(chat.getId().toString(), authentication));
+    }
+
     @Test
     void testUpdateChat() {
         User user = new User();
@@ -147,12 +359,14 @@ class ChatServiceTest {
         ChatRequest request = new ChatRequest();
         request.setChat(updatedChat);
 
-        when(chatRepository.findById(any(UUID.class))).thenReturn(Optional.of(chat));
+        when(chatRepository.findWithUserRoleById(any(UUID.class))).thenReturn(Optional.of(chat));
 
         chatService.update(request, authentication);
 
         assertEquals(updatedChat.getName(), chat.getName());
         verify(chatRepository, times(1)).save(chat);
+        verify(chatRetentionService, times(1)).invalidate(chat.getId());
+        verify(entityVersions, times(1)).changed(EntityVersions.Kind.CHAT, chat.getId());
     }
 
     @Test
@@ -180,7 +394,7 @@ class ChatServiceTest {
 
         verify(chatRepository, never()).save(chat);
 
-        when(chatRepository.findById(any(UUID.class))).thenReturn(Optional.of(chat));
+        when(chatRepository.findWithUserRoleById(any(UUID.class))).thenReturn(Optional.of(chat));
 
         assertThrows(IllegalStateException.class, () -> chatService.update(request, authentication));
 
@@ -196,7 +410,7 @@ class ChatServiceTest {
         chat.setId(UUID.randomUUID());
 
         when(authentication.getPrincipal()).thenReturn(user);
-        when(chatRepository.findById(any(UUID.class))).thenReturn(Optional.of(chat));
+        when(chatRepository.findWithUserRoleById(any(UUID.class))).thenReturn(Optional.of(chat));
 
         UserRoleChat userRoleChat = new UserRoleChat();
         userRoleChat.setUserId(user.getId());
@@ -217,9 +431,12 @@ class ChatServiceTest {
 
         chatService.delete(request, authentication);
 
-        verify(messageRepository, times(1)).deleteAllByChatId(chat.getId());
-        verify(userRoleChatRepository, times(1)).deleteAllByChat(chat);
-        verify(chatRepository, times(1)).delete(chat);
+        verify(chatRepository, times(1)).markDeleted(eq(chat.getId()), any(LocalDateTime.class));
+        verify(messageRepository, never()).deleteAllByChatId(any());
+        verify(chatRepository, never()).delete(any());
+        verify(membershipIndex, times(1)).invalidate(chat.getId());
+        verify(unreadCounterService, times(1)).remove(chat.getId(), List.of(user.getId()));
+        verify(chatPurgeService, times(1)).schedule(chat.getId());
     }
 
     @Test
@@ -250,7 +467,7 @@ class ChatServiceTest {
         verify(userRoleChatRepository, never()).deleteAllByChat(any());
         verify(chatRepository, never()).delete(any());
 
-        when(chatRepository.findById(any(UUID.class))).thenReturn(Optional.of(chat));
+        when(chatRepository.findWithUserRoleById(any(UUID.class))).thenReturn(Optional.of(chat));
 
         assertThrows(IllegalStateException.class, () -> chatService.delete(request, authentication));
 
@@ -295,9 +512,17 @@ class ChatServiceTest {
         Chat newChat = new Chat();
         newChat.setName("test");
 
+        newChat.setRetentionDays(30);
+
         chatService.copyNotNullDetails(chat, newChat);
 
         assertEquals(newChat.getName(), chat.getName());
+        assertEquals(30, chat.getRetentionDays());
+
+        newChat.setRetentionDays(-1);
+
+        assertThrows(IllegalArgumentException.class, () -> chatService.copyNotNullDetails(chat, newChat));
+        assertEquals(30, chat.getRetentionDays());
     }
 
     @Test
@@ -333,7 +558,7 @@ class ChatServiceTest {
         chatRoleRequest.setUserId(userModerator.getId());
 
         when(authentication.getPrincipal()).thenReturn(user);
-        when(chatRepository.findById(any(UUID.class))).thenReturn(Optional.of(chat));
+        when(chatRepository.findWithUserRoleById(any(UUID.class))).thenReturn(Optional.of(chat));
 
         chatService.setRoleToUser(chatRoleRequest, authentication);
 
@@ -406,7 +631,7 @@ class ChatServiceTest {
         chat.getUserRole().add(userRole);
 
         when(authentication.getPrincipal()).thenReturn(user);
-        when(chatRepository.findById(any(UUID.class))).thenReturn(Optional.of(chat));
+        when(chatRepository.findWithUsersById(any(UUID.class))).thenReturn(Optional.of(chat));
 
         User newUser = new User();
         newUser.setId(UUID.randomUUID());
@@ -416,17 +641,20 @@ class ChatServiceTest {
         chatUserRequest.setUserId(newUser.getId());
 
         when(userRepository.findById(any(UUID.class))).thenReturn(Optional.of(newUser));
+        when(membershipIndex.isMember(chat.getId(), user.getId())).thenReturn(true);
 
         chatService.addUser(chatUserRequest, authentication);
 
-        UserRoleChat newUserRole = chat.getUserRole().get(1);
+        ArgumentCaptor<UserRoleChat> newUserRole = ArgumentCaptor.forClass(UserRoleChat.class);
 
         assertTrue(chat.getUsers().contains(newUser));
-        assertEquals(chat, newUserRole.getChat());
-        assertEquals(newUser.getId(), newUserRole.getUserId());
-        assertEquals(Role.ROLE_USER, newUserRole.getRole());
-
         verify(chatRepository, times(1)).save(chat);
+        verify(userRoleChatRepository, times(1)).save(newUserRole.capture());
+        assertEquals(chat, newUserRole.getValue().getChat());
+        assertEquals(newUser.getId(), newUserRole.getValue().getUserId());
+        assertEquals(Role.ROLE_USER, newUserRole.getValue().getRole());
+
+        verify(membershipIndex, times(1)).invalidate(chat.getId());
     }
 
     @Test
@@ -459,13 +687,13 @@ class ChatServiceTest {
 
         verify(chatRepository, never()).save(chat);
 
-        when(chatRepository.findById(any(UUID.class))).thenReturn(Optional.of(chat));
+        when(chatRepository.findWithUsersById(any(UUID.class))).thenReturn(Optional.of(chat));
 
         assertThrows(IllegalStateException.class, () -> chatService.addUser(chatUserRequest, authentication));
 
         verify(chatRepository, never()).save(chat);
 
-        chat.getUsers().add(user);
+        when(membershipIndex.isMember(chat.getId(), user.getId())).thenReturn(true);
 
         assertThrows(IllegalStateException.class, () -> chatService.addUser(chatUserRequest, authentication));
 
@@ -495,11 +723,11 @@ class ChatServiceTest {
         deletedUserRole.setUserId(deletedUser.getId());
         deletedUserRole.setRole(Role.ROLE_USER);
 
-        chat.getUserRole().add(userRole);
-        chat.getUserRole().add(deletedUserRole);
-
         when(authentication.getPrincipal()).thenReturn(user);
-        when(chatRepository.findById(any(UUID.class))).thenReturn(Optional.of(chat));
+        when(chatRepository.findWithUsersById(any(UUID.class))).thenReturn(Optional.of(chat));
+        when(userRoleChatRepository.findByChatAndUserId(chat, user.getId())).thenReturn(Optional.of(userRole));
+        when(userRoleChatRepository.findByChatAndUserId(chat, deletedUser.getId()))
+                .thenReturn(Optional.of(deletedUserRole));
         when(userRepository.findById(any(UUID.class))).thenReturn(Optional.of(deletedUser));
 
         ChatUserRequest chatUserRequest = new ChatUserRequest();
@@ -508,8 +736,10 @@ class ChatServiceTest {
 
         chatService.removeUser(chatUserRequest, authentication);
 
+        assertFalse(chat.getUsers().contains(deletedUser));
         verify(chatRepository, times(1)).save(chat);
         verify(userRoleChatRepository, times(1)).delete(deletedUserRole);
+        verify(membershipIndex, times(1)).invalidate(chat.getId());
     }
 
     @Test
@@ -540,7 +770,7 @@ class ChatServiceTest {
         verify(chatRepository, never()).save(any());
         verify(userRoleChatRepository, never()).delete(any());
 
-        when(chatRepository.findById(any(UUID.class))).thenReturn(Optional.of(chat));
+        when(chatRepository.findWithUsersById(any(UUID.class))).thenReturn(Optional.of(chat));
 
         UserRoleChat userRole = new UserRoleChat();
         userRole.setRole(Role.ROLE_ADMIN);
@@ -548,7 +778,8 @@ class ChatServiceTest {
         userRole.setUserId(user.getId());
 
         chat.getUsers().add(user);
-        chat.getUserRole().add(userRole);
+
+        when(userRoleChatRepository.findByChatAndUserId(chat, user.getId())).thenReturn(Optional.of(userRole));
 
         assertThrows(IllegalStateException.class, () -> chatService.removeUser(chatUserRequest, authentication));
 
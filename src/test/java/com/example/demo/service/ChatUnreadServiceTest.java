@@ -0,0 +1,55 @@
+package com.example.demo.service;
+
+import com.example.demo.models.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChatUnreadServiceTest {
+    @InjectMocks
+    private ChatUnreadService chatUnreadService;
+    @Mock
+    private ChatMembershipIndex membershipIndex;
+    @Mock
+    private UnreadCounterService unreadCounterService;
+    @Mock
+    private Authentication authentication;
+
+    @Test
+    void testMarkRead() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        UUID chatId = UUID.randomUUID();
+        Authentication auth = new UsernamePasswordAuthenticationToken(user, null);
+
+        when(membershipIndex.isMember(chatId, user.getId())).thenReturn(true);
+
+        chatUnreadService.markRead(chatId.toString(), auth);
+
+        verify(unreadCounterService, times(1)).markRead(chatId, user.getId());
+    }
+
+    @Test
+    void testFindUnreadCounts() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        Authentication auth = new UsernamePasswordAuthenticationToken(user, null);
+        Map<UUID, Long> counts = Map.of(UUID.randomUUID(), 3L);
+
+        when(unreadCounterService.findAll(user.getId())).thenReturn(counts);
+
+        assertEquals(counts, chatUnreadService.findUnreadCounts(auth));
+        assertThrows(NullPointerException.class, () -> chatUnreadService.findUnreadCounts(authentication));
+    }
+}
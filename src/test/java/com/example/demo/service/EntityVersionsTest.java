@@ -0,0 +1,51 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.response.MessageEvent;
+import com.example.demo.models.Message;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityVersionsTest {
+    private final EntityVersions entityVersions = new EntityVersions();
+
+    @Test
+    void testEtag_stableUntilChanged() {
+        UUID chatId = UUID.randomUUID();
+
+        String etag = entityVersions.etag(EntityVersions.Kind.CHAT, chatId.toString());
+
+        assertTrue(etag.startsWith("W/\"chat-") && etag.endsWith("\""));
+        assertEquals(etag, entityVersions.etag(EntityVersions.Kind.CHAT, chatId.toString().toUpperCase()));
+        assertNotEquals(etag, entityVersions.etag(EntityVersions.Kind.USER, chatId.toString()));
+
+        entityVersions.changed(EntityVersions.Kind.CHAT, chatId);
+
+        assertNotEquals(etag, entityVersions.etag(EntityVersions.Kind.CHAT, chatId.toString()));
+    }
+
+    @Test
+    void testOnMessageEvent() {
+        UUID chatId = UUID.randomUUID();
+        Message message = new Message();
+        message.setId(new ObjectId().toHexString());
+        message.setChatId(chatId);
+
+        String chatEtag = entityVersions.etag(EntityVersions.Kind.CHAT, chatId.toString());
+        String messageEtag = entityVersions.etag(EntityVersions.Kind.MESSAGE, message.getId());
+
+        entityVersions.onMessageEvent(new MessageEvent(MessageEvent.Type.UPDATED, chatId, message));
+
+        assertNotEquals(chatEtag, entityVersions.etag(EntityVersions.Kind.CHAT, chatId.toString()));
+        assertNotEquals(messageEtag, entityVersions.etag(EntityVersions.Kind.MESSAGE, message.getId()));
+    }
+
+    @Test
+    void testEtag_malformedId() {
+        assertNull(entityVersions.etag(EntityVersions.Kind.CHAT, "not-a-uuid"));
+        assertNull(entityVersions.etag(EntityVersions.Kind.MESSAGE, "not-an-object-id"));
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.demo.service;
+
+import com.example.demo.models.Message;
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.repository.MessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageArchiveTest {
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-06-01T00:00:00Z"), ZoneOffset.UTC);
+
+    @Mock
+    private MessageRepository messageRepository;
+    @Mock
+    private ChatRepository chatRepository;
+    @Mock
+    private ChatRetentionService chatRetentionService;
+    @Mock
+    private EntityVersions entityVersions;
+    @TempDir
+    Path directory;
+
+    private final List<MessageArchive> archives = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(chatRetentionService.cutoff(any())).thenReturn(MessageArchive.ORIGIN);
+    }
+
+    @AfterEach
+    void tearDown() {
+        archives.forEach(MessageArchive::destroy);
+    }
+
+    @Test
+    void testRun_archivesAndReadsBack() {
+        UUID chatId = UUID.randomUUID();
+        List<Message> messages = messages(chatId, 5);
+
+        when(chatRepository.findIdsAfter(new UUID(0, 0), 500)).thenReturn(List.of(chatId));
+        when(messageRepository.streamArchivable(eq(chatId), eq(MessageArchive.ORIGIN), any(LocalDateTime.class)))
+                .thenReturn(messages.stream());
+
+        MessageArchive archive = archive(true);
+        archive.run();
+
+        Message last = messages.get(4);
+        verify(messageRepository, times(1)).deleteArchived(chatId, last.getTime(), new ObjectId(last.getId()));
+        verify(entityVersions, times(1)).changed(EntityVersions.Kind.CHAT, chatId);
+
+        assertEquals(List.of(messages.get(4), messages.get(3), messages.get(2)),
+                archive.findBefore(chatId, MessageArchive.ORIGIN, null, 3));
+        assertEquals(List.of(messages.get(1), messages.get(0)),
+                archive.findBefore(chatId, MessageArchive.ORIGIN, messages.get(2), 10));
+        assertEquals(messages.subList(2, 5), archive.findAfter(chatId, MessageArchive.ORIGIN, messages.get(1), 10));
+        assertEquals(messages.subList(2, 5), archive.stream(chatId, messages.get(2).getTime()).toList());
+        assertEquals(messages.get(3), archive.find(chatId, messages.get(3).getId()));
+        assertNull(archive.find(chatId, new ObjectId().toHexString()));
+        assertTrue(archive.isArchived(chatId, last));
+        assertEquals(last.getTime(), archive.hotSince(chatId, MessageArchive.ORIGIN));
+
+        MessageArchive reopened = archive(false);
+
+        assertEquals(messages, reopened.stream(chatId, MessageArchive.ORIGIN).toList());
+    }
+
+    @Test
+    void testRun_resumesAfterWatermark() {
+        UUID chatId = UUID.randomUUID();
+        List<Message> messages = messages(chatId, 4);
+
+        when(chatRepository.findIdsAfter(new UUID(0, 0), 500)).thenReturn(List.of(chatId));
+        when(messageRepository.streamArchivable(eq(chatId), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(messages.subList(0, 2).stream(), messages.stream());
+
+        MessageArchive archive = archive(true);
+        archive.run();
+        archive.run();
+
+        assertEquals(messages, archive.stream(chatId, MessageArchive.ORIGIN).toList());
+        verify(messageRepository, times(2)).deleteArchived(chatId, messages.get(1).getTime(),
+                new ObjectId(messages.get(1).getId()));
+    }
+
+    @Test
+    void testPurge_dropsChatFromReadsAndDisk() {
+        UUID purgedId = UUID.randomUUID();
+        UUID keptId = UUID.randomUUID();
+        List<Message> purged = messages(purgedId, 2);
+        List<Message> kept = messages(keptId, 2);
+
+        when(chatRepository.findIdsAfter(new UUID(0, 0), 500))
+                .thenReturn(List.of(purgedId, keptId), List.of(keptId));
+        when(messageRepository.streamArchivable(eq(purgedId), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(purged.stream());
+        when(messageRepository.streamArchivable(eq(keptId), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(kept.stream(), Stream.empty());
+
+        MessageArchive archive = archive(true);
+        archive.run();
+        archive.purge(purgedId);
+
+        assertEquals(List.of(), archive.stream(purgedId, MessageArchive.ORIGIN).toList());
+        assertNull(archive.find(purgedId, purged.get(0).getId()));
+        assertTrue(Files.exists(segmentFile(0)));
+
+        archive.run();
+
+        assertFalse(Files.exists(segmentFile(0)));
+        assertTrue(Files.exists(segmentFile(1)));
+        assertEquals(kept, archive.stream(keptId, MessageArchive.ORIGIN).toList());
+
+        MessageArchive reopened = archive(false);
+
+        assertEquals(List.of(), reopened.stream(purgedId, MessageArchive.ORIGIN).toList());
+        assertEquals(kept, reopened.stream(keptId, MessageArchive.ORIGIN).toList());
+    }
+
+    @Test
+    void testRun_dropsDeletedChat() {
+        UUID chatId = UUID.randomUUID();
+        List<Message> messages = messages(chatId, 2);
+
+        when(chatRepository.findIdsAfter(new UUID(0, 0), 500)).thenReturn(List.of(chatId));
+        when(messageRepository.streamArchivable(eq(chatId), eq(MessageArchive.ORIGIN), any(LocalDateTime.class)))
+                .thenReturn(messages.stream());
+        when(chatRetentionService.cutoff(chatId)).thenThrow(new IllegalStateException("Chat does not exist"));
+
+        MessageArchive archive = archive(true);
+        archive.run();
+
+        assertEquals(List.of(), archive.stream(chatId, MessageArchive.ORIGIN).toList());
+        assertFalse(Files.exists(segmentFile(0)));
+        assertFalse(Files.exists(segmentFile(1)));
+    }
+
+    @Test
+    void testRun_compactsExpiredMessages() throws Exception {
+        UUID chatId = UUID.randomUUID();
+        List<Message> messages = messages(chatId, 4);
+
+        when(chatRepository.findIdsAfter(new UUID(0, 0), 500)).thenReturn(List.of(chatId));
+        when(messageRepository.streamArchivable(eq(chatId), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(messages.stream(), Stream.empty());
+
+        MessageArchive archive = archive(true);
+        archive.run();
+        Path backup = Files.createDirectory(directory.resolve("backup"));
+        for (String suffix : List.of(ArchiveSegment.SEGMENT_SUFFIX, ArchiveSegment.INDEX_SUFFIX)) {
+            Files.copy(ArchiveSegment.file(directory, 0, suffix), ArchiveSegment.file(backup, 0, suffix));
+        }
+
+        when(chatRetentionService.cutoff(chatId)).thenReturn(messages.get(3).getTime());
+        archive.run();
+
+        assertEquals(List.of(messages.get(3)), archive.stream(chatId, MessageArchive.ORIGIN).toList());
+        assertFalse(Files.exists(segmentFile(0)));
+        verify(entityVersions, times(2)).changed(EntityVersions.Kind.CHAT, chatId);
+
+        for (String suffix : List.of(ArchiveSegment.SEGMENT_SUFFIX, ArchiveSegment.INDEX_SUFFIX)) {
+            Files.move(ArchiveSegment.file(backup, 0, suffix), ArchiveSegment.file(directory, 0, suffix),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        MessageArchive reopened = archive(false);
+
+        assertEquals(List.of(messages.get(3)), reopened.stream(chatId, MessageArchive.ORIGIN).toList());
+        assertFalse(Files.exists(segmentFile(0)));
+    }
+
+    @Test
+    void testRun_keepsMostlyLiveSegment() {
+        UUID chatId = UUID.randomUUID();
+        List<Message> messages = messages(chatId, 4);
+
+        when(chatRepository.findIdsAfter(new UUID(0, 0), 500)).thenReturn(List.of(chatId));
+        when(messageRepository.streamArchivable(eq(chatId), eq(MessageArchive.ORIGIN), any(LocalDateTime.class)))
+                .thenReturn(messages.stream());
+        when(chatRetentionService.cutoff(chatId)).thenReturn(messages.get(1).getTime());
+
+        MessageArchive archive = archive(true);
+        archive.run();
+
+        assertTrue(Files.exists(segmentFile(0)));
+        assertEquals(messages, archive.stream(chatId, MessageArchive.ORIGIN).toList());
+    }
+
+    @Test
+    void testLoad_removesUncommittedSegment() throws Exception {
+        Path segment = Files.createFile(directory.resolve("0000000000000000" + ArchiveSegment.SEGMENT_SUFFIX));
+
+        archive(false);
+
+        assertFalse(Files.exists(segment));
+    }
+
+    private MessageArchive archive(boolean enabled) {
+        MessageArchive archive = new MessageArchive(messageRepository, chatRepository, chatRetentionService,
+                entityVersions, new SimpleMeterRegistry(), directory, enabled, Duration.ofDays(30), 2, DataSize.ofMegabytes(1), false,
+                CLOCK);
+        archives.add(archive);
+        return archive;
+    }
+
+    private Path segmentFile(long sequence) {
+        return ArchiveSegment.file(directory, sequence, ArchiveSegment.SEGMENT_SUFFIX);
+    }
+
+    private static List<Message> messages(UUID chatId, int count) {
+        LocalDateTime start = LocalDateTime.now(CLOCK).minusDays(60);
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Message message = new Message();
+            message.setId(new ObjectId().toHexString());
+            message.setChatId(chatId);
+            message.setUserId(UUID.randomUUID());
+            message.setContext("message " + i);
+            message.setTime(start.plusMinutes(i));
+            messages.add(message);
+        }
+        return messages;
+    }
+}
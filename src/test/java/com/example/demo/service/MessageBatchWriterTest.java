@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+import com.example.demo.PinnedThreadDetector;
+import com.example.demo.models.Message;
+import com.example.demo.repository.MessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith({MockitoExtension.class, PinnedThreadDetector.class})
+class MessageBatchWriterTest {
+    @Mock
+    private MessageRepository messageRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MessageBatchWriter batchWriter;
+
+    @BeforeEach
+    void setUp() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.batchWriter = new MessageBatchWriter(messageRepository, meterRegistry, true, 16,
+                Duration.ofMillis(50), 100, Duration.ofSeconds(5), true);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        batchWriter.destroy();
+    }
+
+    @Test
+    void testInsert() throws Exception {
+        when(messageRepository.insertUnordered(anyList())).thenAnswer(invocation -> {
+            List<Message> messages = invocation.getArgument(0);
+            messages.forEach(message -> message.setId(message.getContext()));
+            return Map.of();
+        });
+
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Message>> futures = List.of("1", "2", "3").stream()
+                    .map(context -> {
+                        Message message = new Message();
+                        message.setContext(context);
+                        return callers.submit(() -> batchWriter.insert(message));
+                    })
+                    .toList();
+
+            for (Future<Message> future : futures) {
+                Message message = future.get();
+                assertEquals(message.getContext(), message.getId());
+            }
+        }
+        assertEquals(3.0, meterRegistry.get("message.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    void testInsert_failsOnlyRejectedMessage() throws Exception {
+        when(messageRepository.insertUnordered(anyList())).thenAnswer(invocation -> {
+            List<Message> messages = invocation.getArgument(0);
+            Map<Integer, DataAccessException> failures = new HashMap<>();
+            for (int i = 0; i < messages.size(); i++) {
+                if (messages.get(i).getContext().equals("duplicate")) {
+                    failures.put(i, new DuplicateKeyException("duplicate"));
+                }
+            }
+            return failures;
+        });
+
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Message> rejected = callers.submit(() -> batchWriter.insert(message("duplicate")));
+            Future<Message> accepted = callers.submit(() -> batchWriter.insert(message("accepted")));
+
+            assertEquals("accepted", accepted.get().getContext());
+            ExecutionException exception = assertThrows(ExecutionException.class, rejected::get);
+            assertInstanceOf(DuplicateKeyException.class, exception.getCause());
+        }
+    }
+
+    @Test
+    void testInsert_throwDataAccessException() {
+        when(messageRepository.insertUnordered(anyList())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> batchWriter.insert(new Message()));
+    }
+
+    @Test
+    void testInsert_timeoutRemovesQueuedMessage() throws InterruptedException {
+        SimpleMeterRegistry stalledRegistry = new SimpleMeterRegistry();
+        MessageBatchWriter stalled = new MessageBatchWriter(messageRepository, stalledRegistry, false, 16,
+                Duration.ofMillis(50), 100, Duration.ofMillis(50), true);
+        try {
+            assertThrows(MessageBackpressureException.class, () -> stalled.insert(message("late")));
+            assertEquals(0.0, stalledRegistry.get("message.batch.queue.depth").gauge().value());
+        } finally {
+            stalled.destroy();
+        }
+        verify(messageRepository, never()).insertUnordered(anyList());
+    }
+
+    private static Message message(String context) {
+        Message message = new Message();
+        message.setContext(context);
+        return message;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.response.InboxChatResponse;
+import com.example.demo.dto.response.InboxPageResponse;
+import com.example.demo.dto.response.MessagePageResponse;
+import com.example.demo.models.Message;
+import com.example.demo.models.User;
+import com.example.demo.repository.MessageRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageSearchServiceTest {
+    @InjectMocks
+    private MessageSearchService messageSearchService;
+    @Mock
+    private ChatActivityService chatActivityService;
+    @Mock
+    private MessageRepository messageRepository;
+    @Mock
+    private ChatMembershipIndex membershipIndex;
+    @Mock
+    private ChatRetentionService chatRetentionService;
+
+    @Test
+    void testSearch() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        Authentication auth = new UsernamePasswordAuthenticationToken(user, null);
+        UUID chatId = UUID.randomUUID();
+        ObjectId cursor = new ObjectId();
+
+        Message newer = new Message();
+        newer.setId(new ObjectId().toHexString());
+        Message older = new Message();
+        older.setId(new ObjectId().toHexString());
+
+        LocalDateTime since = LocalDateTime.now().minusDays(7);
+
+        when(membershipIndex.isMember(chatId, user.getId())).thenReturn(true);
+        when(chatRetentionService.cutoffs(List.of(chatId))).thenReturn(Map.of(chatId, since));
+        when(messageRepository.search(eq(chatId), eq(since), eq(cursor), any(TextCriteria.class), eq(2)))
+                .thenReturn(List.of(newer, older));
+
+        MessagePageResponse page = messageSearchService.search(chatId.toString(), "hello", cursor.toHexString(), 2, auth);
+
+        assertEquals(List.of(newer, older), page.getMessages());
+        assertEquals(older.getId(), page.getBefore());
+        assertThrows(IllegalArgumentException.class, () -> messageSearchService.search(chatId.toString(), " ", null, null, auth));
+        assertThrows(IllegalArgumentException.class, () -> messageSearchService.search(chatId.toString(), "hello", "not-a-cursor", null, auth));
+    }
+
+    @Test
+    void testSearchAll_mergesRecentChats() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        Authentication auth = new UsernamePasswordAuthenticationToken(user, null);
+        UUID firstId = UUID.randomUUID();
+        UUID secondId = UUID.randomUUID();
+        InboxChatResponse first = new InboxChatResponse(firstId, "first", 1, null, null, null, null);
+        InboxChatResponse second = new InboxChatResponse(secondId, "second", 1, null, null, null, null);
+
+        Message oldest = new Message();
+        oldest.setId(new ObjectId().toHexString());
+        Message middle = new Message();
+        middle.setId(new ObjectId().toHexString());
+        Message newest = new Message();
+        newest.setId(new ObjectId().toHexString());
+
+        LocalDateTime since = LocalDateTime.now().minusDays(7);
+
+        when(chatActivityService.findInbox(user.getId(), null, MessageSearchService.MAX_SEARCH_CHATS))
+                .thenReturn(new InboxPageResponse(List.of(first, second), null));
+        when(chatRetentionService.cutoffs(List.of(firstId, secondId)))
+                .thenReturn(Map.of(firstId, since, secondId, since));
+        when(messageRepository.search(eq(firstId), eq(since), isNull(), any(TextCriteria.class), eq(2)))
+                .thenReturn(List.of(newest, oldest));
+        when(messageRepository.search(eq(secondId), eq(since), isNull(), any(TextCriteria.class), eq(2)))
+                .thenReturn(List.of(middle));
+
+        MessagePageResponse page = messageSearchService.searchAll("hello", null, 2, auth);
+
+        assertEquals(List.of(newest, middle), page.getMessages());
+        assertEquals(middle.getId(), page.getBefore());
+    }
+
+    @Test
+    void testSearch_skipsDeletedChats() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        Authentication auth = new UsernamePasswordAuthenticationToken(user, null);
+        UUID chatId = UUID.randomUUID();
+
+        InboxChatResponse chat = new InboxChatResponse(chatId, "chat", 1, null, null, null, null);
+
+        when(chatActivityService.findInbox(user.getId(), null, MessageSearchService.MAX_SEARCH_CHATS))
+                .thenReturn(new InboxPageResponse(List.of(chat), null));
+        when(chatRetentionService.cutoffs(List.of(chatId))).thenReturn(Map.of());
+
+        MessagePageResponse page = messageSearchService.searchAll("hello", null, null, auth);
+
+        assertTrue(page.getMessages().isEmpty());
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void testSearch_throwIllegalStateException() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        Authentication auth = new UsernamePasswordAuthenticationToken(user, null);
+        UUID chatId = UUID.randomUUID();
+
+        when(membershipIndex.isMember(chatId, user.getId())).thenReturn(false);
+
+        assertThrows(IllegalStateException.class, () -> messageSearchService.search(chatId.toString(), "hello", null, null, auth));
+        verifyNoInteractions(messageRepository);
+    }
+}
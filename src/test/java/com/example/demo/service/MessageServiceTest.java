@@ -1,28 +1,40 @@
 package com.example.demo.service;
 
 import com.example.demo.dto.request.MessageRequest;
+import com.example.demo.dto.response.MessageBatchItemResponse;
+import com.example.demo.dto.response.MessageEvent;
 import com.example.demo.models.Chat;
 import com.example.demo.models.Message;
+import com.example.demo.models.TokenUser;
 import com.example.demo.models.User;
 import com.example.demo.models.UserRoleChat;
 import com.example.demo.models.role.Role;
 import com.example.demo.repository.ChatRepository;
 import com.example.demo.repository.MessageRepository;
 import com.example.demo.repository.UserRepository;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,6 +48,18 @@ class MessageServiceTest {
     @Mock
     private ChatRepository chatRepository;
     @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private ChatMembershipIndex membershipIndex;
+    @Mock
+    private MessageBatchWriter batchWriter;
+    @Mock
+    private UnreadCounterService unreadCounterService;
+    @Mock
+    private ChatActivityService chatActivityService;
+    @Mock
+    private ChatRetentionService chatRetentionService;
+    @Mock
     private Authentication authentication;
 
     private MessageRequest messageRequest;
@@ -61,13 +85,155 @@ class MessageServiceTest {
         messageRequest.setChatId(chat.getId());
 
         when(authentication.getPrincipal()).thenReturn(user);
-        when(chatRepository.findById(any(UUID.class))).thenReturn(Optional.of(chat));
+        LocalDateTime expireAt = LocalDateTime.now().plusDays(90);
+
+        when(membershipIndex.isMember(chat.getId(), user.getId())).thenReturn(true);
+        when(chatRetentionService.expireAt(eq(chat.getId()), any(LocalDateTime.class))).thenReturn(expireAt);
+        when(messageRepository.save(message)).thenReturn(message);
 
         messageService.save(messageRequest, authentication);
 
-        verify(userRepository, times(1)).save(user);
-        verify(chatRepository, times(1)).save(chat);
+        assertEquals(expireAt, message.getExpireAt());
+        verify(userRepository, never()).save(any());
+        verify(chatRepository, never()).findById(any());
+        verify(chatRepository, never()).save(any());
         verify(messageRepository, times(1)).save(message);
+        verify(eventPublisher, times(1)).publishEvent(any(MessageEvent.class));
+        verify(unreadCounterService, times(1)).increment(chat.getId(), user.getId(), 1);
+        verify(chatActivityService, times(1)).record(message);
+    }
+
+    @Test
+    void testSaveMessage_batched() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+
+        Message message = new Message();
+        message.setId(new ObjectId().toHexString());
+        message.setContext("test");
+
+        messageRequest.setMessage(message);
+        messageRequest.setChatId(UUID.randomUUID());
+
+        when(authentication.getPrincipal()).thenReturn(user);
+        when(membershipIndex.isMember(messageRequest.getChatId(), user.getId())).thenReturn(true);
+        when(batchWriter.isEnabled()).thenReturn(true);
+        when(batchWriter.insert(message)).thenReturn(message);
+
+        messageService.save(messageRequest, authentication);
+
+        assertNull(message.getId());
+        verify(batchWriter, times(1)).insert(message);
+        verify(messageRepository, never()).save(any());
+        verify(eventPublisher, times(1)).publishEvent(any(MessageEvent.class));
+    }
+
+    @Test
+    void testSaveAll() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        UUID chatId = UUID.randomUUID();
+        UUID foreignChatId = UUID.randomUUID();
+
+        List<MessageRequest> requests = List.of(request(chatId, "first"), request(foreignChatId, "foreign"),
+                request(chatId, "second"), request(null, "invalid"));
+        messageService.setMaxBatchSize(10);
+
+        when(authentication.getPrincipal()).thenReturn(user);
+        when(membershipIndex.isMember(chatId, user.getId())).thenReturn(true);
+        when(membershipIndex.isMember(foreignChatId, user.getId())).thenReturn(false);
+        when(messageRepository.insertUnordered(anyList())).thenAnswer(invocation -> {
+            List<Message> messages = invocation.getArgument(0);
+            messages.forEach(message -> message.setId(message.getContext()));
+            return Map.of();
+        });
+
+        List<MessageBatchItemResponse> results = messageService.saveAll(requests, authentication);
+
+        assertEquals(4, results.size());
+        assertEquals("first", results.get(0).getId());
+        assertEquals("User is not a member of the chat", results.get(1).getError());
+        assertEquals("second", results.get(2).getId());
+        assertEquals("Chat and message are required", results.get(3).getError());
+        verify(membershipIndex, times(1)).isMember(chatId, user.getId());
+        verify(messageRepository, times(1)).insertUnordered(anyList());
+        verify(eventPublisher, times(2)).publishEvent(any(MessageEvent.class));
+        verify(unreadCounterService, times(1)).increment(chatId, user.getId(), 2L);
+    }
+
+    @Test
+    void testSaveAll_throwIllegalArgumentException() {
+        List<MessageRequest> requests = List.of(request(UUID.randomUUID(), "first"),
+                request(UUID.randomUUID(), "second"));
+        messageService.setMaxBatchSize(1);
+
+        User user = new User();
+        user.setId(UUID.randomUUID());
+
+        when(authentication.getPrincipal()).thenReturn(user);
+
+        assertThrows(IllegalArgumentException.class, () -> messageService.saveAll(requests, authentication));
+
+        verify(messageRepository, never()).insertUnordered(anyList());
+    }
+
+    @Test
+    void testSaveAll_reportsFailedInserts() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        UUID chatId = UUID.randomUUID();
+        List<MessageRequest> requests = List.of(request(chatId, "first"), request(chatId, "duplicate"));
+        messageService.setMaxBatchSize(10);
+
+        when(authentication.getPrincipal()).thenReturn(user);
+        when(membershipIndex.isMember(chatId, user.getId())).thenReturn(true);
+        when(messageRepository.insertUnordered(anyList())).thenAnswer(invocation -> {
+            List<Message> messages = invocation.getArgument(0);
+            messages.forEach(message -> message.setId(message.getContext()));
+            return Map.of(1, new DuplicateKeyException("duplicate key"));
+        });
+
+        List<MessageBatchItemResponse> results = messageService.saveAll(requests, authentication);
+
+        assertEquals("first", results.get(0).getId());
+        assertNull(results.get(1).getId());
+        assertEquals("Message was not saved", results.get(1).getError());
+        verify(eventPublisher, times(1)).publishEvent(any(MessageEvent.class));
+        verify(unreadCounterService, times(1)).increment(chatId, user.getId(), 1L);
+        verify(chatActivityService, times(1)).recordAll(List.of(requests.get(0).getMessage()));
+    }
+
+    @Test
+    void testSaveAll_cookieAuthenticated() {
+        UUID userId = UUID.randomUUID();
+        UUID chatId = UUID.randomUUID();
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                new TokenUser(userId.toString(), "nopassword", List.of(), null), null);
+        List<MessageRequest> requests = List.of(request(chatId, "first"));
+        messageService.setMaxBatchSize(10);
+
+        when(membershipIndex.isMember(chatId, userId)).thenReturn(true);
+        when(messageRepository.insertUnordered(anyList())).thenAnswer(invocation -> {
+            List<Message> messages = invocation.getArgument(0);
+            messages.forEach(message -> message.setId(message.getContext()));
+            return Map.of();
+        });
+
+        List<MessageBatchItemResponse> results = messageService.saveAll(requests, auth);
+
+        assertEquals("first", results.get(0).getId());
+        assertEquals(userId, requests.get(0).getMessage().getUserId());
+        verify(unreadCounterService, times(1)).increment(chatId, userId, 1L);
+    }
+
+    private static MessageRequest request(UUID chatId, String context) {
+        Message message = new Message();
+        message.setContext(context);
+
+        MessageRequest request = new MessageRequest();
+        request.setChatId(chatId);
+        request.setMessage(message);
+        return request;
     }
 
     @Test
@@ -94,7 +260,7 @@ class MessageServiceTest {
         messageRequest.setChatId(chat.getId());
 
         when(authentication.getPrincipal()).thenReturn(user);
-        when(chatRepository.findById(any(UUID.class))).thenReturn(Optional.of(chat));
+        when(membershipIndex.isMember(chat.getId(), user.getId())).thenReturn(false);
 
         assertThrows(IllegalArgumentException.class, () -> messageService.save(messageRequest, authentication));
 
@@ -115,6 +281,8 @@ class MessageServiceTest {
         messageRequest.setChatId(chat.getId());
 
         when(authentication.getPrincipal()).thenReturn(user);
+        when(membershipIndex.isMember(chat.getId(), user.getId()))
+                .thenThrow(new IllegalStateException("Chat does not exist"));
 
         assertThrows(IllegalStateException.class, () -> messageService.save(messageRequest, authentication));
 
@@ -129,14 +297,30 @@ class MessageServiceTest {
 
         Message message = new Message();
         message.setId(id);
+        message.setChatId(UUID.randomUUID());
+        message.setTime(LocalDateTime.now());
 
         when(messageRepository.findById(anyString())).thenReturn(Optional.of(message));
+        when(chatRetentionService.cutoff(message.getChatId())).thenReturn(message.getTime().minusDays(7));
 
         Message findedMessage = messageService.findById(id);
 
         assertEquals(message, findedMessage);
     }
 
+    @Test
+    void testFindById_hidesMessageOlderThanRetention(){
+        Message message = new Message();
+        message.setId(UUID.randomUUID().toString());
+        message.setChatId(UUID.randomUUID());
+        message.setTime(LocalDateTime.now().minusDays(8));
+
+        when(messageRepository.findById(message.getId())).thenReturn(Optional.of(message));
+        when(chatRetentionService.cutoff(message.getChatId())).thenReturn(LocalDateTime.now().minusDays(7));
+
+        assertThrows(IllegalStateException.class, () -> messageService.findById(message.getId()));
+    }
+
     @Test
     void testFindById_throwIllegalStateException(){
         assertThrows(IllegalStateException.class, () -> messageService.findById(UUID.randomUUID().toString()));
@@ -160,12 +344,13 @@ class MessageServiceTest {
         messageRequest.setChatId(chat.getId());
 
         when(authentication.getPrincipal()).thenReturn(user);
-        when(chatRepository.findById(any(UUID.class))).thenReturn(Optional.of(chat));
+        when(chatRepository.findWithUserRoleById(any(UUID.class))).thenReturn(Optional.of(chat));
         when(messageRepository.findById(any())).thenReturn(Optional.of(message));
 
         messageService.update(messageRequest, authentication);
 
         verify(messageRepository, times(1)).save(message);
+        verify(eventPublisher, times(1)).publishEvent(any(MessageEvent.class));
     }
 
     @Test
@@ -194,7 +379,7 @@ class MessageServiceTest {
         messageRequest.setChatId(chat.getId());
 
         when(authentication.getPrincipal()).thenReturn(user);
-        when(chatRepository.findById(any(UUID.class))).thenReturn(Optional.of(chat));
+        when(chatRepository.findWithUserRoleById(any(UUID.class))).thenReturn(Optional.of(chat));
         when(messageRepository.findById(any())).thenReturn(Optional.of(message));
 
         assertThrows(IllegalArgumentException.class, () -> messageService.update(messageRequest, authentication));
@@ -229,7 +414,7 @@ class MessageServiceTest {
         verify(chatRepository, never()).save(any());
         verify(messageRepository, never()).save(any());
 
-        when(chatRepository.findById(any(UUID.class))).thenReturn(Optional.of(chat));
+        when(chatRepository.findWithUserRoleById(any(UUID.class))).thenReturn(Optional.of(chat));
 
         assertThrows(IllegalStateException.class, () -> messageService.update(messageRequest, authentication));
 
@@ -264,12 +449,13 @@ class MessageServiceTest {
         messageRequest.setChatId(chat.getId());
 
         when(authentication.getPrincipal()).thenReturn(user);
-        when(chatRepository.findById(any(UUID.class))).thenReturn(Optional.of(chat));
+        when(chatRepository.findWithUserRoleById(any(UUID.class))).thenReturn(Optional.of(chat));
         when(messageRepository.findById(anyString())).thenReturn(Optional.of(message));
 
         messageService.delete(messageRequest, authentication);
 
         verify(messageRepository, times(1)).delete(message);
+        verify(eventPublisher, times(1)).publishEvent(any(MessageEvent.class));
     }
 
     @Test
@@ -298,7 +484,7 @@ class MessageServiceTest {
         messageRequest.setChatId(chat.getId());
 
         when(authentication.getPrincipal()).thenReturn(user);
-        when(chatRepository.findById(any(UUID.class))).thenReturn(Optional.of(chat));
+        when(chatRepository.findWithUserRoleById(any(UUID.class))).thenReturn(Optional.of(chat));
         when(messageRepository.findById(anyString())).thenReturn(Optional.of(message));
 
         assertThrows(IllegalArgumentException.class, () -> messageService.delete(messageRequest, authentication));
@@ -331,7 +517,7 @@ class MessageServiceTest {
         verify(chatRepository, never()).save(any());
         verify(messageRepository, never()).save(any());
 
-        when(chatRepository.findById(any(UUID.class))).thenReturn(Optional.of(chat));
+        when(chatRepository.findWithUserRoleById(any(UUID.class))).thenReturn(Optional.of(chat));
 
         assertThrows(IllegalStateException.class, () -> messageService.update(messageRequest, authentication));
 
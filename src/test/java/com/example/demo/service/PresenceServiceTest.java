@@ -0,0 +1,121 @@
+package com.example.demo.service;
+
+import com.example.demo.models.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PresenceServiceTest {
+    @Mock
+    private ChatMembershipIndex membershipIndex;
+
+    private MutableClock clock;
+    private PresenceService presenceService;
+
+    @BeforeEach
+    void setUp() {
+        this.clock = new MutableClock();
+        this.presenceService = new PresenceService(membershipIndex, new SimpleMeterRegistry(), Duration.ofSeconds(30),
+                Duration.ofSeconds(5), Duration.ofSeconds(1), 2, 10, clock);
+    }
+
+    @Test
+    void testFindPresence_expiresAfterTtl() {
+        UUID chatId = UUID.randomUUID();
+        Authentication first = auth();
+        Authentication second = auth();
+        UUID firstId = ((User) first.getPrincipal()).getId();
+        UUID secondId = ((User) second.getPrincipal()).getId();
+
+        when(membershipIndex.isMember(eq(chatId), any())).thenReturn(true);
+        when(membershipIndex.members(chatId)).thenReturn(List.of(firstId, secondId));
+
+        presenceService.heartbeat(first);
+        presenceService.typing(chatId.toString(), second);
+        assertEquals(List.of(firstId, secondId), presenceService.findPresence(chatId.toString(), first).getOnline());
+        assertEquals(List.of(secondId), presenceService.findPresence(chatId.toString(), first).getTyping());
+
+        clock.advance(Duration.ofSeconds(10));
+        presenceService.expire();
+        presenceService.heartbeat(first);
+        assertEquals(List.of(), presenceService.findPresence(chatId.toString(), first).getTyping());
+
+        clock.advance(Duration.ofSeconds(25));
+        presenceService.expire();
+        assertEquals(List.of(firstId), presenceService.findPresence(chatId.toString(), first).getOnline());
+
+        clock.advance(Duration.ofSeconds(10));
+        assertEquals(List.of(), presenceService.findPresence(chatId.toString(), first).getOnline());
+    }
+
+    @Test
+    void testHeartbeat_boundedCapacity() {
+        presenceService.heartbeat(auth());
+        Authentication second = auth();
+        presenceService.heartbeat(second);
+
+        assertThrows(IllegalStateException.class, () -> presenceService.heartbeat(auth()));
+        presenceService.heartbeat(second);
+
+        clock.advance(Duration.ofSeconds(31));
+        presenceService.expire();
+        presenceService.heartbeat(auth());
+    }
+
+    @Test
+    void testTyping_throwIllegalStateException() {
+        UUID chatId = UUID.randomUUID();
+
+        when(membershipIndex.isMember(eq(chatId), any())).thenReturn(false);
+
+        assertThrows(IllegalStateException.class, () -> presenceService.typing(chatId.toString(), auth()));
+    }
+
+    private static Authentication auth() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        return new UsernamePasswordAuthenticationToken(user, null);
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
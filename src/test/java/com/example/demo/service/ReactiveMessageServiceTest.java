@@ -0,0 +1,148 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.request.MessageRequest;
+import com.example.demo.dto.response.MessageEvent;
+import com.example.demo.models.Message;
+import com.example.demo.models.User;
+import com.example.demo.repository.ChatRepository;
+import com.example.demo.repository.ReactiveMessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveMessageServiceTest {
+    @InjectMocks
+    private ReactiveMessageService messageService;
+    @Mock
+    private ReactiveMessageRepository messageRepository;
+    @Mock
+    private ChatRepository chatRepository;
+    @Mock
+    private ChatMembershipIndex membershipIndex;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private UnreadCounterService unreadCounterService;
+    @Mock
+    private ChatActivityService chatActivityService;
+    @Mock
+    private ChatRetentionService chatRetentionService;
+    @Mock
+    private MessageArchive messageArchive;
+
+    private User user;
+    private Authentication authentication;
+
+    @BeforeEach
+    void setUp() {
+        this.user = new User();
+        user.setId(UUID.randomUUID());
+        this.authentication = new UsernamePasswordAuthenticationToken(user, null, List.of());
+    }
+
+    @Test
+    void testSave() {
+        Message message = new Message();
+        message.setContext("test");
+        MessageRequest request = new MessageRequest();
+        request.setChatId(UUID.randomUUID());
+        request.setMessage(message);
+
+        when(membershipIndex.isMember(request.getChatId(), user.getId())).thenReturn(true);
+        when(messageRepository.insert(message)).thenReturn(Mono.just(message));
+
+        StepVerifier.create(messageService.save(request, authentication))
+                .expectNext(message)
+                .verifyComplete();
+
+        verify(eventPublisher, times(1)).publishEvent(any(MessageEvent.class));
+        verify(unreadCounterService, times(1)).increment(request.getChatId(), user.getId(), 1);
+    }
+
+    @Test
+    void testSave_throwIllegalArgumentException() {
+        MessageRequest request = new MessageRequest();
+        request.setChatId(UUID.randomUUID());
+        request.setMessage(new Message());
+
+        when(membershipIndex.isMember(request.getChatId(), user.getId())).thenReturn(false);
+
+        StepVerifier.create(messageService.save(request, authentication))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verify(messageRepository, never()).insert(any(Message.class));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void testFindMessages() {
+        UUID chatId = UUID.randomUUID();
+        Message older = new Message();
+        older.setId("older");
+        Message newer = new Message();
+        newer.setId("newer");
+
+        LocalDateTime since = LocalDateTime.now().minusDays(90);
+
+        when(chatRetentionService.cutoff(chatId)).thenReturn(since);
+        when(messageArchive.hotSince(chatId, since)).thenReturn(since);
+        when(messageRepository.findLatest(eq(chatId), eq(since), any(Pageable.class)))
+                .thenReturn(Flux.just(newer, older));
+
+        StepVerifier.create(messageService.findMessages(chatId.toString(), null, null, null))
+                .expectNextMatches(page -> page.getMessages().equals(List.of(older, newer))
+                        && page.getBefore().equals("older") && page.getAfter().equals("newer"))
+                .verifyComplete();
+    }
+
+    @Test
+    void testFindById() {
+        UUID chatId = UUID.randomUUID();
+        Message message = new Message();
+        message.setId("id");
+        message.setChatId(chatId);
+        message.setTime(LocalDateTime.now());
+
+        when(messageRepository.findById("id")).thenReturn(Mono.just(message));
+        when(chatRetentionService.cutoff(chatId)).thenReturn(LocalDateTime.now().minusDays(90));
+
+        StepVerifier.create(messageService.findById("id"))
+                .expectNext(message)
+                .verifyComplete();
+    }
+
+    @Test
+    void testFindById_hidesMessagePastRetention() {
+        UUID chatId = UUID.randomUUID();
+        Message message = new Message();
+        message.setId("id");
+        message.setChatId(chatId);
+        message.setTime(LocalDateTime.now().minusDays(91));
+
+        when(messageRepository.findById("id")).thenReturn(Mono.just(message));
+        when(chatRetentionService.cutoff(chatId)).thenReturn(LocalDateTime.now().minusDays(90));
+
+        StepVerifier.create(messageService.findById("id"))
+                .expectError(IllegalStateException.class)
+                .verify();
+    }
+}
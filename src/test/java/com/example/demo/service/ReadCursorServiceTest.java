@@ -0,0 +1,140 @@
+package com.example.demo.service;
+
+import com.example.demo.models.ReadCursor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReadCursorServiceTest {
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReadCursorService readCursorService;
+
+    @BeforeEach
+    void setUp() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.readCursorService = new ReadCursorService(mongoTemplate, meterRegistry);
+    }
+
+    @Test
+    void testFlush_coalescesUpdates() {
+        UUID chatId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ids.add(new ObjectId().toHexString());
+        }
+
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ReadCursor.class)).thenReturn(bulkOperations);
+
+        ids.reversed().forEach(id -> readCursorService.update(chatId, userId, id));
+        readCursorService.flush();
+        readCursorService.flush();
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(1)).upsert(any(Query.class), update.capture());
+        verify(bulkOperations, times(1)).execute();
+        assertEquals(ids.getLast(), update.getValue().getUpdateObject().get("$max", Document.class)
+                .get("messageId"));
+        assertEquals(50, meterRegistry.counter("chat.read.cursor.updates").count());
+        assertEquals(1, meterRegistry.counter("chat.read.cursor.writes").count());
+    }
+
+    @Test
+    void testFindAll_mergesPendingAndStored() {
+        UUID chatId = UUID.randomUUID();
+        UUID ahead = UUID.randomUUID();
+        UUID behind = UUID.randomUUID();
+        String older = new ObjectId().toHexString();
+        String newer = new ObjectId().toHexString();
+
+        ReadCursor storedAhead = new ReadCursor();
+        storedAhead.setUserId(ahead);
+        storedAhead.setMessageId(newer);
+        ReadCursor storedBehind = new ReadCursor();
+        storedBehind.setUserId(behind);
+        storedBehind.setMessageId(older);
+
+        when(mongoTemplate.find(any(Query.class), eq(ReadCursor.class))).thenReturn(List.of(storedAhead, storedBehind));
+
+        readCursorService.update(chatId, ahead, older);
+        readCursorService.update(chatId, behind, newer);
+
+        assertEquals(Map.of(ahead, newer, behind, newer), readCursorService.findAll(chatId));
+    }
+
+    @Test
+    void testFlush_keepsConcurrentUpdates() throws Exception {
+        UUID chatId = UUID.randomUUID();
+        List<UUID> userIds = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        int updates = 20_000;
+        Map<String, String> stored = new ConcurrentHashMap<>();
+        ReadCursorService service = new ReadCursorService(mongoTemplate, meterRegistry) {
+            @Override
+            protected void write(List<ReadCursor> cursors) {
+                cursors.forEach(cursor -> stored.merge(cursor.getId(), cursor.getMessageId(),
+                        (first, second) -> first.compareTo(second) >= 0 ? first : second));
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(userIds.size() + 1);
+        AtomicBoolean updating = new AtomicBoolean(true);
+        try {
+            Future<?> flusher = executor.submit(() -> {
+                while (updating.get()) {
+                    service.flush();
+                }
+            });
+            List<Future<?>> updaters = new ArrayList<>();
+            for (UUID userId : userIds) {
+                updaters.add(executor.submit(() -> {
+                    for (int i = 1; i <= updates; i++) {
+                        service.update(chatId, userId, String.format("%024x", i));
+                    }
+                }));
+            }
+            for (Future<?> updater : updaters) {
+                updater.get(30, TimeUnit.SECONDS);
+            }
+            updating.set(false);
+            flusher.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        service.flush();
+
+        for (UUID userId : userIds) {
+            assertEquals(String.format("%024x", updates), stored.get(ReadCursor.id(userId, chatId)));
+        }
+    }
+}
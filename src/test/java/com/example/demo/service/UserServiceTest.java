@@ -2,6 +2,7 @@ package com.example.demo.service;
 
 import com.example.demo.models.User;
 import com.example.demo.models.role.Role;
+import com.example.demo.repository.ChatRepository;
 import com.example.demo.repository.UserRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,6 +12,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -29,6 +31,10 @@ class UserServiceTest {
 	private PasswordEncoder passwordEncoder;
 	@Mock
 	private Authentication authentication;
+	@Mock
+	private ChatRepository chatRepository;
+	@Mock
+	private EntityVersions entityVersions;
 
 	@Test
 	void testSaveUser() {
@@ -103,17 +109,22 @@ class UserServiceTest {
 	@Test
 	void testUpdateUser() {
 		User user = new User();
+		user.setId(UUID.randomUUID());
+		UUID chatId = UUID.randomUUID();
 		User updatedUser = new User();
 		updatedUser.setUsername("username");
 		updatedUser.setEmail("email@example.com");
 
 		when(authentication.getPrincipal()).thenReturn(user);
+		when(chatRepository.findIdsByUserId(user.getId())).thenReturn(List.of(chatId));
 
 		userService.update(updatedUser, authentication);
 
 		assertEquals(updatedUser.getUsername(), user.getUsername());
 		assertEquals(updatedUser.getEmail(), user.getEmail());
 		verify(userRepository, times(1)).save(user);
+		verify(entityVersions, times(1)).changed(EntityVersions.Kind.USER, user.getId());
+		verify(entityVersions, times(1)).changed(EntityVersions.Kind.CHAT, chatId);
 	}
 
 	@Test
@@ -0,0 +1,153 @@
+package com.example.demo.websocket;
+
+import com.example.demo.dto.response.MessageEvent;
+import com.example.demo.models.Message;
+import com.example.demo.service.ChatMembershipEvent;
+import com.example.demo.service.ChatMembershipIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChatWebSocketHandlerTest {
+    @Mock
+    private ChatMembershipIndex membershipIndex;
+    @Mock
+    private WebSocketSession session;
+
+    private final UUID chatId = UUID.randomUUID();
+    private final UUID userId = UUID.randomUUID();
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ChatWebSocketHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        this.handler = new ChatWebSocketHandler(new ObjectMapper().registerModule(new JavaTimeModule()),
+                membershipIndex, meterRegistry, 4, false);
+        attributes.put(ChatWebSocketHandshakeInterceptor.USER_ID_ATTRIBUTE, userId);
+        lenient().when(session.getId()).thenReturn("session");
+        lenient().when(session.getAttributes()).thenReturn(attributes);
+        lenient().when(session.isOpen()).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        handler.destroy();
+    }
+
+    @Test
+    void testOnMessageEvent_sendsToMember() throws Exception {
+        connect(Set.of(chatId));
+        when(membershipIndex.isMember(chatId, userId)).thenReturn(true);
+
+        handler.onMessageEvent(event(chatId));
+
+        verify(session, timeout(1000).times(1)).sendMessage(any(TextMessage.class));
+    }
+
+    @Test
+    void testOnMessageEvent_skipsRemovedMember() throws Exception {
+        connect(Set.of(chatId));
+        when(membershipIndex.isMember(chatId, userId)).thenReturn(false);
+
+        handler.onMessageEvent(event(chatId));
+        handler.onMessageEvent(event(chatId));
+
+        verify(membershipIndex, times(1)).isMember(chatId, userId);
+        verify(session, after(200).never()).sendMessage(any());
+        assertFalse(chatIds().contains(chatId));
+    }
+
+    @Test
+    void testOnMessageEvent_countsRejectedDelivery() throws Exception {
+        connect(Set.of(chatId));
+        when(membershipIndex.isMember(chatId, userId)).thenReturn(true);
+        handler.destroy();
+
+        handler.onMessageEvent(event(chatId));
+
+        assertEquals(1, meterRegistry.counter("chat.websocket.deliveries.rejected").count());
+        verify(session, times(1)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        verify(session, never()).sendMessage(any());
+    }
+
+    @Test
+    void testOnMembershipEvent_subscribesAddedMember() throws Exception {
+        connect(Set.of());
+        when(membershipIndex.members(chatId)).thenReturn(List.of(userId));
+        when(membershipIndex.isMember(chatId, userId)).thenReturn(true);
+
+        handler.onMembershipEvent(new ChatMembershipEvent(chatId));
+        handler.onMessageEvent(event(chatId));
+
+        assertTrue(chatIds().contains(chatId));
+        verify(session, timeout(1000).times(1)).sendMessage(any(TextMessage.class));
+    }
+
+    @Test
+    void testOnMembershipEvent_unsubscribesDeletedChat() throws Exception {
+        connect(Set.of(chatId));
+        when(membershipIndex.members(chatId)).thenThrow(new IllegalStateException("Chat does not exist"));
+
+        handler.onMembershipEvent(new ChatMembershipEvent(chatId));
+        handler.onMessageEvent(event(chatId));
+
+        assertFalse(chatIds().contains(chatId));
+        verify(membershipIndex, never()).isMember(any(), any());
+        verify(session, after(200).never()).sendMessage(any());
+    }
+
+    @Test
+    void testAfterConnectionClosed() throws Exception {
+        connect(Set.of(chatId));
+
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        handler.onMessageEvent(event(chatId));
+        when(membershipIndex.members(chatId)).thenReturn(List.of(userId));
+        handler.onMembershipEvent(new ChatMembershipEvent(chatId));
+        handler.onMessageEvent(event(chatId));
+
+        verify(membershipIndex, never()).isMember(any(), any());
+        verify(session, after(200).never()).sendMessage(any());
+    }
+
+    private void connect(Set<UUID> chatIds) {
+        Set<UUID> subscribed = ConcurrentHashMap.newKeySet();
+        subscribed.addAll(chatIds);
+        attributes.put(ChatWebSocketHandshakeInterceptor.CHAT_IDS_ATTRIBUTE, subscribed);
+        handler.afterConnectionEstablished(session);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<UUID> chatIds() {
+        return (Set<UUID>) attributes.get(ChatWebSocketHandshakeInterceptor.CHAT_IDS_ATTRIBUTE);
+    }
+
+    private static MessageEvent event(UUID chatId) {
+        Message message = new Message();
+        message.setChatId(chatId);
+        message.setContext("test");
+        return new MessageEvent(MessageEvent.Type.CREATED, chatId, message);
+    }
+}
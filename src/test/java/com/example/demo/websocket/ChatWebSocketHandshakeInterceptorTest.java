@@ -0,0 +1,80 @@
+package com.example.demo.websocket;
+
+import com.example.demo.models.User;
+import com.example.demo.repository.ChatRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.socket.WebSocketHandler;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChatWebSocketHandshakeInterceptorTest {
+    @InjectMocks
+    private ChatWebSocketHandshakeInterceptor interceptor;
+    @Mock
+    private ChatRepository chatRepository;
+    @Mock
+    private ServerHttpRequest request;
+    @Mock
+    private ServerHttpResponse response;
+    @Mock
+    private WebSocketHandler handler;
+
+    @Test
+    void testBeforeHandshake() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        UUID chatId = UUID.randomUUID();
+        Map<String, Object> attributes = new HashMap<>();
+
+        when(request.getPrincipal()).thenReturn(new UsernamePasswordAuthenticationToken(user, null));
+        when(chatRepository.findIdsByUserId(user.getId())).thenReturn(List.of(chatId));
+
+        assertTrue(interceptor.beforeHandshake(request, response, handler, attributes));
+
+        assertEquals(user.getId(), attributes.get(ChatWebSocketHandshakeInterceptor.USER_ID_ATTRIBUTE));
+        Set<?> chatIds = (Set<?>) attributes.get(ChatWebSocketHandshakeInterceptor.CHAT_IDS_ATTRIBUTE);
+        assertEquals(Set.of(chatId), chatIds);
+        verifyNoInteractions(response);
+    }
+
+    @Test
+    void testBeforeHandshake_forbidden() {
+        Map<String, Object> attributes = new HashMap<>();
+
+        assertFalse(interceptor.beforeHandshake(request, response, handler, attributes));
+
+        verify(response, times(1)).setStatusCode(HttpStatus.FORBIDDEN);
+        verifyNoInteractions(chatRepository);
+        assertTrue(attributes.isEmpty());
+    }
+
+    @Test
+    void testBeforeHandshake_serviceUnavailable() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+
+        when(request.getPrincipal()).thenReturn(new UsernamePasswordAuthenticationToken(user, null));
+        when(chatRepository.findIdsByUserId(user.getId())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertFalse(interceptor.beforeHandshake(request, response, handler, new HashMap<>()));
+
+        verify(response, times(1)).setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}